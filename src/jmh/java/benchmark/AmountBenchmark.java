@@ -0,0 +1,86 @@
+package benchmark;
+
+import model.Amounts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-point versus floating-point amounts - summing a column (long minor units with overflow check versus
+ * the compensated double summation used before) and formatting a result (Amounts.format versus String.format).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AmountBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    private long[]   m_minorUnits;
+    private double[] m_amounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(1);
+        m_minorUnits = new long[rows];
+        m_amounts = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            m_minorUnits[i] = random.nextInt(1_000_000);
+            m_amounts[i] = Amounts.toDouble(m_minorUnits[i]);
+        }
+    }
+
+    @Benchmark
+    public long sumMinorUnits() {
+        long sum = 0L;
+        for (long amount : m_minorUnits) {
+            sum = Math.addExact(sum, amount);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sumCompensatedDouble() {
+        double sum = 0.0d;
+        double compensation = 0.0d;
+        for (double amount : m_amounts) {
+            double next = sum + amount;
+            if (Math.abs(sum) >= Math.abs(amount)) {
+                compensation += (sum - next) + amount;
+            } else {
+                compensation += (amount - next) + sum;
+            }
+            sum = next;
+        }
+        return sum + compensation;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String formatMinorUnits() {
+        return Amounts.format(m_minorUnits[rows / 2] * 1000L);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String formatDouble() {
+        return String.format("%1$,.2f", m_amounts[rows / 2] * 1000.0d);
+    }
+}
@@ -0,0 +1,91 @@
+package benchmark;
+
+import analyzer.AveragingFunction;
+import analyzer.ResultCache;
+import analyzer.TransactionAnalyzer;
+import model.TransactionRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cost of a one-minute window query against data sets of growing size.
+ * With the binary searched date index the query cost should not depend on the data set size.
+ * With the aggregate index also the cost of the query of the whole data set should not depend on its size,
+ * with the rollups it grows with the number of days instead of rows (a week takes ~200 buckets of 604800 rows).
+ * With the result cache the repeated queries are answered from the cache whatever the range.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyzeRangeBenchmark {
+
+    private static final long START_DATE = 1534723200000L; // 20/08/2018 00:00:00 UTC
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    // scan = rows only, index = aggregate index, rollups = day / hour / minute rollups, cache = rows and result cache
+    @Param({"scan", "index", "rollups", "cache"})
+    public String aggregates;
+
+    private TransactionAnalyzer m_analyzer;
+    private long                m_from;
+    private long                m_to;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        m_analyzer = new TransactionAnalyzer(new AveragingFunction());
+        m_analyzer.setRollupsEnabled("rollups".equals(aggregates));
+        for (int i = 0; i < rows; i++) {
+            TransactionRecord record = new TransactionRecord();
+            record.setId(Integer.toString(i));
+            record.setDate(START_DATE + i * 1000L); // one transaction per second
+            record.setAmount(i % 100);
+            record.setMerchant("Kwik-E-Mart");
+            record.setType(TransactionRecord.TransactionType.PAYMENT);
+            m_analyzer.add(record);
+        }
+        if ("index".equals(aggregates)) {
+            m_analyzer.buildAggregateIndex();
+        }
+        if ("cache".equals(aggregates)) {
+            m_analyzer.setResultCache(new ResultCache());
+        }
+        // one minute window in the middle of the data set
+        m_from = START_DATE + (rows / 2) * 1000L;
+        m_to = m_from + 60000L;
+    }
+
+    @Benchmark
+    public Map<String, Object> oneMinuteWindow() {
+        return m_analyzer.analyze(m_from, m_to, new AveragingFunction());
+    }
+
+    @Benchmark
+    public Map<String, Object> weekWindow() {
+        // ragged edges, starts and ends in the middle of a minute
+        return m_analyzer.analyze(START_DATE + 90_500L, START_DATE + 90_500L + 7 * 86_400_000L, new AveragingFunction());
+    }
+
+    @Benchmark
+    public Map<String, Object> wholeDataSet() {
+        return m_analyzer.analyze(0, Long.MAX_VALUE, new AveragingFunction());
+    }
+}
@@ -0,0 +1,92 @@
+package benchmark;
+
+import analyzer.AnalyzerFunctions;
+import analyzer.BatchAnalyzer;
+import analyzer.RangeQuery;
+import analyzer.TransactionAnalyzer;
+import model.TransactionParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch of random range queries (avg and minmax) over generated data - evaluated one by one versus in a single
+ * sweep by BatchAnalyzer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class BatchQueryBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"1000"})
+    public int queries;
+
+    private TransactionAnalyzer m_analyzer;
+    private long[]              m_from;
+    private long[]              m_to;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        m_analyzer = new TransactionAnalyzer(AnalyzerFunctions.create(AnalyzerFunctions.AVERAGE));
+        DataGenerator generator = new DataGenerator(rows, 0.01d, 1000, 42L);
+        TransactionParser parser = new TransactionParser();
+        generator.generate(line -> {
+            if (parser.parse(line.toString())) {
+                m_analyzer.add(parser);
+            }
+        });
+        long first = m_analyzer.getColumnarDataSet().getDate(0);
+        long last = m_analyzer.getColumnarDataSet().getDate(rows - 1);
+        Random random = new Random(7);
+        m_from = new long[queries];
+        m_to = new long[queries];
+        for (int i = 0; i < queries; i++) {
+            m_from[i] = first + (long) (random.nextDouble() * (last - first));
+            m_to[i] = m_from[i] + (long) (random.nextDouble() * (last - m_from[i]));
+        }
+    }
+
+    @Benchmark
+    public int oneByOne() {
+        int size = 0;
+        for (int i = 0; i < queries; i++) {
+            size += m_analyzer.analyze(m_from[i], m_to[i], AnalyzerFunctions.create(function(i))).size();
+        }
+        return size;
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> batch() {
+        List<RangeQuery> batch = new ArrayList<>(queries);
+        for (int i = 0; i < queries; i++) {
+            batch.add(new RangeQuery(m_from[i], m_to[i], AnalyzerFunctions.create(function(i))));
+        }
+        return new BatchAnalyzer(m_analyzer).analyze(batch);
+    }
+
+    private static String function(int query) {
+        return query % 2 == 0 ? AnalyzerFunctions.AVERAGE : AnalyzerFunctions.MIN_MAX;
+    }
+}
@@ -0,0 +1,210 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files (-rf json, written by 'gradle jmh' to build/reports/jmh/results.json)
+ * and reports the score change of every benchmark / parameter combination present in both.
+ * A change for the worse above the threshold (throughput down, time up) is reported as regression,
+ * the exit code is then 1.
+ * <pre>
+ *   gradle jmhCompare -PcompareArgs="baseline.json build/reports/jmh/results.json 10"
+ * </pre>
+ * Arguments: baseline results, new results, optional threshold in percent (default 5).
+ */
+public class CompareResults {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: CompareResults <baseline.json> <results.json> [threshold-percent]");
+            return;
+        }
+        Map<String, Score> baseline = readScores(args[0]);
+        Map<String, Score> results = readScores(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5.0d;
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : results.entrySet()) {
+            Score base = baseline.get(entry.getKey());
+            Score score = entry.getValue();
+            if (base == null || !base.m_unit.equals(score.m_unit)) {
+                System.out.printf("%-90s %14s %14.3f %s%n", entry.getKey(), "-", score.m_value, score.m_unit);
+                continue;
+            }
+            double change = (score.m_value - base.m_value) / base.m_value * 100.0d;
+            // throughput is better when higher, the time modes when lower
+            double worse = score.m_mode.equals("thrpt") ? -change : change;
+            boolean regression = worse > threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %s %+7.1f%%%s%n", entry.getKey(), base.m_value, score.m_value,
+                    score.m_unit, change, regression ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d benchmarks compared, %d regressions above %.1f%%%n", results.size(), regressions, threshold);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static class Score {
+        private final String m_mode;
+        private final double m_value;
+        private final String m_unit;
+
+        Score(String mode, double value, String unit) {
+            this.m_mode = mode;
+            this.m_value = value;
+            this.m_unit = unit;
+        }
+    }
+
+    /**
+     * @param file
+     * @return scores keyed by benchmark name with the parameters and mode, e.g. "benchmark.X.y(rows=1000) avgt"
+     * @throws IOException
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Score> readScores(String file) throws IOException {
+        String json = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (Object result : (List<Object>) new JsonParser(json).parse()) {
+            Map<String, Object> benchmark = (Map<String, Object>) result;
+            Map<String, Object> params = (Map<String, Object>) benchmark.get("params");
+            Map<String, Object> metric = (Map<String, Object>) benchmark.get("primaryMetric");
+            String mode = (String) benchmark.get("mode");
+            String key = benchmark.get("benchmark") + (params != null ? new TreeMap<>(params).toString()
+                    .replace('{', '(').replace('}', ')') : "") + " " + mode;
+            Object score = metric.get("score");
+            scores.put(key, new Score(mode, score instanceof Number ? ((Number) score).doubleValue() : Double.NaN,
+                    (String) metric.get("scoreUnit")));
+        }
+        return scores;
+    }
+
+    /**
+     * Minimal JSON parser, enough for the JMH result files - objects become maps, arrays lists,
+     * numbers doubles ("NaN" scores are written as strings by JMH).
+     */
+    static class JsonParser {
+
+        private final String m_text;
+        private int          m_position = 0;
+
+        JsonParser(String text) {
+            this.m_text = text;
+        }
+
+        Object parse() {
+            skipWhitespace();
+            char c = m_text.charAt(m_position);
+            switch (c) {
+                case '{': {
+                    Map<String, Object> object = new LinkedHashMap<>();
+                    m_position++;
+                    skipWhitespace();
+                    if (m_text.charAt(m_position) == '}') {
+                        m_position++;
+                        return object;
+                    }
+                    do {
+                        skipWhitespace();
+                        String name = parseString();
+                        skipWhitespace();
+                        expect(':');
+                        object.put(name, parse());
+                        skipWhitespace();
+                    } while (m_text.charAt(m_position++) == ',');
+                    checkClosing('}');
+                    return object;
+                }
+                case '[': {
+                    List<Object> array = new ArrayList<>();
+                    m_position++;
+                    skipWhitespace();
+                    if (m_text.charAt(m_position) == ']') {
+                        m_position++;
+                        return array;
+                    }
+                    do {
+                        array.add(parse());
+                        skipWhitespace();
+                    } while (m_text.charAt(m_position++) == ',');
+                    checkClosing(']');
+                    return array;
+                }
+                case '"':
+                    return parseString();
+                default: {
+                    int start = m_position;
+                    while (m_position < m_text.length() && ",}] \t\r\n".indexOf(m_text.charAt(m_position)) < 0) {
+                        m_position++;
+                    }
+                    String literal = m_text.substring(start, m_position);
+                    switch (literal) {
+                        case "true":
+                            return Boolean.TRUE;
+                        case "false":
+                            return Boolean.FALSE;
+                        case "null":
+                            return null;
+                        default:
+                            return Double.parseDouble(literal);
+                    }
+                }
+            }
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            char c;
+            while ((c = m_text.charAt(m_position++)) != '"') {
+                if (c == '\\') {
+                    c = m_text.charAt(m_position++);
+                    switch (c) {
+                        case 'n': value.append('\n'); break;
+                        case 't': value.append('\t'); break;
+                        case 'r': value.append('\r'); break;
+                        case 'b': value.append('\b'); break;
+                        case 'f': value.append('\f'); break;
+                        case 'u':
+                            value.append((char) Integer.parseInt(m_text.substring(m_position, m_position + 4), 16));
+                            m_position += 4;
+                            break;
+                        default: value.append(c);
+                    }
+                } else {
+                    value.append(c);
+                }
+            }
+            return value.toString();
+        }
+
+        private void expect(char expected) {
+            if (m_text.charAt(m_position) != expected) {
+                throw new IllegalArgumentException("'" + expected + "' expected at position " + m_position);
+            }
+            m_position++;
+        }
+
+        private void checkClosing(char expected) {
+            if (m_text.charAt(m_position - 1) != expected) {
+                throw new IllegalArgumentException("'" + expected + "' expected at position " + (m_position - 1));
+            }
+        }
+
+        private void skipWhitespace() {
+            while (m_position < m_text.length() && Character.isWhitespace(m_text.charAt(m_position))) {
+                m_position++;
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package benchmark;
+
+import analyzer.AveragingFunction;
+import analyzer.TransactionAnalyzer;
+import model.TransactionRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Throughput of 16 threads querying one-hour windows of a 1M rows data set, without and with a writer thread
+ * appending (and reversing) transactions at the given rate meanwhile (queries concurrent with loading enabled).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ConcurrentIngestBenchmark {
+
+    private static final long HOUR = 3600_000L;
+    // the writer adds the rows in batches of this size, then sleeps until the rate allows the next batch
+    private static final int  WRITER_BATCH = 1000;
+
+    @Param({"1000000"})
+    public int rows;
+
+    // rows per second added by the writer, 0 = no writer
+    @Param({"0", "1000000"})
+    public int ingestRate;
+
+    private TransactionAnalyzer m_analyzer;
+    private volatile boolean    m_stopped;
+    private Thread              m_writer;
+    private long                m_written;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        m_analyzer = new TransactionAnalyzer(new AveragingFunction());
+        m_analyzer.setRollupsEnabled(false);
+        m_analyzer.setConcurrentQueries(true);
+        for (m_written = 0; m_written < rows; m_written++) {
+            m_analyzer.add(record(m_written));
+        }
+        if (ingestRate > 0) {
+            m_writer = new Thread(this::write, "writer");
+            m_writer.start();
+        }
+    }
+
+    private void write() {
+        long start = System.nanoTime();
+        long batches = 0;
+        while (!m_stopped) {
+            for (int i = 0; i < WRITER_BATCH; i++) {
+                m_analyzer.add(record(m_written++));
+            }
+            batches++;
+            long due = start + batches * WRITER_BATCH * 1_000_000_000L / ingestRate;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    private static TransactionRecord record(long i) {
+        TransactionRecord record = new TransactionRecord();
+        record.setId(Long.toString(i, 36));
+        record.setDate(i * 100L); // 10 transactions per second
+        record.setMerchant("M" + (i % 1000));
+        if (i % 100 == 99) {
+            record.setType(TransactionRecord.TransactionType.REVERSAL);
+            record.setRelatedTransaction(Long.toString(i - 50, 36));
+        } else {
+            record.setAmount(i % 10000 / 100.0d);
+            record.setType(TransactionRecord.TransactionType.PAYMENT);
+        }
+        return record;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        m_stopped = true;
+        if (m_writer != null) {
+            m_writer.join();
+            System.out.printf("%nwriter added %d rows%n", m_written - rows);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> oneHourWindow() {
+        long from = ThreadLocalRandom.current().nextLong(rows * 100L - HOUR);
+        return m_analyzer.analyze(from, from + HOUR, new AveragingFunction());
+    }
+}
@@ -0,0 +1,151 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Generates synthetic transaction CSV in the layout of Test3.csv - header line, time-ordered PAYMENTs with
+ * 8 letter IDs and REVERSALs of recent payments (same amount and merchant, related transaction ID set).
+ * Size, share of reversals and number of distinct merchants are configurable, the output is determined by the seed.
+ * <pre>
+ *   gradle generateData -PgeneratorArgs="transactions.csv 1000000 0.02 1000"
+ * </pre>
+ * Arguments: output file, number of rows, reversal ratio (0..1), merchant cardinality, optional seed.
+ */
+public class DataGenerator {
+
+    public static final String HEADER = "ID, Date, Amount, Merchant, Type, Related Transaction";
+
+    private static final long ID_SPACE = 208827064576L;  // 26^8 distinct 8 letter IDs
+    private static final long ID_STRIDE = 1000003L;      // coprime with 26^8, row -> ID is a bijection
+    private static final int  RECENT_PAYMENTS = 1024;    // reversals refer to one of the recent payments
+    private static final LocalDateTime START = LocalDateTime.of(2018, 8, 20, 0, 0, 0);
+
+    private int    m_rows;
+    private double m_reversalRatio;
+    private int    m_merchants;
+    private long   m_seed;
+
+    public DataGenerator(int rows, double reversalRatio, int merchants, long seed) {
+        if (rows < 0 || reversalRatio < 0.0d || reversalRatio >= 1.0d || merchants < 1) {
+            throw new IllegalArgumentException("invalid generator parameters: rows " + rows + ", reversal ratio "
+                    + reversalRatio + ", merchants " + merchants);
+        }
+        this.m_rows = rows;
+        this.m_reversalRatio = reversalRatio;
+        this.m_merchants = merchants;
+        this.m_seed = seed;
+    }
+
+    /**
+     * Pass the header and all generated lines (without line terminator) to the consumer.
+     * The StringBuilder is reused for the following line.
+     * @param consumer
+     */
+    public void generate(Consumer<CharSequence> consumer) {
+        Random random = new Random(m_seed);
+        long[] recentIds = new long[RECENT_PAYMENTS];
+        int[] recentAmounts = new int[RECENT_PAYMENTS];
+        int[] recentMerchants = new int[RECENT_PAYMENTS];
+        int recentCount = 0;
+        StringBuilder line = new StringBuilder(128).append(HEADER);
+        consumer.accept(line);
+        LocalDateTime date = START;
+        for (int row = 0; row < m_rows; row++) {
+            line.setLength(0);
+            date = date.plusSeconds(random.nextInt(3));
+            long id = row * ID_STRIDE % ID_SPACE;
+            boolean reversal = recentCount > 0 && random.nextDouble() < m_reversalRatio;
+            int amount;
+            int merchant;
+            long related = -1;
+            if (reversal) {
+                int payment = random.nextInt(Math.min(recentCount, RECENT_PAYMENTS));
+                related = recentIds[payment];
+                amount = recentAmounts[payment];
+                merchant = recentMerchants[payment];
+            } else {
+                amount = 100 + random.nextInt(99900); // 1.00 - 999.99
+                merchant = random.nextInt(m_merchants);
+                int slot = recentCount++ % RECENT_PAYMENTS;
+                recentIds[slot] = id;
+                recentAmounts[slot] = amount;
+                recentMerchants[slot] = merchant;
+            }
+            appendId(line, id).append(", ");
+            appendTwoDigits(line, date.getDayOfMonth()).append('/');
+            appendTwoDigits(line, date.getMonthValue()).append('/').append(date.getYear()).append(' ');
+            appendTwoDigits(line, date.getHour()).append(':');
+            appendTwoDigits(line, date.getMinute()).append(':');
+            appendTwoDigits(line, date.getSecond()).append(", ");
+            line.append(amount / 100).append('.');
+            appendTwoDigits(line, amount % 100).append(", Merchant-").append(merchant);
+            if (reversal) {
+                appendId(line.append(", REVERSAL, "), related);
+            } else {
+                line.append(", PAYMENT,");
+            }
+            consumer.accept(line);
+        }
+    }
+
+    /**
+     * Write the generated CSV to the file.
+     * @param file
+     * @throws IOException
+     */
+    public void write(File file) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            write(writer);
+        }
+    }
+
+    public void write(Writer writer) throws IOException {
+        IOException[] error = new IOException[1];
+        generate(line -> {
+            if (error[0] == null) {
+                try {
+                    writer.append(line).append('\n');
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            }
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+    }
+
+    private static StringBuilder appendId(StringBuilder line, long id) {
+        for (int i = 0; i < 8; i++) {
+            line.append((char) ('A' + id % 26));
+            id /= 26;
+        }
+        return line;
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder line, int value) {
+        return line.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: DataGenerator <output-file> [rows] [reversal-ratio] [merchants] [seed]");
+            return;
+        }
+        File file = new File(args[0]);
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        double reversalRatio = args.length > 2 ? Double.parseDouble(args[2]) : 0.01d;
+        int merchants = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+        long start = System.nanoTime();
+        new DataGenerator(rows, reversalRatio, merchants, seed).write(file);
+        System.out.printf("%d rows written to %s in %.1f s%n", rows, file, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,201 @@
+package benchmark;
+
+import analyzer.AveragingFunction;
+import analyzer.TransactionAnalyzer;
+import app.SimpleTransactionAnalyzer;
+import ingest.CompressedFileLoader;
+import ingest.Compression;
+import ingest.InputMode;
+import ingest.LazyFileLoader;
+import ingest.MappedFileReader;
+import ingest.MultiFileLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Loading of a CSV file through the Reader compared to the memory-mapped input (single and all available threads).
+ * mappedScanOnly measures just the line splitting to show the I/O bound of the mapped input,
+ * snapshot the reload of the same data set from the binary snapshot, multiFile the load of the same rows split
+ * into 24 consecutive files (e.g. hourly exports) loaded concurrently. lazyHourWindow loads only what is needed
+ * for an one hour query (the window and the reversals in the rest of the file), lazyHourWindowHorizon the same with
+ * one day reversal horizon. gzip loads the gzip compressed file through the decompression pipeline (single and all
+ * available parsing threads), gzipDecompressOnly measures just the decompression as the bound of the pipeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IngestBenchmark {
+
+    private static final int PARTS = 24;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private File m_file;
+    private File m_snapshot;
+    private File m_gzip;
+    private List<File> m_parts = new ArrayList<>();
+    private long       m_firstDate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        m_file = File.createTempFile("transactions", ".csv");
+        BufferedWriter part = null;
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(m_file))) {
+            writer.write("ID, Date, Amount, Merchant, Type, Related Transaction\n");
+            for (int i = 0; i < rows; i++) {
+                if (i == (long) m_parts.size() * rows / PARTS) {
+                    if (part != null) {
+                        part.close();
+                    }
+                    m_parts.add(File.createTempFile("transactions-part", ".csv"));
+                    part = new BufferedWriter(new FileWriter(m_parts.get(m_parts.size() - 1)));
+                    part.write("ID, Date, Amount, Merchant, Type, Related Transaction\n");
+                }
+                int second = i % 86400;
+                String line = String.format("%08X, %02d/08/2018 %02d:%02d:%02d, %d.%02d, Merchant-%d, PAYMENT,%n",
+                        i, 1 + (i / 86400) % 28, second / 3600, (second / 60) % 60, second % 60, i % 1000, i % 100, i % 50);
+                writer.write(line);
+                part.write(line);
+            }
+        } finally {
+            if (part != null) {
+                part.close();
+            }
+        }
+        m_snapshot = File.createTempFile("transactions", ".snapshot");
+        TransactionAnalyzer analyzer = mapped();
+        analyzer.writeSnapshot(m_snapshot);
+        m_firstDate = analyzer.getColumnarDataSet().getDate(0);
+        m_gzip = File.createTempFile("transactions", ".csv.gz");
+        try (OutputStream output = new GZIPOutputStream(new FileOutputStream(m_gzip))) {
+            Files.copy(m_file.toPath(), output);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        m_file.delete();
+        m_snapshot.delete();
+        m_gzip.delete();
+        m_parts.forEach(File::delete);
+    }
+
+    @Benchmark
+    public TransactionAnalyzer reader() throws IOException {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        SimpleTransactionAnalyzer.parseInput(m_file, analyzer, InputMode.READER, 1);
+        return analyzer;
+    }
+
+    @Benchmark
+    public TransactionAnalyzer mapped() throws IOException {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        SimpleTransactionAnalyzer.parseInput(m_file, analyzer, InputMode.MMAP, 1);
+        return analyzer;
+    }
+
+    @Benchmark
+    public TransactionAnalyzer mappedParallel() throws IOException {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        SimpleTransactionAnalyzer.parseInput(m_file, analyzer, InputMode.MMAP, Runtime.getRuntime().availableProcessors());
+        return analyzer;
+    }
+
+    @Benchmark
+    public TransactionAnalyzer snapshot() throws IOException {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        analyzer.loadSnapshot(m_snapshot);
+        return analyzer;
+    }
+
+    @Benchmark
+    public TransactionAnalyzer multiFile() throws IOException {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        new MultiFileLoader(m_parts, InputMode.MMAP, Runtime.getRuntime().availableProcessors()).load(analyzer);
+        return analyzer;
+    }
+
+    @Benchmark
+    public TransactionAnalyzer lazyHourWindow() throws IOException {
+        return lazy(0L);
+    }
+
+    @Benchmark
+    public TransactionAnalyzer lazyHourWindowHorizon() throws IOException {
+        return lazy(TimeUnit.DAYS.toMillis(1));
+    }
+
+    private TransactionAnalyzer lazy(long horizon) throws IOException {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        analyzer.setReversalHorizon(horizon);
+        long from = m_firstDate + TimeUnit.HOURS.toMillis(5);
+        new LazyFileLoader(m_file, from, from + TimeUnit.HOURS.toMillis(1) - 1, Runtime.getRuntime().availableProcessors())
+                .load(analyzer);
+        return analyzer;
+    }
+
+    @Benchmark
+    public TransactionAnalyzer gzip() throws IOException {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        new CompressedFileLoader(m_gzip, Compression.GZIP, 1).load(analyzer);
+        return analyzer;
+    }
+
+    @Benchmark
+    public TransactionAnalyzer gzipParallel() throws IOException {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        new CompressedFileLoader(m_gzip, Compression.GZIP, Runtime.getRuntime().availableProcessors()).load(analyzer);
+        return analyzer;
+    }
+
+    @Benchmark
+    public long gzipDecompressOnly() throws IOException {
+        byte[] buffer = new byte[CompressedFileLoader.BLOCK_SIZE];
+        long total = 0;
+        try (InputStream input = new GZIPInputStream(new FileInputStream(m_gzip), 64 << 10)) {
+            int count;
+            while ((count = input.read(buffer)) > 0) {
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long mappedScanOnly() throws IOException {
+        long[] lines = new long[1];
+        new MappedFileReader(m_file).readLines((buffer, from, to) -> lines[0]++);
+        return lines[0];
+    }
+}
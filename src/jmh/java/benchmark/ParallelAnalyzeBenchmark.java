@@ -0,0 +1,71 @@
+package benchmark;
+
+import analyzer.AveragingFunction;
+import analyzer.MinMaxFunction;
+import analyzer.TransactionAnalyzer;
+import model.TransactionRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential versus parallel (block partial aggregation) analysis of a full range of 50M rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class ParallelAnalyzeBenchmark {
+
+    @Param({"50000000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private TransactionAnalyzer m_averaging;
+    private TransactionAnalyzer m_minMax;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        m_averaging = new TransactionAnalyzer(new AveragingFunction());
+        m_minMax = new TransactionAnalyzer(new MinMaxFunction());
+        TransactionRecord record = new TransactionRecord();
+        record.setId("ID"); // shared ID keeps the ID index small, only the columns are of interest here
+        record.setMerchant("Kwik-E-Mart");
+        record.setType(TransactionRecord.TransactionType.PAYMENT);
+        for (int i = 0; i < rows; i++) {
+            record.setDate(i * 1000L);
+            record.setAmount((i * 7919) % 10000 / 100.0d);
+            m_averaging.getColumnarDataSet().add(record);
+            m_minMax.getColumnarDataSet().add(record);
+        }
+        m_averaging.setParallelAnalysis(parallel);
+        m_minMax.setParallelAnalysis(parallel);
+    }
+
+    @Benchmark
+    public Map<String, Object> average() {
+        return m_averaging.analyze(0, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public Map<String, Object> minMax() {
+        return m_minMax.analyze(0, Long.MAX_VALUE);
+    }
+}
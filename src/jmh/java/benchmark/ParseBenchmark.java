@@ -0,0 +1,125 @@
+package benchmark;
+
+import model.StringDictionary;
+import model.TransactionDataSet;
+import model.TransactionParser;
+import model.TransactionRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static app.SimpleTransactionAnalyzer.DATE_FORMAT;
+
+/**
+ * Lines per second of the original regex split based TransactionRecord.of() compared to the hand-written parser,
+ * both producing TransactionRecord and parsing directly from bytes into the columnar data set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    private static final int LINES = 10000;
+
+    private String[]          m_lines = new String[LINES];
+    private byte[][]          m_lineBytes = new byte[LINES][];
+    private TransactionParser m_parser = new TransactionParser();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < LINES; i++) {
+            int second = i % 86400;
+            m_lines[i] = String.format("%08X, %02d/08/2018 %02d:%02d:%02d, %d.%02d, Merchant-%d, PAYMENT,",
+                    i, 1 + (i / 86400) % 28, second / 3600, (second / 60) % 60, second % 60, i % 1000, i % 100, i % 50);
+            m_lineBytes[i] = m_lines[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void regexSplit(Blackhole blackhole) {
+        for (String line : m_lines) {
+            blackhole.consume(legacyOf(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void parserToRecord(Blackhole blackhole) {
+        for (String line : m_lines) {
+            blackhole.consume(TransactionRecord.of(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void parserBytesToColumns(Blackhole blackhole) {
+        TransactionDataSet dataSet = new TransactionDataSet();
+        for (byte[] line : m_lineBytes) {
+            if (m_parser.parse(line, 0, line.length)) {
+                dataSet.add(m_parser);
+            }
+        }
+        blackhole.consume(dataSet);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void parserBytesFieldsOnly(Blackhole blackhole) {
+        StringDictionary dictionary = new StringDictionary();
+        for (byte[] line : m_lineBytes) {
+            if (m_parser.parse(line, 0, line.length)) {
+                blackhole.consume(m_parser.getDate());
+                blackhole.consume(m_parser.getAmount());
+                blackhole.consume(m_parser.internMerchant(dictionary));
+            }
+        }
+    }
+
+    /**
+     * The original TransactionRecord.of() implementation - regex split, SimpleDateFormat and Double.parseDouble.
+     */
+    private static TransactionRecord legacyOf(String csvLine) {
+        TransactionRecord record = null;
+        String[] tokens = csvLine.split(" *, *");
+        if (tokens.length >= 5) {
+            if (!"id".equals(tokens[0].toLowerCase()) && !"date".equals(tokens[1].toLowerCase())) {
+                record = new TransactionRecord();
+                record.setId(tokens[0]);
+                try {
+                    record.setDate(DATE_FORMAT.parse(tokens[1]).getTime());
+                } catch (Exception pex) {
+                    record.setDate(Long.MIN_VALUE);
+                }
+                try {
+                    record.setAmount(Double.parseDouble(tokens[2]));
+                } catch (Exception pex) {
+                    // amount remains at default value
+                }
+                record.setMerchant(tokens[3]);
+                record.setType(TransactionRecord.TransactionType.valueOf(tokens[4]));
+                if (tokens.length > 5 && tokens[5].length() > 0) {
+                    record.setRelatedTransaction(tokens[5]);
+                }
+            }
+        }
+        return record;
+    }
+}
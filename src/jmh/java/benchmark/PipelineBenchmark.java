@@ -0,0 +1,162 @@
+package benchmark;
+
+import analyzer.AnalyzerFunction;
+import analyzer.AnalyzerFunctions;
+import analyzer.TransactionAnalyzer;
+import app.SimpleTransactionAnalyzer;
+import ingest.InputMode;
+import ingest.MappedFileReader;
+import model.TransactionParser;
+import model.TransactionRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stages of the processing over the generated data (DataGenerator) of 1K, 1M and 100M rows:
+ * <ul>
+ *     <li>recordOf - reading lines and TransactionRecord.of()</li>
+ *     <li>parse - the byte parser over the memory-mapped file, without adding the rows</li>
+ *     <li>parseAndAdd - as parse plus TransactionAnalyzer.add() (ID index, reversals), single thread</li>
+ *     <li>analyzeAll / analyzeHour - TransactionAnalyzer.analyze() of the whole data set / one hour
+ *     with the function selected by the 'function' parameter</li>
+ * </ul>
+ * The 100M rows variant needs about 6GB of temporary disk space and a large heap, run a subset with
+ * e.g. -p rows=1000,1000000.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class PipelineBenchmark {
+
+    private static final long ONE_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * The generated CSV file.
+     */
+    @State(Scope.Benchmark)
+    public static class Input {
+
+        @Param({"1000", "1000000", "100000000"})
+        public int rows;
+
+        @Param({"0.01"})
+        public double reversalRatio;
+
+        @Param({"1000"})
+        public int merchants;
+
+        File m_file;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            m_file = File.createTempFile("transactions", ".csv");
+            new DataGenerator(rows, reversalRatio, merchants, 42L).write(m_file);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            m_file.delete();
+        }
+    }
+
+    /**
+     * Analyzer loaded with the generated file.
+     */
+    @State(Scope.Benchmark)
+    public static class Loaded {
+
+        @Param({"avg", "minmax"})
+        public String function;
+
+        TransactionAnalyzer m_analyzer;
+        long                m_from;
+        long                m_to;
+
+        @Setup(Level.Trial)
+        public void setUp(Input input) throws IOException {
+            m_analyzer = new TransactionAnalyzer(AnalyzerFunctions.create(function));
+            SimpleTransactionAnalyzer.parseInput(input.m_file, m_analyzer, InputMode.MMAP,
+                    Runtime.getRuntime().availableProcessors());
+            // one hour in the middle of the data set
+            int middle = m_analyzer.getColumnarDataSet().size() / 2;
+            m_from = m_analyzer.getColumnarDataSet().getDate(middle);
+            m_to = m_from + ONE_HOUR;
+        }
+
+        AnalyzerFunction<TransactionRecord> newFunction() {
+            return AnalyzerFunctions.create(function);
+        }
+    }
+
+    @Benchmark
+    public long recordOf(Input input) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(input.m_file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (TransactionRecord.of(line) != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long parse(Input input) throws IOException {
+        TransactionParser parser = new TransactionParser();
+        long[] sum = new long[1];
+        new MappedFileReader(input.m_file).readLines((buffer, from, to) -> {
+            if (parser.parse(buffer, from, to)) {
+                sum[0] += parser.getDate();
+            }
+        });
+        return sum[0];
+    }
+
+    @Benchmark
+    public TransactionAnalyzer parseAndAdd(Input input) throws IOException {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(AnalyzerFunctions.create(null));
+        SimpleTransactionAnalyzer.parseInput(input.m_file, analyzer, InputMode.MMAP, 1);
+        return analyzer;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public Map<String, Object> analyzeAll(Loaded loaded) {
+        return loaded.m_analyzer.analyze(0L, Long.MAX_VALUE, loaded.newFunction());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public Map<String, Object> analyzeHour(Loaded loaded) {
+        return loaded.m_analyzer.analyze(loaded.m_from, loaded.m_to, loaded.newFunction());
+    }
+}
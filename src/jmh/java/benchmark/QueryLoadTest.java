@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the query server (SimpleTransactionAnalyzer -server <port>). Each client thread sends random window
+ * queries for the given duration, at the end the p50 / p99 / max latency and the queries per second are reported.
+ * <pre>
+ *   gradle loadTest -PloadTestArgs="http://localhost:8080/analyze 16 30 20/08/2018_00:00:00 21/08/2018_00:00:00"
+ * </pre>
+ * Arguments: server URL, number of client threads, duration in seconds, range start and end of the queries
+ * (dd/MM/yyyy_HH:mm:ss, '_' stands for the space).
+ */
+public class QueryLoadTest {
+
+    private static final String[] FUNCTIONS = new String[] {"avg", "minmax"};
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080/analyze";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long durationNanos = TimeUnit.SECONDS.toNanos(args.length > 2 ? Long.parseLong(args[2]) : 10);
+        SimpleDateFormat format = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
+        long rangeStart = args.length > 3 ? format.parse(args[3].replace('_', ' ')).getTime() : 0L;
+        long rangeEnd = args.length > 4 ? format.parse(args[4].replace('_', ' ')).getTime() : System.currentTimeMillis();
+
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        Future<?>[] results = new Future<?>[threads];
+        long start = System.nanoTime();
+        long end = start + durationNanos;
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            results[t] = clients.submit(() -> run(url, seed, end, rangeStart, rangeEnd, format));
+        }
+        long[][] latencies = new long[threads][];
+        for (int t = 0; t < threads; t++) {
+            latencies[t] = (long[]) results[t].get();
+        }
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        if (all.length == 0) {
+            System.out.println("No query completed.");
+            return;
+        }
+        System.out.printf("queries: %d, threads: %d, qps: %.1f%n", all.length, threads, all.length * 1e9 / elapsed);
+        System.out.printf("latency p50: %.3f ms, p99: %.3f ms, max: %.3f ms%n",
+                percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, all[all.length - 1] / 1e6);
+    }
+
+    private static long[] run(String url, long seed, long end, long rangeStart, long rangeEnd, SimpleDateFormat sharedFormat) {
+        SimpleDateFormat format = (SimpleDateFormat) sharedFormat.clone();
+        Random random = new Random(seed);
+        long[] latencies = new long[1024];
+        int count = 0;
+        byte[] buffer = new byte[4096];
+        while (System.nanoTime() < end) {
+            long from = rangeStart + (long) (random.nextDouble() * (rangeEnd - rangeStart));
+            long to = from + (long) (random.nextDouble() * (rangeEnd - from));
+            try {
+                String query = url + "?from=" + URLEncoder.encode(format.format(new Date(from)), "UTF-8")
+                        + "&to=" + URLEncoder.encode(format.format(new Date(to)), "UTF-8")
+                        + "&af=" + FUNCTIONS[random.nextInt(FUNCTIONS.length)];
+                long sent = System.nanoTime();
+                HttpURLConnection connection = (HttpURLConnection) new URL(query).openConnection();
+                try (InputStream input = connection.getInputStream()) {
+                    while (input.read(buffer) > 0) {
+                        // drain the response so the connection is reused
+                    }
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - sent;
+            } catch (IOException e) {
+                System.err.println("Query failed: " + e.getMessage());
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+}
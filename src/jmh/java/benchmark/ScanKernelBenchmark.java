@@ -0,0 +1,123 @@
+package benchmark;
+
+import analyzer.AnalyzerFunction;
+import analyzer.AveragingFunction;
+import analyzer.MinMaxFunction;
+import model.TransactionDataSet;
+import model.TransactionRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential scan of a 10M row range - per-record accept() (TransactionRecord materialized per row), the branching
+ * per-row column loop and the branch-free mask kernels of AveragingFunction / MinMaxFunction.acceptRange().
+ * The reversal rows and reversed payments are spread randomly, so the branches of the per-row loops mispredict.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ScanKernelBenchmark {
+
+    @Param({"10000000"})
+    public int rows;
+
+    // share of the rows which are not eligible (reversals and reversed payments)
+    @Param({"0.0", "0.3"})
+    public double ineligible;
+
+    private TransactionDataSet m_dataSet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        m_dataSet = new TransactionDataSet();
+        Random random = new Random(17);
+        TransactionRecord record = new TransactionRecord();
+        record.setId("ID");
+        record.setMerchant("Kwik-E-Mart");
+        for (int i = 0; i < rows; i++) {
+            boolean skipped = random.nextDouble() < ineligible;
+            record.setDate(i * 1000L);
+            record.setAmount(random.nextInt(1000000) / 100.0d);
+            record.setType(skipped && random.nextBoolean() ? TransactionRecord.TransactionType.REVERSAL
+                    : TransactionRecord.TransactionType.PAYMENT);
+            int row = m_dataSet.add(record);
+            if (skipped) {
+                m_dataSet.setReversed(row, true);
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> recordsAverage() {
+        AnalyzerFunction<TransactionRecord> function = new AveragingFunction();
+        for (int row = 0; row < rows; row++) {
+            function.accept(m_dataSet.getRecord(row));
+        }
+        return function.getResult();
+    }
+
+    @Benchmark
+    public long branchingAverage() {
+        int count = 0;
+        long sum = 0L;
+        for (int row = 0; row < rows; row++) {
+            if (m_dataSet.isPayment(row) && !m_dataSet.isReversed(row)) {
+                count++;
+                sum = Math.addExact(sum, m_dataSet.getAmountMinorUnits(row));
+            }
+        }
+        return sum / Math.max(1, count);
+    }
+
+    @Benchmark
+    public Map<String, Object> kernelAverage() {
+        AveragingFunction function = new AveragingFunction();
+        function.acceptRange(m_dataSet, 0, rows);
+        return function.getResult();
+    }
+
+    @Benchmark
+    public long branchingMinMax() {
+        int count = 0;
+        long min = Long.MAX_VALUE;
+        long max = 0L;
+        for (int row = 0; row < rows; row++) {
+            if (m_dataSet.isPayment(row) && !m_dataSet.isReversed(row)) {
+                count++;
+                long amount = m_dataSet.getAmountMinorUnits(row);
+                if (amount > max) {
+                    max = amount;
+                }
+                if (amount < min) {
+                    min = amount;
+                }
+            }
+        }
+        return min + max + count;
+    }
+
+    @Benchmark
+    public Map<String, Object> kernelMinMax() {
+        MinMaxFunction function = new MinMaxFunction();
+        function.acceptRange(m_dataSet, 0, rows);
+        return function.getResult();
+    }
+}
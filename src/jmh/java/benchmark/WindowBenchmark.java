@@ -0,0 +1,74 @@
+package benchmark;
+
+import analyzer.AnalyzerFunction;
+import analyzer.AnalyzerFunctions;
+import analyzer.TransactionAnalyzer;
+import analyzer.WindowAnalyzer;
+import analyzer.WindowResult;
+import model.TransactionRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time series of a full day - 5 minute windows sliding by 1 second (86400 windows) and 5 minute tumbling windows.
+ * The rows are aggregated once into the panes, so the cost is one scan of the day plus a constant work per window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class WindowBenchmark {
+
+    private static final long START_DATE = 1534723200000L; // 20/08/2018 00:00:00 UTC
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    @Param({"avg", "minmax"})
+    public String function;
+
+    private TransactionAnalyzer m_analyzer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        m_analyzer = new TransactionAnalyzer(AnalyzerFunctions.create(function));
+        TransactionRecord record = new TransactionRecord();
+        record.setMerchant("Kwik-E-Mart");
+        record.setType(TransactionRecord.TransactionType.PAYMENT);
+        for (int i = 0; i < rows; i++) {
+            record.setId(Integer.toString(i));
+            record.setDate(START_DATE + i * DAY / rows); // spread evenly over the day
+            record.setAmount(i % 100);
+            m_analyzer.add(record);
+        }
+    }
+
+    @Benchmark
+    public List<WindowResult> slidingOneSecond() {
+        AnalyzerFunction<TransactionRecord> prototype = AnalyzerFunctions.create(function);
+        return new WindowAnalyzer(m_analyzer).analyze(START_DATE, START_DATE + DAY - 1, 300_000L, 1_000L, prototype);
+    }
+
+    @Benchmark
+    public List<WindowResult> tumblingFiveMinutes() {
+        AnalyzerFunction<TransactionRecord> prototype = AnalyzerFunctions.create(function);
+        return new WindowAnalyzer(m_analyzer).analyze(START_DATE, START_DATE + DAY - 1, 300_000L, 300_000L, prototype);
+    }
+}
@@ -0,0 +1,191 @@
+package analyzer;
+
+import model.TransactionDataSet;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed aggregates of the non-reversed payments, answering count / sum / min / max of any row range
+ * in logarithmic time. Count and sum are kept in Fenwick (binary indexed) trees, min and max in a segment tree,
+ * so both the appended rows and the payments reversed later are applied incrementally in O(log n), without rebuild.
+ * Amounts are summed exactly in minor units, the index is usable only while the sum of the absolute amounts fits
+ * into long (no prefix sum can overflow then).
+ */
+public class AggregateIndex {
+
+    private TransactionDataSet m_dataSet;
+    private int                m_size = 0;
+    private boolean            m_valid = true;
+    // Fenwick trees, 1-based
+    private int[]              m_counts;
+    private long[]             m_sums;
+    private long               m_absoluteSum;
+    // segment trees, leaves start at m_leafCount
+    private int                m_leafCount;
+    private long[]             m_mins;
+    private long[]             m_maxs;
+
+    /**
+     * Build the index over all current rows of the data set, in O(n).
+     * @param dataSet
+     */
+    public AggregateIndex(TransactionDataSet dataSet) {
+        m_dataSet = dataSet;
+        int size = dataSet.size();
+        m_counts = new int[size + 1];
+        m_sums = new long[size + 1];
+        for (int row = 0; row < size; row++) {
+            int node = row + 1;
+            if (isEligible(row)) {
+                m_counts[node]++;
+                m_sums[node] += amount(row);
+            }
+            int parent = node + (node & -node);
+            if (parent <= size) {
+                m_counts[parent] += m_counts[node];
+                m_sums[parent] += m_sums[node];
+            }
+        }
+        m_size = size;
+        buildSegmentTree(Math.max(size, 1));
+    }
+
+    private boolean isEligible(int row) {
+        return m_dataSet.isPayment(row) && !m_dataSet.isReversed(row);
+    }
+
+    private long amount(int row) {
+        long amount = m_dataSet.getAmountMinorUnits(row);
+        try {
+            m_absoluteSum = Math.addExact(m_absoluteSum, Math.abs(amount));
+        } catch (ArithmeticException e) {
+            m_valid = false;
+        }
+        return amount;
+    }
+
+    private void buildSegmentTree(int capacity) {
+        m_leafCount = Integer.highestOneBit(capacity - 1) << 1;
+        if (m_leafCount < capacity) {
+            m_leafCount = capacity;
+        }
+        m_mins = new long[2 * m_leafCount];
+        m_maxs = new long[2 * m_leafCount];
+        Arrays.fill(m_mins, Long.MAX_VALUE);
+        Arrays.fill(m_maxs, Long.MIN_VALUE);
+        for (int row = 0; row < m_size; row++) {
+            if (isEligible(row)) {
+                m_mins[m_leafCount + row] = m_maxs[m_leafCount + row] = m_dataSet.getAmountMinorUnits(row);
+            }
+        }
+        for (int node = m_leafCount - 1; node > 0; node--) {
+            m_mins[node] = Math.min(m_mins[2 * node], m_mins[2 * node + 1]);
+            m_maxs[node] = Math.max(m_maxs[2 * node], m_maxs[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Include the newly added row (the next row of the data set) in the index.
+     * @param row
+     */
+    public void append(int row) {
+        if (row != m_size) {
+            throw new IllegalStateException("Rows must be appended in order, expected row " + m_size + " got " + row);
+        }
+        int node = row + 1;
+        if (node == m_counts.length) {
+            int capacity = m_counts.length + (m_counts.length >> 1) + 1;
+            m_counts = Arrays.copyOf(m_counts, capacity);
+            m_sums = Arrays.copyOf(m_sums, capacity);
+        }
+        // new Fenwick node covers rows (node - lowbit(node), node], the previous rows of that span are already summed
+        int spanStart = node - (node & -node);
+        m_counts[node] = prefixCount(node - 1) - prefixCount(spanStart);
+        m_sums[node] = prefixSum(node - 1) - prefixSum(spanStart);
+        m_size++;
+        boolean eligible = isEligible(row);
+        long amount = eligible ? amount(row) : 0L;
+        if (eligible) {
+            m_counts[node]++;
+            m_sums[node] += amount;
+        }
+        if (row >= m_leafCount) {
+            buildSegmentTree(m_leafCount * 2);
+        } else if (eligible) {
+            setLeaf(row, amount, amount);
+        }
+    }
+
+    /**
+     * Exclude the row from the index (e.g. the payment has been reversed). Must be called only for a row
+     * that was eligible (non-reversed payment) before.
+     * @param row
+     */
+    public void remove(int row) {
+        if (row >= m_size) {
+            return;
+        }
+        long amount = m_dataSet.getAmountMinorUnits(row);
+        for (int node = row + 1; node <= m_size; node += node & -node) {
+            m_counts[node]--;
+            m_sums[node] -= amount;
+        }
+        setLeaf(row, Long.MAX_VALUE, Long.MIN_VALUE);
+    }
+
+    private void setLeaf(int row, long min, long max) {
+        int node = m_leafCount + row;
+        m_mins[node] = min;
+        m_maxs[node] = max;
+        for (node >>= 1; node > 0; node >>= 1) {
+            m_mins[node] = Math.min(m_mins[2 * node], m_mins[2 * node + 1]);
+            m_maxs[node] = Math.max(m_maxs[2 * node], m_maxs[2 * node + 1]);
+        }
+    }
+
+    private int prefixCount(int node) {
+        int count = 0;
+        for (; node > 0; node -= node & -node) {
+            count += m_counts[node];
+        }
+        return count;
+    }
+
+    private long prefixSum(int node) {
+        long sum = 0L;
+        for (; node > 0; node -= node & -node) {
+            sum += m_sums[node];
+        }
+        return sum;
+    }
+
+    /**
+     * Summary of the non-reversed payments in rows [fromIndex, toIndex).
+     * @param fromIndex
+     * @param toIndex
+     * @return
+     */
+    public PaymentSummary query(int fromIndex, int toIndex) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int left = fromIndex + m_leafCount, right = toIndex + m_leafCount; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                min = Math.min(min, m_mins[left]);
+                max = Math.max(max, m_maxs[left++]);
+            }
+            if ((right & 1) == 1) {
+                min = Math.min(min, m_mins[--right]);
+                max = Math.max(max, m_maxs[right]);
+            }
+        }
+        return new PaymentSummary(prefixCount(toIndex) - prefixCount(fromIndex),
+                prefixSum(toIndex) - prefixSum(fromIndex), min, max);
+    }
+
+    /**
+     * @return false if the index can't be used (the amounts could overflow the sums), analysis must scan the rows then
+     */
+    public boolean isValid() {
+        return m_valid;
+    }
+}
@@ -1,5 +1,7 @@
 package analyzer;
 
+import model.TransactionDataSet;
+
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -13,6 +15,74 @@ import java.util.function.Function;
  */
 public interface AnalyzerFunction<T> extends Consumer<T> {
 
+    /**
+     * Bulk variant of accept() - consume the rows [fromIndex, toIndex) directly from the columnar data set.
+     * Default implementation materializes each row as TransactionRecord and passes it to accept(),
+     * functions should override it to read the columns without creating the records.
+     * @param dataSet
+     * @param fromIndex first row (inclusive)
+     * @param toIndex last row (exclusive)
+     */
+    @SuppressWarnings("unchecked")
+    default void acceptRange(TransactionDataSet dataSet, int fromIndex, int toIndex) {
+        for (int row = fromIndex; row < toIndex; row++) {
+            accept((T) dataSet.getRecord(row));
+        }
+    }
+
+    /**
+     * Cheap check done before a summary is computed for the function (see acceptSummary()).
+     * @return true if the function consumes summaries, false if it needs the rows (default)
+     */
+    default boolean supportsSummaries() {
+        return false;
+    }
+
+    /**
+     * Consume the precomputed summary of the non-reversed payments of a range (see AggregateIndex) instead of
+     * the rows of that range. Called only if supportsSummaries() returns true.
+     * @param summary
+     * @return true if the function consumed the summary, false if it needs the rows (default)
+     */
+    default boolean acceptSummary(PaymentSummary summary) {
+        return false;
+    }
+
+    /**
+     * Create a new, empty partial aggregator of the same kind. Partial aggregators can consume parts of the data set
+     * independently (e.g. in parallel) and then be combined by merge().
+     * @return new partial aggregator or null if the function does not support partial aggregation
+     */
+    default AnalyzerFunction<T> newPartial() {
+        return null;
+    }
+
+    /**
+     * @param partial partial aggregator, e.g. created by newPartial() of another function
+     * @return true if the partial can be merged into this function (same kind and configuration)
+     */
+    default boolean canMerge(AnalyzerFunction<T> partial) {
+        return partial != null && partial.getClass() == getClass();
+    }
+
+    /**
+     * Combine the partial aggregation (created by newPartial()) into this function, as if the rows consumed
+     * by the partial were consumed by this function.
+     * @param partial
+     */
+    default void merge(AnalyzerFunction<T> partial) {
+        throw new UnsupportedOperationException("Partial aggregation is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Key identifying the kind and configuration of the function, functions with equal keys compute equal results
+     * of the same rows. Results of the functions with a key can be cached (see ResultCache).
+     * @return key or null if the results must not be cached (default)
+     */
+    default String getCacheKey() {
+        return null;
+    }
+
     /**
      * Calculate and return the final value.
      * @return
@@ -0,0 +1,83 @@
+package analyzer;
+
+import model.TransactionRecord;
+
+/**
+ * A very simple factory of the analysis functions, maps the function key (-af command line option,
+ * 'af' server query parameter) to a new AnalyzerFunction instance.
+ */
+public class AnalyzerFunctions {
+
+    public static final String AVERAGE = "avg";
+    public static final String MIN_MAX = "minmax";
+    public static final String MERCHANT = "merchant";
+    public static final String QUANTILE = "quantile";
+    public static final String DISTINCT = "distinct";
+    // separates the function key and its parameter, e.g. quantile:0.005
+    private static final char PARAMETER_SEPARATOR = ':';
+
+    private AnalyzerFunctions() {
+    }
+
+    /**
+     * Create new instance of the analysis function, unknown or null key defaults to the averaging function.
+     * @param analysisType
+     * @return
+     */
+    public static AnalyzerFunction<TransactionRecord> create(String analysisType) {
+        return create(analysisType, 0);
+    }
+
+    /**
+     * Create new instance of the analysis function, unknown or null key defaults to the averaging function.
+     * The approximate functions take an optional parameter after ':' - quantile:&lt;relative accuracy&gt;
+     * (e.g. quantile:0.005) and distinct:&lt;precision&gt; (e.g. distinct:12).
+     * @param analysisType
+     * @param topK number of groups reported by the group-by functions (highest volume first), 0 reports all
+     * @return
+     */
+    public static AnalyzerFunction<TransactionRecord> create(String analysisType, int topK) {
+        if (analysisType == null) {
+            analysisType = AVERAGE;
+        }
+        String parameter = null;
+        int separator = analysisType.indexOf(PARAMETER_SEPARATOR);
+        if (separator >= 0) {
+            parameter = analysisType.substring(separator + 1).trim();
+            analysisType = analysisType.substring(0, separator);
+        }
+        AnalyzerFunction<TransactionRecord> function = null;
+        switch (analysisType.trim().toLowerCase()) {
+            case MIN_MAX: {
+                function = new MinMaxFunction();
+                break;
+            }
+            case MERCHANT: {
+                function = new MerchantGroupFunction(topK);
+                break;
+            }
+            case QUANTILE: {
+                function = parameter == null ? new QuantileFunction()
+                        : new QuantileFunction(parseParameter(analysisType, parameter));
+                break;
+            }
+            case DISTINCT: {
+                function = parameter == null ? new DistinctMerchantFunction()
+                        : new DistinctMerchantFunction((int) parseParameter(analysisType, parameter));
+                break;
+            }
+            default: {
+                function = new AveragingFunction();
+            }
+        }
+        return function;
+    }
+
+    private static double parseParameter(String analysisType, String parameter) {
+        try {
+            return Double.parseDouble(parameter);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid parameter of the " + analysisType + " function: " + parameter);
+        }
+    }
+}
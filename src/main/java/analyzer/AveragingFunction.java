@@ -1,5 +1,7 @@
 package analyzer;
 
+import model.Amounts;
+import model.TransactionDataSet;
 import model.TransactionRecord;
 
 import java.util.HashMap;
@@ -9,12 +11,14 @@ import static model.TransactionRecord.TransactionType.PAYMENT;
 
 /**
  * Implements "Average Transaction Value" aggregator function.
+ * The amounts are summed exactly as long minor units (see Amounts), overflow of the sum throws ArithmeticException
+ * rather than producing a wrong average. The average is rounded half up to minor units.
  */
 public class AveragingFunction implements AnalyzerFunction<TransactionRecord>  {
 
     public  static final String[] KEY_SET = new String[]{"Number of Transactions", "Average Transaction Value"};
     private int     m_transactionCount  = 0;
-    private double  m_averageValue      = 0.0d;
+    private long    m_sum               = 0L;
 
     /**
      * Applies this function to the given argument.
@@ -25,10 +29,53 @@ public class AveragingFunction implements AnalyzerFunction<TransactionRecord>  {
     public void accept(TransactionRecord transactionRecord) {
         if (!transactionRecord.isReversed() && PAYMENT.equals(transactionRecord.getType())) {
             m_transactionCount++;
-            m_averageValue    += transactionRecord.getAmount();
+            m_sum = Math.addExact(m_sum, Amounts.toMinorUnits(transactionRecord.getAmount()));
         }
     }
 
+    /**
+     * Consume the rows directly from the data set columns by the branch-free scan kernels (see ScanKernels).
+     *
+     * @param dataSet
+     * @param fromIndex first row (inclusive)
+     * @param toIndex last row (exclusive)
+     */
+    @Override
+    public void acceptRange(TransactionDataSet dataSet, int fromIndex, int toIndex) {
+        PaymentSummary summary = ScanKernels.summarize(dataSet, fromIndex, toIndex, true);
+        m_transactionCount += summary.getCount();
+        m_sum = Math.addExact(m_sum, summary.getSum());
+    }
+
+    @Override
+    public boolean supportsSummaries() {
+        return true;
+    }
+
+    @Override
+    public boolean acceptSummary(PaymentSummary summary) {
+        m_transactionCount += summary.getCount();
+        m_sum = Math.addExact(m_sum, summary.getSum());
+        return true;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return AnalyzerFunctions.AVERAGE;
+    }
+
+    @Override
+    public AnalyzerFunction<TransactionRecord> newPartial() {
+        return new AveragingFunction();
+    }
+
+    @Override
+    public void merge(AnalyzerFunction<TransactionRecord> partial) {
+        AveragingFunction other = (AveragingFunction) partial;
+        m_transactionCount += other.m_transactionCount;
+        m_sum = Math.addExact(m_sum, other.m_sum);
+    }
+
     /**
      * Calculate and return the final value.
      *
@@ -37,11 +84,9 @@ public class AveragingFunction implements AnalyzerFunction<TransactionRecord>  {
     @Override
     public Map<String, Object> getResult() {
         Map<String, Object> result = new HashMap<>();
-        if (m_transactionCount > 0) {
-            m_averageValue = m_averageValue / m_transactionCount;
-        }
+        long averageValue = m_transactionCount > 0 ? Amounts.divide(m_sum, m_transactionCount) : 0L;
         result.put(KEY_SET[0], m_transactionCount);
-        result.put(KEY_SET[1], String.format("%1$,.2f", m_averageValue));
+        result.put(KEY_SET[1], Amounts.format(averageValue));
         return result;
     }
 
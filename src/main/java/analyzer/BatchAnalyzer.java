@@ -0,0 +1,160 @@
+package analyzer;
+
+import metrics.Metrics;
+import model.TransactionRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates many range queries in a single sweep over the analyzer's data set. The row ranges of the queries are
+ * cut at every query boundary into elementary segments, each segment is covered by a fixed set of queries.
+ * The segments are visited in the row order, every segment is aggregated once per kind of the functions
+ * covering it (functions which can merge the same partials, see AnalyzerFunction.canMerge()) and the segment
+ * partial is merged into each of the covering queries' functions. The rows are thus scanned once (per function
+ * kind) however many queries overlap, the queries cost only the merges of the partials.
+ */
+public class BatchAnalyzer {
+
+    private TransactionAnalyzer m_analyzer;
+
+    public BatchAnalyzer(TransactionAnalyzer analyzer) {
+        this.m_analyzer = analyzer;
+    }
+
+    /**
+     * Compute all queries. Queries with invalid range and functions without partial aggregation support are
+     * computed separately by TransactionAnalyzer.analyze(). With the analyzer's result cache set, the cached queries
+     * are not swept and the results of the swept ones are stored in the cache.
+     * @param queries
+     * @return results of the queries in the order of the queries, same as by TransactionAnalyzer.analyze()
+     */
+    public List<Map<String, Object>> analyze(List<RangeQuery> queries) {
+        long start = Metrics.enabled ? System.nanoTime() : 0L;
+        int queryCount = queries.size();
+        int[] fromRows = new int[queryCount];
+        int[] toRows = new int[queryCount];
+        // (first row, query index) of the swept queries, sorted by the first row
+        long[] order = new long[queryCount];
+        int[] bounds = new int[2 * queryCount];
+        int sweptCount = 0;
+        List<Map<String, Object>> results = new ArrayList<>(queryCount);
+        boolean empty = m_analyzer.getColumnarDataSet().isEmpty();
+        ResultCache cache = m_analyzer.getResultCache();
+        long cacheVersion = cache != null ? cache.getVersion() : 0L;
+        for (int i = 0; i < queryCount; i++) {
+            RangeQuery query = queries.get(i);
+            results.add(null);
+            if (empty || query.getFrom() > query.getTo() || query.getFunction().newPartial() == null) {
+                results.set(i, m_analyzer.analyze(query.getFrom(), query.getTo(), query.getFunction()));
+                continue;
+            }
+            String cacheKey = cache != null ? query.getFunction().getCacheKey() : null;
+            if (cacheKey != null) {
+                results.set(i, cache.get(query.getFrom(), query.getTo(), cacheKey));
+                if (results.get(i) != null) {
+                    continue;
+                }
+            }
+            fromRows[i] = m_analyzer.firstRow(query.getFrom());
+            toRows[i] = m_analyzer.endRow(fromRows[i], query.getTo());
+            if (fromRows[i] < toRows[i]) {
+                order[sweptCount] = (long) fromRows[i] << 32 | i;
+                bounds[2 * sweptCount] = fromRows[i];
+                bounds[2 * sweptCount + 1] = toRows[i];
+                sweptCount++;
+            }
+        }
+        Arrays.sort(order, 0, sweptCount);
+        Arrays.sort(bounds, 0, 2 * sweptCount);
+
+        int[] active = new int[sweptCount];
+        int activeCount = 0;
+        int next = 0;
+        Segment segment = new Segment();
+        long scannedRows = 0;
+        for (int b = 0; b + 1 < 2 * sweptCount; b++) {
+            int segmentStart = bounds[b];
+            int segmentEnd = bounds[b + 1];
+            if (segmentStart == segmentEnd) {
+                continue;
+            }
+            for (int a = 0; a < activeCount; ) {
+                if (toRows[active[a]] <= segmentStart) {
+                    active[a] = active[--activeCount];
+                } else {
+                    a++;
+                }
+            }
+            while (next < sweptCount && (int) (order[next] >>> 32) <= segmentStart) {
+                active[activeCount++] = (int) order[next++];
+            }
+            if (activeCount > 0) {
+                scannedRows += segment.aggregate(queries, active, activeCount, segmentStart, segmentEnd);
+            }
+        }
+
+        for (int i = 0; i < queryCount; i++) {
+            if (results.get(i) == null) {
+                RangeQuery query = queries.get(i);
+                results.set(i, query.getFunction().getResult());
+                String cacheKey = cache != null ? query.getFunction().getCacheKey() : null;
+                if (cacheKey != null) {
+                    cache.put(query.getFrom(), query.getTo(), cacheKey, results.get(i), cacheVersion);
+                }
+            }
+        }
+        if (Metrics.enabled) {
+            Metrics.ROWS_ANALYZED.add(scannedRows);
+            Metrics.ANALYZE_LATENCY.recordSince(start);
+        }
+        return results;
+    }
+
+    /**
+     * Partials of one elementary segment, one per function kind.
+     */
+    private class Segment {
+
+        private AnalyzerFunction<TransactionRecord>[] m_partials = newArray(4);
+        private int                                   m_kindCount;
+
+        /**
+         * Aggregate the rows [fromIndex, toIndex) for every kind of the active queries' functions and merge them
+         * into the functions.
+         * @return number of rows scanned
+         */
+        long aggregate(List<RangeQuery> queries, int[] active, int activeCount, int fromIndex, int toIndex) {
+            m_kindCount = 0;
+            for (int a = 0; a < activeCount; a++) {
+                AnalyzerFunction<TransactionRecord> function = queries.get(active[a]).getFunction();
+                function.merge(partial(function, fromIndex, toIndex));
+            }
+            Arrays.fill(m_partials, 0, m_kindCount, null);
+            return (long) m_kindCount * (toIndex - fromIndex);
+        }
+
+        private AnalyzerFunction<TransactionRecord> partial(AnalyzerFunction<TransactionRecord> function,
+                                                            int fromIndex, int toIndex) {
+            for (int k = 0; k < m_kindCount; k++) {
+                if (function.canMerge(m_partials[k])) {
+                    return m_partials[k];
+                }
+            }
+            if (m_kindCount == m_partials.length) {
+                m_partials = Arrays.copyOf(m_partials, m_kindCount * 2);
+            }
+            AnalyzerFunction<TransactionRecord> partial = function.newPartial();
+            m_analyzer.aggregate(partial, fromIndex, toIndex);
+            m_partials[m_kindCount++] = partial;
+            return partial;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AnalyzerFunction<TransactionRecord>[] newArray(int size) {
+        return new AnalyzerFunction[size];
+    }
+}
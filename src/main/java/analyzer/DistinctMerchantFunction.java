@@ -0,0 +1,169 @@
+package analyzer;
+
+import model.StringDictionary;
+import model.TransactionDataSet;
+import model.TransactionRecord;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static model.TransactionRecord.TransactionType.PAYMENT;
+
+/**
+ * Approximate number of distinct merchants of the payments, counted in a HyperLogLog sketch of constant size.
+ * The merchant names are hashed, so partials consumed from different dictionaries (or records) merge correctly.
+ * Hashes of the data set dictionary codes are cached once per dictionary and shared by the function and its
+ * partials, a row then costs an array lookup and a register update.
+ */
+public class DistinctMerchantFunction implements AnalyzerFunction<TransactionRecord> {
+
+    public static final String[] KEY_SET = new String[] {"Number of Transactions", "Distinct Merchants"};
+
+    private final HyperLogLog m_sketch;
+    private int               m_transactionCount = 0;
+    // merchant hashes by the dictionary code, shared with the partials
+    private final AtomicReference<CodeHashes> m_codeHashes;
+
+    public DistinctMerchantFunction() {
+        this(HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param precision HyperLogLog precision (4 - 18), the standard error is 1.04 / sqrt(2^precision)
+     */
+    public DistinctMerchantFunction(int precision) {
+        this(precision, new AtomicReference<>(CodeHashes.EMPTY));
+    }
+
+    private DistinctMerchantFunction(int precision, AtomicReference<CodeHashes> codeHashes) {
+        this.m_sketch = new HyperLogLog(precision);
+        this.m_codeHashes = codeHashes;
+    }
+
+    @Override
+    public void accept(TransactionRecord transactionRecord) {
+        if (!transactionRecord.isReversed() && PAYMENT.equals(transactionRecord.getType())) {
+            m_transactionCount++;
+            m_sketch.add(HyperLogLog.hash(transactionRecord.getMerchant()));
+        }
+    }
+
+    /**
+     * Consume the rows directly from the data set columns.
+     *
+     * @param dataSet
+     * @param fromIndex first row (inclusive)
+     * @param toIndex last row (exclusive)
+     */
+    @Override
+    public void acceptRange(TransactionDataSet dataSet, int fromIndex, int toIndex) {
+        long[] hashes = codeHashes(dataSet.getMerchantDictionary());
+        for (int row = fromIndex; row < toIndex; row++) {
+            if (dataSet.isPayment(row) && !dataSet.isReversed(row)) {
+                m_transactionCount++;
+                m_sketch.add(hashes[dataSet.getMerchantId(row)]);
+            }
+        }
+    }
+
+    /**
+     * @return hashes of all the merchants of the dictionary by their code
+     */
+    private long[] codeHashes(StringDictionary merchants) {
+        CodeHashes codeHashes = m_codeHashes.get();
+        if (codeHashes.dictionary != merchants || codeHashes.size < merchants.size()) {
+            // partials consuming concurrently may both extend the cache, either result is complete
+            codeHashes = new CodeHashes(merchants, codeHashes);
+            m_codeHashes.set(codeHashes);
+        }
+        return codeHashes.hashes;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return AnalyzerFunctions.DISTINCT + ":" + m_sketch.getPrecision();
+    }
+
+    @Override
+    public AnalyzerFunction<TransactionRecord> newPartial() {
+        return new DistinctMerchantFunction(m_sketch.getPrecision(), m_codeHashes);
+    }
+
+    @Override
+    public boolean canMerge(AnalyzerFunction<TransactionRecord> partial) {
+        return partial instanceof DistinctMerchantFunction
+                && ((DistinctMerchantFunction) partial).m_sketch.getPrecision() == m_sketch.getPrecision();
+    }
+
+    @Override
+    public void merge(AnalyzerFunction<TransactionRecord> partial) {
+        DistinctMerchantFunction other = (DistinctMerchantFunction) partial;
+        m_transactionCount += other.m_transactionCount;
+        m_sketch.merge(other.m_sketch);
+    }
+
+    public HyperLogLog getSketch() {
+        return m_sketch;
+    }
+
+    /**
+     * Calculate and return the final value.
+     *
+     * @return
+     */
+    @Override
+    public Map<String, Object> getResult() {
+        Map<String, Object> result = new HashMap<>();
+        result.put(KEY_SET[0], m_transactionCount);
+        result.put(KEY_SET[1], m_sketch.getEstimate());
+        return result;
+    }
+
+    /**
+     * Key set used by the analyzer to represent result. This allows control display value order.
+     *
+     * @return
+     */
+    @Override
+    public String[] getKeySet() {
+        return KEY_SET;
+    }
+
+    /**
+     * Immutable hashes of the merchant names of a dictionary by the code, an extended copy is created when
+     * the dictionary grows.
+     */
+    private static final class CodeHashes {
+
+        private static final CodeHashes EMPTY = new CodeHashes();
+
+        private final StringDictionary dictionary;
+        private final long[]           hashes;
+        // number of hashed codes, the array has spare capacity for the growing dictionary
+        private final int              size;
+
+        private CodeHashes() {
+            this.dictionary = null;
+            this.hashes = new long[0];
+            this.size = 0;
+        }
+
+        private CodeHashes(StringDictionary dictionary, CodeHashes previous) {
+            int known = previous.dictionary == dictionary ? previous.size : 0;
+            int size = dictionary.size();
+            long[] hashes = known > 0 ? previous.hashes : new long[0];
+            if (hashes.length < size) {
+                hashes = Arrays.copyOf(hashes, Math.max(size, hashes.length + (hashes.length >> 1)));
+            }
+            // the codes below known are not written, the previous instance remains valid with the shared array
+            for (int code = known; code < size; code++) {
+                hashes[code] = HyperLogLog.hash(dictionary.get(code));
+            }
+            this.dictionary = dictionary;
+            this.hashes = hashes;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package analyzer;
+
+/**
+ * Mergeable distinct count estimate (HyperLogLog, Flajolet et al. 2007) over 64-bit hashes.
+ * 2^precision registers of one byte keep the maximal number of leading zeros seen per register, the standard
+ * error of the estimate is about 1.04 / sqrt(2^precision) (0.81% for the default precision 14, 16 KB of registers).
+ * Small cardinalities are estimated by linear counting of the empty registers. Sketches of the same precision
+ * are merged by taking the register maximums, the merge is exact (same as adding all values to one sketch).
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 14;
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private final int    m_precision;
+    private final byte[] m_registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param precision number of index bits, 2^precision registers
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be in [" + MIN_PRECISION + ", " + MAX_PRECISION + "]: "
+                    + precision);
+        }
+        this.m_precision = precision;
+        this.m_registers = new byte[1 << precision];
+    }
+
+    /**
+     * @param hash well mixed 64-bit hash of the value, see hash()
+     */
+    public void add(long hash) {
+        int register = (int) (hash >>> (64 - m_precision));
+        // the guard bit bounds the rank when the remaining bits are all zeros
+        int rank = Long.numberOfLeadingZeros((hash << m_precision) | (1L << (m_precision - 1))) + 1;
+        if (rank > m_registers[register]) {
+            m_registers[register] = (byte) rank;
+        }
+    }
+
+    /**
+     * @return estimated number of distinct values added
+     */
+    public long getEstimate() {
+        int registerCount = m_registers.length;
+        double sum = 0.0d;
+        int zeros = 0;
+        for (byte register : m_registers) {
+            sum += Double.longBitsToDouble((1023L - register) << 52); // 2^-register
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213d / (1.0d + 1.079d / registerCount);
+        double estimate = alpha * registerCount * registerCount / sum;
+        if (estimate <= 2.5d * registerCount && zeros > 0) {
+            estimate = registerCount * Math.log((double) registerCount / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public int getPrecision() {
+        return m_precision;
+    }
+
+    /**
+     * Add all values of the other sketch to this sketch.
+     * @param other sketch of the same precision
+     */
+    public void merge(HyperLogLog other) {
+        if (other.m_precision != m_precision) {
+            throw new IllegalArgumentException("sketches of different precision can not be merged: "
+                    + m_precision + ", " + other.m_precision);
+        }
+        for (int i = 0; i < m_registers.length; i++) {
+            if (other.m_registers[i] > m_registers[i]) {
+                m_registers[i] = other.m_registers[i];
+            }
+        }
+    }
+
+    /**
+     * 64-bit hash of the string (FNV-1a of the chars with the SplitMix64 finalizer), null hashes as the empty string.
+     * @param value
+     * @return
+     */
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
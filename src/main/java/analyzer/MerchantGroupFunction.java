@@ -0,0 +1,399 @@
+package analyzer;
+
+import model.Amounts;
+import model.StringDictionary;
+import model.TransactionDataSet;
+import model.TransactionRecord;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static model.TransactionRecord.TransactionType.PAYMENT;
+
+/**
+ * Group-by merchant aggregator - number of transactions, average, minimal and maximal amount per merchant.
+ * Groups are the dictionary codes of the merchant names (TransactionDataSet.getMerchantId()), the aggregates of
+ * a group are kept side by side in a primitive array, so a row costs a few array updates and no hashing of the name.
+ * The memory grows with the merchants seen, not with the dictionary size - the aggregates of few merchants with
+ * scattered codes (e.g. partials of blocks, window panes or batch segments) are found by the code in an open
+ * addressing table, once the codes seen are dense they are indexed by the code directly. A merge visits only
+ * the merchants of the merged partial.
+ * Amounts are aggregated exactly in minor units (see Amounts), overflow of a sum throws ArithmeticException.
+ * Merchants are reported by volume (sum of the amounts) in descending order, optionally only the top K of them.
+ */
+public class MerchantGroupFunction implements AnalyzerFunction<TransactionRecord> {
+
+    public static final String[] KEY_SET = new String[] {"Number of Merchants", "Merchants"};
+
+    // count, sum, minimal and maximal amount
+    private static final int AGGREGATES = 4;
+
+    private int                 m_topK;
+    // merchant dictionary the codes refer to, the data set dictionary when consuming the columns
+    private StringDictionary    m_dictionary;
+    // codes of the merchants seen, in the order of their first payment
+    private int[]               m_merchants = new int[0];
+    private int                 m_merchantCount = 0;
+    private int                 m_maxMerchant = -1;
+    // aggregates per slot - the slot is the index in m_merchants, or the merchant code if direct
+    private long[]              m_aggregates = new long[0];
+    private boolean             m_direct = false;
+    // open addressing table of (slot + 1) keyed by the merchant code, 0 = empty, unused if direct
+    private int[]               m_table = new int[0];
+
+    /**
+     * Report all merchants.
+     */
+    public MerchantGroupFunction() {
+        this(0);
+    }
+
+    /**
+     * @param topK number of merchants with the highest volume to report, 0 reports all
+     */
+    public MerchantGroupFunction(int topK) {
+        if (topK < 0) {
+            throw new IllegalArgumentException("top K must not be negative: " + topK);
+        }
+        this.m_topK = topK;
+    }
+
+    @Override
+    public void accept(TransactionRecord transactionRecord) {
+        if (!transactionRecord.isReversed() && PAYMENT.equals(transactionRecord.getType())) {
+            if (m_dictionary == null) {
+                m_dictionary = new StringDictionary();
+            }
+            add(m_dictionary.intern(transactionRecord.getMerchant()), Amounts.toMinorUnits(transactionRecord.getAmount()));
+        }
+    }
+
+    /**
+     * Consume the rows directly from the data set columns, grouped by the merchant codes of the data set.
+     *
+     * @param dataSet
+     * @param fromIndex first row (inclusive)
+     * @param toIndex last row (exclusive)
+     */
+    @Override
+    public void acceptRange(TransactionDataSet dataSet, int fromIndex, int toIndex) {
+        StringDictionary merchants = dataSet.getMerchantDictionary();
+        if (m_dictionary == null) {
+            m_dictionary = merchants;
+        }
+        if (m_dictionary != merchants) {
+            AnalyzerFunction.super.acceptRange(dataSet, fromIndex, toIndex); // codes differ, group by the names
+            return;
+        }
+        for (int row = fromIndex; row < toIndex; row++) {
+            if (dataSet.isPayment(row) && !dataSet.isReversed(row)) {
+                add(dataSet.getMerchantId(row), dataSet.getAmountMinorUnits(row));
+            }
+        }
+    }
+
+    private void add(int merchant, long amount) {
+        int index = slot(merchant) * AGGREGATES;
+        m_aggregates[index]++;
+        m_aggregates[index + 1] = Math.addExact(m_aggregates[index + 1], amount);
+        if (amount < m_aggregates[index + 2]) {
+            m_aggregates[index + 2] = amount;
+        }
+        if (amount > m_aggregates[index + 3]) {
+            m_aggregates[index + 3] = amount;
+        }
+    }
+
+    /**
+     * @return slot of the merchant, an empty slot is added if the merchant has not been seen yet
+     */
+    private int slot(int merchant) {
+        if (m_direct) {
+            if (merchant >= m_aggregates.length / AGGREGATES) {
+                growAggregates(merchant + 1);
+            }
+            if (m_aggregates[merchant * AGGREGATES] == 0) {
+                addMerchant(merchant);
+            }
+            return merchant;
+        }
+        int mask = m_table.length - 1;
+        int position = hash(merchant) & mask;
+        int slot;
+        while (m_table.length > 0 && (slot = m_table[position] - 1) >= 0) {
+            if (m_merchants[slot] == merchant) {
+                return slot;
+            }
+            position = (position + 1) & mask;
+        }
+        if (2 * (m_merchantCount + 1) > m_table.length) {
+            resize(Math.max(merchant, m_maxMerchant));
+            return slot(merchant);
+        }
+        slot = m_merchantCount;
+        addMerchant(merchant);
+        growAggregates(m_merchantCount);
+        m_table[position] = slot + 1;
+        return slot;
+    }
+
+    /**
+     * @return slot of the merchant, -1 if the merchant has not been seen
+     */
+    private int findSlot(int merchant) {
+        if (m_direct) {
+            boolean seen = merchant < m_aggregates.length / AGGREGATES && m_aggregates[merchant * AGGREGATES] > 0;
+            return seen ? merchant : -1;
+        }
+        int mask = m_table.length - 1;
+        for (int position = hash(merchant) & mask; m_table.length > 0 && m_table[position] != 0;
+                position = (position + 1) & mask) {
+            if (m_merchants[m_table[position] - 1] == merchant) {
+                return m_table[position] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private int slotOf(int merchantIndex) {
+        return m_direct ? m_merchants[merchantIndex] : merchantIndex;
+    }
+
+    private void addMerchant(int merchant) {
+        if (m_merchantCount == m_merchants.length) {
+            m_merchants = Arrays.copyOf(m_merchants, Math.max(4, m_merchantCount + (m_merchantCount >> 1)));
+        }
+        m_merchants[m_merchantCount++] = merchant;
+        m_maxMerchant = Math.max(m_maxMerchant, merchant);
+    }
+
+    /**
+     * Double the hash table, or index the aggregates by the code if that takes at most twice the memory of
+     * the aggregates of the merchants seen.
+     */
+    private void resize(int maxMerchant) {
+        if (maxMerchant < 2 * (m_merchantCount + 1)) {
+            long[] aggregates = m_aggregates;
+            m_aggregates = new long[0];
+            growAggregates(maxMerchant + 1);
+            for (int slot = 0; slot < m_merchantCount; slot++) {
+                System.arraycopy(aggregates, slot * AGGREGATES, m_aggregates, m_merchants[slot] * AGGREGATES,
+                        AGGREGATES);
+            }
+            m_direct = true;
+            m_table = null;
+            return;
+        }
+        m_table = new int[Math.max(8, 2 * m_table.length)];
+        int mask = m_table.length - 1;
+        for (int slot = 0; slot < m_merchantCount; slot++) {
+            int position = hash(m_merchants[slot]) & mask;
+            while (m_table[position] != 0) {
+                position = (position + 1) & mask;
+            }
+            m_table[position] = slot + 1;
+        }
+    }
+
+    private static int hash(int merchant) {
+        int hash = merchant * 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void growAggregates(int slots) {
+        int length = m_aggregates.length / AGGREGATES;
+        if (slots > length) {
+            int capacity = Math.max(Math.max(slots, 4), length + (length >> 1));
+            m_aggregates = Arrays.copyOf(m_aggregates, capacity * AGGREGATES);
+            for (int slot = length; slot < capacity; slot++) {
+                m_aggregates[slot * AGGREGATES + 2] = Long.MAX_VALUE;
+                m_aggregates[slot * AGGREGATES + 3] = Long.MIN_VALUE;
+            }
+        }
+    }
+
+    @Override
+    public String getCacheKey() {
+        return AnalyzerFunctions.MERCHANT + ":" + m_topK;
+    }
+
+    @Override
+    public AnalyzerFunction<TransactionRecord> newPartial() {
+        return new MerchantGroupFunction(m_topK);
+    }
+
+    @Override
+    public void merge(AnalyzerFunction<TransactionRecord> partial) {
+        MerchantGroupFunction other = (MerchantGroupFunction) partial;
+        if (other.m_dictionary == null) {
+            return;
+        }
+        if (m_dictionary == null) {
+            m_dictionary = other.m_dictionary;
+        }
+        long[] aggregates = other.m_aggregates;
+        for (int i = 0; i < other.m_merchantCount; i++) {
+            int merchant = other.m_merchants[i];
+            int from = other.slotOf(i) * AGGREGATES;
+            int index = slot(m_dictionary == other.m_dictionary ? merchant
+                    : m_dictionary.intern(other.m_dictionary.get(merchant))) * AGGREGATES;
+            m_aggregates[index] += aggregates[from];
+            m_aggregates[index + 1] = Math.addExact(m_aggregates[index + 1], aggregates[from + 1]);
+            m_aggregates[index + 2] = Math.min(m_aggregates[index + 2], aggregates[from + 2]);
+            m_aggregates[index + 3] = Math.max(m_aggregates[index + 3], aggregates[from + 3]);
+        }
+    }
+
+    /**
+     * Codes (in getDictionary()) of the merchants to report, by volume in descending order.
+     * @return
+     */
+    public int[] getTopMerchants() {
+        int[] merchants = topSlots();
+        for (int i = 0; i < merchants.length; i++) {
+            merchants[i] = m_direct ? merchants[i] : m_merchants[merchants[i]];
+        }
+        return merchants;
+    }
+
+    /**
+     * Slots of the merchants to report, by volume in descending order. A min-heap of the K largest volumes keeps
+     * the selection O(n log K) without boxing the slots.
+     */
+    private int[] topSlots() {
+        int k = m_topK > 0 ? Math.min(m_topK, m_merchantCount) : m_merchantCount;
+        int[] heap = new int[k];
+        int size = 0;
+        for (int i = 0; i < m_merchantCount && k > 0; i++) {
+            int slot = slotOf(i);
+            if (size < k) {
+                heap[size] = slot;
+                siftUp(heap, size++);
+            } else if (before(slot, heap[0])) {
+                heap[0] = slot;
+                siftDown(heap, 0, size);
+            }
+        }
+        // heap sort - repeatedly move the smallest to the end, the array ends up in descending order
+        for (int end = size - 1; end > 0; end--) {
+            int smallest = heap[0];
+            heap[0] = heap[end];
+            heap[end] = smallest;
+            siftDown(heap, 0, end);
+        }
+        return heap;
+    }
+
+    /**
+     * @return number of merchants with at least one payment
+     */
+    public int getMerchantCount() {
+        return m_merchantCount;
+    }
+
+    /**
+     * Ordering of the report - higher volume first, equal volumes by the merchant code.
+     */
+    private boolean before(int slot, int other) {
+        long sum = m_aggregates[slot * AGGREGATES + 1];
+        long otherSum = m_aggregates[other * AGGREGATES + 1];
+        return sum > otherSum || (sum == otherSum && merchant(slot) < merchant(other));
+    }
+
+    private int merchant(int slot) {
+        return m_direct ? slot : m_merchants[slot];
+    }
+
+    private void siftUp(int[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(heap[parent], heap[index])) {
+                break;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int index, int size) {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!before(heap[index], heap[child])) {
+                break;
+            }
+            swap(heap, index, child);
+            index = child;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int value = heap[i];
+        heap[i] = heap[j];
+        heap[j] = value;
+    }
+
+    /**
+     * @return dictionary of the merchant names the codes refer to, null if nothing has been consumed
+     */
+    public StringDictionary getDictionary() {
+        return m_dictionary;
+    }
+
+    /**
+     * Summary of the payments of the merchant.
+     * @param merchant merchant name
+     * @return summary, empty (zero count) for unknown merchant
+     */
+    public PaymentSummary getSummary(String merchant) {
+        int code = m_dictionary != null ? m_dictionary.codeOf(merchant) : -1;
+        int slot = code >= 0 ? findSlot(code) : -1;
+        if (slot < 0) {
+            return new PaymentSummary(0, 0L, Long.MAX_VALUE, Long.MIN_VALUE);
+        }
+        int index = slot * AGGREGATES;
+        return new PaymentSummary((int) m_aggregates[index], m_aggregates[index + 1], m_aggregates[index + 2],
+                m_aggregates[index + 3]);
+    }
+
+    /**
+     * Calculate and return the final value.
+     *
+     * @return
+     */
+    @Override
+    public Map<String, Object> getResult() {
+        Map<String, Object> result = new HashMap<>();
+        StringBuilder text = new StringBuilder();
+        for (int slot : topSlots()) {
+            int index = slot * AGGREGATES;
+            text.append("\n  ").append(m_dictionary.get(merchant(slot)))
+                    .append(": ").append(MinMaxFunction.KEY_SET[2]).append(" = ").append(m_aggregates[index])
+                    .append(", ").append(AveragingFunction.KEY_SET[1]).append(" = ");
+            Amounts.append(text, Amounts.divide(m_aggregates[index + 1], (int) m_aggregates[index]))
+                    .append(", ").append(MinMaxFunction.KEY_SET[0]).append(" = ");
+            Amounts.append(text, m_aggregates[index + 2])
+                    .append(", ").append(MinMaxFunction.KEY_SET[1]).append(" = ");
+            Amounts.append(text, m_aggregates[index + 3]);
+        }
+        result.put(KEY_SET[0], getMerchantCount());
+        result.put(KEY_SET[1], text.toString());
+        return result;
+    }
+
+    /**
+     * Key set used by the analyzer to represent result. This allows control display value order.
+     *
+     * @return
+     */
+    @Override
+    public String[] getKeySet() {
+        return KEY_SET;
+    }
+}
@@ -1,5 +1,7 @@
 package analyzer;
 
+import model.Amounts;
+import model.TransactionDataSet;
 import model.TransactionRecord;
 
 import java.util.HashMap;
@@ -10,8 +12,9 @@ import static model.TransactionRecord.TransactionType.PAYMENT;
 public class MinMaxFunction implements AnalyzerFunction<TransactionRecord> {
 
     public static final String[] KEY_SET = new String[] {"Minimal Amount", "Maximal Amount", "Number of Transactions"};
-    private double  m_minAmount = Double.MAX_VALUE;
-    private double  m_maxAmount = 0.0d;
+    // amounts in minor units (see Amounts)
+    private long    m_minAmount = Long.MAX_VALUE;
+    private long    m_maxAmount = 0L;
     private int     m_transactionCount = 0;
 
     /**
@@ -22,8 +25,8 @@ public class MinMaxFunction implements AnalyzerFunction<TransactionRecord> {
     @Override
     public Map<String, Object> getResult() {
         Map<String, Object> result = new HashMap<>();
-        result.put(KEY_SET[0], String.format("%1$,.2f", m_transactionCount > 0 ? m_minAmount : 0.0d));
-        result.put(KEY_SET[1], String.format("%1$,.2f", m_maxAmount));
+        result.put(KEY_SET[0], Amounts.format(m_transactionCount > 0 ? m_minAmount : 0L));
+        result.put(KEY_SET[1], Amounts.format(m_maxAmount));
         result.put(KEY_SET[2], m_transactionCount);
         return result;
     }
@@ -38,6 +41,45 @@ public class MinMaxFunction implements AnalyzerFunction<TransactionRecord> {
         return KEY_SET;
     }
 
+    @Override
+    public boolean supportsSummaries() {
+        return true;
+    }
+
+    @Override
+    public boolean acceptSummary(PaymentSummary summary) {
+        m_transactionCount += summary.getCount();
+        if (summary.getMax() > m_maxAmount) {
+            m_maxAmount = summary.getMax();
+        }
+        if (summary.getMin() < m_minAmount) {
+            m_minAmount = summary.getMin();
+        }
+        return true;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return AnalyzerFunctions.MIN_MAX;
+    }
+
+    @Override
+    public AnalyzerFunction<TransactionRecord> newPartial() {
+        return new MinMaxFunction();
+    }
+
+    @Override
+    public void merge(AnalyzerFunction<TransactionRecord> partial) {
+        MinMaxFunction other = (MinMaxFunction) partial;
+        m_transactionCount += other.m_transactionCount;
+        if (other.m_maxAmount > m_maxAmount) {
+            m_maxAmount = other.m_maxAmount;
+        }
+        if (other.m_minAmount < m_minAmount) {
+            m_minAmount = other.m_minAmount;
+        }
+    }
+
     /**
      * Applies this function to the given argument.
      *
@@ -48,12 +90,25 @@ public class MinMaxFunction implements AnalyzerFunction<TransactionRecord> {
     public void accept(TransactionRecord transactionRecord) {
         if (!transactionRecord.isReversed() && PAYMENT.equals(transactionRecord.getType())) {
             m_transactionCount++;
-            if (transactionRecord.getAmount() > m_maxAmount) {
-                m_maxAmount = transactionRecord.getAmount();
+            long amount = Amounts.toMinorUnits(transactionRecord.getAmount());
+            if (amount > m_maxAmount) {
+                m_maxAmount = amount;
             }
-            if (transactionRecord.getAmount() < m_minAmount) {
-                m_minAmount = transactionRecord.getAmount();
+            if (amount < m_minAmount) {
+                m_minAmount = amount;
             }
         }
     }
+
+    /**
+     * Consume the rows directly from the data set columns by the branch-free scan kernels (see ScanKernels).
+     *
+     * @param dataSet
+     * @param fromIndex first row (inclusive)
+     * @param toIndex last row (exclusive)
+     */
+    @Override
+    public void acceptRange(TransactionDataSet dataSet, int fromIndex, int toIndex) {
+        acceptSummary(ScanKernels.summarize(dataSet, fromIndex, toIndex, false));
+    }
 }
@@ -0,0 +1,38 @@
+package analyzer;
+
+/**
+ * Summary of the (non-reversed) payments of a range of the data set - count, sum, minimal and maximal amount
+ * in minor units (see model.Amounts).
+ * Produced by the precomputed aggregate indexes, consumed by AnalyzerFunction.acceptSummary().
+ * Min / max of an empty range are Long.MAX_VALUE / Long.MIN_VALUE.
+ */
+public class PaymentSummary {
+
+    private final int  m_count;
+    private final long m_sum;
+    private final long m_min;
+    private final long m_max;
+
+    public PaymentSummary(int count, long sum, long min, long max) {
+        this.m_count = count;
+        this.m_sum = sum;
+        this.m_min = min;
+        this.m_max = max;
+    }
+
+    public int getCount() {
+        return m_count;
+    }
+
+    public long getSum() {
+        return m_sum;
+    }
+
+    public long getMin() {
+        return m_min;
+    }
+
+    public long getMax() {
+        return m_max;
+    }
+}
@@ -0,0 +1,111 @@
+package analyzer;
+
+import model.Amounts;
+import model.TransactionDataSet;
+import model.TransactionRecord;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static model.TransactionRecord.TransactionType.PAYMENT;
+
+/**
+ * Approximate median, 95th and 99th percentile of the payment amounts. The amounts are counted in a QuantileSketch,
+ * so the memory is constant whatever the size of the range and each percentile is within the relative accuracy
+ * of an amount of the requested rank. Partials merge exactly, the function runs in parallel blocks, panes
+ * and batches like the exact ones.
+ */
+public class QuantileFunction implements AnalyzerFunction<TransactionRecord> {
+
+    public static final String[] KEY_SET = new String[] {"Number of Transactions", "Median Amount",
+            "95th Percentile Amount", "99th Percentile Amount"};
+    private static final double[] QUANTILES = {0.5d, 0.95d, 0.99d};
+
+    private final double         m_relativeAccuracy;
+    private final QuantileSketch m_sketch;
+
+    public QuantileFunction() {
+        this(QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    /**
+     * @param relativeAccuracy relative error bound of the percentiles, in (0, 1), e.g. 0.01
+     */
+    public QuantileFunction(double relativeAccuracy) {
+        this.m_relativeAccuracy = relativeAccuracy;
+        this.m_sketch = new QuantileSketch(relativeAccuracy, QuantileSketch.DEFAULT_MAX_BUCKETS);
+    }
+
+    @Override
+    public void accept(TransactionRecord transactionRecord) {
+        if (!transactionRecord.isReversed() && PAYMENT.equals(transactionRecord.getType())) {
+            m_sketch.add(Amounts.toMinorUnits(transactionRecord.getAmount()));
+        }
+    }
+
+    /**
+     * Consume the rows directly from the data set columns.
+     *
+     * @param dataSet
+     * @param fromIndex first row (inclusive)
+     * @param toIndex last row (exclusive)
+     */
+    @Override
+    public void acceptRange(TransactionDataSet dataSet, int fromIndex, int toIndex) {
+        for (int row = fromIndex; row < toIndex; row++) {
+            if (dataSet.isPayment(row) && !dataSet.isReversed(row)) {
+                m_sketch.add(dataSet.getAmountMinorUnits(row));
+            }
+        }
+    }
+
+    @Override
+    public String getCacheKey() {
+        return AnalyzerFunctions.QUANTILE + ":" + m_relativeAccuracy;
+    }
+
+    @Override
+    public AnalyzerFunction<TransactionRecord> newPartial() {
+        return new QuantileFunction(m_relativeAccuracy);
+    }
+
+    @Override
+    public boolean canMerge(AnalyzerFunction<TransactionRecord> partial) {
+        return partial instanceof QuantileFunction && m_sketch.canMerge(((QuantileFunction) partial).m_sketch);
+    }
+
+    @Override
+    public void merge(AnalyzerFunction<TransactionRecord> partial) {
+        m_sketch.merge(((QuantileFunction) partial).m_sketch);
+    }
+
+    public QuantileSketch getSketch() {
+        return m_sketch;
+    }
+
+    /**
+     * Calculate and return the final value.
+     *
+     * @return
+     */
+    @Override
+    public Map<String, Object> getResult() {
+        Map<String, Object> result = new HashMap<>();
+        result.put(KEY_SET[0], m_sketch.getCount());
+        for (int i = 0; i < QUANTILES.length; i++) {
+            long value = m_sketch.getCount() > 0 ? Math.round(m_sketch.getValueAtQuantile(QUANTILES[i])) : 0L;
+            result.put(KEY_SET[i + 1], Amounts.format(value));
+        }
+        return result;
+    }
+
+    /**
+     * Key set used by the analyzer to represent result. This allows control display value order.
+     *
+     * @return
+     */
+    @Override
+    public String[] getKeySet() {
+        return KEY_SET;
+    }
+}
@@ -0,0 +1,191 @@
+package analyzer;
+
+/**
+ * Mergeable quantile sketch with relative accuracy guarantee (DDSketch, Masson et al., VLDB 2019).
+ * Values are counted in logarithmic buckets - bucket i holds the values in (gamma^(i-1), gamma^i] where
+ * gamma = (1 + alpha) / (1 - alpha), so any quantile is estimated within relative error alpha of a value
+ * of the requested rank. Positive and negative values have their own bucket stores, zeros a counter.
+ * The number of buckets is bounded, when exceeded the lowest buckets are collapsed into one (only the accuracy
+ * of the lowest quantiles suffers then), so the memory is constant whatever the number of values.
+ * Sketches with the same accuracy and bucket limit can be merged, the merge is exact (bucket counts are added).
+ */
+public class QuantileSketch {
+
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01d;
+    public static final int    DEFAULT_MAX_BUCKETS = 2048;
+
+    private final double m_relativeAccuracy;
+    private final double m_gamma;
+    private final double m_logGamma;
+    private final int    m_maxBuckets;
+    private final Store  m_positive;
+    private final Store  m_negative;
+    private long         m_zeroCount;
+    private long         m_count;
+
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BUCKETS);
+    }
+
+    /**
+     * @param relativeAccuracy relative error bound of the quantiles, in (0, 1)
+     * @param maxBuckets maximal number of buckets per sign
+     */
+    public QuantileSketch(double relativeAccuracy, int maxBuckets) {
+        if (!(relativeAccuracy > 0.0d && relativeAccuracy < 1.0d)) {
+            throw new IllegalArgumentException("relative accuracy must be in (0, 1): " + relativeAccuracy);
+        }
+        if (maxBuckets < 2) {
+            throw new IllegalArgumentException("at least 2 buckets are required: " + maxBuckets);
+        }
+        this.m_relativeAccuracy = relativeAccuracy;
+        this.m_gamma = (1.0d + relativeAccuracy) / (1.0d - relativeAccuracy);
+        this.m_logGamma = Math.log(m_gamma);
+        this.m_maxBuckets = maxBuckets;
+        this.m_positive = new Store(maxBuckets);
+        this.m_negative = new Store(maxBuckets);
+    }
+
+    public void add(double value) {
+        if (value > 0.0d) {
+            m_positive.add(index(value), 1L);
+        } else if (value < 0.0d) {
+            m_negative.add(index(-value), 1L);
+        } else if (value == 0.0d) {
+            m_zeroCount++;
+        } else {
+            return; // NaN
+        }
+        m_count++;
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / m_logGamma);
+    }
+
+    /**
+     * @param index
+     * @return representative value of the bucket, within the relative accuracy of all values of the bucket
+     */
+    private double value(int index) {
+        return 2.0d * Math.pow(m_gamma, index) / (m_gamma + 1.0d);
+    }
+
+    /**
+     * @param quantile in [0, 1]
+     * @return estimate of the value of the quantile, NaN if the sketch is empty
+     */
+    public double getValueAtQuantile(double quantile) {
+        if (quantile < 0.0d || quantile > 1.0d) {
+            throw new IllegalArgumentException("quantile must be in [0, 1]: " + quantile);
+        }
+        if (m_count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) (quantile * (m_count - 1));
+        long seen = 0;
+        // negative values from the most negative, i.e. the highest bucket of the negative store
+        for (int i = m_negative.m_counts.length - 1; i >= 0; i--) {
+            seen += m_negative.m_counts[i];
+            if (seen > rank) {
+                return -value(m_negative.m_offset + i);
+            }
+        }
+        seen += m_zeroCount;
+        if (seen > rank) {
+            return 0.0d;
+        }
+        for (int i = 0; i < m_positive.m_counts.length; i++) {
+            seen += m_positive.m_counts[i];
+            if (seen > rank) {
+                return value(m_positive.m_offset + i);
+            }
+        }
+        return value(m_positive.m_offset + m_positive.m_counts.length - 1);
+    }
+
+    public long getCount() {
+        return m_count;
+    }
+
+    public double getRelativeAccuracy() {
+        return m_relativeAccuracy;
+    }
+
+    /**
+     * @param other
+     * @return true if the other sketch can be merged into this one (same accuracy and bucket limit)
+     */
+    public boolean canMerge(QuantileSketch other) {
+        return m_gamma == other.m_gamma && m_maxBuckets == other.m_maxBuckets;
+    }
+
+    /**
+     * Add all values of the other sketch to this sketch.
+     * @param other sketch with the same accuracy and bucket limit
+     */
+    public void merge(QuantileSketch other) {
+        if (!canMerge(other)) {
+            throw new IllegalArgumentException("sketches of different accuracy can not be merged: "
+                    + m_relativeAccuracy + ", " + other.m_relativeAccuracy);
+        }
+        m_positive.merge(other.m_positive);
+        m_negative.merge(other.m_negative);
+        m_zeroCount += other.m_zeroCount;
+        m_count += other.m_count;
+    }
+
+    /**
+     * Contiguous range of bucket counts starting at bucket index m_offset, grown on demand up to the bucket limit.
+     */
+    private static class Store {
+
+        private final int m_maxBuckets;
+        private long[]    m_counts = new long[0];
+        private int       m_offset;
+
+        Store(int maxBuckets) {
+            this.m_maxBuckets = maxBuckets;
+        }
+
+        void add(int index, long count) {
+            if (m_counts.length == 0) {
+                m_counts = new long[Math.min(8, m_maxBuckets)];
+                m_offset = index;
+            } else if (index < m_offset || index >= m_offset + m_counts.length) {
+                extend(index);
+            }
+            m_counts[Math.max(index, m_offset) - m_offset] += count;
+        }
+
+        /**
+         * Extend the range to include the index, at least doubling it (room is left in the direction of the growth).
+         * Beyond the bucket limit the lowest buckets are collapsed into the lowest remaining bucket.
+         */
+        private void extend(int index) {
+            int high = Math.max(index, m_offset + m_counts.length - 1);
+            int low = Math.min(index, m_offset);
+            int length = (int) Math.min(m_maxBuckets, Math.max((long) high - low + 1, 2L * m_counts.length));
+            int newOffset;
+            if ((long) high - low + 1 > m_maxBuckets || index < m_offset) {
+                newOffset = high - length + 1;
+            } else {
+                newOffset = low;
+            }
+            long[] counts = new long[length];
+            for (int i = 0; i < m_counts.length; i++) {
+                counts[Math.max(m_offset + i, newOffset) - newOffset] += m_counts[i];
+            }
+            m_counts = counts;
+            m_offset = newOffset;
+        }
+
+        void merge(Store other) {
+            for (int i = other.m_counts.length - 1; i >= 0; i--) {
+                if (other.m_counts[i] != 0) {
+                    add(other.m_offset + i, other.m_counts[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package analyzer;
+
+import model.TransactionRecord;
+
+/**
+ * One query of a batch (see BatchAnalyzer) - the analysis function to compute for the transactions of [from, to].
+ */
+public class RangeQuery {
+
+    private final long                                m_from;
+    private final long                                m_to;
+    private final AnalyzerFunction<TransactionRecord> m_function;
+
+    /**
+     * @param from range start timestamp (inclusive)
+     * @param to range end timestamp (inclusive)
+     * @param function new function instance, aggregates the result of this query
+     */
+    public RangeQuery(long from, long to, AnalyzerFunction<TransactionRecord> function) {
+        this.m_from = from;
+        this.m_to = to;
+        this.m_function = function;
+    }
+
+    public long getFrom() {
+        return m_from;
+    }
+
+    public long getTo() {
+        return m_to;
+    }
+
+    public AnalyzerFunction<TransactionRecord> getFunction() {
+        return m_function;
+    }
+}
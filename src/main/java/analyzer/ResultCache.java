@@ -0,0 +1,215 @@
+package analyzer;
+
+import metrics.Metrics;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of the analysis results, keyed by the query range and the function key
+ * (AnalyzerFunction.getCacheKey()). The cache is bounded by the estimated size of the cached results, the least
+ * recently used entries are evicted first. Added transactions and reversals invalidate only the entries whose range
+ * contains the date of the changed row (see invalidate()).
+ * <p>
+ * A result computed while the cache is invalidated (query concurrent with loading) may miss the change, such result
+ * is not stored - put() takes the version read by getVersion() before the computation and ignores the result if
+ * the cache was invalidated since.
+ */
+public class ResultCache {
+
+    public static final long DEFAULT_MAX_BYTES = 16L << 20;
+    // estimated size of an entry (key, map, nodes) without the String characters
+    private static final int ENTRY_BYTES = 128;
+    private static final int VALUE_BYTES = 48;
+
+    private final long                      m_maxBytes;
+    private final LinkedHashMap<Key, Entry> m_entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long                            m_bytes = 0;
+    private long                            m_version = 0;
+    private long                            m_hits = 0;
+    private long                            m_misses = 0;
+    private long                            m_evictions = 0;
+    private long                            m_invalidations = 0;
+
+    public ResultCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxBytes limit of the estimated size of the cached results
+     */
+    public ResultCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("result cache size must be positive: " + maxBytes);
+        }
+        this.m_maxBytes = maxBytes;
+    }
+
+    /**
+     * @param from range start timestamp (inclusive)
+     * @param to range end timestamp (inclusive)
+     * @param functionKey
+     * @return copy of the cached result or null if there is none
+     */
+    public synchronized Map<String, Object> get(long from, long to, String functionKey) {
+        Entry entry = m_entries.get(new Key(from, to, functionKey));
+        if (entry == null) {
+            m_misses++;
+            if (Metrics.enabled) {
+                Metrics.CACHE_MISSES.increment();
+            }
+            return null;
+        }
+        m_hits++;
+        if (Metrics.enabled) {
+            Metrics.CACHE_HITS.increment();
+        }
+        return new HashMap<>(entry.result);
+    }
+
+    /**
+     * Store the result unless the cache was invalidated after the version was read.
+     * @param from range start timestamp (inclusive)
+     * @param to range end timestamp (inclusive)
+     * @param functionKey
+     * @param result result of the query, it is copied
+     * @param version value of getVersion() read before the result was computed
+     */
+    public synchronized void put(long from, long to, String functionKey, Map<String, Object> result, long version) {
+        if (version != m_version) {
+            return;
+        }
+        Entry entry = new Entry(new HashMap<>(result));
+        if (entry.bytes > m_maxBytes) {
+            return;
+        }
+        Entry previous = m_entries.put(new Key(from, to, functionKey), entry);
+        if (previous != null) {
+            m_bytes -= previous.bytes;
+        }
+        m_bytes += entry.bytes;
+        Iterator<Entry> eldest = m_entries.values().iterator();
+        while (m_bytes > m_maxBytes) {
+            m_bytes -= eldest.next().bytes;
+            eldest.remove();
+            m_evictions++;
+            if (Metrics.enabled) {
+                Metrics.CACHE_EVICTIONS.increment();
+            }
+        }
+    }
+
+    /**
+     * @return modification version, changed by every invalidation
+     */
+    public synchronized long getVersion() {
+        return m_version;
+    }
+
+    /**
+     * Remove the results of the ranges intersecting [from, to], e.g. ranges containing the date of an added
+     * or reversed transaction.
+     * @param from first changed timestamp (inclusive)
+     * @param to last changed timestamp (inclusive)
+     */
+    public synchronized void invalidate(long from, long to) {
+        m_version++;
+        if (m_entries.isEmpty()) {
+            return;
+        }
+        Iterator<Map.Entry<Key, Entry>> entries = m_entries.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Key, Entry> entry = entries.next();
+            if (entry.getKey().from <= to && entry.getKey().to >= from) {
+                m_bytes -= entry.getValue().bytes;
+                entries.remove();
+                m_invalidations++;
+                if (Metrics.enabled) {
+                    Metrics.CACHE_INVALIDATIONS.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all results (e.g. the data set was replaced).
+     */
+    public synchronized void clear() {
+        m_version++;
+        m_invalidations += m_entries.size();
+        m_entries.clear();
+        m_bytes = 0;
+    }
+
+    public synchronized int size() {
+        return m_entries.size();
+    }
+
+    /**
+     * @return estimated size of the cached results
+     */
+    public synchronized long getBytes() {
+        return m_bytes;
+    }
+
+    public synchronized long getHits() {
+        return m_hits;
+    }
+
+    public synchronized long getMisses() {
+        return m_misses;
+    }
+
+    public synchronized long getEvictions() {
+        return m_evictions;
+    }
+
+    public synchronized long getInvalidations() {
+        return m_invalidations;
+    }
+
+    private static class Key {
+        private final long   from;
+        private final long   to;
+        private final String functionKey;
+
+        private Key(long from, long to, String functionKey) {
+            this.from = from;
+            this.to = to;
+            this.functionKey = functionKey;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return from == key.from && to == key.to && functionKey.equals(key.functionKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return (Long.hashCode(from) * 31 + Long.hashCode(to)) * 31 + functionKey.hashCode();
+        }
+    }
+
+    private static class Entry {
+        private final Map<String, Object> result;
+        private final long                bytes;
+
+        private Entry(Map<String, Object> result) {
+            this.result = result;
+            long bytes = ENTRY_BYTES;
+            for (Map.Entry<String, Object> value : result.entrySet()) {
+                bytes += VALUE_BYTES + 2L * value.getKey().length();
+                if (value.getValue() instanceof CharSequence) {
+                    bytes += VALUE_BYTES + 2L * ((CharSequence) value.getValue()).length();
+                }
+            }
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package analyzer;
+
+import model.TransactionDataSet;
+
+import java.util.Arrays;
+
+/**
+ * Time rollups of the non-reversed payments - count, sum, min and max per day, hour and minute (aligned to UTC).
+ * Only non-empty buckets are kept, in arrays sorted by the bucket number. A time range is answered from the coarsest
+ * buckets fully inside it and the finer levels cover the ragged edges, only the rows of the partial minutes at both
+ * ends are scanned - a month long range takes a few hundred buckets whatever the number of transactions.
+ * <p>
+ * Rows must be appended in the time order (the store becomes invalid otherwise, analysis scans the rows then).
+ * A reversed payment is subtracted from its buckets, the min / max it defined are recomputed hierarchically -
+ * the minute from its rows, the hour from its minutes and the day from its hours.
+ */
+public class RollupStore {
+
+    public static final long MINUTE = 60_000L;
+    public static final long HOUR = 60 * MINUTE;
+    public static final long DAY = 24 * HOUR;
+
+    private final TransactionDataSet m_dataSet;
+    // coarsest level first
+    private final Level[]            m_levels = {new Level(DAY), new Level(HOUR), new Level(MINUTE)};
+    private int                      m_size = 0;
+    private boolean                  m_valid = true;
+    private long                     m_absoluteSum;
+
+    /**
+     * Build the rollups of all current rows of the data set.
+     * @param dataSet
+     */
+    public RollupStore(TransactionDataSet dataSet) {
+        m_dataSet = dataSet;
+        for (int row = 0; row < dataSet.size(); row++) {
+            append(row);
+        }
+    }
+
+    /**
+     * Include the newly added row (the next row of the data set) in the rollups.
+     * @param row
+     */
+    public void append(int row) {
+        if (row != m_size) {
+            throw new IllegalStateException("Rows must be appended in order, expected row " + m_size + " got " + row);
+        }
+        m_size++;
+        if (!m_valid) {
+            return;
+        }
+        long date = m_dataSet.getDate(row);
+        if (row > 0 && date < m_dataSet.getDate(row - 1)) {
+            // out of order row, the buckets can't be mapped to the row ranges anymore
+            invalidate();
+            return;
+        }
+        if (m_dataSet.isPayment(row) && !m_dataSet.isReversed(row)) {
+            long amount = m_dataSet.getAmountMinorUnits(row);
+            try {
+                m_absoluteSum = Math.addExact(m_absoluteSum, Math.abs(amount));
+            } catch (ArithmeticException e) {
+                invalidate();
+                return;
+            }
+            for (Level level : m_levels) {
+                level.add(date, amount);
+            }
+        }
+    }
+
+    /**
+     * Exclude the row from the rollups (the payment has been reversed). Must be called after the row has been marked
+     * reversed and only for a row that was eligible (non-reversed payment) before.
+     * @param row
+     */
+    public void remove(int row) {
+        if (!m_valid || row >= m_size) {
+            return;
+        }
+        long date = m_dataSet.getDate(row);
+        long amount = m_dataSet.getAmountMinorUnits(row);
+        // finest level first, the coarser min / max are recomputed from it
+        for (int l = m_levels.length - 1; l >= 0; l--) {
+            Level level = m_levels[l];
+            int bucket = level.find(Math.floorDiv(date, level.m_width));
+            level.m_counts[bucket]--;
+            level.m_sums[bucket] -= amount;
+            if (level.m_counts[bucket] == 0) {
+                level.m_mins[bucket] = Long.MAX_VALUE;
+                level.m_maxs[bucket] = Long.MIN_VALUE;
+            } else if (amount == level.m_mins[bucket] || amount == level.m_maxs[bucket]) {
+                Accumulator accumulator = new Accumulator();
+                long start = level.m_keys[bucket] * level.m_width;
+                if (l == m_levels.length - 1) {
+                    scan(start, start + level.m_width, accumulator);
+                } else {
+                    m_levels[l + 1].summarize(Math.floorDiv(start, m_levels[l + 1].m_width),
+                            Math.floorDiv(start + level.m_width, m_levels[l + 1].m_width), accumulator);
+                }
+                level.m_mins[bucket] = accumulator.m_min;
+                level.m_maxs[bucket] = accumulator.m_max;
+            }
+        }
+    }
+
+    private void invalidate() {
+        m_valid = false;
+        for (int l = 0; l < m_levels.length; l++) {
+            m_levels[l] = new Level(m_levels[l].m_width);
+        }
+    }
+
+    /**
+     * Summary of the non-reversed payments with date in [from, to].
+     * @param from range start timestamp (inclusive)
+     * @param to range end timestamp (inclusive)
+     * @return
+     */
+    public PaymentSummary query(long from, long to) {
+        Accumulator accumulator = new Accumulator();
+        if (m_size > 0 && from <= to) {
+            long lastDate = m_dataSet.getDate(m_size - 1);
+            long start = Math.max(from, m_dataSet.getDate(0));
+            long end = to >= lastDate ? lastDate + 1 : to + 1;
+            if (start < end) {
+                collect(0, start, end, accumulator);
+            }
+        }
+        return new PaymentSummary(accumulator.m_count, accumulator.m_sum, accumulator.m_min, accumulator.m_max);
+    }
+
+    /**
+     * Aggregate [start, end) from the full buckets of the level, the edges from the finer levels / rows.
+     */
+    private void collect(int level, long start, long end, Accumulator accumulator) {
+        if (level == m_levels.length) {
+            scan(start, end, accumulator);
+            return;
+        }
+        long width = m_levels[level].m_width;
+        long firstKey = -Math.floorDiv(-start, width);
+        long endKey = Math.floorDiv(end, width);
+        if (firstKey >= endKey) {
+            collect(level + 1, start, end, accumulator);
+            return;
+        }
+        if (start < firstKey * width) {
+            collect(level + 1, start, firstKey * width, accumulator);
+        }
+        m_levels[level].summarize(firstKey, endKey, accumulator);
+        if (endKey * width < end) {
+            collect(level + 1, endKey * width, end, accumulator);
+        }
+    }
+
+    private void scan(long start, long end, Accumulator accumulator) {
+        int toIndex = Math.min(m_size, m_dataSet.lowerBound(end));
+        for (int row = m_dataSet.lowerBound(start); row < toIndex; row++) {
+            if (m_dataSet.isPayment(row) && !m_dataSet.isReversed(row)) {
+                long amount = m_dataSet.getAmountMinorUnits(row);
+                accumulator.add(1, amount, amount, amount);
+            }
+        }
+    }
+
+    /**
+     * @return false if the rollups can't be used (rows out of time order or the sums could overflow)
+     */
+    public boolean isValid() {
+        return m_valid;
+    }
+
+    /**
+     * @return number of the stored (non-empty) buckets of all levels
+     */
+    public int getBucketCount() {
+        int count = 0;
+        for (Level level : m_levels) {
+            count += level.m_size;
+        }
+        return count;
+    }
+
+    private static final class Accumulator {
+
+        private int  m_count;
+        private long m_sum;
+        private long m_min = Long.MAX_VALUE;
+        private long m_max = Long.MIN_VALUE;
+
+        private void add(int count, long sum, long min, long max) {
+            m_count += count;
+            m_sum += sum;
+            m_min = Math.min(m_min, min);
+            m_max = Math.max(m_max, max);
+        }
+    }
+
+    /**
+     * Non-empty buckets of one width, sorted by the bucket number (date / width).
+     */
+    private static final class Level {
+
+        private final long m_width;
+        private int        m_size = 0;
+        private long[]     m_keys = new long[16];
+        private int[]      m_counts = new int[16];
+        private long[]     m_sums = new long[16];
+        private long[]     m_mins = new long[16];
+        private long[]     m_maxs = new long[16];
+
+        private Level(long width) {
+            m_width = width;
+        }
+
+        private void add(long date, long amount) {
+            long key = Math.floorDiv(date, m_width);
+            if (m_size == 0 || m_keys[m_size - 1] != key) {
+                if (m_size == m_keys.length) {
+                    int capacity = m_size + (m_size >> 1);
+                    m_keys = Arrays.copyOf(m_keys, capacity);
+                    m_counts = Arrays.copyOf(m_counts, capacity);
+                    m_sums = Arrays.copyOf(m_sums, capacity);
+                    m_mins = Arrays.copyOf(m_mins, capacity);
+                    m_maxs = Arrays.copyOf(m_maxs, capacity);
+                }
+                m_keys[m_size] = key;
+                m_mins[m_size] = Long.MAX_VALUE;
+                m_maxs[m_size] = Long.MIN_VALUE;
+                m_size++;
+            }
+            int bucket = m_size - 1;
+            m_counts[bucket]++;
+            m_sums[bucket] += amount;
+            m_mins[bucket] = Math.min(m_mins[bucket], amount);
+            m_maxs[bucket] = Math.max(m_maxs[bucket], amount);
+        }
+
+        /**
+         * @param key
+         * @return index of the bucket with the key or of the first bucket with a higher key
+         */
+        private int find(long key) {
+            int bucket = Arrays.binarySearch(m_keys, 0, m_size, key);
+            return bucket >= 0 ? bucket : -bucket - 1;
+        }
+
+        private void summarize(long fromKey, long toKey, Accumulator accumulator) {
+            for (int bucket = find(fromKey); bucket < m_size && m_keys[bucket] < toKey; bucket++) {
+                accumulator.add(m_counts[bucket], m_sums[bucket], m_mins[bucket], m_maxs[bucket]);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package analyzer;
+
+import model.TransactionDataSet;
+
+/**
+ * Branch-free scan kernels over the amount column and the mask of the non-reversed payments
+ * (TransactionDataSet.getEligibleColumn()). The loops have no data dependent branches, the amounts are selected
+ * by and-ing them with the mask and the count is the negated sum of the mask - the cost does not depend on the mix
+ * of payments, reversals and reversed payments, and the JIT can unroll (and with superword support vectorize) them.
+ * The range is scanned in blocks of MASK_BLOCK rows, the block sums can't overflow for the amounts below
+ * 2^50 minor units, larger amounts are summed by Math.addExact().
+ */
+final class ScanKernels {
+
+    // rows per block
+    static final int MASK_BLOCK = 1 << 12;
+    // amounts of a block below this magnitude can't overflow the block sum: 2^12 * 2^50 = 2^62
+    private static final int MAGNITUDE_BITS = 50;
+
+    private ScanKernels() {
+    }
+
+    /**
+     * Add the count and sum of the masked amounts to countSum.
+     * @param amounts amount column
+     * @param from row of the first amount
+     * @param mask mask of the rows
+     * @param maskFrom index of the mask of the first row
+     * @param length number of rows, at most MASK_BLOCK unless the amounts are small enough for more
+     * @param countSum {count, sum} to be updated
+     */
+    static void sum(long[] amounts, int from, byte[] mask, int maskFrom, int length, long[] countSum) {
+        long count = 0L;
+        long sum = 0L;
+        for (int i = 0; i < length; i++) {
+            long selected = mask[maskFrom + i];
+            sum += amounts[from + i] & selected;
+            count -= selected;
+        }
+        countSum[0] += count;
+        countSum[1] = Math.addExact(countSum[1], sum);
+    }
+
+    /**
+     * Add the count and sum of the masked amounts to countSum, the overflow is checked per amount.
+     * @throws ArithmeticException if the sum overflows
+     */
+    static void sumExact(long[] amounts, int from, byte[] mask, int maskFrom, int length, long[] countSum) {
+        long count = countSum[0];
+        long sum = countSum[1];
+        for (int i = 0; i < length; i++) {
+            long selected = mask[maskFrom + i];
+            sum = Math.addExact(sum, amounts[from + i] & selected);
+            count -= selected;
+        }
+        countSum[0] = count;
+        countSum[1] = sum;
+    }
+
+    /**
+     * Add the count of the masked amounts and update their minimum and maximum.
+     * @param amounts amount column
+     * @param from row of the first amount
+     * @param mask mask of the rows
+     * @param maskFrom index of the mask of the first row
+     * @param length number of rows
+     * @param countMinMax {count, min, max} to be updated
+     */
+    static void minMax(long[] amounts, int from, byte[] mask, int maskFrom, int length, long[] countMinMax) {
+        long count = countMinMax[0];
+        long min = countMinMax[1];
+        long max = countMinMax[2];
+        for (int i = 0; i < length; i++) {
+            long selected = mask[maskFrom + i];
+            long amount = amounts[from + i] & selected;
+            min = Math.min(min, amount | (Long.MAX_VALUE & ~selected));
+            max = Math.max(max, amount | (Long.MIN_VALUE & ~selected));
+            count -= selected;
+        }
+        countMinMax[0] = count;
+        countMinMax[1] = min;
+        countMinMax[2] = max;
+    }
+
+    /**
+     * Summary of the non-reversed payments of the rows [fromIndex, toIndex). The data set mask column is scanned
+     * in place, the mask of a snapshot is computed per block.
+     * @param dataSet
+     * @param fromIndex first row (inclusive)
+     * @param toIndex last row (exclusive)
+     * @param withSum true computes the count and sum (min / max are not computed), false the count, min and max
+     * @return summary, min / max of no payments are Long.MAX_VALUE / Long.MIN_VALUE
+     */
+    static PaymentSummary summarize(TransactionDataSet dataSet, int fromIndex, int toIndex, boolean withSum) {
+        long[] amounts = dataSet.getAmountColumn();
+        byte[] column = dataSet.getEligibleColumn();
+        byte[] mask = column != null ? column : new byte[Math.max(0, Math.min(toIndex - fromIndex, MASK_BLOCK))];
+        boolean exact = dataSet.getAmountMagnitude() >>> MAGNITUDE_BITS != 0;
+        long[] aggregates = {0L, withSum ? 0L : Long.MAX_VALUE, Long.MIN_VALUE};
+        for (int block = fromIndex; block < toIndex; block += MASK_BLOCK) {
+            int length = Math.min(MASK_BLOCK, toIndex - block);
+            int maskFrom = block;
+            if (column == null) {
+                dataSet.eligibleMask(block, block + length, mask);
+                maskFrom = 0;
+            }
+            if (!withSum) {
+                minMax(amounts, block, mask, maskFrom, length, aggregates);
+            } else if (exact) {
+                sumExact(amounts, block, mask, maskFrom, length, aggregates);
+            } else {
+                sum(amounts, block, mask, maskFrom, length, aggregates);
+            }
+        }
+        return withSum ? new PaymentSummary((int) aggregates[0], aggregates[1], Long.MAX_VALUE, Long.MIN_VALUE)
+                : new PaymentSummary((int) aggregates[0], 0L, aggregates[1], aggregates[2]);
+    }
+}
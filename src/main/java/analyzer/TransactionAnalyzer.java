@@ -1,21 +1,58 @@
 package analyzer;
 
+import metrics.Metrics;
+import model.SnapshotInput;
+import model.SnapshotOutput;
+import model.TransactionDataSet;
+import model.TransactionIds;
+import model.TransactionParser;
 import model.TransactionRecord;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import static app.SimpleTransactionAnalyzer.DATE_FORMAT;
 
 public class TransactionAnalyzer {
 
+    // rows aggregated by one partial aggregator, the block boundaries do not depend on the parallelism
+    public  static final int                    BLOCK_SIZE = 1 << 16;
+    // ranges with at least this number of blocks are aggregated in parallel
+    private static final int                    PARALLEL_BLOCK_THRESHOLD = 4;
+
     private AnalyzerFunction<TransactionRecord> m_analyzerFunction;
-    private Map<String, TransactionRecord>      m_TransactionIdIndex = new HashMap<>();
-    private List<TransactionRecord>             m_dataSet = new ArrayList<>();
+    private boolean                             m_parallelAnalysis = true;
+    // maps transaction ID to the row of the transaction in the data set
+    private TransactionIdIndex                  m_TransactionIdIndex = new TransactionIdIndex();
+    // IDs of transactions older than the horizon (relative to the latest one) are evicted from the index, 0 = never
+    private long                                m_reversalHorizon = 0;
+    private long                                m_latestDate = Long.MIN_VALUE;
+    private int                                 m_evictedRows = 0;
+    private TransactionDataSet                  m_dataSet = new TransactionDataSet();
+    // optional precomputed aggregates, see buildAggregateIndex()
+    private AggregateIndex                      m_aggregateIndex;
+    // day / hour / minute aggregates maintained while loading, null if disabled, see setRollupsEnabled()
+    private RollupStore                         m_rollups = new RollupStore(m_dataSet);
+    // analyze() reads data set snapshots, so it can run concurrently with add(), see setConcurrentQueries()
+    private volatile boolean                    m_concurrentQueries = false;
+    // optional cache of the analyze() results, see setResultCache()
+    private volatile ResultCache                m_resultCache;
+    // dates of the rows added / reversed since the last invalidation of the result cache - span of the added rows
+    // and the reversed rows (collapsed into the span when there are too many of them)
+    private long                                m_changedFrom = Long.MAX_VALUE;
+    private long                                m_changedTo = Long.MIN_VALUE;
+    private long[]                              m_reversedDates = new long[64];
+    private int                                 m_reversedCount = 0;
 
     public TransactionAnalyzer(AnalyzerFunction<TransactionRecord> analyzerFunction) {
         this.m_analyzerFunction = analyzerFunction;
@@ -23,20 +60,169 @@ public class TransactionAnalyzer {
 
     public void add(TransactionRecord record) {
         if (record != null) {
-            m_dataSet.add(record);
-            m_TransactionIdIndex.put(record.getId(), record);
-            if (TransactionRecord.TransactionType.REVERSAL.equals(record.getType())) {
-                TransactionRecord reversedTransaction = m_TransactionIdIndex.get(record.getRelatedTransaction());
-                if (reversedTransaction != null) {
-                    reversedTransaction.setReversed(true);
-                } else {
-                    System.out.println("[WARN] - attempting to reverse non-existent transaction ID: " +
-                            record.getRelatedTransaction());
+            index(m_dataSet.add(record));
+            m_dataSet.publish();
+            invalidateChanged();
+        }
+    }
+
+    /**
+     * Add the transaction held by the parser (last accepted line) without creating TransactionRecord.
+     * @param parser
+     */
+    public void add(TransactionParser parser) {
+        index(m_dataSet.add(parser));
+        m_dataSet.publish();
+        invalidateChanged();
+    }
+
+    /**
+     * Append all transactions of the data set segment (e.g. part of the file parsed in parallel). The transaction
+     * reversals are resolved in the row order, exactly as if the transactions were added one by one.
+     * @param segment
+     */
+    public void addAll(TransactionDataSet segment) {
+        long start = Metrics.enabled ? System.nanoTime() : 0L;
+        int first = m_dataSet.addAll(segment);
+        for (int row = first; row < m_dataSet.size(); row++) {
+            index(row);
+        }
+        m_dataSet.publish();
+        invalidateChanged();
+        if (Metrics.enabled) {
+            Metrics.INDEX_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Index the transaction ID of the newly added row and handle transaction reversal.
+     * @param row
+     */
+    private void index(int row) {
+        long packedId = m_dataSet.getPackedId(row);
+        if (packedId != TransactionIds.NOT_PACKED) {
+            m_TransactionIdIndex.put(packedId, row);
+        } else {
+            m_TransactionIdIndex.put(m_dataSet.getId(row), row);
+        }
+        if (m_reversalHorizon > 0) {
+            evict(m_dataSet.getDate(row));
+        }
+        if (m_aggregateIndex != null) {
+            m_aggregateIndex.append(row);
+        }
+        if (m_rollups != null) {
+            m_rollups.append(row);
+        }
+        if (m_resultCache != null) {
+            long date = m_dataSet.getDate(row);
+            m_changedFrom = Math.min(m_changedFrom, date);
+            m_changedTo = Math.max(m_changedTo, date);
+        }
+        if (TransactionRecord.TransactionType.REVERSAL.equals(m_dataSet.getType(row))) {
+            int reversedTransaction = m_TransactionIdIndex.get(m_dataSet.getRelatedTransaction(row));
+            if (reversedTransaction >= 0) {
+                boolean eligible = m_dataSet.isPayment(reversedTransaction) && !m_dataSet.isReversed(reversedTransaction);
+                m_dataSet.setReversed(reversedTransaction, true);
+                if (eligible && m_aggregateIndex != null) {
+                    m_aggregateIndex.remove(reversedTransaction);
+                }
+                if (eligible && m_rollups != null) {
+                    m_rollups.remove(reversedTransaction);
+                }
+                if (eligible && m_resultCache != null) {
+                    reversed(m_dataSet.getDate(reversedTransaction));
                 }
+            } else {
+                if (Metrics.enabled) {
+                    Metrics.UNRESOLVED_REVERSALS.increment();
+                }
+                System.out.println("[WARN] - attempting to reverse non-existent transaction ID: " +
+                        m_dataSet.getRelatedTransaction(row));
+            }
+        }
+    }
+
+    /**
+     * Record the date of a reversed payment for the invalidation of the result cache.
+     * @param date
+     */
+    private void reversed(long date) {
+        if (date >= m_changedFrom && date <= m_changedTo) {
+            return;
+        }
+        if (m_reversedCount == m_reversedDates.length) {
+            for (int i = 0; i < m_reversedCount; i++) {
+                m_changedFrom = Math.min(m_changedFrom, m_reversedDates[i]);
+                m_changedTo = Math.max(m_changedTo, m_reversedDates[i]);
+            }
+            m_reversedCount = 0;
+        }
+        m_reversedDates[m_reversedCount++] = date;
+    }
+
+    /**
+     * Invalidate the cached results of the ranges containing the rows added or reversed since the last call.
+     * Called after the rows are published, so a query which has not seen them can't store its result
+     * (see ResultCache.put()).
+     */
+    private void invalidateChanged() {
+        ResultCache cache = m_resultCache;
+        if (cache == null) {
+            return;
+        }
+        if (m_changedFrom <= m_changedTo) {
+            cache.invalidate(m_changedFrom, m_changedTo);
+        }
+        for (int i = 0; i < m_reversedCount; i++) {
+            if (m_reversedDates[i] < m_changedFrom || m_reversedDates[i] > m_changedTo) {
+                cache.invalidate(m_reversedDates[i], m_reversedDates[i]);
+            }
+        }
+        m_changedFrom = Long.MAX_VALUE;
+        m_changedTo = Long.MIN_VALUE;
+        m_reversedCount = 0;
+    }
+
+    /**
+     * Remove the IDs of the transactions older than the reversal horizon from the index. Rows are evicted in the
+     * row order, for data set which is not time-ordered the eviction stops at the first row within the horizon.
+     * @param date date of the newly added transaction
+     */
+    private void evict(long date) {
+        m_latestDate = Math.max(m_latestDate, date);
+        long oldestDate = m_latestDate - m_reversalHorizon;
+        while (m_evictedRows < m_dataSet.size() && m_dataSet.getDate(m_evictedRows) < oldestDate) {
+            long packedId = m_dataSet.getPackedId(m_evictedRows);
+            if (packedId != TransactionIds.NOT_PACKED) {
+                m_TransactionIdIndex.remove(packedId, m_evictedRows);
+            } else {
+                m_TransactionIdIndex.remove(m_dataSet.getId(m_evictedRows), m_evictedRows);
             }
+            m_evictedRows++;
         }
     }
 
+    /**
+     * Limit the reversal resolution to the transactions not older than the horizon (relative to the latest added
+     * transaction), IDs of older transactions are evicted from the ID index to bound its size. Reversal of an evicted
+     * transaction is reported as reversal of non-existent transaction. Must be set before adding the transactions.
+     * @param horizonMillis horizon in milliseconds, 0 (default) keeps all IDs
+     */
+    public void setReversalHorizon(long horizonMillis) {
+        if (horizonMillis < 0) {
+            throw new IllegalArgumentException("reversal horizon must not be negative: " + horizonMillis);
+        }
+        this.m_reversalHorizon = horizonMillis;
+    }
+
+    /**
+     * @return reversal horizon in milliseconds, 0 if all IDs are kept
+     */
+    public long getReversalHorizon() {
+        return m_reversalHorizon;
+    }
+
     /**
      * Performs required transaction analysis
      *
@@ -45,32 +231,277 @@ public class TransactionAnalyzer {
      * @return
      */
     public Map<String, Object> analyze(long from, long to) {
+        return analyze(from, to, m_analyzerFunction, null);
+    }
+
+    /**
+     * Performs the transaction analysis with the given function instead of the analyzer's own function.
+     * With the result cache set (see setResultCache()) the result may be taken from the cache, the function then
+     * does not consume any rows - the function must be a new instance.
+     *
+     * @param from
+     * @param to
+     * @param analyzerFunction
+     * @return
+     */
+    public Map<String, Object> analyze(long from, long to, AnalyzerFunction<TransactionRecord> analyzerFunction) {
+        return analyze(from, to, analyzerFunction, m_resultCache);
+    }
+
+    private Map<String, Object> analyze(long from, long to, AnalyzerFunction<TransactionRecord> analyzerFunction,
+                                        ResultCache cache) {
         Map<String, Object> result = new HashMap<>();
-        if (m_dataSet.isEmpty()) {
+        String cacheKey = cache != null ? analyzerFunction.getCacheKey() : null;
+        // read before the data set, the result is not stored if the rows change meanwhile
+        long cacheVersion = cacheKey != null ? cache.getVersion() : 0L;
+        TransactionDataSet dataSet = m_concurrentQueries ? m_dataSet.snapshot() : m_dataSet;
+        if (dataSet.isEmpty()) {
             result.put("ERROR", "TransactionAnalyzer has no transaction data to analyze.");
             return result;
         }
         if (from > to) {
-            result.put("ERROR",
-                    String.format("date-from parameter must be before date-to. Actual requested range is from: %s to: %s",
-                    DATE_FORMAT.format(new Date(from)), DATE_FORMAT.format(new Date(to))));
+            synchronized (DATE_FORMAT) { // analyze may be called concurrently (query server)
+                result.put("ERROR",
+                        String.format("date-from parameter must be before date-to. Actual requested range is from: %s to: %s",
+                        DATE_FORMAT.format(new Date(from)), DATE_FORMAT.format(new Date(to))));
+            }
             return result;
         }
-        int toIndex = m_dataSet.size();
+        long start = Metrics.enabled ? System.nanoTime() : 0L;
+        if (cacheKey != null) {
+            Map<String, Object> cached = cache.get(from, to, cacheKey);
+            if (cached != null) {
+                if (Metrics.enabled) {
+                    Metrics.ANALYZE_LATENCY.recordSince(start);
+                }
+                return cached;
+            }
+        }
+        int fromIndex = firstRow(dataSet, from);
+        int toIndex = endRow(dataSet, fromIndex, to);
+        if (fromIndex < toIndex && (dataSet != m_dataSet || !acceptRollups(analyzerFunction, from, to))) {
+            aggregate(dataSet, analyzerFunction, fromIndex, toIndex);
+        }
+        result = analyzerFunction.getResult();
+        if (cacheKey != null) {
+            cache.put(from, to, cacheKey, result, cacheVersion);
+        }
+        if (Metrics.enabled) {
+            Metrics.ROWS_ANALYZED.add(Math.max(0, toIndex - fromIndex));
+            Metrics.ANALYZE_LATENCY.recordSince(start);
+        }
+        return result;
+    }
+
+    /**
+     * @param from range start timestamp (inclusive)
+     * @return first row of the range starting at the timestamp
+     */
+    int firstRow(long from) {
+        return firstRow(m_dataSet, from);
+    }
+
+    private static int firstRow(TransactionDataSet dataSet, long from) {
+        return dataSet.isTimeOrdered() ? dataSet.lowerBound(from) : scanLowerBound(dataSet, from);
+    }
+
+    /**
+     * @param fromIndex first row of the range, see firstRow()
+     * @param to range end timestamp (inclusive)
+     * @return end row (exclusive) of the range ending at the timestamp
+     */
+    int endRow(int fromIndex, long to) {
+        return endRow(m_dataSet, fromIndex, to);
+    }
+
+    private static int endRow(TransactionDataSet dataSet, int fromIndex, long to) {
+        return dataSet.isTimeOrdered() ? dataSet.lowerBound(to == Long.MAX_VALUE ? to : to + 1)
+                : scanUpperBound(dataSet, fromIndex, to);
+    }
+
+    /**
+     * Answer the time range from the rollups if the function supports summaries and the aggregate index (logarithmic
+     * in the number of rows) is not available.
+     * @param function
+     * @param from
+     * @param to
+     * @return true if the function has consumed the range
+     */
+    private boolean acceptRollups(AnalyzerFunction<TransactionRecord> function, long from, long to) {
+        return function.supportsSummaries() && m_rollups != null && m_rollups.isValid() && m_dataSet.isTimeOrdered()
+                && (m_aggregateIndex == null || !m_aggregateIndex.isValid())
+                && function.acceptSummary(m_rollups.query(from, to));
+    }
+
+    /**
+     * Feed the rows [fromIndex, toIndex) to the function. If the function supports partial aggregation, the range is
+     * split into blocks of BLOCK_SIZE rows, each block is aggregated by its own partial aggregator and the partials
+     * are merged in the block order. Large ranges have the blocks aggregated in parallel, the merge order and hence
+     * the result is the same as for the sequential run.
+     * @param function
+     * @param fromIndex
+     * @param toIndex
+     */
+    void aggregate(AnalyzerFunction<TransactionRecord> function, int fromIndex, int toIndex) {
+        aggregate(m_dataSet, function, fromIndex, toIndex);
+    }
+
+    /**
+     * Feed the rows of the data set or of its snapshot to the function, the aggregate index is used only
+     * for the data set itself (it is not maintained for the snapshots).
+     */
+    private void aggregate(TransactionDataSet dataSet, AnalyzerFunction<TransactionRecord> function, int fromIndex, int toIndex) {
+        if (function.supportsSummaries() && dataSet == m_dataSet && m_aggregateIndex != null
+                && m_aggregateIndex.isValid() && function.acceptSummary(m_aggregateIndex.query(fromIndex, toIndex))) {
+            return;
+        }
+        if (function.newPartial() == null) {
+            function.acceptRange(dataSet, fromIndex, toIndex);
+            return;
+        }
+        int blockCount = (int) ((toIndex - (long) fromIndex + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        IntStream blocks = IntStream.range(0, blockCount);
+        if (m_parallelAnalysis && blockCount >= PARALLEL_BLOCK_THRESHOLD) {
+            blocks = blocks.parallel();
+        }
+        blocks.mapToObj(block -> {
+                    AnalyzerFunction<TransactionRecord> partial = function.newPartial();
+                    int blockStart = fromIndex + block * BLOCK_SIZE;
+                    partial.acceptRange(dataSet, blockStart, Math.min(toIndex, blockStart + BLOCK_SIZE));
+                    return partial;
+                })
+                .forEachOrdered(function::merge);
+    }
+
+    /**
+     * Save the loaded state - data set columns, merchant dictionary and the transaction ID index - to the binary
+     * snapshot file. loadSnapshot() then restores the state without parsing the CSV input.
+     * @param file
+     * @throws IOException
+     */
+    public void writeSnapshot(File file) throws IOException {
+        try (SnapshotOutput output = new SnapshotOutput(file)) {
+            m_dataSet.writeSnapshot(output);
+            m_TransactionIdIndex.writeSnapshot(output);
+            output.writeLong(m_reversalHorizon);
+            output.writeLong(m_latestDate);
+            output.writeInt(m_evictedRows);
+        }
+    }
+
+    /**
+     * Restore the state saved by writeSnapshot(), the analyzer must be empty.
+     * @param file
+     * @throws IOException if the file is not a valid snapshot
+     */
+    public void loadSnapshot(File file) throws IOException {
+        if (!m_dataSet.isEmpty()) {
+            throw new IllegalStateException("snapshot can be loaded only into an empty analyzer");
+        }
+        try (SnapshotInput input = new SnapshotInput(file)) {
+            m_dataSet = TransactionDataSet.readSnapshot(input);
+            m_TransactionIdIndex = TransactionIdIndex.readSnapshot(input);
+            m_reversalHorizon = input.readLong();
+            m_latestDate = input.readLong();
+            m_evictedRows = input.readInt();
+        }
+        if (m_aggregateIndex != null) {
+            buildAggregateIndex();
+        }
+        if (m_rollups != null) {
+            m_rollups = new RollupStore(m_dataSet);
+        }
+        if (m_resultCache != null) {
+            m_resultCache.clear();
+        }
+    }
+
+    /**
+     * Build the aggregate index over the loaded data set. Functions supporting summaries (supportsSummaries()) are
+     * answered in logarithmic time for any range. The index is maintained incrementally by add().
+     */
+    public void buildAggregateIndex() {
+        m_aggregateIndex = new AggregateIndex(m_dataSet);
+    }
+
+    /**
+     * Enable (default) / disable the day, hour and minute rollups of the payments. The rollups are maintained while
+     * loading and answer long time ranges of the functions supporting summaries (supportsSummaries()) from the buckets,
+     * only the partial minutes at the range edges are scanned. Enabling builds the rollups of the loaded rows.
+     * @param enabled
+     */
+    public void setRollupsEnabled(boolean enabled) {
+        m_rollups = enabled ? new RollupStore(m_dataSet) : null;
+    }
+
+    /**
+     * Enable / disable queries concurrent with loading (disabled by default). When enabled, analyze() may be called
+     * from any number of threads while one thread adds the transactions - each query reads a consistent snapshot
+     * of the rows published so far (including their reversals) without locking. The aggregate index and rollups
+     * are maintained by the writer only, so the concurrent queries scan the rows (in parallel blocks).
+     * Batch and window analysis still require the loading to be finished.
+     * @param concurrentQueries
+     */
+    public void setConcurrentQueries(boolean concurrentQueries) {
+        this.m_concurrentQueries = concurrentQueries;
+    }
+
+    public boolean isConcurrentQueries() {
+        return m_concurrentQueries;
+    }
+
+    /**
+     * Set the cache of the analyze(from, to, function) results (none by default), e.g. for the query server
+     * answering the same dashboard queries repeatedly. Only functions with a cache key are cached. Adding
+     * a transaction invalidates the cached ranges containing its date, a reversal the ranges containing the date
+     * of the reversed payment. The analyzer's own function (analyze(from, to)) accumulates, it is never cached.
+     * @param cache cache or null to disable caching
+     */
+    public void setResultCache(ResultCache cache) {
+        this.m_resultCache = cache;
+    }
+
+    public ResultCache getResultCache() {
+        return m_resultCache;
+    }
+
+    /**
+     * Enable / disable parallel aggregation of large ranges (enabled by default). The result does not depend on it.
+     * @param parallelAnalysis
+     */
+    public void setParallelAnalysis(boolean parallelAnalysis) {
+        this.m_parallelAnalysis = parallelAnalysis;
+    }
+
+    /**
+     * Linear search for the first transaction not before the given date, used when the data set is not time-ordered.
+     * @param dataSet
+     * @param date
+     * @return
+     */
+    private static int scanLowerBound(TransactionDataSet dataSet, long date) {
+        int size = dataSet.size();
         int searchIndex = 0;
-        // skip transactions that are before the requested start time
-        while (searchIndex < toIndex && m_dataSet.get(searchIndex).getDate() < from) {
+        while (searchIndex < size && dataSet.getDate(searchIndex) < date) {
             searchIndex++;
         }
-        // if found data that fall within the required range
-        if (searchIndex < toIndex && m_dataSet.get(searchIndex).getDate() <= to) {
-            m_analyzerFunction.accept(m_dataSet.get(searchIndex++));
-            while (searchIndex < toIndex && m_dataSet.get(searchIndex).getDate() <= to) {
-                m_analyzerFunction.accept(m_dataSet.get(searchIndex++));
-            }
+        return searchIndex;
+    }
+
+    /**
+     * Linear search for the end (exclusive) of the range starting at fromIndex, used when the data set is not time-ordered.
+     * @param dataSet
+     * @param fromIndex
+     * @param date
+     * @return
+     */
+    private static int scanUpperBound(TransactionDataSet dataSet, int fromIndex, long date) {
+        int size = dataSet.size();
+        int searchIndex = fromIndex;
+        while (searchIndex < size && dataSet.getDate(searchIndex) <= date) {
+            searchIndex++;
         }
-        result = m_analyzerFunction.getResult();
-        return result;
+        return searchIndex;
     }
 
     /**
@@ -79,28 +510,93 @@ public class TransactionAnalyzer {
      * @return
      */
     public String interpretResult(Map<String, Object> result) {
+        return interpretResult(result, m_analyzerFunction);
+    }
+
+    /**
+     * Convert the result produced by the given function to the human readable format.
+     * @param result
+     * @param analyzerFunction
+     * @return
+     */
+    public String interpretResult(Map<String, Object> result, AnalyzerFunction<TransactionRecord> analyzerFunction) {
         StringBuilder text = new StringBuilder();
         if (result != null && !result.isEmpty()) {
-            Arrays.asList(m_analyzerFunction.getKeySet()).forEach(k -> text.append(k).append(" = ").append(result.get(k)).append("\n"));
+            Arrays.asList(analyzerFunction.getKeySet()).forEach(k -> text.append(k).append(" = ").append(result.get(k)).append("\n"));
         }
         return text.toString();
     }
 
     /**
-     * Retrieve the current data set.
+     * Retrieve the current data set as a read-only list. Records are materialized from the columnar storage on access.
      *
      * @return
      */
     public List<TransactionRecord> getDataSet() {
+        return m_dataSet.asList();
+    }
+
+    /**
+     * Retrieve the columnar storage of the current data set.
+     *
+     * @return
+     */
+    public TransactionDataSet getColumnarDataSet() {
         return m_dataSet;
     }
 
     /**
-     * Retrieve the internal transaction index.
+     * Retrieve the internal transaction index as a read-only map. Records are materialized on access.
      *
      * @return
      */
     public Map<String, TransactionRecord> getTransacionIndex() {
-        return m_TransactionIdIndex;
+        return new TransactionIndexView();
+    }
+
+    private class TransactionIndexView extends AbstractMap<String, TransactionRecord> {
+
+        @Override
+        public TransactionRecord get(Object key) {
+            int row = key instanceof String ? m_TransactionIdIndex.get((String) key) : -1;
+            return row >= 0 ? m_dataSet.getRecord(row) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && m_TransactionIdIndex.get((String) key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return m_TransactionIdIndex.size();
+        }
+
+        @Override
+        public Set<Entry<String, TransactionRecord>> entrySet() {
+            return new AbstractSet<Entry<String, TransactionRecord>>() {
+                @Override
+                public Iterator<Entry<String, TransactionRecord>> iterator() {
+                    Iterator<String> ids = m_TransactionIdIndex.ids();
+                    return new Iterator<Entry<String, TransactionRecord>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return ids.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, TransactionRecord> next() {
+                            String id = ids.next();
+                            return new SimpleImmutableEntry<>(id, m_dataSet.getRecord(m_TransactionIdIndex.get(id)));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return m_TransactionIdIndex.size();
+                }
+            };
+        }
     }
 }
@@ -0,0 +1,246 @@
+package analyzer;
+
+import model.SnapshotInput;
+import model.SnapshotOutput;
+import model.TransactionIds;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Maps the transaction IDs to the data set rows, used to resolve the transaction reversals.
+ * IDs packed into longs (TransactionIds) are kept in an open addressing table of two primitive arrays
+ * (linear probing, 12 bytes per slot), so the index holds no objects per transaction. The rare IDs which
+ * can not be packed are kept in a HashMap.
+ */
+public class TransactionIdIndex {
+
+    private static final int   INITIAL_CAPACITY = 1024; // power of 2
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[]               m_keys = new long[INITIAL_CAPACITY]; // NOT_PACKED (0) = empty slot
+    private int[]                m_rows = new int[INITIAL_CAPACITY];
+    private int                  m_packedCount = 0;
+    private int                  m_resizeThreshold = (int) (INITIAL_CAPACITY * LOAD_FACTOR);
+    private Map<String, Integer> m_unpacked = new HashMap<>();
+
+    /**
+     * Map the ID to the row, replacing the previous mapping of the ID.
+     * @param id
+     * @param row
+     */
+    public void put(String id, int row) {
+        long packed = TransactionIds.pack(id);
+        if (packed != TransactionIds.NOT_PACKED) {
+            put(packed, row);
+        } else {
+            m_unpacked.put(id, row);
+        }
+    }
+
+    /**
+     * Map the packed ID to the row, replacing the previous mapping of the ID.
+     * @param packedId
+     * @param row
+     */
+    public void put(long packedId, int row) {
+        int mask = m_keys.length - 1;
+        int slot = hash(packedId) & mask;
+        while (m_keys[slot] != TransactionIds.NOT_PACKED) {
+            if (m_keys[slot] == packedId) {
+                m_rows[slot] = row;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        m_keys[slot] = packedId;
+        m_rows[slot] = row;
+        if (++m_packedCount > m_resizeThreshold) {
+            resize();
+        }
+    }
+
+    /**
+     * @param id
+     * @return row of the transaction or -1 if the ID is not in the index
+     */
+    public int get(String id) {
+        long packed = TransactionIds.pack(id);
+        if (packed == TransactionIds.NOT_PACKED) {
+            Integer row = m_unpacked.get(id);
+            return row != null ? row : -1;
+        }
+        int slot = find(packed);
+        return slot >= 0 ? m_rows[slot] : -1;
+    }
+
+    /**
+     * Remove the ID if it is mapped to the row (i.e. not replaced by a later transaction with the same ID).
+     * @param id
+     * @param row
+     */
+    public void remove(String id, int row) {
+        long packed = TransactionIds.pack(id);
+        if (packed == TransactionIds.NOT_PACKED) {
+            m_unpacked.remove(id, row);
+        } else {
+            remove(packed, row);
+        }
+    }
+
+    /**
+     * Remove the packed ID if it is mapped to the row.
+     * @param packedId
+     * @param row
+     */
+    public void remove(long packedId, int row) {
+        int slot = find(packedId);
+        if (slot < 0 || m_rows[slot] != row) {
+            return;
+        }
+        // backward shift deletion - move the following entries of the probe sequence into the gap
+        int mask = m_keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (m_keys[next] != TransactionIds.NOT_PACKED) {
+            int home = hash(m_keys[next]) & mask;
+            // the entry can fill the gap if its home slot is not cyclically in (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                m_keys[gap] = m_keys[next];
+                m_rows[gap] = m_rows[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        m_keys[gap] = TransactionIds.NOT_PACKED;
+        m_packedCount--;
+    }
+
+    public int size() {
+        return m_packedCount + m_unpacked.size();
+    }
+
+    /**
+     * @return iterator of the indexed IDs, must not be used while the index is modified
+     */
+    public Iterator<String> ids() {
+        Iterator<String> unpacked = m_unpacked.keySet().iterator();
+        return new Iterator<String>() {
+            private int m_slot = nextSlot(0);
+
+            @Override
+            public boolean hasNext() {
+                return m_slot < m_keys.length || unpacked.hasNext();
+            }
+
+            @Override
+            public String next() {
+                if (m_slot < m_keys.length) {
+                    String id = TransactionIds.unpack(m_keys[m_slot]);
+                    m_slot = nextSlot(m_slot + 1);
+                    return id;
+                }
+                if (!unpacked.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return unpacked.next();
+            }
+        };
+    }
+
+    /**
+     * Write the table and the unpacked IDs to the snapshot.
+     * @param output
+     * @throws IOException
+     */
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+        output.writeInt(m_keys.length);
+        output.writeInt(m_packedCount);
+        output.writeLongs(m_keys, m_keys.length);
+        output.writeInts(m_rows, m_rows.length);
+        output.writeInt(m_unpacked.size());
+        for (Map.Entry<String, Integer> entry : m_unpacked.entrySet()) {
+            output.writeString(entry.getKey());
+            output.writeInt(entry.getValue());
+        }
+    }
+
+    /**
+     * Read the index written by writeSnapshot().
+     * @param input
+     * @return
+     * @throws IOException
+     */
+    public static TransactionIdIndex readSnapshot(SnapshotInput input) throws IOException {
+        TransactionIdIndex index = new TransactionIdIndex();
+        int capacity = input.readInt();
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IOException("invalid ID index capacity " + capacity);
+        }
+        index.m_packedCount = input.readInt();
+        index.m_keys = new long[capacity];
+        index.m_rows = new int[capacity];
+        index.m_resizeThreshold = (int) (capacity * LOAD_FACTOR);
+        input.readLongs(index.m_keys, capacity);
+        input.readInts(index.m_rows, capacity);
+        int unpackedCount = input.readInt();
+        for (int i = 0; i < unpackedCount; i++) {
+            String id = input.readString();
+            index.m_unpacked.put(id, input.readInt());
+        }
+        return index;
+    }
+
+    private int nextSlot(int slot) {
+        while (slot < m_keys.length && m_keys[slot] == TransactionIds.NOT_PACKED) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private int find(long packedId) {
+        int mask = m_keys.length - 1;
+        int slot = hash(packedId) & mask;
+        while (m_keys[slot] != TransactionIds.NOT_PACKED) {
+            if (m_keys[slot] == packedId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize() {
+        long[] keys = m_keys;
+        int[] rows = m_rows;
+        m_keys = new long[keys.length * 2];
+        m_rows = new int[keys.length * 2];
+        m_resizeThreshold = (int) (m_keys.length * LOAD_FACTOR);
+        int mask = m_keys.length - 1;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != TransactionIds.NOT_PACKED) {
+                int slot = hash(keys[i]) & mask;
+                while (m_keys[slot] != TransactionIds.NOT_PACKED) {
+                    slot = (slot + 1) & mask;
+                }
+                m_keys[slot] = keys[i];
+                m_rows[slot] = rows[i];
+            }
+        }
+    }
+
+    /**
+     * Mix all bits of the packed ID (the characters differ mostly in the low bits of each byte).
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,214 @@
+package analyzer;
+
+import model.TransactionDataSet;
+import model.TransactionRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tumbling and sliding time-window aggregation over the analyzer's data set.
+ * The query range is divided into panes of gcd(window, slide) milliseconds, every window is a run of consecutive
+ * panes. The rows are aggregated into per-pane partials (AnalyzerFunction.newPartial()) in a single pass,
+ * the windows are then combined from the pane partials by the two-stacks sliding aggregation, so each pane is
+ * merged a constant number of times (amortized) regardless of the number of windows it belongs to.
+ */
+public class WindowAnalyzer {
+
+    private TransactionAnalyzer m_analyzer;
+
+    public WindowAnalyzer(TransactionAnalyzer analyzer) {
+        this.m_analyzer = analyzer;
+    }
+
+    /**
+     * Compute the function for the windows [from + k * slide, from + k * slide + window) starting in [from, to].
+     * Only the transactions in [from, to] are aggregated, i.e. the windows reaching beyond 'to' are truncated.
+     * Tumbling windows have slide equal to the window size.
+     * @param from query start timestamp (inclusive)
+     * @param to query end timestamp (inclusive)
+     * @param window window size in milliseconds
+     * @param slide distance between the starts of two consecutive windows in milliseconds
+     * @param function prototype of the function, must support partial aggregation, is not modified
+     * @return time series with one result per window
+     */
+    public List<WindowResult> analyze(long from, long to, long window, long slide,
+                                      AnalyzerFunction<TransactionRecord> function) {
+        if (window <= 0 || slide <= 0) {
+            throw new IllegalArgumentException("window size and slide must be positive, actual window: " + window
+                    + " ms, slide: " + slide + " ms");
+        }
+        if (from > to) {
+            throw new IllegalArgumentException("date-from parameter must be before date-to");
+        }
+        if (function.newPartial() == null) {
+            throw new IllegalArgumentException("function " + function.getClass().getSimpleName()
+                    + " does not support partial aggregation required by the windows");
+        }
+        long pane = gcd(window, slide);
+        long paneCount = (to - from) / pane + 1;
+        if (paneCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many windows, use larger slide or shorter range");
+        }
+        AnalyzerFunction<TransactionRecord>[] panes = aggregatePanes(from, to, pane, (int) paneCount, function);
+
+        int panesPerWindow = (int) Math.min(window / pane, paneCount);
+        int panesPerSlide = (int) Math.min(slide / pane, paneCount);
+        SlidingAggregate sliding = new SlidingAggregate(function);
+        List<WindowResult> series = new ArrayList<>();
+        int nextPane = 0;   // first pane not yet pushed to the sliding aggregate
+        for (int firstPane = 0; firstPane < paneCount; firstPane += panesPerSlide) {
+            int endPane = (int) Math.min(paneCount, (long) firstPane + panesPerWindow);
+            while (sliding.size() > 0 && sliding.firstPane() < firstPane) {
+                sliding.evict();
+            }
+            for (nextPane = Math.max(nextPane, firstPane); nextPane < endPane; nextPane++) {
+                sliding.push(nextPane, panes[nextPane]);
+            }
+            long start = from + firstPane * pane;
+            series.add(new WindowResult(start, start + window, sliding.result().getResult()));
+        }
+        return series;
+    }
+
+    /**
+     * Single pass over the rows of [from, to], consecutive rows falling into the same pane are consumed by one
+     * acceptRange() call. Rows of a data set which is not time-ordered are all scanned and assigned by their date.
+     * @return partial aggregates per pane, null for the panes without rows
+     */
+    @SuppressWarnings("unchecked")
+    private AnalyzerFunction<TransactionRecord>[] aggregatePanes(long from, long to, long pane, int paneCount,
+                                                                 AnalyzerFunction<TransactionRecord> function) {
+        AnalyzerFunction<TransactionRecord>[] panes = new AnalyzerFunction[paneCount];
+        TransactionDataSet dataSet = m_analyzer.getColumnarDataSet();
+        boolean timeOrdered = dataSet.isTimeOrdered();
+        int fromRow = timeOrdered ? dataSet.lowerBound(from) : 0;
+        int toRow = timeOrdered ? dataSet.lowerBound(to == Long.MAX_VALUE ? to : to + 1) : dataSet.size();
+        int row = fromRow;
+        while (row < toRow) {
+            long date = dataSet.getDate(row);
+            if (date < from || date > to) {
+                row++;
+                continue;
+            }
+            int paneIndex = (int) ((date - from) / pane);
+            long paneStart = from + paneIndex * pane;
+            long paneEnd = paneStart + pane;
+            int end = row + 1;
+            while (end < toRow && dataSet.getDate(end) < paneEnd && dataSet.getDate(end) >= paneStart) {
+                end++;
+            }
+            if (panes[paneIndex] == null) {
+                panes[paneIndex] = function.newPartial();
+            }
+            panes[paneIndex].acceptRange(dataSet, row, end);
+            row = end;
+        }
+        return panes;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    /**
+     * FIFO of pane partials with O(1) amortized aggregate of all its elements (two-stacks algorithm).
+     * New panes are pushed to the back stack which keeps a running aggregate, the front stack keeps the suffix
+     * aggregates (the aggregate of the element and all elements above it), evicted elements are popped
+     * from the front stack which is refilled from the back stack when empty.
+     */
+    private static class SlidingAggregate {
+
+        private AnalyzerFunction<TransactionRecord> m_prototype;
+        // front stack, top at m_frontSize - 1 holds the oldest pane
+        private int[]                               m_frontPanes = new int[16];
+        private AnalyzerFunction<TransactionRecord>[] m_frontAggregates = newArray(16);
+        private int                                 m_frontSize = 0;
+        // back stack in push order
+        private int[]                               m_backPanes = new int[16];
+        private AnalyzerFunction<TransactionRecord>[] m_backPartials = newArray(16);
+        private int                                 m_backSize = 0;
+        private AnalyzerFunction<TransactionRecord> m_backAggregate;
+
+        SlidingAggregate(AnalyzerFunction<TransactionRecord> prototype) {
+            this.m_prototype = prototype;
+            this.m_backAggregate = prototype.newPartial();
+        }
+
+        int size() {
+            return m_frontSize + m_backSize;
+        }
+
+        int firstPane() {
+            return m_frontSize > 0 ? m_frontPanes[m_frontSize - 1] : m_backPanes[0];
+        }
+
+        void push(int pane, AnalyzerFunction<TransactionRecord> partial) {
+            if (m_backSize == m_backPanes.length) {
+                m_backPanes = Arrays.copyOf(m_backPanes, m_backSize * 2);
+                m_backPartials = Arrays.copyOf(m_backPartials, m_backSize * 2);
+            }
+            m_backPanes[m_backSize] = pane;
+            m_backPartials[m_backSize++] = partial;
+            if (partial != null) {
+                m_backAggregate.merge(partial);
+            }
+        }
+
+        void evict() {
+            if (m_frontSize == 0) {
+                flip();
+            }
+            m_frontAggregates[--m_frontSize] = null;
+        }
+
+        /**
+         * Move the back stack to the front stack computing the suffix aggregates, newest pane at the bottom.
+         */
+        private void flip() {
+            if (m_frontPanes.length < m_backSize) {
+                m_frontPanes = new int[m_backPanes.length];
+                m_frontAggregates = newArray(m_backPanes.length);
+            }
+            AnalyzerFunction<TransactionRecord> suffix = null;
+            for (int i = m_backSize - 1; i >= 0; i--) {
+                AnalyzerFunction<TransactionRecord> aggregate = m_prototype.newPartial();
+                if (m_backPartials[i] != null) {
+                    aggregate.merge(m_backPartials[i]);
+                }
+                if (suffix != null) {
+                    aggregate.merge(suffix);
+                }
+                m_frontPanes[m_frontSize] = m_backPanes[i];
+                m_frontAggregates[m_frontSize++] = aggregate;
+                m_backPartials[i] = null;
+                suffix = aggregate;
+            }
+            m_backSize = 0;
+            m_backAggregate = m_prototype.newPartial();
+        }
+
+        /**
+         * @return new function holding the aggregate of all panes in the FIFO
+         */
+        AnalyzerFunction<TransactionRecord> result() {
+            AnalyzerFunction<TransactionRecord> result = m_prototype.newPartial();
+            if (m_frontSize > 0) {
+                result.merge(m_frontAggregates[m_frontSize - 1]);
+            }
+            result.merge(m_backAggregate);
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static AnalyzerFunction<TransactionRecord>[] newArray(int size) {
+            return new AnalyzerFunction[size];
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package analyzer;
+
+import java.util.Map;
+
+/**
+ * Result of the analysis function for one time window [start, end) - an element of the time series
+ * produced by WindowAnalyzer.
+ */
+public class WindowResult {
+
+    private final long                m_start;
+    private final long                m_end;
+    private final Map<String, Object> m_result;
+
+    public WindowResult(long start, long end, Map<String, Object> result) {
+        this.m_start = start;
+        this.m_end = end;
+        this.m_result = result;
+    }
+
+    /**
+     * @return start of the window (inclusive)
+     */
+    public long getStart() {
+        return m_start;
+    }
+
+    /**
+     * @return end of the window (exclusive)
+     */
+    public long getEnd() {
+        return m_end;
+    }
+
+    public Map<String, Object> getResult() {
+        return m_result;
+    }
+}
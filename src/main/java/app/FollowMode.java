@@ -0,0 +1,148 @@
+package app;
+
+import analyzer.AnalyzerFunction;
+import analyzer.TransactionAnalyzer;
+import ingest.FileTailer;
+import ingest.LineSplitter;
+import model.TransactionParser;
+import model.TransactionRecord;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Follow mode - tails the transaction input and keeps the result of the configured query window current.
+ * New lines are parsed and added to the analyzer as they arrive, the analyzer keeps the aggregate index,
+ * so a REVERSAL arriving later removes its PAYMENT from the aggregates incrementally and each re-evaluation
+ * of the window takes logarithmic time. Updated result is printed at most once per emit interval,
+ * together with the latency between reading the first new line and printing the result that reflects it.
+ * Invalid lines (unknown transaction type) are reported and skipped, the tail goes on.
+ */
+public class FollowMode {
+
+    private static final long POLL_INTERVAL_MILLIS = 1;
+
+    private TransactionAnalyzer m_analyzer;
+    // new function instance for each emitted result
+    private Supplier<AnalyzerFunction<TransactionRecord>> m_functionFactory;
+    private long                m_from;
+    private long                m_to;
+    private long                m_emitIntervalNanos;
+    private PrintStream         m_output;
+    private volatile boolean    m_stopped = false;
+    // latency statistics
+    private long                m_emitCount = 0;
+    private long                m_totalLatencyNanos = 0;
+    private long                m_maxLatencyNanos = 0;
+
+    public FollowMode(TransactionAnalyzer analyzer, Supplier<AnalyzerFunction<TransactionRecord>> functionFactory,
+                      long from, long to, long emitIntervalMillis, PrintStream output) {
+        this.m_analyzer = analyzer;
+        this.m_functionFactory = functionFactory;
+        this.m_from = from;
+        this.m_to = to;
+        this.m_emitIntervalNanos = TimeUnit.MILLISECONDS.toNanos(emitIntervalMillis);
+        this.m_output = output;
+        analyzer.buildAggregateIndex();
+    }
+
+    /**
+     * Follow the input until stop() is called or the (stream) input ends.
+     * @param tailer
+     * @throws IOException
+     */
+    public void follow(FileTailer tailer) throws IOException {
+        TransactionParser parser = new TransactionParser();
+        long[] addedRows = new long[1];
+        LineSplitter splitter = new LineSplitter((buffer, from, to) -> {
+            boolean parsed;
+            try {
+                parsed = parser.parse(buffer, from, to); // counts the failure in the metrics
+            } catch (IllegalArgumentException e) {
+                m_output.println("[WARN] - skipping invalid line: " + new String(buffer, from, to - from,
+                        StandardCharsets.UTF_8) + ", " + e.getMessage());
+                return;
+            }
+            if (parsed) {
+                m_analyzer.add(parser);
+                addedRows[0]++;
+            }
+        });
+        long pendingSince = 0;   // time the first not yet reported line has been read, 0 = nothing pending
+        long lastEmit = System.nanoTime() - m_emitIntervalNanos;
+        while (!m_stopped) {
+            long readTime = System.nanoTime();
+            long bytes = tailer.poll(splitter, pendingSince == 0);
+            if (tailer.isEndOfInput()) {
+                splitter.finish();
+            }
+            if (addedRows[0] > 0 && pendingSince == 0) {
+                pendingSince = readTime;
+            }
+            long now = System.nanoTime();
+            if (pendingSince != 0 && (now - lastEmit >= m_emitIntervalNanos || tailer.isEndOfInput())) {
+                emit(addedRows[0], pendingSince);
+                addedRows[0] = 0;
+                pendingSince = 0;
+                lastEmit = now;
+            }
+            if (tailer.isEndOfInput()) {
+                break;
+            }
+            if (bytes == 0) {
+                sleep();
+            }
+        }
+    }
+
+    private void emit(long addedRows, long pendingSince) {
+        AnalyzerFunction<TransactionRecord> function = m_functionFactory.get();
+        Map<String, Object> result = m_analyzer.analyze(m_from, m_to, function);
+        String text = m_analyzer.interpretResult(result, function);
+        long latency = System.nanoTime() - pendingSince;
+        m_emitCount++;
+        m_totalLatencyNanos += latency;
+        m_maxLatencyNanos = Math.max(m_maxLatencyNanos, latency);
+        m_output.printf("--- +%d rows, total %d rows, latency %.3f ms%n%s", addedRows,
+                m_analyzer.getColumnarDataSet().size(), latency / 1e6, text);
+    }
+
+    /**
+     * Print the latency statistics of the emitted results.
+     */
+    public void printSummary() {
+        m_output.printf("Follow mode: %d results emitted, latency avg %.3f ms, max %.3f ms%n",
+                m_emitCount, getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stop following, the current poll completes first.
+     */
+    public void stop() {
+        m_stopped = true;
+    }
+
+    public long getEmitCount() {
+        return m_emitCount;
+    }
+
+    public double getAverageLatencyMillis() {
+        return m_emitCount > 0 ? m_totalLatencyNanos / 1e6 / m_emitCount : 0.0d;
+    }
+
+    public double getMaxLatencyMillis() {
+        return m_maxLatencyNanos / 1e6;
+    }
+}
@@ -0,0 +1,20 @@
+package app;
+
+/**
+ * Format of the printed time series (window analysis).
+ */
+public enum OutputFormat {
+    /** header line with the window bounds and the result keys, one line per window */
+    CSV,
+    /** array of objects, one per window */
+    JSON;
+
+    /**
+     * Command line key to OutputFormat, null defaults to CSV.
+     * @param key
+     * @return
+     */
+    public static OutputFormat of(String key) {
+        return key == null ? CSV : valueOf(key.toUpperCase());
+    }
+}
@@ -0,0 +1,169 @@
+package app;
+
+import analyzer.AnalyzerFunction;
+import analyzer.AnalyzerFunctions;
+import analyzer.TransactionAnalyzer;
+import metrics.MetricsExporter;
+import model.TransactionRecord;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static app.SimpleTransactionAnalyzer.DATE_FORMAT;
+
+/**
+ * Query server - keeps the loaded TransactionAnalyzer resident and answers the analysis queries over HTTP
+ * (bound to the loopback interface by default):
+ * <pre>
+ *   GET /analyze?from=20/08/2018 12:00:00&amp;to=20/08/2018 13:00:00&amp;af=minmax
+ * </pre>
+ * The response body is the same text as printed by the command line tool. Every request creates its own
+ * AnalyzerFunction, the data set is only read, so the queries are served concurrently.
+ * GET /metrics returns the collected metrics (see metrics.Metrics) in the Prometheus text format.
+ */
+public class QueryServer {
+
+    public static final String ANALYZE_PATH = "/analyze";
+    public static final String METRICS_PATH = "/metrics";
+
+    private TransactionAnalyzer m_analyzer;
+    private HttpServer          m_server;
+    private ExecutorService     m_executor;
+    private CountDownLatch      m_stopped = new CountDownLatch(1);
+    // SimpleDateFormat is not thread safe, each request thread parses the query dates with its own copy
+    private ThreadLocal<SimpleDateFormat> m_dateFormat = ThreadLocal.withInitial(() -> {
+        synchronized (DATE_FORMAT) {
+            return (SimpleDateFormat) DATE_FORMAT.clone();
+        }
+    });
+
+    public QueryServer(TransactionAnalyzer analyzer) {
+        this.m_analyzer = analyzer;
+    }
+
+    /**
+     * Start serving the queries on the port of the loopback interface.
+     * @param port port number, 0 picks a free port
+     * @param threads number of request handling threads
+     * @throws IOException
+     */
+    public void start(int port, int threads) throws IOException {
+        start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), threads);
+    }
+
+    /**
+     * Start serving the queries on the address.
+     * @param address
+     * @param threads number of request handling threads
+     * @throws IOException
+     */
+    public void start(InetSocketAddress address, int threads) throws IOException {
+        // small responses would otherwise wait for the delayed ACK of the client (Nagle's algorithm)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        m_server = HttpServer.create(address, 0);
+        m_executor = Executors.newFixedThreadPool(threads);
+        m_server.setExecutor(m_executor);
+        m_server.createContext(ANALYZE_PATH, this::handleAnalyze);
+        m_server.createContext(METRICS_PATH, QueryServer::handleMetrics);
+        m_server.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return m_server.getAddress().getPort();
+    }
+
+    /**
+     * Stop the server, the pending requests are given a second to complete.
+     */
+    public void stop() {
+        m_server.stop(1);
+        m_executor.shutdown();
+        m_stopped.countDown();
+    }
+
+    /**
+     * Block until the server is stopped.
+     * @throws InterruptedException
+     */
+    public void awaitTermination() throws InterruptedException {
+        m_stopped.await();
+    }
+
+    private void handleAnalyze(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            SimpleDateFormat dateFormat = m_dateFormat.get();
+            String from = parameters.get("from");
+            String to = parameters.get("to");
+            long dateFrom = from != null ? dateFormat.parse(from).getTime() : 0L;
+            long dateTo = to != null ? dateFormat.parse(to).getTime() : Long.MAX_VALUE;
+            String top = parameters.get("top");
+            AnalyzerFunction<TransactionRecord> function = AnalyzerFunctions.create(parameters.get("af"),
+                    top != null ? Integer.parseInt(top) : 0);
+            Map<String, Object> result = m_analyzer.analyze(dateFrom, dateTo, function);
+            if (result.containsKey("ERROR")) {
+                respond(exchange, 400, result.get("ERROR") + "\n");
+            } else {
+                respond(exchange, 200, m_analyzer.interpretResult(result, function));
+            }
+        } catch (ParseException pex) {
+            respond(exchange, 400, "Query date format issue, please use date in format: dd/MM/yyyy hh:mm:ss\n");
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "Query parameter problem, " + e.getMessage() + "\n");
+        } catch (RuntimeException e) {
+            respond(exchange, 500, "Query failed, " + e + "\n");
+        }
+    }
+
+    private static void handleMetrics(HttpExchange exchange) throws IOException {
+        byte[] bytes = MetricsExporter.toPrometheus().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    parameters.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+                            URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
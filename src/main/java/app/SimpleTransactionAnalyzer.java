@@ -1,9 +1,27 @@
 package app;
 
 import analyzer.AnalyzerFunction;
-import analyzer.AveragingFunction;
-import analyzer.MinMaxFunction;
+import analyzer.AnalyzerFunctions;
+import analyzer.BatchAnalyzer;
+import analyzer.RangeQuery;
+import analyzer.ResultCache;
 import analyzer.TransactionAnalyzer;
+import analyzer.WindowAnalyzer;
+import analyzer.WindowResult;
+import ingest.CompressedFileLoader;
+import ingest.Compression;
+import ingest.FileTailer;
+import ingest.InputFiles;
+import ingest.InputMode;
+import ingest.InvalidLineException;
+import ingest.LazyFileLoader;
+import ingest.MultiFileLoader;
+import ingest.ParallelFileLoader;
+import metrics.Metrics;
+import metrics.MetricsExporter;
+import model.SnapshotInput;
+import model.TransactionDataSet;
+import model.TransactionParser;
 import model.TransactionRecord;
 
 import org.apache.commons.cli.CommandLine;
@@ -18,8 +36,16 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /*
  * Main class of the application. Parses command line, initializes analyzer, starts analysis and prints out the result.
@@ -27,6 +53,8 @@ import java.util.Map;
 public class SimpleTransactionAnalyzer {
 
     public static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
+    // file name representing the standard input
+    public static final String STDIN = "-";
 
     private CommandLine m_commandLine   = null;
 
@@ -38,26 +66,96 @@ public class SimpleTransactionAnalyzer {
      * Start execution of the analyzer.
      */
     public void run() {
-        // get the data set
-        String fileName = m_commandLine.getOptionValue("f", null);
-        if (fileName == null) {
-            if (m_commandLine.getArgList() != null && m_commandLine.getArgList().size() > 0) {
-                fileName = m_commandLine.getArgList().get(0);
+        // get the data set - files, directories or globs given by -f, or else by the direct parameters
+        List<String> fileNames = new ArrayList<>();
+        if (m_commandLine.hasOption("f")) {
+            fileNames.addAll(Arrays.asList(m_commandLine.getOptionValues("f")));
+        } else if (m_commandLine.getArgList() != null) {
+            fileNames.addAll(m_commandLine.getArgList());
+        }
+        String fileName = fileNames.isEmpty() ? null : fileNames.get(0);
+        boolean stdin = fileNames.size() == 1 && STDIN.equals(fileName);
+        List<File> files = stdin ? Collections.<File>emptyList() : InputFiles.expand(fileNames);
+        for (File input : files) {
+            if (!input.exists()) {
+                fileName = input.getPath();
+                files = Collections.emptyList();
+                break;
             }
         }
-        File file = fileName != null ? new File(fileName) : null ;
+        File file = files.size() == 1 ? files.get(0) : null;
         // continue only if data set exists
-        if (file != null && file.exists()) {
+        if (stdin || !files.isEmpty()) {
+            Metrics.enabled = m_commandLine.hasOption("metrics") || m_commandLine.hasOption("server");
             try {
                 // initialize analyzer with analysis function and read in the data set from the file
-                TransactionAnalyzer analyzer = getAnalyzer(m_commandLine.getOptionValue("af"));
-                parseInput(file, analyzer);
-
-                // get & convert the query range (from / to  timestamps)
+                TransactionAnalyzer analyzer = getAnalyzer(m_commandLine.getOptionValue("af"), getTopK());
+                if (m_commandLine.hasOption("rh")) {
+                    analyzer.setReversalHorizon(parseDuration(m_commandLine.getOptionValue("rh")));
+                }
+                InputMode inputMode = InputMode.of(m_commandLine.getOptionValue("im"));
+                if (inputMode == InputMode.LAZY && (files.size() > 1 || m_commandLine.hasOption("follow")
+                        || m_commandLine.hasOption("server") || m_commandLine.hasOption("window")
+                        || m_commandLine.hasOption("q") || m_commandLine.hasOption("save"))) {
+                    throw new IllegalArgumentException("lazy input mode loads only the -from/-to range of a single file,"
+                            + " it can't be combined with -follow, -server, -window, -q or -save");
+                }
+                if (inputMode == InputMode.LAZY && (!m_commandLine.hasOption("from") || !m_commandLine.hasOption("to"))) {
+                    throw new IllegalArgumentException("lazy input mode requires the query range, -from and -to");
+                }
+                // get & convert the query range (from / to  timestamps), the range is unbounded by default
                 String dateFromStr = m_commandLine.getOptionValue("from", null);
                 long dateFrom = dateFromStr != null ? DATE_FORMAT.parse(dateFromStr).getTime() : 0L;
                 String dateToStr = m_commandLine.getOptionValue("to", null);
-                long dateTo = dateFromStr != null ? DATE_FORMAT.parse(dateToStr).getTime() : 0L;
+                long dateTo = dateToStr != null ? DATE_FORMAT.parse(dateToStr).getTime() : Long.MAX_VALUE;
+                if (m_commandLine.hasOption("follow")) {
+                    if (!stdin && file == null) {
+                        throw new IllegalArgumentException("follow mode reads a single file, " + files.size() + " given");
+                    }
+                    if (file != null && Compression.of(file) != Compression.NONE) {
+                        throw new IllegalArgumentException("follow mode can't tail compressed file " + file);
+                    }
+                    follow(analyzer, stdin ? new FileTailer(System.in) : new FileTailer(file), dateFrom, dateTo,
+                            Long.parseLong(m_commandLine.getOptionValue("follow")));
+                    return;
+                }
+                if (stdin) {
+                    long start = Metrics.enabled ? System.nanoTime() : 0L;
+                    parseInput(new InputStreamReader(System.in), "standard input", analyzer);
+                    if (Metrics.enabled) {
+                        Metrics.ROWS_LOADED.add(analyzer.getColumnarDataSet().size());
+                        Metrics.LOAD_LATENCY.recordSince(start);
+                    }
+                } else if (file != null && inputMode == InputMode.LAZY) {
+                    parseInput(file, analyzer, dateFrom, dateTo, getParallelism());
+                } else if (file != null) {
+                    parseInput(file, analyzer, inputMode, getParallelism());
+                } else {
+                    parseInput(files, analyzer, inputMode, getParallelism());
+                }
+                if (m_commandLine.hasOption("save")) {
+                    analyzer.writeSnapshot(new File(m_commandLine.getOptionValue("save")));
+                }
+                if (m_commandLine.hasOption("ix")) {
+                    analyzer.buildAggregateIndex();
+                }
+                if (m_commandLine.hasOption("server") || m_commandLine.hasOption("q")) {
+                    long cacheBytes = getResultCacheBytes();
+                    analyzer.setResultCache(cacheBytes > 0 ? new ResultCache(cacheBytes) : null);
+                }
+                if (m_commandLine.hasOption("server")) {
+                    serve(analyzer, Integer.parseInt(m_commandLine.getOptionValue("server")));
+                    return;
+                }
+
+                if (m_commandLine.hasOption("window")) {
+                    analyzeWindows(analyzer, dateFrom, dateTo);
+                    return;
+                }
+                if (m_commandLine.hasOption("q")) {
+                    analyzeBatch(analyzer, new File(m_commandLine.getOptionValue("q")));
+                    return;
+                }
 
                 // Invoke analyzer with the range limits
                 Map<String, Object> result = analyzer.analyze(dateFrom, dateTo);
@@ -69,49 +167,357 @@ public class SimpleTransactionAnalyzer {
                 System.out.println("Query date format issue, please use date in format: dd/MM/yyyy hh:mm:ss");
             } catch (IOException e) {
                 System.out.println("Input data problem, " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                System.out.println("Input parameter problem, " + e.getMessage());
+            } catch (ArithmeticException e) {
+                System.out.println("Amount sum overflow, " + e.getMessage());
+            } finally {
+                if (m_commandLine.hasOption("metrics")) {
+                    writeMetrics(m_commandLine.getOptionValue("metrics"));
+                }
             }
         } else {
-            System.out.println("File " + fileName + "does not exist.");
+            System.out.println("File " + fileName + " does not exist.");
+        }
+    }
+
+    /**
+     * Compute the analysis function for tumbling (-window) or sliding (-window with -slide) time windows
+     * and print the time series in the requested format. Unbounded ends of the range are limited to the dates
+     * of the data set.
+     * @param analyzer
+     * @param dateFrom query start timestamp, 0 if not given
+     * @param dateTo query end timestamp, Long.MAX_VALUE if not given
+     */
+    private void analyzeWindows(TransactionAnalyzer analyzer, long dateFrom, long dateTo) {
+        TransactionDataSet dataSet = analyzer.getColumnarDataSet();
+        if (dataSet.isEmpty()) {
+            System.out.println("No transaction data to analyze.");
+            return;
+        }
+        long firstDate = Long.MAX_VALUE;
+        long lastDate = Long.MIN_VALUE;
+        for (int row = 0; row < dataSet.size(); row++) {
+            firstDate = Math.min(firstDate, dataSet.getDate(row));
+            lastDate = Math.max(lastDate, dataSet.getDate(row));
+        }
+        if (!m_commandLine.hasOption("from")) {
+            dateFrom = firstDate;
+        }
+        if (!m_commandLine.hasOption("to")) {
+            dateTo = lastDate;
+        }
+        long window = parseDuration(m_commandLine.getOptionValue("window"));
+        String slide = m_commandLine.getOptionValue("slide", null);
+
+        AnalyzerFunction<TransactionRecord> function = AnalyzerFunctions.create(m_commandLine.getOptionValue("af"), getTopK());
+        List<WindowResult> series = new WindowAnalyzer(analyzer)
+                .analyze(dateFrom, dateTo, window, slide != null ? parseDuration(slide) : window, function);
+        new TimeSeriesWriter(OutputFormat.of(m_commandLine.getOptionValue("format")), function.getKeySet())
+                .write(series, System.out);
+    }
+
+    /**
+     * Evaluate all queries of the query file in a single pass over the data set and print the results in the order
+     * of the queries, each preceded by the query line. Query file has one query per line:
+     * <pre>
+     *   dd/MM/yyyy HH:mm:ss, dd/MM/yyyy HH:mm:ss[, function-key]
+     * </pre>
+     * The function defaults to the -af option, empty lines and lines starting with '#' are skipped.
+     * @param analyzer
+     * @param queryFile
+     * @throws IOException
+     * @throws java.text.ParseException
+     */
+    private void analyzeBatch(TransactionAnalyzer analyzer, File queryFile) throws IOException, java.text.ParseException {
+        List<String> lines = new ArrayList<>();
+        List<RangeQuery> queries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(queryFile))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(" *, *");
+                if (fields.length < 2 || fields.length > 3) {
+                    throw new IllegalArgumentException("query file " + queryFile + " line " + lineNumber
+                            + " is not 'from, to[, function]': " + line);
+                }
+                String function = fields.length > 2 ? fields[2] : m_commandLine.getOptionValue("af");
+                queries.add(new RangeQuery(DATE_FORMAT.parse(fields[0]).getTime(), DATE_FORMAT.parse(fields[1]).getTime(),
+                        AnalyzerFunctions.create(function, getTopK())));
+                lines.add(line);
+            }
+        }
+        List<Map<String, Object>> results = new BatchAnalyzer(analyzer).analyze(queries);
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < queries.size(); i++) {
+            Map<String, Object> result = results.get(i);
+            output.append("--- ").append(lines.get(i)).append('\n');
+            output.append(result.containsKey("ERROR") ? result.get("ERROR") + "\n"
+                    : analyzer.interpretResult(result, queries.get(i).getFunction()));
+        }
+        System.out.print(output);
+    }
+
+    /**
+     * Convert the duration with optional unit (ms, s, m, h, d; milliseconds without unit) to milliseconds.
+     * @param duration e.g. 500ms, 1s, 5m
+     * @return
+     */
+    static long parseDuration(String duration) {
+        String value = duration.trim().toLowerCase();
+        long unit = 1L;
+        if (value.endsWith("ms")) {
+            value = value.substring(0, value.length() - 2);
+        } else if (value.endsWith("s")) {
+            unit = TimeUnit.SECONDS.toMillis(1);
+        } else if (value.endsWith("m")) {
+            unit = TimeUnit.MINUTES.toMillis(1);
+        } else if (value.endsWith("h")) {
+            unit = TimeUnit.HOURS.toMillis(1);
+        } else if (value.endsWith("d")) {
+            unit = TimeUnit.DAYS.toMillis(1);
+        }
+        if (unit > 1L) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            return Long.parseLong(value.trim()) * unit;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid duration: " + duration);
+        }
+    }
+
+    /**
+     * Tail the input and print the updated result of the query range whenever new transactions arrive,
+     * until the stream input ends or the JVM is terminated.
+     * @param analyzer
+     * @param tailer
+     * @param dateFrom query start timestamp
+     * @param dateTo query end timestamp
+     * @param emitIntervalMillis minimal time between two printed results
+     * @throws IOException
+     */
+    private void follow(TransactionAnalyzer analyzer, FileTailer tailer, long dateFrom, long dateTo,
+                        long emitIntervalMillis) throws IOException {
+        String analysisType = m_commandLine.getOptionValue("af");
+        int topK = getTopK();
+        FollowMode followMode = new FollowMode(analyzer, () -> AnalyzerFunctions.create(analysisType, topK),
+                dateFrom, dateTo, emitIntervalMillis, System.out);
+        Thread shutdownHook = new Thread(followMode::printSummary);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        try (FileTailer input = tailer) {
+            followMode.follow(input);
+        }
+        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        followMode.printSummary();
+    }
+
+    /**
+     * Write the JSON report of the collected metrics.
+     * @param fileName report file, '-' prints it to STDERR (STDOUT carries the analysis result)
+     */
+    private static void writeMetrics(String fileName) {
+        if (STDIN.equals(fileName)) {
+            System.err.print(MetricsExporter.toJson());
+            return;
+        }
+        try (PrintStream output = new PrintStream(fileName, "UTF-8")) {
+            output.print(MetricsExporter.toJson());
+        } catch (IOException e) {
+            System.out.println("Metrics report problem, " + e.getMessage());
+        }
+    }
+
+    /**
+     * Keep the loaded analyzer resident and answer the queries over HTTP until the JVM is terminated.
+     * @param analyzer
+     * @param port
+     * @throws IOException
+     */
+    private static void serve(TransactionAnalyzer analyzer, int port) throws IOException {
+        QueryServer server = new QueryServer(analyzer);
+        server.start(port, 2 * Runtime.getRuntime().availableProcessors());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.out.println("Query server listening on http://localhost:" + server.getPort() + QueryServer.ANALYZE_PATH
+                + ", metrics on " + QueryServer.METRICS_PATH);
+        try {
+            server.awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
      * read in (parse) the CSV file with the data set. Assume the entries are time-ordered (no sort required).
+     * Regular files are memory-mapped and parsed on all available cores, anything else (e.g. named pipe)
+     * is read through the Reader.
      * @param file
      * @param analyzer
      * @throws IOException
      */
     public static void parseInput(File file, TransactionAnalyzer analyzer) throws IOException {
-        BufferedReader reader = new BufferedReader(new FileReader(file));
-        String csvLine = null;
-        while ((csvLine = reader.readLine()) != null) {
-            TransactionRecord record = TransactionRecord.of(csvLine);
-            if (record != null) {
-                analyzer.add(record); // builds indexes and handles transaction reversal
-            }
+        parseInput(file, analyzer, InputMode.MMAP, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * read in (parse) the CSV file with the data set using the requested input mode and number of threads.
+     * Memory-mapping (and parallel parsing) is possible only for regular files, for others the Reader is used.
+     * Binary snapshot (see -save option) is recognized by its header and loaded instead of parsing, gzip / zstd
+     * compressed file is decompressed while being parsed (see CompressedFileLoader).
+     * @param file
+     * @param analyzer
+     * @param inputMode
+     * @param parallelism number of threads parsing the memory-mapped file
+     * @throws IOException
+     */
+    public static void parseInput(File file, TransactionAnalyzer analyzer, InputMode inputMode, int parallelism)
+            throws IOException {
+        long start = Metrics.enabled ? System.nanoTime() : 0L;
+        int rows = analyzer.getColumnarDataSet().size();
+        Compression compression = Compression.of(file);
+        if (SnapshotInput.isSnapshot(file)) {
+            analyzer.loadSnapshot(file);
+        } else if (compression != Compression.NONE) {
+            new CompressedFileLoader(file, compression, parallelism).load(analyzer);
+        } else if (inputMode != InputMode.READER && file.isFile()) {
+            new ParallelFileLoader(file, parallelism).load(analyzer);
+        } else {
+            parseInput(new FileReader(file), file.toString(), analyzer);
+        }
+        if (Metrics.enabled) {
+            Metrics.ROWS_LOADED.add(analyzer.getColumnarDataSet().size() - rows);
+            Metrics.BYTES_READ.add(file.length());
+            Metrics.LOAD_LATENCY.recordSince(start);
         }
     }
 
     /**
-     * A very simple factory method - create an TransactionAnalyzer initialized with correct AnalysisFunction.
-     * @param analysisType
-     * @return
+     * read in (parse) only the part of the time-ordered CSV file needed to answer the range query, see LazyFileLoader.
+     * Binary snapshot and compressed file are loaded whole.
+     * @param file
+     * @param analyzer
+     * @param from range start timestamp (inclusive)
+     * @param to range end timestamp (inclusive)
+     * @param parallelism number of threads parsing the file
+     * @throws IOException
      */
-    private static final TransactionAnalyzer getAnalyzer(String analysisType) {
-        if (analysisType == null) {
-            analysisType = "avg";
+    public static void parseInput(File file, TransactionAnalyzer analyzer, long from, long to, int parallelism)
+            throws IOException {
+        if (SnapshotInput.isSnapshot(file) || !file.isFile() || Compression.of(file) != Compression.NONE) {
+            parseInput(file, analyzer, InputMode.MMAP, parallelism);
+            return;
         }
-        AnalyzerFunction function = null;
-        switch (analysisType.toLowerCase()) {
-            case "minmax": {
-                function = new MinMaxFunction();
-                break;
+        long start = Metrics.enabled ? System.nanoTime() : 0L;
+        int rows = analyzer.getColumnarDataSet().size();
+        LazyFileLoader loader = new LazyFileLoader(file, from, to, parallelism);
+        loader.load(analyzer);
+        if (Metrics.enabled) {
+            Metrics.ROWS_LOADED.add(analyzer.getColumnarDataSet().size() - rows);
+            Metrics.BYTES_READ.add(loader.getBytesRead());
+            Metrics.LOAD_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * read in (parse) several CSV files (e.g. hourly exports) concurrently and combine them into one time-ordered
+     * data set, see MultiFileLoader. Reversals are resolved across the files.
+     * @param files
+     * @param analyzer
+     * @param inputMode
+     * @param parallelism number of threads parsing the files
+     * @throws IOException
+     */
+    public static void parseInput(List<File> files, TransactionAnalyzer analyzer, InputMode inputMode, int parallelism)
+            throws IOException {
+        long start = Metrics.enabled ? System.nanoTime() : 0L;
+        int rows = analyzer.getColumnarDataSet().size();
+        new MultiFileLoader(files, inputMode, parallelism).load(analyzer);
+        if (Metrics.enabled) {
+            Metrics.ROWS_LOADED.add(analyzer.getColumnarDataSet().size() - rows);
+            for (File file : files) {
+                Metrics.BYTES_READ.add(file.length());
             }
-            default: {
-                function = new AveragingFunction();
+            Metrics.LOAD_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * read in (parse) the CSV data set from the Reader (e.g. STDIN). The reader is closed at the end.
+     * @param input
+     * @param analyzer
+     * @throws IOException
+     */
+    public static void parseInput(Reader input, TransactionAnalyzer analyzer) throws IOException {
+        parseInput(input, "input", analyzer);
+    }
+
+    /**
+     * read in (parse) the CSV data set from the Reader, the invalid line is reported with the input name.
+     * The reader is closed at the end.
+     * @param input
+     * @param inputName e.g. file name
+     * @param analyzer
+     * @throws InvalidLineException if a line is not a valid transaction
+     * @throws IOException
+     */
+    public static void parseInput(Reader input, String inputName, TransactionAnalyzer analyzer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(input)) {
+            TransactionParser parser = new TransactionParser();
+            String csvLine = null;
+            long lineNumber = 0;
+            try {
+                while ((csvLine = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (parser.parse(csvLine)) {
+                        analyzer.add(parser); // builds indexes and handles transaction reversal
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                throw new InvalidLineException(inputName, lineNumber, e);
             }
         }
-        return new TransactionAnalyzer(function);
+    }
+
+    /**
+     * Number of threads used to load the file, all available processors by default.
+     * @return
+     */
+    private int getParallelism() {
+        String parallelism = m_commandLine.getOptionValue("p", null);
+        return parallelism != null ? Integer.parseInt(parallelism) : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Number of merchants reported by the group-by function, all by default.
+     * @return
+     */
+    private int getTopK() {
+        String topK = m_commandLine.getOptionValue("top", null);
+        return topK != null ? Integer.parseInt(topK) : 0;
+    }
+
+    /**
+     * Size of the result cache of the query server and batch mode, 16MB by default.
+     * @return size in bytes, 0 disables the cache
+     */
+    private long getResultCacheBytes() {
+        String megabytes = m_commandLine.getOptionValue("cache", null);
+        return megabytes != null ? Long.parseLong(megabytes) << 20 : ResultCache.DEFAULT_MAX_BYTES;
+    }
+
+    /**
+     * A very simple factory method - create an TransactionAnalyzer initialized with correct AnalysisFunction.
+     * @param analysisType
+     * @param topK
+     * @return
+     */
+    private static final TransactionAnalyzer getAnalyzer(String analysisType, int topK) {
+        return new TransactionAnalyzer(AnalyzerFunctions.create(analysisType, topK));
     }
 
     /**
@@ -123,23 +529,90 @@ public class SimpleTransactionAnalyzer {
     public static void main(String[] args) {
         Options options = new Options();
         options.addOption( Option.builder("f").longOpt( "file" )
-                .desc( "Full or relative path to transaction CSV file to parse." )
+                .desc( "Full or relative path to transaction CSV file to parse (also gzip or zstd compressed), '-' reads the standard input. Several files, directories or globs (e.g. 'exports/*.csv') can be given, also as direct parameters." )
                 .hasArg()
                 .argName("file-name")
                 .build() );
         options.addOption( "h", "help", false, "Display the help text." );
         options.addOption(Option.builder("from").longOpt( "date-from" )
-                .desc( "Query start timestamp." )
+                .desc( "Query start timestamp. Default is unbounded, the windows (-window) start at the first transaction." )
                 .hasArg()
                 .argName("dd/MM/yyyy hh:mm:ss")
                 .build() );
         options.addOption(Option.builder("to").longOpt( "date-to" )
-                .desc( "Query end timestamp." )
+                .desc( "Query end timestamp. Default is unbounded, the windows (-window) end at the last transaction." )
                 .hasArg()
                 .argName("dd/MM/yyyy hh:mm:ss")
                 .build() );
+        options.addOption(Option.builder("im").longOpt( "input-mode" )
+                .desc( "Input file reading, one of [mmap | reader | lazy]. Default is 'mmap', STDIN and pipes are always read by reader. 'lazy' parses only the -from/-to range of a time-ordered file and the reversals following it." )
+                .hasArg()
+                .argName("mode")
+                .build() );
+        options.addOption(Option.builder("p").longOpt( "parallelism" )
+                .desc( "Number of threads loading the memory-mapped input file. Default is number of available processors." )
+                .hasArg()
+                .argName("threads")
+                .build() );
+        options.addOption(Option.builder("rh").longOpt( "reversal-horizon" )
+                .desc( "Resolve reversals only of transactions not older than the horizon, e.g. 30d, older IDs are evicted from memory. Default is unlimited." )
+                .hasArg()
+                .argName("duration")
+                .build() );
+        options.addOption(Option.builder("save").longOpt( "save-snapshot" )
+                .desc( "Save the loaded data set to binary snapshot file, passing the snapshot as input file reloads it without parsing." )
+                .hasArg()
+                .argName("snapshot-file")
+                .build() );
+        options.addOption("ix", "aggregate-index", false,
+                "Build aggregate index (prefix sums, min/max tree) after loading, range queries then take logarithmic time.");
+        options.addOption(Option.builder("server").longOpt( "server-port" )
+                .desc( "Run as query server - load the data set once and answer GET /analyze?from=..&to=..&af=.. queries on the local port." )
+                .hasArg()
+                .argName("port")
+                .build() );
+        options.addOption(Option.builder("cache").longOpt( "result-cache" )
+                .desc( "Size of the analysis result cache of the query server and batch mode in megabytes, 0 disables it. Default is 16." )
+                .hasArg()
+                .argName("megabytes")
+                .build() );
+        options.addOption(Option.builder("metrics").longOpt( "metrics-report" )
+                .desc( "Collect load, parse and analysis metrics and write the JSON report to the file at the end ('-' prints it to STDERR)." )
+                .hasArg()
+                .argName("file")
+                .build() );
+        options.addOption(Option.builder("follow").longOpt( "follow" )
+                .desc( "Follow mode - tail the file (or STDIN) and print the updated query result at most once per interval." )
+                .hasArg()
+                .argName("emit-interval-ms")
+                .build() );
+        options.addOption(Option.builder("q").longOpt( "query-file" )
+                .desc( "Batch mode - evaluate all queries of the file (one 'from, to[, function-key]' per line) in a single pass over the data set." )
+                .hasArg()
+                .argName("query-file")
+                .build() );
+        options.addOption(Option.builder("window").longOpt( "window-size" )
+                .desc( "Window analysis - print the result per time window as time series, e.g. 5m (units ms, s, m, h, d)." )
+                .hasArg()
+                .argName("duration")
+                .build() );
+        options.addOption(Option.builder("slide").longOpt( "window-slide" )
+                .desc( "Distance between the starts of the sliding windows. Default is the window size (tumbling windows)." )
+                .hasArg()
+                .argName("duration")
+                .build() );
+        options.addOption(Option.builder("format").longOpt( "output-format" )
+                .desc( "Time series output format, one of [csv | json]. Default is 'csv'." )
+                .hasArg()
+                .argName("format")
+                .build() );
+        options.addOption(Option.builder("top").longOpt( "top-merchants" )
+                .desc( "Number of merchants with the highest volume reported by the 'merchant' function. Default is all." )
+                .hasArg()
+                .argName("K")
+                .build() );
         options.addOption(Option.builder("af").longOpt( "analysis-function" )
-                .desc( "Analysis function, one of [avg | minmax ]. Default is 'avg'." )
+                .desc( "Analysis function, one of [avg | minmax | merchant | quantile[:accuracy] | distinct[:precision] ]. Default is 'avg'." )
                 .hasArg()
                 .argName("function-key")
                 .build() );
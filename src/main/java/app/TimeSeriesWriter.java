@@ -0,0 +1,102 @@
+package app;
+
+import analyzer.WindowResult;
+
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Prints the time series produced by the window analysis as CSV or JSON. Window bounds are formatted
+ * as the query timestamps (dd/MM/yyyy HH:mm:ss), the result values as produced by the analysis function.
+ */
+public class TimeSeriesWriter {
+
+    public static final String WINDOW_START = "Window Start";
+    public static final String WINDOW_END   = "Window End";
+
+    private OutputFormat     m_format;
+    private String[]         m_keySet;
+    private SimpleDateFormat m_dateFormat = (SimpleDateFormat) SimpleTransactionAnalyzer.DATE_FORMAT.clone();
+
+    /**
+     * @param format
+     * @param keySet result keys of the analysis function, in the order of the printed columns
+     */
+    public TimeSeriesWriter(OutputFormat format, String[] keySet) {
+        this.m_format = format;
+        this.m_keySet = keySet;
+    }
+
+    public void write(List<WindowResult> series, PrintStream output) {
+        StringBuilder text = new StringBuilder();
+        if (m_format == OutputFormat.JSON) {
+            text.append("[");
+            for (int i = 0; i < series.size(); i++) {
+                appendJson(series.get(i), text.append(i > 0 ? ",\n " : "\n "));
+            }
+            text.append("\n]\n");
+        } else {
+            appendCsv(text, WINDOW_START).append(',');
+            appendCsv(text, WINDOW_END);
+            for (String key : m_keySet) {
+                appendCsv(text.append(','), key);
+            }
+            text.append('\n');
+            for (WindowResult window : series) {
+                appendCsv(text, m_dateFormat.format(new Date(window.getStart()))).append(',');
+                appendCsv(text, m_dateFormat.format(new Date(window.getEnd())));
+                for (String key : m_keySet) {
+                    appendCsv(text.append(','), String.valueOf(window.getResult().get(key)));
+                }
+                text.append('\n');
+            }
+        }
+        output.print(text);
+        output.flush();
+    }
+
+    private void appendJson(WindowResult window, StringBuilder text) {
+        text.append('{');
+        appendJsonString(text, WINDOW_START).append(':');
+        appendJsonString(text, m_dateFormat.format(new Date(window.getStart())));
+        appendJsonString(text.append(','), WINDOW_END).append(':');
+        appendJsonString(text, m_dateFormat.format(new Date(window.getEnd())));
+        for (String key : m_keySet) {
+            appendJsonString(text.append(','), key).append(':');
+            Object value = window.getResult().get(key);
+            if (value instanceof Number) {
+                text.append(value);
+            } else {
+                appendJsonString(text, String.valueOf(value));
+            }
+        }
+        text.append('}');
+    }
+
+    /**
+     * Append the CSV field, quoted if it contains a separator, quote or line break.
+     */
+    private static StringBuilder appendCsv(StringBuilder text, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return text.append(value);
+        }
+        return text.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static StringBuilder appendJsonString(StringBuilder text, String value) {
+        text.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                text.append('\\').append(c);
+            } else if (c < 0x20) {
+                text.append(String.format("\\u%04x", (int) c));
+            } else {
+                text.append(c);
+            }
+        }
+        return text.append('"');
+    }
+}
@@ -0,0 +1,280 @@
+package ingest;
+
+import analyzer.TransactionAnalyzer;
+import metrics.Metrics;
+import model.TransactionDataSet;
+import model.TransactionParser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Loads a compressed (gzip, zstd) file in a streaming pipeline, without a temporary file. A decompressing thread
+ * reads the decompressed bytes in blocks and hands them over a bounded queue to the loading thread, which cuts
+ * the blocks at line boundaries. The line-aligned chunks are parsed on a fork-join pool (by the loading thread itself
+ * with parallelism 1), each into its own TransactionDataSet segment, and the segments are appended in the file order
+ * like by ParallelFileLoader. The decompression so overlaps the parsing, the queue and the number of chunks being
+ * parsed bound the memory to a few blocks.
+ */
+public class CompressedFileLoader {
+
+    public static final int  BLOCK_SIZE = 1 << 20;
+    private static final int QUEUE_CAPACITY = 4;
+    private static final byte[] EMPTY = new byte[0];
+    // end of the decompressed input
+    private static final Block  END = new Block(EMPTY, 0);
+
+    private File        m_file;
+    private Compression m_compression;
+    private int         m_parallelism;
+
+    public CompressedFileLoader(File file, Compression compression, int parallelism) {
+        this.m_file = file;
+        this.m_compression = compression;
+        this.m_parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Load the file into the analyzer.
+     * @param analyzer
+     * @throws IOException
+     */
+    public void load(TransactionAnalyzer analyzer) throws IOException {
+        ForkJoinPool pool = m_parallelism > 1 ? new ForkJoinPool(m_parallelism) : null;
+        try {
+            read(analyzer::addAll, pool);
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Parse the file into a new data set segment, the transaction reversals are not resolved. The chunks are parsed
+     * by tasks forked to the current fork-join pool (e.g. the pool loading several files), or to the common pool
+     * when not called from a pool task.
+     * @return
+     * @throws IOException
+     */
+    public TransactionDataSet parse() throws IOException {
+        TransactionDataSet dataSet = new TransactionDataSet();
+        read(segment -> dataSet.addAll(segment), null);
+        return dataSet;
+    }
+
+    /**
+     * Run the pipeline, the parsed segments are passed to the sink in the file order.
+     * @param pool pool parsing the chunks, null forks them to the current pool (or parses them in the calling thread
+     *             with parallelism 1)
+     */
+    private void read(Consumer<TransactionDataSet> sink, ForkJoinPool pool) throws IOException {
+        Decompressor decompressor = new Decompressor();
+        Thread thread = new Thread(decompressor, "decompress-" + m_file.getName());
+        thread.setDaemon(true);
+        thread.start();
+        Deque<ForkJoinTask<Chunk>> parsing = new ArrayDeque<>();
+        try {
+            byte[] carry = EMPTY; // start of the line continuing in the next block
+            boolean carriageReturn = false; // previous block ended by '\r'
+            long lineCount = 0; // lines of the appended chunks
+            Block block;
+            while ((block = decompressor.take()) != END) {
+                int first = nextTerminator(block.bytes, 0, block.length);
+                if (first == block.length) {
+                    carry = concat(carry, block.bytes, block.length); // line longer than the block
+                    carriageReturn = false;
+                    continue;
+                }
+                int end = lastTerminator(block.bytes, block.length) + 1;
+                byte[] head = concat(carry, block.bytes, first);
+                // empty head is the second half of "\r\n" split between two blocks, not a line
+                boolean headLine = head.length > 0 || !carriageReturn || block.bytes[first] != '\n';
+                carry = Arrays.copyOfRange(block.bytes, end, block.length);
+                carriageReturn = block.bytes[block.length - 1] == '\r';
+                Block lines = block;
+                if (pool == null && m_parallelism == 1) {
+                    lineCount = append(sink, parse(head, headLine, lines.bytes, first + 1, end), lineCount);
+                    continue;
+                }
+                ForkJoinTask<Chunk> task = ForkJoinTask.adapt(() -> parse(head, headLine, lines.bytes, first + 1, end));
+                parsing.add(pool != null ? pool.submit(task) : task.fork());
+                while (parsing.size() > 2 * m_parallelism) {
+                    lineCount = append(sink, parsing.poll().join(), lineCount);
+                }
+            }
+            while (!parsing.isEmpty()) {
+                lineCount = append(sink, parsing.poll().join(), lineCount);
+            }
+            if (carry.length > 0) {
+                append(sink, parse(carry, true, EMPTY, 0, 0), lineCount);
+            }
+            decompressor.rethrowError();
+        } finally {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Error does not discard the rows parsed before it, they are appended first and the error is rethrown afterwards
+     * - same as in the sequential load. The invalid line is reported by its number in the file.
+     * @param lineCount lines of the chunks appended before
+     * @return lines of the chunks appended including this one
+     */
+    private long append(Consumer<TransactionDataSet> sink, Chunk chunk, long lineCount) throws InvalidLineException {
+        sink.accept(chunk.dataSet);
+        if (chunk.error instanceof IllegalArgumentException) {
+            throw new InvalidLineException(m_file, lineCount + chunk.lineCount, (IllegalArgumentException) chunk.error);
+        } else if (chunk.error != null) {
+            throw chunk.error;
+        }
+        return lineCount + chunk.lineCount;
+    }
+
+    /**
+     * Parse the head line followed by the complete lines stored in bytes between from and to.
+     * @param headLine false if the (empty) head is not a line of the file
+     */
+    private static Chunk parse(byte[] head, boolean headLine, byte[] bytes, int from, int to) {
+        long startNanos = Metrics.enabled ? System.nanoTime() : 0L;
+        Chunk chunk = new Chunk();
+        TransactionParser parser = new TransactionParser();
+        try {
+            if (headLine) {
+                chunk.lineCount++;
+            }
+            if (parser.parse(head, 0, head.length)) {
+                chunk.dataSet.add(parser);
+            }
+            // "\r\n" gives an extra empty line, which is not a transaction (nor a line of the file)
+            int lineStart = from;
+            for (int i = nextTerminator(bytes, from, to); i < to; i = nextTerminator(bytes, i + 1, to)) {
+                if (bytes[i] != '\n' || bytes[i - 1] != '\r') {
+                    chunk.lineCount++;
+                }
+                if (parser.parse(bytes, lineStart, i)) {
+                    chunk.dataSet.add(parser);
+                }
+                lineStart = i + 1;
+            }
+        } catch (RuntimeException e) {
+            chunk.error = e;
+        }
+        if (Metrics.enabled) {
+            Metrics.PARSE_LATENCY.recordSince(startNanos);
+        }
+        return chunk;
+    }
+
+    /**
+     * @return index of the first line terminator at or after from, or to if there is none
+     */
+    private static int nextTerminator(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == '\n' || bytes[i] == '\r') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * @return index of the last line terminator, the bytes are known to contain one
+     */
+    private static int lastTerminator(byte[] bytes, int length) {
+        int i = length - 1;
+        while (bytes[i] != '\n' && bytes[i] != '\r') {
+            i--;
+        }
+        return i;
+    }
+
+    private static byte[] concat(byte[] carry, byte[] bytes, int length) {
+        byte[] result = Arrays.copyOf(carry, carry.length + length);
+        System.arraycopy(bytes, 0, result, carry.length, length);
+        return result;
+    }
+
+    private static class Block {
+        private final byte[] bytes;
+        private final int    length;
+
+        private Block(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Reads the decompressed bytes into blocks until the end of input, an error, or the interrupt of the thread.
+     */
+    private class Decompressor implements Runnable {
+
+        private final BlockingQueue<Block> m_queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile Exception         m_error;
+
+        @Override
+        public void run() {
+            try (InputStream input = m_compression.open(new FileInputStream(m_file))) {
+                int length;
+                do {
+                    byte[] bytes = new byte[BLOCK_SIZE];
+                    length = 0;
+                    int count = 0;
+                    while (length < BLOCK_SIZE && (count = input.read(bytes, length, BLOCK_SIZE - length)) > 0) {
+                        length += count;
+                    }
+                    if (length > 0) {
+                        m_queue.put(new Block(bytes, length));
+                    }
+                } while (length == BLOCK_SIZE);
+            } catch (InterruptedException e) {
+                return; // loading aborted
+            } catch (IOException | RuntimeException e) {
+                m_error = e;
+            }
+            try {
+                m_queue.put(END);
+            } catch (InterruptedException e) {
+                // loading aborted
+            }
+        }
+
+        /**
+         * @return next block of the decompressed bytes, END after the last one (or after an error)
+         */
+        private Block take() throws InterruptedIOException {
+            try {
+                return m_queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("loading of " + m_file + " interrupted");
+            }
+        }
+
+        private void rethrowError() throws IOException {
+            if (m_error instanceof IOException) {
+                throw (IOException) m_error;
+            } else if (m_error != null) {
+                throw (RuntimeException) m_error;
+            }
+        }
+    }
+
+    private static class Chunk {
+        private TransactionDataSet dataSet = new TransactionDataSet();
+        private RuntimeException   error;
+        private long               lineCount; // lines parsed (up to the invalid one)
+    }
+}
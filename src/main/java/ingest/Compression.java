@@ -0,0 +1,100 @@
+package ingest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression format of the input file, recognized by the magic number at the start of the file (the file name
+ * extension is not relevant).
+ */
+public enum Compression {
+    /** plain text */
+    NONE(new byte[0]),
+    /** gzip (RFC 1952), concatenated members are read as one stream */
+    GZIP(new byte[] {0x1f, (byte) 0x8b}),
+    /** Zstandard frame, decompressed by zstd-jni (com.github.luben:zstd-jni) found on the class path */
+    ZSTD(new byte[] {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd});
+
+    private static final int    BUFFER_SIZE = 64 << 10;
+    private static final String ZSTD_STREAM = "com.github.luben.zstd.ZstdInputStream";
+
+    private final byte[] m_magic;
+
+    Compression(byte[] magic) {
+        m_magic = magic;
+    }
+
+    /**
+     * Detect the compression of the file.
+     * @param file
+     * @return NONE for plain file, directory etc.
+     * @throws IOException
+     */
+    public static Compression of(File file) throws IOException {
+        if (!file.isFile()) {
+            return NONE;
+        }
+        byte[] header = new byte[4];
+        int length = 0;
+        try (InputStream input = new FileInputStream(file)) {
+            int count = 0;
+            while (length < header.length && (count = input.read(header, length, header.length - length)) > 0) {
+                length += count;
+            }
+        }
+        for (Compression compression : values()) {
+            if (compression != NONE && compression.matches(header, length)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+
+    private boolean matches(byte[] header, int length) {
+        if (length < m_magic.length) {
+            return false;
+        }
+        for (int i = 0; i < m_magic.length; i++) {
+            if (header[i] != m_magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decompressing stream of the compressed input. The input is closed with the returned stream.
+     * @param input
+     * @return
+     * @throws IOException if the input is not valid or the decompressor is not available
+     */
+    public InputStream open(InputStream input) throws IOException {
+        switch (this) {
+            case GZIP:
+                try {
+                    return new GZIPInputStream(input, BUFFER_SIZE);
+                } catch (IOException e) {
+                    input.close();
+                    throw e;
+                }
+            case ZSTD:
+                // bound at run time, the native library may not be available for the platform
+                try {
+                    return (InputStream) Class.forName(ZSTD_STREAM).getConstructor(InputStream.class).newInstance(input);
+                } catch (InvocationTargetException e) {
+                    input.close();
+                    throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                            : new IOException("zstd decompression failed: " + e.getCause(), e.getCause());
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    input.close();
+                    throw new IOException("zstd compressed input needs zstd-jni (com.github.luben:zstd-jni) on the class path");
+                }
+            default:
+                return input;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ingest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Follows the growing input (like "tail -f") - each poll() passes the bytes appended since the previous poll
+ * to the LineSplitter. A file is read from the position reached by the previous poll and never blocks,
+ * a stream (e.g. STDIN) is read as long as it has bytes available and blocks only when allowed by the caller.
+ * The incomplete last line stays in the splitter until it is completed by the following bytes.
+ */
+public class FileTailer implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    private FileChannel m_channel;
+    private InputStream m_stream;
+    private long        m_position = 0;
+    private boolean     m_endOfInput = false;
+    private ByteBuffer  m_buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    public FileTailer(File file) throws IOException {
+        this.m_channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
+    public FileTailer(InputStream stream) {
+        this.m_stream = stream;
+    }
+
+    /**
+     * Feed all bytes available now to the splitter.
+     * @param splitter
+     * @param mayBlock if true, the stream input waits for the next bytes when there are none available
+     * @return number of bytes read
+     * @throws IOException
+     */
+    public long poll(LineSplitter splitter, boolean mayBlock) throws IOException {
+        long total = 0;
+        while (true) {
+            m_buffer.clear();
+            int count;
+            if (m_channel != null) {
+                count = m_channel.read(m_buffer, m_position);
+                if (count > 0) {
+                    m_position += count;
+                }
+            } else {
+                int available = m_stream.available();
+                if (available > 0) {
+                    count = m_stream.read(m_buffer.array(), 0, Math.min(available, BUFFER_SIZE));
+                } else {
+                    count = mayBlock && total == 0 ? m_stream.read(m_buffer.array(), 0, BUFFER_SIZE) : 0;
+                }
+                if (count < 0) {
+                    m_endOfInput = true;
+                } else {
+                    m_buffer.position(count);
+                }
+            }
+            if (count <= 0) {
+                return total;
+            }
+            m_buffer.flip();
+            splitter.feed(m_buffer);
+            total += count;
+        }
+    }
+
+    /**
+     * @return true if the followed stream has been closed (a file never ends)
+     */
+    public boolean isEndOfInput() {
+        return m_endOfInput;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (m_channel != null) {
+            m_channel.close();
+        } else {
+            m_stream.close();
+        }
+    }
+}
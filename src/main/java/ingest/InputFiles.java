@@ -0,0 +1,69 @@
+package ingest;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Expands the input file arguments - a directory stands for its (non-hidden) files, a name with the glob
+ * characters (*, ?, [..], {..}) in its last element for the matching files of the parent directory,
+ * e.g. 'exports/2018-08-20-*.csv'. The files of a directory or glob are sorted by name.
+ */
+public class InputFiles {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private InputFiles() {
+    }
+
+    /**
+     * @param names file names, directories or globs
+     * @return the files in the argument order, a name which does not exist (and is not a glob) is kept as is
+     */
+    public static List<File> expand(List<String> names) {
+        List<File> files = new ArrayList<>();
+        for (String name : names) {
+            File file = new File(name);
+            if (file.isDirectory()) {
+                files.addAll(list(file, null));
+            } else if (!file.exists() && isGlob(file.getName())) {
+                File parent = file.getAbsoluteFile().getParentFile();
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + file.getName());
+                files.addAll(list(parent, matcher));
+            } else {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private static boolean isGlob(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(name.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<File> list(File directory, PathMatcher matcher) {
+        File[] children = directory != null ? directory.listFiles() : null;
+        if (children == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(children);
+        List<File> files = new ArrayList<>();
+        for (File child : children) {
+            Path name = Paths.get(child.getName());
+            if (child.isFile() && !child.isHidden() && (matcher == null || matcher.matches(name))) {
+                files.add(child);
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,22 @@
+package ingest;
+
+/**
+ * The way the input file is read.
+ */
+public enum InputMode {
+    /** memory-mapped file, lines are found and parsed directly on the bytes */
+    MMAP,
+    /** character Reader, used also for STDIN and pipes */
+    READER,
+    /** memory-mapped time-ordered file, only the -from/-to range and the reversals following it are parsed */
+    LAZY;
+
+    /**
+     * Command line key to InputMode, null defaults to MMAP.
+     * @param key
+     * @return
+     */
+    public static InputMode of(String key) {
+        return key == null ? MMAP : valueOf(key.toUpperCase());
+    }
+}
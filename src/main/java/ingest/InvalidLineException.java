@@ -0,0 +1,29 @@
+package ingest;
+
+import java.io.IOException;
+
+/**
+ * Input line which is not a valid transaction (e.g. unknown transaction type), reported with the name of the input
+ * and the number of the line. It is a data problem of the input, unlike the IllegalArgumentException thrown
+ * by the parser, which would be mistaken for an invalid parameter.
+ */
+public class InvalidLineException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long m_lineNumber;
+
+    /**
+     * @param input file (or other input name)
+     * @param lineNumber 1-based number of the line in the input
+     * @param cause parser error
+     */
+    public InvalidLineException(Object input, long lineNumber, IllegalArgumentException cause) {
+        super("invalid line " + lineNumber + " of " + input + ", " + cause.getMessage(), cause);
+        this.m_lineNumber = lineNumber;
+    }
+
+    public long getLineNumber() {
+        return m_lineNumber;
+    }
+}
@@ -0,0 +1,202 @@
+package ingest;
+
+import analyzer.TransactionAnalyzer;
+import analyzer.TransactionIdIndex;
+import ingest.ParallelFileLoader.Chunk;
+import metrics.Metrics;
+import model.TransactionDataSet;
+import model.TransactionIds;
+import model.TransactionParser;
+import model.TransactionRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Loads only the part of a time-ordered file needed to answer a single range query. The byte range of the query
+ * window is found by the SparseOffsetIndex and parsed in parallel like by ParallelFileLoader, the lines before it
+ * are not read at all (except the first transaction, so the data set is not empty even for an empty window).
+ * Reversals are resolved in the file order, so only the lines following the window can reverse a transaction of
+ * the window - they are scanned for REVERSAL lines of the window transactions only, up to the reversal horizon
+ * of the analyzer after the window end (to the end of the file without horizon). Transaction IDs are assumed unique.
+ * <p>
+ * The analyzer then holds the window transactions and their reversals, the range query gives the same result as
+ * with the whole file loaded. Reversals of transactions preceding the window are not resolved (nor reported as
+ * reversals of non-existent transactions), they can't change the result. The time order is checked only at
+ * the sampled lines and in the window, a file found not to be time-ordered is loaded whole.
+ */
+public class LazyFileLoader {
+
+    private static final byte[] REVERSAL = TransactionRecord.TransactionType.REVERSAL.name().getBytes();
+
+    private File m_file;
+    private long m_from;
+    private long m_to;
+    private int  m_parallelism;
+    private long m_minChunkSize;
+    private long m_bytesRead = 0;
+
+    /**
+     * @param file
+     * @param from query range start timestamp (inclusive)
+     * @param to query range end timestamp (inclusive)
+     * @param parallelism number of threads parsing the file
+     */
+    public LazyFileLoader(File file, long from, long to, int parallelism) {
+        this(file, from, to, parallelism, ParallelFileLoader.MIN_CHUNK_SIZE);
+    }
+
+    public LazyFileLoader(File file, long from, long to, int parallelism, long minChunkSize) {
+        this.m_file = file;
+        this.m_from = from;
+        this.m_to = to;
+        this.m_parallelism = Math.max(1, parallelism);
+        this.m_minChunkSize = Math.max(1, minChunkSize);
+    }
+
+    /**
+     * Load the query window and its reversals into the (empty) analyzer.
+     * @param analyzer
+     * @throws IOException
+     */
+    public void load(TransactionAnalyzer analyzer) throws IOException {
+        SparseOffsetIndex index = new SparseOffsetIndex(m_file);
+        long size = m_file.length();
+        long first = index.offsetOf(Long.MIN_VALUE);
+        long start = index.offsetOf(m_from);
+        long end = m_from > m_to ? start : m_to == Long.MAX_VALUE ? size : index.offsetOf(m_to + 1);
+        long horizon = analyzer.getReversalHorizon();
+        long tailEnd = horizon > 0 && m_to < Long.MAX_VALUE - horizon ? index.offsetOf(m_to + horizon + 1) : size;
+        // samples the file up to its end, so a file consisting of parts in different order is likely detected
+        index.offsetOf(Long.MAX_VALUE);
+        m_bytesRead = index.getBytesRead();
+        if (!index.isTimeOrdered()) {
+            fullLoad(analyzer);
+            return;
+        }
+        MappedFileReader reader = new MappedFileReader(m_file);
+        TransactionDataSet window = new TransactionDataSet();
+        if (first < size && (first < start || start >= end)) {
+            window.addAll(ParallelFileLoader.parse(reader, first, reader.nextLineStart(first + 1)).rethrowError());
+        }
+        ForkJoinPool pool = new ForkJoinPool(m_parallelism);
+        try {
+            for (Chunk chunk : parse(pool, reader, start, end, null)) {
+                window.addAll(chunk.rethrowError());
+            }
+            if (!window.isTimeOrdered()) {
+                fullLoad(analyzer);
+                return;
+            }
+            TransactionIdIndex ids = new TransactionIdIndex();
+            analyzer.addAll(withoutUnresolved(window, ids));
+            for (Chunk chunk : parse(pool, reader, end, tailEnd, ids)) {
+                analyzer.addAll(chunk.rethrowError());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        m_bytesRead += Math.max(0, end - start) + Math.max(0, tailEnd - end);
+    }
+
+    /**
+     * @return number of bytes read by the last load
+     */
+    public long getBytesRead() {
+        return m_bytesRead;
+    }
+
+    private void fullLoad(TransactionAnalyzer analyzer) throws IOException {
+        new ParallelFileLoader(m_file, m_parallelism, m_minChunkSize).load(analyzer);
+        m_bytesRead += m_file.length();
+    }
+
+    /**
+     * Copy of the window without the reversals of transactions not in the window, the IDs of the window transactions
+     * are collected to the index. The first row (the first transaction of the file) is kept even if it is such
+     * reversal - no transaction precedes it, and the data set must not be empty.
+     */
+    private static TransactionDataSet withoutUnresolved(TransactionDataSet window, TransactionIdIndex ids) {
+        TransactionDataSet resolved = new TransactionDataSet();
+        int runStart = 0;
+        for (int row = 0; row < window.size(); row++) {
+            if (row > 0 && TransactionRecord.TransactionType.REVERSAL.equals(window.getType(row))
+                    && ids.get(window.getRelatedTransaction(row)) < 0) {
+                resolved.addAll(window, runStart, row);
+                runStart = row + 1;
+                continue;
+            }
+            long packedId = window.getPackedId(row);
+            if (packedId != TransactionIds.NOT_PACKED) {
+                ids.put(packedId, row);
+            } else {
+                ids.put(window.getId(row), row);
+            }
+        }
+        resolved.addAll(window, runStart, window.size());
+        return resolved;
+    }
+
+    /**
+     * Parse the byte range in parallel chunks, in the file order.
+     * @param reversalsOf if not null, only the reversals of the transactions in the index are kept
+     */
+    private List<Chunk> parse(ForkJoinPool pool, MappedFileReader reader, long start, long end,
+            TransactionIdIndex reversalsOf) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        if (start >= end) {
+            return chunks;
+        }
+        long[] bounds = ParallelFileLoader.splitAtLines(reader, start, end, m_parallelism, m_minChunkSize);
+        for (ForkJoinTask<Chunk> task : ParallelFileLoader.submit(pool, bounds, reversalsOf == null
+                ? (chunkStart, chunkEnd) -> ParallelFileLoader.parse(reader, chunkStart, chunkEnd)
+                : (chunkStart, chunkEnd) -> parseReversals(reader, chunkStart, chunkEnd, reversalsOf))) {
+            chunks.add(task.join());
+        }
+        return chunks;
+    }
+
+    /**
+     * Parse only the reversals of the indexed transactions, other lines are skipped unless they contain "REVERSAL".
+     */
+    private static Chunk parseReversals(MappedFileReader reader, long start, long end, TransactionIdIndex ids) {
+        long startNanos = Metrics.enabled ? System.nanoTime() : 0L;
+        Chunk chunk = new Chunk();
+        TransactionParser parser = new TransactionParser();
+        try {
+            reader.readLines(start, end, (buffer, from, to) -> {
+                if (contains(buffer, from, to, REVERSAL) && parser.parse(buffer, from, to)
+                        && parser.getType() == TransactionRecord.TransactionType.REVERSAL
+                        && ids.get(parser.getRelatedTransaction()) >= 0) {
+                    chunk.dataSet.add(parser);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            chunk.error = e;
+        }
+        if (Metrics.enabled) {
+            Metrics.PARSE_LATENCY.recordSince(startNanos);
+        }
+        return chunk;
+    }
+
+    private static boolean contains(byte[] buffer, int from, int to, byte[] value) {
+        for (int i = from + value.length - 1; i < to; i++) {
+            if (buffer[i] == value[value.length - 1]) {
+                int start = i - value.length + 1;
+                int j = 0;
+                while (j < value.length - 1 && buffer[start + j] == value[j]) {
+                    j++;
+                }
+                if (j == value.length - 1) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,11 @@
+package ingest;
+
+/**
+ * Receives the lines found in the byte input. The line is stored in buffer between from (inclusive) and
+ * to (exclusive), line terminator is not included. The buffer content is valid only during the call.
+ */
+@FunctionalInterface
+public interface LineConsumer {
+
+    void accept(byte[] buffer, int from, int to);
+}
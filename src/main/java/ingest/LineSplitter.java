@@ -0,0 +1,106 @@
+package ingest;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Finds line boundaries directly in the input bytes and passes the lines to the LineConsumer.
+ * Bytes are copied in bulk into a reusable window, lines crossing the end of the window are carried over
+ * to the next window. Line terminators are the same as for BufferedReader.readLine() - "\n", "\r" or "\r\n".
+ */
+public class LineSplitter {
+
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 20;
+
+    private LineConsumer m_consumer;
+    private byte[]       m_window;
+    private int          m_length = 0;      // bytes in the window, the carried over line starts at 0
+    private boolean      m_skipLineFeed = false;
+    private long         m_lineCount = 0;   // lines passed to the consumer
+
+    public LineSplitter(LineConsumer consumer) {
+        this(DEFAULT_WINDOW_SIZE, consumer);
+    }
+
+    public LineSplitter(int windowSize, LineConsumer consumer) {
+        this.m_window = new byte[windowSize];
+        this.m_consumer = consumer;
+    }
+
+    /**
+     * Consume all remaining bytes of the buffer, complete lines are passed to the consumer.
+     * @param bytes
+     */
+    public void feed(ByteBuffer bytes) {
+        while (bytes.hasRemaining()) {
+            if (m_length == m_window.length) {
+                m_window = Arrays.copyOf(m_window, m_window.length * 2); // line longer than the window
+            }
+            int count = Math.min(bytes.remaining(), m_window.length - m_length);
+            bytes.get(m_window, m_length, count);
+            scan(m_length, m_length + count);
+        }
+    }
+
+    /**
+     * Consume the bytes, complete lines are passed to the consumer.
+     * @param bytes
+     * @param from
+     * @param to
+     */
+    public void feed(byte[] bytes, int from, int to) {
+        feed(ByteBuffer.wrap(bytes, from, to - from));
+    }
+
+    /**
+     * Pass the last line (not terminated by line terminator) to the consumer.
+     */
+    public void finish() {
+        if (m_length > 0) {
+            m_lineCount++;
+            m_consumer.accept(m_window, 0, m_length);
+            m_length = 0;
+        }
+    }
+
+    /**
+     * @return number of lines passed to the consumer, including the line being consumed
+     */
+    public long getLineCount() {
+        return m_lineCount;
+    }
+
+    private void scan(int from, int to) {
+        byte[] window = m_window;
+        int lineStart = 0;
+        int i = from;
+        if (m_skipLineFeed && i < to) {
+            m_skipLineFeed = false;
+            if (window[i] == '\n') {
+                lineStart = ++i; // second half of "\r\n" split between two windows
+            }
+        }
+        for (; i < to; i++) {
+            byte b = window[i];
+            if (b == '\n' || b == '\r') {
+                m_lineCount++;
+                m_consumer.accept(window, lineStart, i);
+                if (b == '\r') {
+                    if (i + 1 < to) {
+                        if (window[i + 1] == '\n') {
+                            i++;
+                        }
+                    } else {
+                        m_skipLineFeed = true;
+                    }
+                }
+                lineStart = i + 1;
+            }
+        }
+        // carry over the incomplete line
+        m_length = to - lineStart;
+        if (lineStart > 0 && m_length > 0) {
+            System.arraycopy(window, lineStart, window, 0, m_length);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package ingest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a (regular) file through memory-mapped regions, avoiding the char decoding
+ * and copying of the Reader based input. The file is mapped in chunks, so files larger than 2GB are supported.
+ * Lines are passed to the LineConsumer as UTF-8 bytes.
+ */
+public class MappedFileReader {
+
+    public static final long DEFAULT_MAP_SIZE = 256L << 20;
+
+    private File m_file;
+    private long m_mapSize;
+
+    public MappedFileReader(File file) {
+        this(file, DEFAULT_MAP_SIZE);
+    }
+
+    public MappedFileReader(File file, long mapSize) {
+        this.m_file = file;
+        this.m_mapSize = mapSize;
+    }
+
+    /**
+     * Read all lines of the file.
+     * @param consumer
+     * @throws IOException
+     */
+    public void readLines(LineConsumer consumer) throws IOException {
+        readLines(0, Long.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Read the lines stored in the file between the given byte positions. The positions are expected to be
+     * at line boundaries (e.g. start of file or position right after the line terminator).
+     * @param start first byte (inclusive)
+     * @param end last byte (exclusive), it is limited to the file size
+     * @param consumer
+     * @throws InvalidLineException if the consumer rejects the line by IllegalArgumentException (e.g. the parser)
+     * @throws IOException
+     */
+    public void readLines(long start, long end, LineConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(m_file.toPath(), StandardOpenOption.READ)) {
+            LineSplitter splitter = new LineSplitter(consumer);
+            try {
+                long limit = Math.min(end, channel.size());
+                for (long position = start; position < limit; position += m_mapSize) {
+                    MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(m_mapSize, limit - position));
+                    splitter.feed(region);
+                }
+                splitter.finish();
+            } catch (IllegalArgumentException e) {
+                throw new InvalidLineException(m_file, countLines(channel, start) + splitter.getLineCount(), e);
+            }
+        }
+    }
+
+    /**
+     * Split the file into (at most) the given number of byte ranges of similar size, ranges start and end
+     * at line boundaries.
+     * @param count
+     * @return range boundaries, range i is [bounds[i], bounds[i + 1])
+     * @throws IOException
+     */
+    public long[] splitAtLines(int count) throws IOException {
+        return splitAtLines(0, Long.MAX_VALUE, count);
+    }
+
+    /**
+     * Split the part of the file between the given byte positions into (at most) the given number of byte ranges
+     * of similar size, ranges start and end at line boundaries.
+     * @param start first byte (inclusive), expected to be at line boundary
+     * @param end last byte (exclusive), it is limited to the file size
+     * @param count
+     * @return range boundaries, range i is [bounds[i], bounds[i + 1])
+     * @throws IOException
+     */
+    public long[] splitAtLines(long start, long end, int count) throws IOException {
+        try (FileChannel channel = FileChannel.open(m_file.toPath(), StandardOpenOption.READ)) {
+            long limit = Math.min(end, channel.size());
+            long[] bounds = new long[count + 1];
+            bounds[0] = start;
+            int boundCount = 1;
+            for (int i = 1; i < count; i++) {
+                long position = nextLineStart(channel, start + (limit - start) * i / count);
+                if (position > bounds[boundCount - 1] && position < limit) {
+                    bounds[boundCount++] = position;
+                }
+            }
+            bounds[boundCount++] = Math.max(start, limit);
+            return Arrays.copyOf(bounds, boundCount);
+        }
+    }
+
+    /**
+     * Position of the first line start at or after the given position.
+     * @param position
+     * @return the position of the line start or the file size if there is no line after the position
+     * @throws IOException
+     */
+    public long nextLineStart(long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(m_file.toPath(), StandardOpenOption.READ)) {
+            return nextLineStart(channel, position);
+        }
+    }
+
+    /**
+     * Number of the lines ending before the given position (a line boundary), only needed to report an invalid line.
+     */
+    private static long countLines(FileChannel channel, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long lines = 0;
+        boolean carriageReturn = false;
+        for (long offset = 0; offset < end; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - offset));
+            int count = channel.read(buffer, offset);
+            if (count <= 0) {
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                byte b = buffer.get(i);
+                if (b == '\r' || (b == '\n' && !carriageReturn)) {
+                    lines++; // "\r\n" is a single line terminator
+                }
+                carriageReturn = b == '\r';
+            }
+            offset += count;
+        }
+        return lines;
+    }
+
+    /**
+     * Position of the first line start at or after the given position.
+     */
+    static long nextLineStart(FileChannel channel, long position) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long offset = position - 1; // position is a line start if the previous byte ends a line
+        while (true) {
+            buffer.clear();
+            int count = channel.read(buffer, offset);
+            if (count <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < count; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    return offset + i + 1;
+                } else if (b == '\r') {
+                    // "\r\n" is a single line terminator, "\r" alone ends the line too
+                    if (i + 1 == count) {
+                        buffer.clear();
+                        buffer.limit(1);
+                        count = channel.read(buffer, offset + i + 1);
+                        return count == 1 && buffer.get(0) == '\n' ? offset + i + 2 : offset + i + 1;
+                    }
+                    return buffer.get(i + 1) == '\n' ? offset + i + 2 : offset + i + 1;
+                }
+            }
+            offset += count;
+        }
+    }
+}
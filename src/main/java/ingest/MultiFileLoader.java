@@ -0,0 +1,213 @@
+package ingest;
+
+import analyzer.TransactionAnalyzer;
+import model.SnapshotInput;
+import model.TransactionDataSet;
+import model.TransactionParser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Loads several files (e.g. hourly exports) concurrently, each into its own TransactionDataSet segment - the files
+ * and the chunks of the memory-mapped files are parsed by one fork-join pool. The segments are then appended to the
+ * analyzer in the time order: segments whose time ranges do not overlap are appended as they are, only the groups
+ * of overlapping segments are k-way merged by date (ties in the file order). The transaction IDs are indexed and
+ * the reversals resolved in the merged order, so a reversal finds its payment in any earlier file.
+ * <p>
+ * If any file fails, the error of the first failed file (in the argument order) is thrown and nothing is loaded.
+ */
+public class MultiFileLoader {
+
+    private List<File> m_files;
+    private InputMode  m_inputMode;
+    private int        m_parallelism;
+    private long       m_minChunkSize;
+
+    public MultiFileLoader(List<File> files, InputMode inputMode, int parallelism) {
+        this(files, inputMode, parallelism, ParallelFileLoader.MIN_CHUNK_SIZE);
+    }
+
+    public MultiFileLoader(List<File> files, InputMode inputMode, int parallelism, long minChunkSize) {
+        this.m_files = files;
+        this.m_inputMode = inputMode;
+        this.m_parallelism = Math.max(1, parallelism);
+        this.m_minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Load the files into the analyzer.
+     * @param analyzer
+     * @throws IOException
+     */
+    public void load(TransactionAnalyzer analyzer) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(m_parallelism);
+        try {
+            List<ForkJoinTask<Segment>> tasks = new ArrayList<>();
+            for (int i = 0; i < m_files.size(); i++) {
+                File file = m_files.get(i);
+                int order = i;
+                tasks.add(pool.submit(() -> parse(file, order)));
+            }
+            for (ForkJoinTask<Segment> task : tasks) {
+                Segment segment = task.join();
+                segment.rethrowError();
+                if (!segment.dataSet.isEmpty()) {
+                    segments.add(segment);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        segments.sort((a, b) -> a.firstDate != b.firstDate ? Long.compare(a.firstDate, b.firstDate)
+                : Integer.compare(a.order, b.order));
+        for (int i = 0; i < segments.size(); ) {
+            long lastDate = segments.get(i).lastDate;
+            int end = i + 1;
+            while (end < segments.size() && segments.get(end).firstDate < lastDate) {
+                lastDate = Math.max(lastDate, segments.get(end).lastDate);
+                end++;
+            }
+            analyzer.addAll(end - i == 1 ? segments.get(i).dataSet : merge(segments.subList(i, end)));
+            i = end;
+        }
+    }
+
+    /**
+     * Parse the file into a segment, runs in the pool.
+     */
+    private Segment parse(File file, int order) {
+        Segment segment = new Segment(order);
+        try {
+            if (SnapshotInput.isSnapshot(file)) {
+                throw new IOException(file + " is a binary snapshot, it can not be loaded together with other files");
+            }
+            Compression compression = Compression.of(file);
+            if (compression != Compression.NONE) {
+                segment.dataSet = new CompressedFileLoader(file, compression, m_parallelism).parse();
+            } else if (m_inputMode != InputMode.READER && file.isFile()) {
+                segment.dataSet = new ParallelFileLoader(file, m_parallelism, m_minChunkSize).parse();
+            } else {
+                segment.dataSet = read(file);
+            }
+        } catch (IOException | RuntimeException e) {
+            segment.error = e;
+            return segment;
+        }
+        TransactionDataSet dataSet = segment.dataSet;
+        for (int row = 0; row < dataSet.size(); row++) {
+            segment.firstDate = Math.min(segment.firstDate, dataSet.getDate(row));
+            segment.lastDate = Math.max(segment.lastDate, dataSet.getDate(row));
+        }
+        return segment;
+    }
+
+    private static TransactionDataSet read(File file) throws IOException {
+        TransactionDataSet dataSet = new TransactionDataSet();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            TransactionParser parser = new TransactionParser();
+            String csvLine = null;
+            long lineNumber = 0;
+            try {
+                while ((csvLine = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (parser.parse(csvLine)) {
+                        dataSet.add(parser);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                throw new InvalidLineException(file, lineNumber, e);
+            }
+        }
+        return dataSet;
+    }
+
+    /**
+     * k-way merge of the overlapping segments. The segment with the earliest next row contributes the run of its rows
+     * preceding the next row of any other segment, so the non-overlapping parts are copied as whole runs.
+     */
+    private static TransactionDataSet merge(List<Segment> segments) {
+        TransactionDataSet merged = new TransactionDataSet();
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+        for (Segment segment : segments) {
+            cursors.add(new Cursor(segment));
+        }
+        while (!cursors.isEmpty()) {
+            Cursor cursor = cursors.poll();
+            Cursor next = cursors.peek();
+            int size = cursor.segment.dataSet.size();
+            int end = cursor.row + 1;
+            if (next == null) {
+                end = size;
+            } else {
+                while (end < size && cursor.precedes(end, next)) {
+                    end++;
+                }
+            }
+            merged.addAll(cursor.segment.dataSet, cursor.row, end);
+            cursor.row = end;
+            if (end < size) {
+                cursors.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private static class Segment {
+        private final int          order;
+        private TransactionDataSet dataSet;
+        private long               firstDate = Long.MAX_VALUE;
+        private long               lastDate = Long.MIN_VALUE;
+        private Exception          error;
+
+        private Segment(int order) {
+            this.order = order;
+        }
+
+        private void rethrowError() throws IOException {
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error != null) {
+                throw (RuntimeException) error;
+            }
+        }
+    }
+
+    /**
+     * Next row of a segment being merged, ordered by the date of the row and the file order.
+     */
+    private static class Cursor implements Comparable<Cursor> {
+        private final Segment segment;
+        private int           row = 0;
+
+        private Cursor(Segment segment) {
+            this.segment = segment;
+        }
+
+        private long date() {
+            return segment.dataSet.getDate(row);
+        }
+
+        /**
+         * @return true if the row of this segment goes before the next row of the other segment
+         */
+        private boolean precedes(int row, Cursor other) {
+            long date = segment.dataSet.getDate(row);
+            return date < other.date() || (date == other.date() && segment.order < other.segment.order);
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return date() != other.date() ? Long.compare(date(), other.date())
+                    : Integer.compare(segment.order, other.segment.order);
+        }
+    }
+}
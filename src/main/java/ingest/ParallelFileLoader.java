@@ -0,0 +1,179 @@
+package ingest;
+
+import analyzer.TransactionAnalyzer;
+import metrics.Metrics;
+import model.TransactionDataSet;
+import model.TransactionParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Loads the (memory-mapped) file in parallel. The file is split at line boundaries into chunks that are parsed
+ * concurrently on a fork-join pool, each into its own TransactionDataSet segment. The segments are merged into
+ * the analyzer in the original file order as soon as they are ready, so the transaction IDs are indexed and
+ * the reversals resolved in exactly the same order (with the same warnings) as in the sequential load.
+ */
+public class ParallelFileLoader {
+
+    public static final long MIN_CHUNK_SIZE = 4L << 20;
+    // more chunks than threads to balance the load
+    static final int CHUNKS_PER_THREAD = 4;
+
+    private File m_file;
+    private int  m_parallelism;
+    private long m_minChunkSize;
+
+    public ParallelFileLoader(File file, int parallelism) {
+        this(file, parallelism, MIN_CHUNK_SIZE);
+    }
+
+    public ParallelFileLoader(File file, int parallelism, long minChunkSize) {
+        this.m_file = file;
+        this.m_parallelism = Math.max(1, parallelism);
+        this.m_minChunkSize = Math.max(1, minChunkSize);
+    }
+
+    /**
+     * Load the file into the analyzer.
+     * @param analyzer
+     * @throws IOException
+     */
+    public void load(TransactionAnalyzer analyzer) throws IOException {
+        MappedFileReader reader = new MappedFileReader(m_file);
+        long[] bounds = splitAtLines(reader, 0, m_file.length(), m_parallelism, m_minChunkSize);
+        if (bounds.length <= 2 || m_parallelism == 1) {
+            load(reader, 0, Long.MAX_VALUE, analyzer);
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(m_parallelism);
+        try {
+            // merge in the file order, following chunks are parsed meanwhile
+            for (ForkJoinTask<Chunk> task : submit(pool, bounds, (start, end) -> parse(reader, start, end))) {
+                Chunk chunk = task.join();
+                analyzer.addAll(chunk.dataSet);
+                chunk.rethrowError();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Parse the file into a new data set segment, the transaction reversals are not resolved. The chunks are parsed
+     * by tasks forked to the current fork-join pool (e.g. the pool loading several files), or to the common pool
+     * when not called from a pool task.
+     * @return
+     * @throws IOException
+     */
+    public TransactionDataSet parse() throws IOException {
+        MappedFileReader reader = new MappedFileReader(m_file);
+        long[] bounds = splitAtLines(reader, 0, m_file.length(), m_parallelism, m_minChunkSize);
+        List<ForkJoinTask<Chunk>> tasks = submit(null, bounds, (start, end) -> parse(reader, start, end));
+        if (tasks.size() == 1) {
+            return tasks.get(0).join().rethrowError();
+        }
+        TransactionDataSet segment = new TransactionDataSet();
+        for (ForkJoinTask<Chunk> task : tasks) {
+            Chunk chunk = task.join();
+            chunk.rethrowError();
+            segment.addAll(chunk.dataSet);
+        }
+        return segment;
+    }
+
+    /**
+     * Split the byte range of the file at line boundaries into the chunks parsed in parallel, at most
+     * CHUNKS_PER_THREAD per thread and (except the last one) at least minChunkSize bytes long.
+     * @param start first byte (inclusive), at line boundary
+     * @param end last byte (exclusive)
+     * @return chunk boundaries, chunk i is [bounds[i], bounds[i + 1])
+     */
+    static long[] splitAtLines(MappedFileReader reader, long start, long end, int parallelism, long minChunkSize)
+            throws IOException {
+        long chunkCount = Math.min((long) parallelism * CHUNKS_PER_THREAD, Math.max(1, (end - start) / minChunkSize));
+        return reader.splitAtLines(start, end, (int) chunkCount);
+    }
+
+    /**
+     * Parse the chunks by tasks submitted to the pool, or forked to the current fork-join pool if pool is null.
+     * @param bounds chunk boundaries
+     * @return tasks in the file order
+     */
+    static List<ForkJoinTask<Chunk>> submit(ForkJoinPool pool, long[] bounds, ChunkParser parser) {
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            long start = bounds[i];
+            long end = bounds[i + 1];
+            ForkJoinTask<Chunk> task = ForkJoinTask.adapt(() -> parser.parse(start, end));
+            tasks.add(pool != null ? pool.submit(task) : task.fork());
+        }
+        return tasks;
+    }
+
+    /**
+     * Sequential load, the lines are added to the analyzer directly.
+     */
+    private static void load(MappedFileReader reader, long start, long end, TransactionAnalyzer analyzer) throws IOException {
+        TransactionParser parser = new TransactionParser();
+        reader.readLines(start, end, (buffer, from, to) -> {
+            if (parser.parse(buffer, from, to)) {
+                analyzer.add(parser); // builds indexes and handles transaction reversal
+            }
+        });
+    }
+
+    /**
+     * Parse the chunk into a segment. Error does not discard the rows parsed before it, they are merged first
+     * and the error is rethrown afterwards - same as in the sequential load.
+     */
+    static Chunk parse(MappedFileReader reader, long start, long end) {
+        long startNanos = Metrics.enabled ? System.nanoTime() : 0L;
+        Chunk chunk = new Chunk();
+        TransactionParser parser = new TransactionParser();
+        try {
+            reader.readLines(start, end, (buffer, from, to) -> {
+                if (parser.parse(buffer, from, to)) {
+                    chunk.dataSet.add(parser);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            chunk.error = e;
+        }
+        if (Metrics.enabled) {
+            Metrics.PARSE_LATENCY.recordSince(startNanos);
+        }
+        return chunk;
+    }
+
+    /**
+     * Parses the byte range [start, end) of the file into a chunk.
+     */
+    interface ChunkParser {
+        Chunk parse(long start, long end);
+    }
+
+    /**
+     * Parsed segment of the file and the error which ended the parsing.
+     */
+    static class Chunk {
+        final TransactionDataSet dataSet = new TransactionDataSet();
+        Exception                error;
+
+        /**
+         * @return parsed data set if there was no error
+         */
+        TransactionDataSet rethrowError() throws IOException {
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error != null) {
+                throw (RuntimeException) error;
+            }
+            return dataSet;
+        }
+    }
+}
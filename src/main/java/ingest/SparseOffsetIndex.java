@@ -0,0 +1,210 @@
+package ingest;
+
+import model.TransactionParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Sparse index of a time-ordered CSV file from the transaction date to the byte offset of the line, built lazily.
+ * An offset is found by binary search over the byte offsets - a line is sampled in the middle of the remaining range
+ * until the range is shorter than SCAN_SIZE, which is then scanned line by line. The sampled lines are kept, so
+ * the following lookups start from the narrowest known range. A 20GB file takes about 20 samples per lookup.
+ * <p>
+ * Lines sampled out of the time order (and out of order lines found by the scans) make the index not time-ordered,
+ * the offsets are not reliable then (see isTimeOrdered()). Lines which are not transactions (header, too few fields,
+ * unknown type, unparsable date) are skipped.
+ */
+public class SparseOffsetIndex {
+
+    public static final int SCAN_SIZE = 64 << 10;
+    // bytes read to sample a line
+    private static final int SAMPLE_SIZE = 4 << 10;
+
+    private final File              m_file;
+    private final TransactionParser m_parser = new TransactionParser();
+    // sampled transaction lines sorted by the offset
+    private long[]                  m_offsets = new long[16];
+    private long[]                  m_dates = new long[16];
+    private int                     m_size = 0;
+    private boolean                 m_timeOrdered = true;
+    private long                    m_bytesRead = 0;
+    private byte[]                  m_buffer = new byte[SCAN_SIZE];
+    // date of the line found by the last scan
+    private long                    m_foundDate;
+
+    public SparseOffsetIndex(File file) {
+        this.m_file = file;
+    }
+
+    /**
+     * Offset of the first transaction line with date at or after the given date.
+     * @param date
+     * @return start of the line or the file size if there is no such line
+     * @throws IOException
+     */
+    public long offsetOf(long date) throws IOException {
+        try (FileChannel channel = FileChannel.open(m_file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            // the lines before lower are older than the date, the line at upper is not (or upper is the file size)
+            int entry = firstEntry(date);
+            long lower = entry > 0 ? m_offsets[entry - 1] : 0L;
+            long upper = entry < m_size ? m_offsets[entry] : size;
+            while (upper - lower > SCAN_SIZE) {
+                long middle = MappedFileReader.nextLineStart(channel, lower + (upper - lower) / 2);
+                if (middle >= upper) {
+                    break;
+                }
+                long offset = scan(channel, middle, upper, Long.MIN_VALUE);
+                if (offset >= upper) {
+                    upper = middle; // no transaction line in the upper half
+                } else {
+                    insert(offset, m_foundDate);
+                    if (m_foundDate < date) {
+                        lower = offset;
+                    } else {
+                        upper = offset;
+                    }
+                }
+            }
+            long offset = scan(channel, lower, size, date);
+            if (offset < size) {
+                insert(offset, m_foundDate);
+            }
+            return offset;
+        }
+    }
+
+    /**
+     * @return false if lines out of the time order were found, the offsets may be wrong then
+     */
+    public boolean isTimeOrdered() {
+        return m_timeOrdered;
+    }
+
+    /**
+     * @return number of the lines kept in the index
+     */
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * @return number of bytes read by the lookups so far
+     */
+    public long getBytesRead() {
+        return m_bytesRead;
+    }
+
+    /**
+     * @return index of the first sampled line with date at or after the date
+     */
+    private int firstEntry(long date) {
+        int low = 0;
+        int high = m_size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (m_dates[middle] < date) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void insert(long offset, long date) {
+        int entry = Arrays.binarySearch(m_offsets, 0, m_size, offset);
+        if (entry >= 0) {
+            return;
+        }
+        entry = -entry - 1;
+        if ((entry > 0 && m_dates[entry - 1] > date) || (entry < m_size && m_dates[entry] < date)) {
+            m_timeOrdered = false;
+        }
+        if (m_size == m_offsets.length) {
+            m_offsets = Arrays.copyOf(m_offsets, m_size * 2);
+            m_dates = Arrays.copyOf(m_dates, m_size * 2);
+        }
+        System.arraycopy(m_offsets, entry, m_offsets, entry + 1, m_size - entry);
+        System.arraycopy(m_dates, entry, m_dates, entry + 1, m_size - entry);
+        m_offsets[entry] = offset;
+        m_dates[entry] = date;
+        m_size++;
+    }
+
+    /**
+     * Read the lines from the line start until the first transaction line not older than the date.
+     * @param from line start offset
+     * @param limit lines starting at or after the limit are not read
+     * @return start of the found line (its date is stored in m_foundDate) or the limit if there is none
+     */
+    private long scan(FileChannel channel, long from, long limit, long date) throws IOException {
+        long size = channel.size();
+        long previousDate = Long.MIN_VALUE;
+        long position = from;
+        int readSize = date == Long.MIN_VALUE ? SAMPLE_SIZE : SCAN_SIZE;
+        while (position < limit) {
+            if (readSize > m_buffer.length) {
+                m_buffer = new byte[readSize];
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(m_buffer, 0, readSize);
+            while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+                // fill the whole buffer unless the end of file is reached
+            }
+            int count = buffer.position();
+            if (count == 0) {
+                return limit;
+            }
+            m_bytesRead += count;
+            boolean endOfFile = position + count >= size;
+            int lineStart = 0;
+            for (int i = 0; i <= count; i++) {
+                if (i < count ? m_buffer[i] != '\n' && m_buffer[i] != '\r' : !endOfFile || i == lineStart) {
+                    continue;
+                }
+                if (position + lineStart >= limit) {
+                    return limit;
+                }
+                long lineDate = parseDate(lineStart, i);
+                if (lineDate != Long.MIN_VALUE) {
+                    if (lineDate < previousDate) {
+                        m_timeOrdered = false;
+                    }
+                    previousDate = lineDate;
+                    if (lineDate >= date) {
+                        m_foundDate = lineDate;
+                        return position + lineStart;
+                    }
+                }
+                if (i + 1 < count && m_buffer[i] == '\r' && m_buffer[i + 1] == '\n') {
+                    i++;
+                }
+                lineStart = i + 1;
+            }
+            if (endOfFile) {
+                return limit;
+            }
+            if (lineStart == 0) {
+                readSize *= 2; // line longer than the read size
+            }
+            position += lineStart;
+        }
+        return limit;
+    }
+
+    /**
+     * @return date of the transaction line or Long.MIN_VALUE if the line is not a transaction
+     */
+    private long parseDate(int from, int to) {
+        try {
+            return m_parser.parse(m_buffer, from, to) ? m_parser.getDate() : Long.MIN_VALUE;
+        } catch (IllegalArgumentException e) {
+            return Long.MIN_VALUE; // unknown transaction type
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter, safe for concurrent updates.
+ */
+public class Counter {
+
+    private final String    m_name;
+    private final String    m_help;
+    private final LongAdder m_value = new LongAdder();
+
+    public Counter(String name, String help) {
+        this.m_name = name;
+        this.m_help = help;
+    }
+
+    public void increment() {
+        m_value.increment();
+    }
+
+    public void add(long value) {
+        m_value.add(value);
+    }
+
+    public long get() {
+        return m_value.sum();
+    }
+
+    void reset() {
+        m_value.reset();
+    }
+
+    public String getName() {
+        return m_name;
+    }
+
+    public String getHelp() {
+        return m_help;
+    }
+}
@@ -0,0 +1,130 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram in the style of HdrHistogram - log-linear buckets, every power of two range of values
+ * is divided into 32 sub-buckets, so the recorded values are kept with ~3% relative precision over the whole
+ * range of long with a fixed array of counts. Recording is a few arithmetic operations and an atomic increment,
+ * safe for concurrent updates.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 - SUB_BUCKET_BITS;
+
+    private final String          m_name;
+    private final String          m_help;
+    private final AtomicLongArray m_counts = new AtomicLongArray(BUCKETS * SUB_BUCKETS);
+    private final LongAdder       m_count = new LongAdder();
+    private final LongAdder       m_sum = new LongAdder();
+    private final AtomicLong      m_max = new AtomicLong();
+
+    public LatencyHistogram(String name, String help) {
+        this.m_name = name;
+        this.m_help = help;
+    }
+
+    /**
+     * Record the value (e.g. latency in nanoseconds), negative values are recorded as 0.
+     * @param value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        m_counts.incrementAndGet(index(value));
+        m_count.increment();
+        m_sum.add(value);
+        long max = m_max.get();
+        while (value > max && !m_max.compareAndSet(max, value)) {
+            max = m_max.get();
+        }
+    }
+
+    /**
+     * Record the nanoseconds elapsed since the start.
+     * @param startNanos System.nanoTime() at the start of the measured operation
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);   // >= SUB_BUCKET_BITS
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @return the highest value recorded into the same bucket as the values of the index
+     */
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    public long getCount() {
+        return m_count.sum();
+    }
+
+    public long getSum() {
+        return m_sum.sum();
+    }
+
+    public long getMax() {
+        return m_max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count > 0 ? (double) getSum() / count : 0.0d;
+    }
+
+    /**
+     * @param quantile 0..1, e.g. 0.99
+     * @return the value below or at which the quantile of the recorded values lies (within the bucket precision)
+     */
+    public long getValueAtQuantile(double quantile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < m_counts.length(); i++) {
+            seen += m_counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    void reset() {
+        for (int i = 0; i < m_counts.length(); i++) {
+            m_counts.set(i, 0L);
+        }
+        m_count.reset();
+        m_sum.reset();
+        m_max.set(0L);
+    }
+
+    public String getName() {
+        return m_name;
+    }
+
+    public String getHelp() {
+        return m_help;
+    }
+}
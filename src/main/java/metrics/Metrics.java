@@ -0,0 +1,107 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Built-in instrumentation of the processing stages. The instruments are updated at batch granularity
+ * (per loaded input, parsed chunk, indexed segment, analysis) and failure paths, never per successfully
+ * processed row. Instrumentation is disabled by default, the call sites then only test the enabled flag:
+ * <pre>
+ *   long start = Metrics.enabled ? System.nanoTime() : 0L;
+ *   ...
+ *   if (Metrics.enabled) {
+ *       Metrics.ANALYZE_LATENCY.recordSince(start);
+ *   }
+ * </pre>
+ */
+public final class Metrics {
+
+    /** instrumentation switch, set before the processing starts */
+    public static volatile boolean enabled = false;
+
+    public static final Counter ROWS_LOADED = new Counter("rows_loaded",
+            "Transactions loaded from the input.");
+    public static final Counter BYTES_READ = new Counter("bytes_read",
+            "Bytes of input read by the loads.");
+    public static final Counter PARSE_FAILURES = new Counter("parse_failures",
+            "Input lines rejected by the parser (too few fields, invalid transaction type).");
+    public static final Counter UNRESOLVED_REVERSALS = new Counter("unresolved_reversals",
+            "Reversals of transaction IDs not found in the ID index.");
+    public static final Counter ROWS_ANALYZED = new Counter("rows_analyzed",
+            "Rows in the ranges of the analyses.");
+    public static final Counter CACHE_HITS = new Counter("cache_hits",
+            "Analyses answered from the result cache.");
+    public static final Counter CACHE_MISSES = new Counter("cache_misses",
+            "Analyses not found in the result cache.");
+    public static final Counter CACHE_EVICTIONS = new Counter("cache_evictions",
+            "Results evicted from the full result cache (least recently used first).");
+    public static final Counter CACHE_INVALIDATIONS = new Counter("cache_invalidations",
+            "Cached results removed because transactions were added to or reversed in their range.");
+
+    public static final LatencyHistogram LOAD_LATENCY = new LatencyHistogram("load_latency_nanoseconds",
+            "Duration of the whole input load (I/O, parsing and indexing).");
+    public static final LatencyHistogram PARSE_LATENCY = new LatencyHistogram("parse_latency_nanoseconds",
+            "Duration of parsing of one chunk of the input.");
+    public static final LatencyHistogram INDEX_LATENCY = new LatencyHistogram("index_latency_nanoseconds",
+            "Duration of adding one parsed segment to the analyzer (ID index, reversals).");
+    public static final LatencyHistogram ANALYZE_LATENCY = new LatencyHistogram("analyze_latency_nanoseconds",
+            "Duration of one analysis (range search and aggregation).");
+
+    private static final List<Counter> COUNTERS = Collections.unmodifiableList(Arrays.asList(
+            ROWS_LOADED, BYTES_READ, PARSE_FAILURES, UNRESOLVED_REVERSALS, ROWS_ANALYZED,
+            CACHE_HITS, CACHE_MISSES, CACHE_EVICTIONS, CACHE_INVALIDATIONS));
+    private static final List<LatencyHistogram> HISTOGRAMS = Collections.unmodifiableList(Arrays.asList(
+            LOAD_LATENCY, PARSE_LATENCY, INDEX_LATENCY, ANALYZE_LATENCY));
+
+    private Metrics() {
+    }
+
+    public static List<Counter> getCounters() {
+        return COUNTERS;
+    }
+
+    public static List<LatencyHistogram> getHistograms() {
+        return HISTOGRAMS;
+    }
+
+    /**
+     * @return rows loaded per second of the load duration
+     */
+    public static double getRowsPerSecond() {
+        return perSecond(ROWS_LOADED.get(), LOAD_LATENCY.getSum());
+    }
+
+    /**
+     * @return bytes read per second of the load duration
+     */
+    public static double getBytesPerSecond() {
+        return perSecond(BYTES_READ.get(), LOAD_LATENCY.getSum());
+    }
+
+    /**
+     * @return heap in use (after the last collection as far as the JVM reports it) per loaded row
+     */
+    public static double getHeapBytesPerRow() {
+        long rows = ROWS_LOADED.get();
+        return rows > 0 ? (double) getHeapUsedBytes() / rows : 0.0d;
+    }
+
+    public static long getHeapUsedBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double perSecond(long value, long nanos) {
+        return nanos > 0 ? value * 1e9d / nanos : 0.0d;
+    }
+
+    /**
+     * Zero all instruments (e.g. between tests).
+     */
+    public static void reset() {
+        COUNTERS.forEach(Counter::reset);
+        HISTOGRAMS.forEach(LatencyHistogram::reset);
+    }
+}
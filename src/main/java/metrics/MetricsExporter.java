@@ -0,0 +1,79 @@
+package metrics;
+
+import java.util.Locale;
+
+/**
+ * Renders the current values of the instruments as JSON report or in the Prometheus text exposition format.
+ */
+public final class MetricsExporter {
+
+    private static final double[] QUANTILES = {0.5d, 0.9d, 0.99d, 0.999d};
+    private static final String[] QUANTILE_KEYS = {"p50", "p90", "p99", "p999"};
+    private static final String   PREFIX = "transaction_analyzer_";
+
+    private MetricsExporter() {
+    }
+
+    public static String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        for (Counter counter : Metrics.getCounters()) {
+            json.append("  \"").append(counter.getName()).append("\": ").append(counter.get()).append(",\n");
+        }
+        json.append("  \"rows_per_second\": ").append(format(Metrics.getRowsPerSecond())).append(",\n");
+        json.append("  \"bytes_per_second\": ").append(format(Metrics.getBytesPerSecond())).append(",\n");
+        json.append("  \"heap_used_bytes\": ").append(Metrics.getHeapUsedBytes()).append(",\n");
+        json.append("  \"heap_bytes_per_row\": ").append(format(Metrics.getHeapBytesPerRow())).append(",\n");
+        json.append("  \"latencies\": {");
+        String separator = "\n";
+        for (LatencyHistogram histogram : Metrics.getHistograms()) {
+            json.append(separator).append("    \"").append(histogram.getName()).append("\": {")
+                    .append("\"count\": ").append(histogram.getCount())
+                    .append(", \"mean\": ").append(format(histogram.getMean()));
+            for (int i = 0; i < QUANTILES.length; i++) {
+                json.append(", \"").append(QUANTILE_KEYS[i]).append("\": ")
+                        .append(histogram.getValueAtQuantile(QUANTILES[i]));
+            }
+            json.append(", \"max\": ").append(histogram.getMax()).append('}');
+            separator = ",\n";
+        }
+        return json.append("\n  }\n}\n").toString();
+    }
+
+    public static String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        for (Counter counter : Metrics.getCounters()) {
+            String name = PREFIX + counter.getName() + "_total";
+            header(text, name, counter.getHelp(), "counter");
+            text.append(name).append(' ').append(counter.get()).append('\n');
+        }
+        gauge(text, "rows_per_second", "Rows loaded per second of load duration.", Metrics.getRowsPerSecond());
+        gauge(text, "bytes_per_second", "Bytes read per second of load duration.", Metrics.getBytesPerSecond());
+        gauge(text, "heap_used_bytes", "Heap in use.", Metrics.getHeapUsedBytes());
+        gauge(text, "heap_bytes_per_row", "Heap in use per loaded row.", Metrics.getHeapBytesPerRow());
+        for (LatencyHistogram histogram : Metrics.getHistograms()) {
+            String name = PREFIX + histogram.getName();
+            header(text, name, histogram.getHelp(), "summary");
+            for (double quantile : QUANTILES) {
+                text.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(histogram.getValueAtQuantile(quantile)).append('\n');
+            }
+            text.append(name).append("_sum ").append(histogram.getSum()).append('\n');
+            text.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void gauge(StringBuilder text, String name, String help, double value) {
+        header(text, PREFIX + name, help, "gauge");
+        text.append(PREFIX).append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static void header(StringBuilder text, String name, String help, String type) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+}
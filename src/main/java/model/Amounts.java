@@ -0,0 +1,115 @@
+package model;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Fixed-point money arithmetic - amounts are kept as long number of minor units (hundredths, i.e. cents), so sums
+ * are exact integers and only overflow (beyond 92 quadrillion in major units) has to be guarded. Conversions from
+ * double and divisions round half away from zero (HALF_UP, same as the "%.2f" formatting did). Formatting matches
+ * String.format("%,.2f") in the default locale without the Formatter overhead.
+ */
+public final class Amounts {
+
+    public static final int  SCALE_DIGITS = 2;
+    public static final long SCALE = 100L;
+
+    private static final Locale LOCALE = Locale.getDefault(Locale.Category.FORMAT);
+    private static final char   ZERO_DIGIT;
+    private static final char   DECIMAL_SEPARATOR;
+    private static final char   GROUPING_SEPARATOR;
+    private static final int    GROUPING_SIZE;
+
+    static {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(LOCALE);
+        ZERO_DIGIT = symbols.getZeroDigit();
+        DECIMAL_SEPARATOR = symbols.getDecimalSeparator();
+        GROUPING_SEPARATOR = symbols.getGroupingSeparator();
+        NumberFormat format = NumberFormat.getIntegerInstance(LOCALE);
+        GROUPING_SIZE = format instanceof DecimalFormat && ((DecimalFormat) format).getGroupingSize() > 0
+                ? ((DecimalFormat) format).getGroupingSize() : 3;
+    }
+
+    private Amounts() {
+    }
+
+    /**
+     * @param amount amount in major units, NaN converts to 0, out of range values saturate
+     * @return amount in minor units, rounded half away from zero
+     */
+    public static long toMinorUnits(double amount) {
+        double scaled = amount * SCALE;
+        return (long) (scaled < 0 ? scaled - 0.5d : scaled + 0.5d);
+    }
+
+    /**
+     * @param minorUnits
+     * @return the nearest double to the amount in major units
+     */
+    public static double toDouble(long minorUnits) {
+        return minorUnits / (double) SCALE;
+    }
+
+    /**
+     * Exact quotient of the amount and count rounded half away from zero, e.g. the average of count amounts.
+     * @param minorUnits
+     * @param count positive divisor
+     * @return
+     */
+    public static long divide(long minorUnits, long count) {
+        long quotient = minorUnits / count;
+        long remainder = minorUnits % count;
+        if (Math.abs(remainder) >= count - Math.abs(remainder)) {
+            quotient += minorUnits < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    /**
+     * @param minorUnits
+     * @return the amount formatted like String.format("%,.2f") of the amount in major units
+     */
+    public static String format(long minorUnits) {
+        return append(new StringBuilder(24), minorUnits).toString();
+    }
+
+    /**
+     * Append the amount formatted like String.format("%,.2f") of the amount in major units.
+     * @param text
+     * @param minorUnits
+     * @return the text
+     */
+    public static StringBuilder append(StringBuilder text, long minorUnits) {
+        // digits are produced from the non-positive value, so Long.MIN_VALUE needs no special case
+        long negated = minorUnits > 0 ? -minorUnits : minorUnits;
+        long major = negated / SCALE;
+        int minor = (int) -(negated % SCALE);
+        if (minorUnits < 0) {
+            text.append('-');
+        }
+        int start = text.length();
+        int digits = 0;
+        do {
+            if (digits > 0 && digits % GROUPING_SIZE == 0) {
+                text.append(GROUPING_SEPARATOR);
+            }
+            text.append((char) (ZERO_DIGIT - (major % 10)));
+            major /= 10;
+            digits++;
+        } while (major != 0);
+        reverse(text, start, text.length() - 1);
+        return text.append(DECIMAL_SEPARATOR)
+                .append((char) (ZERO_DIGIT + minor / 10))
+                .append((char) (ZERO_DIGIT + minor % 10));
+    }
+
+    private static void reverse(StringBuilder text, int from, int to) {
+        for (; from < to; from++, to--) {
+            char c = text.charAt(from);
+            text.setCharAt(from, text.charAt(to));
+            text.setCharAt(to, c);
+        }
+    }
+}
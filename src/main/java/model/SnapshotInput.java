@@ -0,0 +1,193 @@
+package model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the binary snapshot file written by SnapshotOutput. The file is memory-mapped (in windows, so snapshots
+ * larger than 2GB are supported) and the arrays are copied in bulk from the mapped pages.
+ * Layout: 32 bytes header - int magic "TXSN", int format version, long body length, long CRC32 of the body,
+ * 8 reserved bytes - followed by the body. The header is validated and the checksum verified when opened.
+ */
+public class SnapshotInput implements Closeable {
+
+    public static final long DEFAULT_MAP_SIZE = 1L << 30;
+
+    private FileChannel      m_channel;
+    private long             m_mapSize;
+    private long             m_end;
+    private long             m_windowStart;
+    private MappedByteBuffer m_window;
+
+    public SnapshotInput(File file) throws IOException {
+        this(file, DEFAULT_MAP_SIZE);
+    }
+
+    /**
+     * @param file
+     * @param mapSize size of the mapped windows (at least 8 bytes)
+     * @throws IOException if the file is not a snapshot, has unsupported version or the checksum does not match
+     */
+    public SnapshotInput(File file, long mapSize) throws IOException {
+        this.m_channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.m_mapSize = mapSize;
+        try {
+            ByteBuffer header = readHeader(m_channel);
+            if (header == null || header.getInt() != SnapshotOutput.MAGIC) {
+                throw new IOException(file + " is not a transaction snapshot");
+            }
+            int version = header.getInt();
+            if (version != SnapshotOutput.VERSION) {
+                throw new IOException("unsupported snapshot version " + version + ", expected "
+                        + SnapshotOutput.VERSION);
+            }
+            long bodyLength = header.getLong();
+            long checksum = header.getLong();
+            m_end = SnapshotOutput.HEADER_SIZE + bodyLength;
+            if (m_channel.size() != m_end) {
+                throw new IOException("snapshot " + file + " is truncated");
+            }
+            if (checksum() != checksum) {
+                throw new IOException("snapshot " + file + " is corrupted, checksum does not match");
+            }
+            map(SnapshotOutput.HEADER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            m_channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param file
+     * @return true if the file starts with the snapshot magic number
+     * @throws IOException
+     */
+    public static boolean isSnapshot(File file) throws IOException {
+        if (!file.isFile()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            return header != null && header.getInt() == SnapshotOutput.MAGIC;
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SnapshotOutput.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                return null;
+            }
+        }
+        header.flip();
+        return header;
+    }
+
+    private long checksum() throws IOException {
+        CRC32 checksum = new CRC32();
+        for (long position = SnapshotOutput.HEADER_SIZE; position < m_end; position += m_mapSize) {
+            checksum.update(m_channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(m_mapSize, m_end - position)));
+        }
+        return checksum.getValue();
+    }
+
+    private void map(long position) throws IOException {
+        m_windowStart = position;
+        m_window = m_channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(m_mapSize, m_end - position));
+        m_window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Make sure the window holds the next value of the given size, remaps the window at the current position.
+     */
+    private void ensureRemaining(int bytes) throws IOException {
+        if (m_window.remaining() < bytes) {
+            long position = m_windowStart + m_window.position();
+            if (m_end - position < bytes) {
+                throw new IOException("unexpected end of snapshot");
+            }
+            map(position);
+        }
+    }
+
+    public byte readByte() throws IOException {
+        ensureRemaining(1);
+        return m_window.get();
+    }
+
+    public int readInt() throws IOException {
+        ensureRemaining(4);
+        return m_window.getInt();
+    }
+
+    public long readLong() throws IOException {
+        ensureRemaining(8);
+        return m_window.getLong();
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * @param values array filled from the start
+     * @param count number of values to read
+     * @throws IOException
+     */
+    public void readLongs(long[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensureRemaining(8);
+            int chunk = Math.min(count - offset, m_window.remaining() >> 3);
+            m_window.asLongBuffer().get(values, offset, chunk);
+            m_window.position(m_window.position() + (chunk << 3));
+            offset += chunk;
+        }
+    }
+
+    public void readInts(int[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensureRemaining(4);
+            int chunk = Math.min(count - offset, m_window.remaining() >> 2);
+            m_window.asIntBuffer().get(values, offset, chunk);
+            m_window.position(m_window.position() + (chunk << 2));
+            offset += chunk;
+        }
+    }
+
+    public void readBytes(byte[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensureRemaining(1);
+            int chunk = Math.min(count - offset, m_window.remaining());
+            m_window.get(values, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * @return the string written by SnapshotOutput.writeString()
+     * @throws IOException
+     */
+    public String readString() throws IOException {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        readBytes(bytes, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        m_window = null;
+        m_channel.close();
+    }
+}
@@ -0,0 +1,138 @@
+package model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Writes the binary snapshot file (see SnapshotInput) - the header followed by the body of little-endian
+ * primitive values and arrays written by the components of the snapshot. Arrays are written in bulk through
+ * a direct buffer, the CRC32 of the body is computed on the way and stored in the header by close().
+ */
+public class SnapshotOutput implements Closeable {
+
+    public static final int  MAGIC = 0x4E535854; // "TXSN"
+    public static final int  VERSION = 1;
+    public static final int  HEADER_SIZE = 32;   // magic, version, body length, body CRC32, 8 reserved bytes
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private FileChannel m_channel;
+    private ByteBuffer  m_buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private CRC32       m_checksum = new CRC32();
+    private long        m_bodyLength = 0;
+
+    public SnapshotOutput(File file) throws IOException {
+        this.m_channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        m_channel.position(HEADER_SIZE);
+    }
+
+    public void writeByte(int value) throws IOException {
+        ensureRemaining(1);
+        m_buffer.put((byte) value);
+    }
+
+    public void writeInt(int value) throws IOException {
+        ensureRemaining(4);
+        m_buffer.putInt(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        ensureRemaining(8);
+        m_buffer.putLong(value);
+    }
+
+    public void writeDouble(double value) throws IOException {
+        writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * @param values
+     * @param count number of values written from the start of the array
+     * @throws IOException
+     */
+    public void writeLongs(long[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensureRemaining(8);
+            int chunk = Math.min(count - offset, m_buffer.remaining() >> 3);
+            m_buffer.asLongBuffer().put(values, offset, chunk);
+            m_buffer.position(m_buffer.position() + (chunk << 3));
+            offset += chunk;
+        }
+    }
+
+    public void writeInts(int[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensureRemaining(4);
+            int chunk = Math.min(count - offset, m_buffer.remaining() >> 2);
+            m_buffer.asIntBuffer().put(values, offset, chunk);
+            m_buffer.position(m_buffer.position() + (chunk << 2));
+            offset += chunk;
+        }
+    }
+
+    public void writeBytes(byte[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensureRemaining(1);
+            int chunk = Math.min(count - offset, m_buffer.remaining());
+            m_buffer.put(values, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Write the string as length prefixed UTF-8 bytes, null is written as length -1.
+     * @param value
+     * @throws IOException
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        writeBytes(bytes, bytes.length);
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (m_buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        m_buffer.flip();
+        m_bodyLength += m_buffer.remaining();
+        m_checksum.update(m_buffer.duplicate());
+        while (m_buffer.hasRemaining()) {
+            m_channel.write(m_buffer);
+        }
+        m_buffer.clear();
+    }
+
+    /**
+     * Flush the body and write the header.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(m_bodyLength).putLong(m_checksum.getValue()).putLong(0L);
+            header.flip();
+            while (header.hasRemaining()) {
+                m_channel.write(header, header.position());
+            }
+        } finally {
+            m_channel.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary encoding of repeating string values (e.g. merchant names).
+ * Each distinct value is stored once and represented by a dense int code (0, 1, 2, ...) in the data set columns,
+ * the code can be used directly as an index into primitive arrays.
+ * Values can be interned also directly from the (UTF-8 encoded) input bytes, the lookup then hashes and compares
+ * the bytes in an open addressing table and a String is created only for a value not seen before.
+ * A single thread may intern the values while other threads read them (get, codeOf, size) - the value array
+ * is replaced (not modified) when grown, so a code read from a published row always finds its value.
+ */
+public class StringDictionary {
+
+    private static final int INITIAL_TABLE_SIZE = 64; // power of 2
+
+    private Map<String, Integer> m_codes  = new ConcurrentHashMap<>();
+    private volatile String[]    m_values = new String[16];
+    private volatile int         m_size   = 0;
+    // code of the null value (not allowed as a key of the concurrent map), -1 = not interned
+    private volatile int         m_nullCode = -1;
+    // open addressing table of (code + 1) keyed by the UTF-8 bytes of the value, 0 = empty slot
+    private int[]                m_byteTable = new int[INITIAL_TABLE_SIZE];
+    private byte[][]             m_byteKeys  = new byte[INITIAL_TABLE_SIZE][];
+    private int                  m_byteKeyCount = 0;
+
+    /**
+     * Return the code of the value, adding the value to the dictionary if it is not there yet.
+     * @param value
+     * @return
+     */
+    public int intern(String value) {
+        Integer code = value != null ? m_codes.get(value) : (m_nullCode >= 0 ? Integer.valueOf(m_nullCode) : null);
+        if (code == null) {
+            code = m_size;
+            String[] values = m_values;
+            if (code == values.length) {
+                values = Arrays.copyOf(values, code * 2);
+                values[code] = value;
+                m_values = values;
+            } else {
+                values[code] = value;
+            }
+            m_size = code + 1;
+            if (value != null) {
+                m_codes.put(value, code);
+            } else {
+                m_nullCode = code;
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Return the code of the value stored as UTF-8 bytes in buffer between from (inclusive) and to (exclusive),
+     * adding the value to the dictionary if it is not there yet.
+     * @param buffer
+     * @param from
+     * @param to
+     * @return
+     */
+    public int intern(byte[] buffer, int from, int to) {
+        int hash = hash(buffer, from, to);
+        int mask = m_byteTable.length - 1;
+        int slot = hash & mask;
+        while (m_byteTable[slot] != 0) {
+            byte[] key = m_byteKeys[slot];
+            if (key.length == to - from && equals(key, buffer, from)) {
+                return m_byteTable[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int code = intern(new String(buffer, from, to - from, StandardCharsets.UTF_8));
+        m_byteTable[slot] = code + 1;
+        m_byteKeys[slot] = Arrays.copyOfRange(buffer, from, to);
+        if (++m_byteKeyCount * 2 > m_byteTable.length) {
+            rehash();
+        }
+        return code;
+    }
+
+    private static int hash(byte[] buffer, int from, int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(byte[] key, byte[] buffer, int from) {
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buffer[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        int[] table = m_byteTable;
+        byte[][] keys = m_byteKeys;
+        m_byteTable = new int[table.length * 2];
+        m_byteKeys = new byte[table.length * 2][];
+        int mask = m_byteTable.length - 1;
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] != 0) {
+                int slot = hash(keys[i], 0, keys[i].length) & mask;
+                while (m_byteTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                m_byteTable[slot] = table[i];
+                m_byteKeys[slot] = keys[i];
+            }
+        }
+    }
+
+    /**
+     * Return the code of the value or -1 if the value is not in the dictionary.
+     * @param value
+     * @return
+     */
+    public int codeOf(String value) {
+        if (value == null) {
+            return m_nullCode;
+        }
+        Integer code = m_codes.get(value);
+        return code != null ? code : -1;
+    }
+
+    /**
+     * Return the value represented by the code.
+     * @param code
+     * @return
+     */
+    public String get(int code) {
+        if (code >= m_size) {
+            throw new IndexOutOfBoundsException("Code: " + code + ", Size: " + m_size);
+        }
+        return m_values[code];
+    }
+
+    /**
+     * Number of distinct values in the dictionary.
+     * @return
+     */
+    public int size() {
+        return m_size;
+    }
+}
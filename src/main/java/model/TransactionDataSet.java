@@ -0,0 +1,633 @@
+package model;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Columnar storage of the transaction data set.
+ * Rather than keeping one TransactionRecord object per row, each attribute is kept in its own primitive array
+ * (column), merchant names are dictionary-encoded.
+ * This keeps the per-row footprint small, avoids GC pressure and allows the analyzer functions to scan
+ * the columns directly. TransactionRecord instances are materialized only on request.
+ * Transaction IDs are packed into longs (TransactionIds), the few IDs which can not be packed are kept
+ * in a side list and the ID column holds their index with the sign bit set.
+ * Amounts are kept as fixed-point minor units (Amounts), so the functions sum them exactly.
+ * <p>
+ * A single writer may append rows while other threads read snapshot()s. The columns are grown by copying, so the
+ * rows of an array never change once published - publish() releases the rows added so far (ordered write of
+ * the size), a snapshot acquires the published size and then the current column arrays, which contain at least
+ * those rows. Reversed flags are kept as the row number (+ 1) of the reversal, a snapshot treats a row
+ * as reversed only if the reversal is within the snapshot - every snapshot is consistent without locking.
+ */
+public class TransactionDataSet {
+
+    private static final int               INITIAL_CAPACITY = 1024;
+    private static final TransactionRecord.TransactionType[] TYPES = TransactionRecord.TransactionType.values();
+    private static final byte              PAYMENT = (byte) TransactionRecord.TransactionType.PAYMENT.ordinal();
+    // eligible mask element of the non-reversed payments, all bits set
+    private static final byte              ELIGIBLE = -1;
+    // snapshot encoding of the amounts - fixed-point minor units, double bits only in the snapshots of older versions
+    private static final byte              AMOUNTS_FIXED_POINT = 1;
+    private static final byte              AMOUNTS_DOUBLE = 2;
+
+    private static final AtomicIntegerFieldUpdater<TransactionDataSet> PUBLISHED_SIZE =
+            AtomicIntegerFieldUpdater.newUpdater(TransactionDataSet.class, "m_publishedSize");
+
+    // the columns are allocated by the constructors, snapshots share the arrays of the data set
+    private int              m_size;
+    private long[]           m_ids;
+    // IDs which can not be packed, read by the snapshots too - replaced (not modified) when grown
+    private volatile String[] m_unpackedIds;
+    private int              m_unpackedIdCount;
+    private long[]           m_dates;
+    private long[]           m_amounts;
+    private int[]            m_merchants;
+    private byte[]           m_types;
+    private String[]         m_relatedTransactions;
+    // row of the reversal + 1 (at most the size when reversed), 0 = not reversed
+    private int[]            m_reversedBy;
+    // -1 for the non-reversed payments, 0 for the other rows, null in the snapshots (see getEligibleColumn())
+    private byte[]           m_eligible;
+    // bits of the amount magnitudes (|amount| - 1 for negative amounts) or-ed together, bounds the amounts
+    private long             m_amountMagnitude;
+    private StringDictionary m_merchantDictionary;
+    private boolean          m_timeOrdered = true;
+    private boolean          m_readOnly;
+    // state read by the concurrent snapshots - number of released rows and the current column arrays
+    private volatile int     m_publishedSize;
+    private volatile Columns m_columns;
+
+    public TransactionDataSet() {
+        m_ids = new long[INITIAL_CAPACITY];
+        m_unpackedIds = new String[0];
+        m_dates = new long[INITIAL_CAPACITY];
+        m_amounts = new long[INITIAL_CAPACITY];
+        m_merchants = new int[INITIAL_CAPACITY];
+        m_types = new byte[INITIAL_CAPACITY];
+        m_relatedTransactions = new String[INITIAL_CAPACITY];
+        m_reversedBy = new int[INITIAL_CAPACITY];
+        m_eligible = new byte[INITIAL_CAPACITY];
+        m_merchantDictionary = new StringDictionary();
+        m_columns = new Columns(this);
+    }
+
+    /**
+     * Read-only snapshot sharing the column arrays.
+     */
+    private TransactionDataSet(TransactionDataSet dataSet, Columns columns, int size) {
+        m_size = size;
+        m_ids = columns.ids;
+        m_dates = columns.dates;
+        m_amounts = columns.amounts;
+        m_merchants = columns.merchants;
+        m_types = columns.types;
+        m_relatedTransactions = columns.relatedTransactions;
+        m_reversedBy = columns.reversedBy;
+        m_unpackedIds = dataSet.m_unpackedIds;
+        while (m_unpackedIdCount < m_unpackedIds.length && m_unpackedIds[m_unpackedIdCount] != null) {
+            m_unpackedIdCount++;
+        }
+        m_merchantDictionary = dataSet.m_merchantDictionary;
+        // a stale true can't be read, the flag is cleared before the out of order row is published
+        m_timeOrdered = dataSet.m_timeOrdered;
+        // may include the later rows, still a bound
+        m_amountMagnitude = dataSet.m_amountMagnitude;
+        m_readOnly = true;
+        m_publishedSize = size;
+        m_columns = columns;
+    }
+
+    /**
+     * Append the transaction to the data set.
+     * @param record
+     * @return row index of the added transaction
+     */
+    public int add(TransactionRecord record) {
+        checkWritable();
+        int row = m_size;
+        if (row == m_dates.length) {
+            grow();
+        }
+        if (row > 0 && record.getDate() < m_dates[row - 1]) {
+            m_timeOrdered = false;
+        }
+        m_ids[row]       = packId(record.getId());
+        m_dates[row]     = record.getDate();
+        m_amounts[row]   = Amounts.toMinorUnits(record.getAmount());
+        m_amountMagnitude |= magnitude(m_amounts[row]);
+        m_merchants[row] = m_merchantDictionary.intern(record.getMerchant());
+        m_types[row]     = (byte) record.getType().ordinal();
+        m_relatedTransactions[row] = record.getRelatedTransaction();
+        m_reversedBy[row] = record.isReversed() ? row + 1 : 0;
+        m_eligible[row]  = m_types[row] == PAYMENT && !record.isReversed() ? ELIGIBLE : 0;
+        m_size++;
+        return row;
+    }
+
+    /**
+     * Append the transaction parsed by the parser to the data set. Merchant is interned directly from the parsed bytes.
+     * @param parser parser holding the last accepted line
+     * @return row index of the added transaction
+     */
+    public int add(TransactionParser parser) {
+        checkWritable();
+        int row = m_size;
+        if (row == m_dates.length) {
+            grow();
+        }
+        long date = parser.getDate();
+        if (row > 0 && date < m_dates[row - 1]) {
+            m_timeOrdered = false;
+        }
+        long id = parser.getPackedId();
+        m_ids[row]       = id != TransactionIds.NOT_PACKED ? id : packId(parser.getId());
+        m_dates[row]     = date;
+        m_amounts[row]   = parser.getAmountMinorUnits();
+        m_amountMagnitude |= magnitude(m_amounts[row]);
+        m_merchants[row] = parser.internMerchant(m_merchantDictionary);
+        m_types[row]     = (byte) parser.getType().ordinal();
+        m_relatedTransactions[row] = parser.getRelatedTransaction();
+        m_reversedBy[row] = 0;
+        m_eligible[row]  = m_types[row] == PAYMENT ? ELIGIBLE : 0;
+        m_size++;
+        return row;
+    }
+
+    /**
+     * Append all rows of the other data set (e.g. a segment loaded in parallel), merchant codes are translated
+     * to this data set dictionary.
+     * @param other
+     * @return row index of the first appended row
+     */
+    public int addAll(TransactionDataSet other) {
+        return addAll(other, 0, other.m_size);
+    }
+
+    /**
+     * Append the rows [fromRow, toRow) of the other data set (e.g. a run of a merged segment), merchant codes are
+     * translated to this data set dictionary.
+     * @param other
+     * @param fromRow first row (inclusive)
+     * @param toRow last row (exclusive)
+     * @return row index of the first appended row
+     */
+    public int addAll(TransactionDataSet other, int fromRow, int toRow) {
+        checkWritable();
+        int first = m_size;
+        int count = toRow - fromRow;
+        if (count <= 0) {
+            return first;
+        }
+        ensureCapacity(first + count);
+        if ((!other.m_timeOrdered && !other.isTimeOrdered(fromRow, toRow))
+                || (first > 0 && other.m_dates[fromRow] < m_dates[first - 1])) {
+            m_timeOrdered = false;
+        }
+        System.arraycopy(other.m_ids, fromRow, m_ids, first, count);
+        if (other.m_unpackedIdCount > 0) {
+            for (int row = first; row < first + count; row++) {
+                if (m_ids[row] < 0) {
+                    m_ids[row] = packId(other.m_unpackedIds[(int) m_ids[row]]);
+                }
+            }
+        }
+        System.arraycopy(other.m_dates, fromRow, m_dates, first, count);
+        System.arraycopy(other.m_amounts, fromRow, m_amounts, first, count);
+        m_amountMagnitude |= other.m_amountMagnitude;
+        System.arraycopy(other.m_types, fromRow, m_types, first, count);
+        System.arraycopy(other.m_relatedTransactions, fromRow, m_relatedTransactions, first, count);
+        StringDictionary otherDictionary = other.m_merchantDictionary;
+        if (count >= otherDictionary.size()) {
+            int[] merchantCodes = new int[otherDictionary.size()];
+            for (int code = 0; code < merchantCodes.length; code++) {
+                merchantCodes[code] = m_merchantDictionary.intern(otherDictionary.get(code));
+            }
+            for (int row = 0; row < count; row++) {
+                m_merchants[first + row] = merchantCodes[other.m_merchants[fromRow + row]];
+            }
+        } else {
+            // short run, translating the whole dictionary would cost more than the rows
+            for (int row = 0; row < count; row++) {
+                m_merchants[first + row] = m_merchantDictionary.intern(otherDictionary.get(other.m_merchants[fromRow + row]));
+            }
+        }
+        for (int row = 0; row < count; row++) {
+            boolean reversed = other.isReversed(fromRow + row);
+            m_reversedBy[first + row] = reversed ? first + row + 1 : 0;
+            m_eligible[first + row] = m_types[first + row] == PAYMENT && !reversed ? ELIGIBLE : 0;
+        }
+        m_size += count;
+        return first;
+    }
+
+    private boolean isTimeOrdered(int fromRow, int toRow) {
+        for (int row = fromRow + 1; row < toRow; row++) {
+            if (m_dates[row] < m_dates[row - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param id
+     * @return packed ID or index into m_unpackedIds with the sign bit set
+     */
+    private long packId(String id) {
+        long packed = TransactionIds.pack(id);
+        if (packed == TransactionIds.NOT_PACKED) {
+            packed = Long.MIN_VALUE | m_unpackedIdCount;
+            String[] unpackedIds = m_unpackedIds;
+            if (m_unpackedIdCount == unpackedIds.length) {
+                unpackedIds = Arrays.copyOf(unpackedIds, Math.max(16, m_unpackedIdCount * 2));
+                unpackedIds[m_unpackedIdCount++] = id;
+                m_unpackedIds = unpackedIds;
+            } else {
+                unpackedIds[m_unpackedIdCount++] = id;
+            }
+        }
+        return packed;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (m_dates.length < capacity) {
+            grow(Math.max(capacity, m_dates.length + (m_dates.length >> 1)));
+        }
+    }
+
+    private void grow() {
+        grow(m_dates.length + (m_dates.length >> 1));
+    }
+
+    private void grow(int capacity) {
+        m_ids       = Arrays.copyOf(m_ids, capacity);
+        m_dates     = Arrays.copyOf(m_dates, capacity);
+        m_amounts   = Arrays.copyOf(m_amounts, capacity);
+        m_merchants = Arrays.copyOf(m_merchants, capacity);
+        m_types     = Arrays.copyOf(m_types, capacity);
+        m_relatedTransactions = Arrays.copyOf(m_relatedTransactions, capacity);
+        m_reversedBy = Arrays.copyOf(m_reversedBy, capacity);
+        m_eligible  = Arrays.copyOf(m_eligible, capacity);
+        m_columns = new Columns(this);
+    }
+
+    private void checkWritable() {
+        if (m_readOnly) {
+            throw new IllegalStateException("data set snapshot is read-only");
+        }
+    }
+
+    /**
+     * Release the rows added so far to the snapshots, called by the single writer e.g. after the reversals
+     * of the added rows have been resolved. Ordered (release) write, does not wait for the readers.
+     */
+    public void publish() {
+        PUBLISHED_SIZE.lazySet(this, m_size);
+    }
+
+    /**
+     * Read-only view of the rows released by the last publish(), which can be read while the writer keeps adding rows
+     * and resolving reversals. Reversals of the later rows are not visible in the view. Does not copy the columns.
+     * @return
+     */
+    public TransactionDataSet snapshot() {
+        int size = m_publishedSize;
+        return new TransactionDataSet(this, m_columns, size);
+    }
+
+    /**
+     * Binary search for the row of the first transaction with timestamp not before the given date
+     * (i.e. the first of the duplicate timestamps). Returns size() if there is no such transaction.
+     * Applicable only to time-ordered data set.
+     * @param date
+     * @return
+     */
+    public int lowerBound(long date) {
+        int low = 0;
+        int high = m_size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (m_dates[middle] < date) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Materialize the row as a (detached) TransactionRecord.
+     * @param row
+     * @return
+     */
+    public TransactionRecord getRecord(int row) {
+        TransactionRecord record = new TransactionRecord();
+        record.setId(getId(row));
+        record.setDate(getDate(row));
+        record.setAmount(getAmount(row));
+        record.setMerchant(getMerchant(row));
+        record.setType(getType(row));
+        record.setRelatedTransaction(getRelatedTransaction(row));
+        record.setReversed(isReversed(row));
+        return record;
+    }
+
+    /**
+     * Read-only List view of the data set, rows are materialized as TransactionRecord on access.
+     * @return
+     */
+    public List<TransactionRecord> asList() {
+        return new RecordListView();
+    }
+
+    /* column accessors */
+
+    public int size() {
+        return m_size;
+    }
+
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    /**
+     * @return true if the transactions were added in time order (range search can use binary search)
+     */
+    public boolean isTimeOrdered() {
+        return m_timeOrdered;
+    }
+
+    public String getId(int row) {
+        long id = m_ids[row];
+        return id >= 0 ? TransactionIds.unpack(id) : m_unpackedIds[(int) id];
+    }
+
+    /**
+     * @param row
+     * @return the transaction ID packed into long or TransactionIds.NOT_PACKED if it can not be packed
+     */
+    public long getPackedId(int row) {
+        long id = m_ids[row];
+        return id >= 0 ? id : TransactionIds.NOT_PACKED;
+    }
+
+    public long getDate(int row) {
+        return m_dates[row];
+    }
+
+    /**
+     * @param row
+     * @return the amount in major units (nearest double of the minor units)
+     */
+    public double getAmount(int row) {
+        return Amounts.toDouble(m_amounts[row]);
+    }
+
+    /**
+     * @param row
+     * @return the amount in minor units (see Amounts)
+     */
+    public long getAmountMinorUnits(int row) {
+        return m_amounts[row];
+    }
+
+    public int getMerchantId(int row) {
+        return m_merchants[row];
+    }
+
+    public String getMerchant(int row) {
+        return m_merchantDictionary.get(m_merchants[row]);
+    }
+
+    public TransactionRecord.TransactionType getType(int row) {
+        return TYPES[m_types[row]];
+    }
+
+    public boolean isPayment(int row) {
+        return m_types[row] == PAYMENT;
+    }
+
+    public String getRelatedTransaction(int row) {
+        return m_relatedTransactions[row];
+    }
+
+    public boolean isReversed(int row) {
+        int reversedBy = m_reversedBy[row];
+        return reversedBy != 0 && reversedBy <= m_size;
+    }
+
+    /**
+     * Mark the row reversed by the last added row (visible to the snapshots which include it), or clear the mark.
+     * The first reversal of a row is kept.
+     * @param row
+     * @param reversed
+     */
+    public void setReversed(int row, boolean reversed) {
+        checkWritable();
+        if (!reversed) {
+            m_reversedBy[row] = 0;
+            m_eligible[row] = m_types[row] == PAYMENT ? ELIGIBLE : 0;
+        } else if (m_reversedBy[row] == 0) {
+            m_reversedBy[row] = m_size;
+            m_eligible[row] = 0;
+        }
+    }
+
+    /**
+     * Mask of the non-reversed payments for the bulk scans - the element is -1 (all bits set) for such row and 0 for
+     * the others, so the scan kernels select the amounts by and-ing them with the mask instead of branching.
+     * The column is maintained by add() and setReversed(). Snapshots have no column (the writer clears the flags
+     * of the rows reversed after the snapshot), they compute the mask by eligibleMask().
+     * @return mask by row, the rows [0, size()) are valid, null for a snapshot. Must not be modified.
+     */
+    public byte[] getEligibleColumn() {
+        return m_eligible;
+    }
+
+    /**
+     * Compute the mask of the non-reversed payments (see getEligibleColumn()) of the rows [fromRow, toRow) from
+     * the types and the reversals within the data set, without branches.
+     * @param fromRow first row (inclusive)
+     * @param toRow last row (exclusive)
+     * @param mask receives the mask of row fromRow + i at index i
+     */
+    public void eligibleMask(int fromRow, int toRow, byte[] mask) {
+        byte[] types = m_types;
+        int[] reversedBy = m_reversedBy;
+        int size = m_size;
+        for (int row = fromRow, i = 0; row < toRow; row++, i++) {
+            // -1 if the type is PAYMENT, types are small non-negative ordinals
+            int payment = ((types[row] ^ PAYMENT) - 1) >> 31;
+            // -1 unless reversed by a row of the data set (reversedBy in [1, size])
+            int notReversed = ((reversedBy[row] - 1) | (size - reversedBy[row])) >> 31;
+            mask[i] = (byte) (payment & notReversed);
+        }
+    }
+
+    /**
+     * Amount column for the bulk scans, the rows [0, size()) are valid. The array is shared with the data set
+     * and must not be modified.
+     * @return amounts in minor units by row
+     */
+    public long[] getAmountColumn() {
+        return m_amounts;
+    }
+
+    /**
+     * @return bound of the amounts - |amount| <= magnitude + 1 for every amount of the data set
+     */
+    public long getAmountMagnitude() {
+        return m_amountMagnitude;
+    }
+
+    private static long magnitude(long amount) {
+        return amount ^ (amount >> 63);
+    }
+
+    public StringDictionary getMerchantDictionary() {
+        return m_merchantDictionary;
+    }
+
+    /**
+     * Write the columns, merchant dictionary and unpacked IDs to the snapshot.
+     * @param output
+     * @throws IOException
+     */
+    public void writeSnapshot(SnapshotOutput output) throws IOException {
+        output.writeInt(m_size);
+        output.writeByte(m_timeOrdered ? 1 : 0);
+        output.writeLongs(m_ids, m_size);
+        output.writeLongs(m_dates, m_size);
+        output.writeByte(AMOUNTS_FIXED_POINT);
+        output.writeLongs(m_amounts, m_size);
+        output.writeInts(m_merchants, m_size);
+        output.writeBytes(m_types, m_size);
+        BitSet reversedRows = new BitSet(m_size);
+        for (int row = 0; row < m_size; row++) {
+            reversedRows.set(row, isReversed(row));
+        }
+        long[] reversed = reversedRows.toLongArray();
+        output.writeInt(reversed.length);
+        output.writeLongs(reversed, reversed.length);
+        // related transactions are set only for the reversals
+        int relatedCount = 0;
+        for (int row = 0; row < m_size; row++) {
+            if (m_relatedTransactions[row] != null) {
+                relatedCount++;
+            }
+        }
+        output.writeInt(relatedCount);
+        for (int row = 0; row < m_size; row++) {
+            if (m_relatedTransactions[row] != null) {
+                output.writeInt(row);
+                output.writeString(m_relatedTransactions[row]);
+            }
+        }
+        output.writeInt(m_merchantDictionary.size());
+        for (int code = 0; code < m_merchantDictionary.size(); code++) {
+            output.writeString(m_merchantDictionary.get(code));
+        }
+        output.writeInt(m_unpackedIdCount);
+        for (int i = 0; i < m_unpackedIdCount; i++) {
+            output.writeString(m_unpackedIds[i]);
+        }
+    }
+
+    /**
+     * Read the data set written by writeSnapshot().
+     * @param input
+     * @return
+     * @throws IOException
+     */
+    public static TransactionDataSet readSnapshot(SnapshotInput input) throws IOException {
+        TransactionDataSet dataSet = new TransactionDataSet();
+        int size = input.readInt();
+        dataSet.ensureCapacity(size);
+        dataSet.m_timeOrdered = input.readByte() != 0;
+        input.readLongs(dataSet.m_ids, size);
+        input.readLongs(dataSet.m_dates, size);
+        byte amountEncoding = input.readByte();
+        input.readLongs(dataSet.m_amounts, size);
+        if (amountEncoding == AMOUNTS_DOUBLE) {
+            for (int row = 0; row < size; row++) {
+                dataSet.m_amounts[row] = Amounts.toMinorUnits(Double.longBitsToDouble(dataSet.m_amounts[row]));
+            }
+        }
+        input.readInts(dataSet.m_merchants, size);
+        input.readBytes(dataSet.m_types, size);
+        long[] reversed = new long[input.readInt()];
+        input.readLongs(reversed, reversed.length);
+        BitSet reversedRows = BitSet.valueOf(reversed);
+        for (int row = reversedRows.nextSetBit(0); row >= 0 && row < size; row = reversedRows.nextSetBit(row + 1)) {
+            dataSet.m_reversedBy[row] = row + 1;
+        }
+        for (int row = 0; row < size; row++) {
+            dataSet.m_eligible[row] = dataSet.m_types[row] == PAYMENT && dataSet.m_reversedBy[row] == 0 ? ELIGIBLE : 0;
+            dataSet.m_amountMagnitude |= magnitude(dataSet.m_amounts[row]);
+        }
+        int relatedCount = input.readInt();
+        for (int i = 0; i < relatedCount; i++) {
+            int row = input.readInt();
+            dataSet.m_relatedTransactions[row] = input.readString();
+        }
+        int merchantCount = input.readInt();
+        for (int code = 0; code < merchantCount; code++) {
+            dataSet.m_merchantDictionary.intern(input.readString());
+        }
+        int unpackedIdCount = input.readInt();
+        String[] unpackedIds = new String[unpackedIdCount];
+        for (int i = 0; i < unpackedIdCount; i++) {
+            unpackedIds[i] = input.readString();
+        }
+        dataSet.m_unpackedIds = unpackedIds;
+        dataSet.m_unpackedIdCount = unpackedIdCount;
+        dataSet.m_size = size;
+        dataSet.publish();
+        return dataSet;
+    }
+
+    private class RecordListView extends AbstractList<TransactionRecord> implements RandomAccess {
+
+        @Override
+        public TransactionRecord get(int index) {
+            if (index < 0 || index >= m_size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_size);
+            }
+            return getRecord(index);
+        }
+
+        @Override
+        public int size() {
+            return m_size;
+        }
+    }
+
+    /**
+     * Column arrays published to the snapshots.
+     */
+    private static final class Columns {
+        private final long[]   ids;
+        private final long[]   dates;
+        private final long[]   amounts;
+        private final int[]    merchants;
+        private final byte[]   types;
+        private final String[] relatedTransactions;
+        private final int[]    reversedBy;
+
+        private Columns(TransactionDataSet dataSet) {
+            ids = dataSet.m_ids;
+            dates = dataSet.m_dates;
+            amounts = dataSet.m_amounts;
+            merchants = dataSet.m_merchants;
+            types = dataSet.m_types;
+            relatedTransactions = dataSet.m_relatedTransactions;
+            reversedBy = dataSet.m_reversedBy;
+        }
+    }
+}
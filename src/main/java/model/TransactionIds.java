@@ -0,0 +1,75 @@
+package model;
+
+/**
+ * Packing of the transaction IDs into a long - IDs of up to 8 ASCII characters (e.g. "WLMFRDGD") are stored
+ * one character per byte, the first character in the lowest byte. Packed IDs are always positive and never 0,
+ * 0 represents an ID which can not be packed (empty, longer than 8 characters or not plain ASCII).
+ */
+public final class TransactionIds {
+
+    public static final long NOT_PACKED = 0L;
+    public static final int  MAX_PACKED_LENGTH = 8;
+
+    private TransactionIds() {
+    }
+
+    /**
+     * @param id
+     * @return packed ID or NOT_PACKED (also for null)
+     */
+    public static long pack(String id) {
+        if (id == null) {
+            return NOT_PACKED;
+        }
+        int length = id.length();
+        if (length == 0 || length > MAX_PACKED_LENGTH) {
+            return NOT_PACKED;
+        }
+        long packed = 0L;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c == 0 || c >= 0x80) {
+                return NOT_PACKED;
+            }
+            packed |= (long) c << (i << 3);
+        }
+        return packed;
+    }
+
+    /**
+     * Pack the ID held as bytes in buffer between from (inclusive) and to (exclusive).
+     * @param buffer
+     * @param from
+     * @param to
+     * @return packed ID or NOT_PACKED
+     */
+    public static long pack(byte[] buffer, int from, int to) {
+        int length = to - from;
+        if (length == 0 || length > MAX_PACKED_LENGTH) {
+            return NOT_PACKED;
+        }
+        long packed = 0L;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer[from + i];
+            if (b <= 0) { // 0 or not ASCII
+                return NOT_PACKED;
+            }
+            packed |= (long) b << (i << 3);
+        }
+        return packed;
+    }
+
+    /**
+     * @param packed packed ID (not NOT_PACKED)
+     * @return the ID
+     */
+    public static String unpack(long packed) {
+        char[] chars = new char[MAX_PACKED_LENGTH];
+        int length = 0;
+        while (length < MAX_PACKED_LENGTH && packed != 0L) {
+            chars[length++] = (char) (packed & 0x7F);
+            packed >>>= 8;
+        }
+        return new String(chars, 0, length);
+    }
+}
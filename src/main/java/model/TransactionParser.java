@@ -0,0 +1,453 @@
+package model;
+
+import metrics.Metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+
+import static app.SimpleTransactionAnalyzer.DATE_FORMAT;
+
+/**
+ * Hand-written parser of the transaction CSV line. Scans the fields in place in the byte buffer, parses
+ * the fixed "dd/MM/yyyy HH:mm:ss" timestamp layout arithmetically and the amount as fixed-point number of minor units.
+ * Field values are materialized as Strings only when requested, so parsing a line directly into
+ * the TransactionDataSet does not allocate (transaction IDs are packed into longs).
+ * The tokenization mimics String.split(" *, *") - commas with surrounding spaces are delimiters,
+ * trailing empty fields are ignored - so the accepted / rejected lines are the same as with the regex split.
+ * Inputs not matching the fast path layouts fall back to SimpleDateFormat / Double.parseDouble.
+ * Instance is not thread safe, use one parser per thread.
+ */
+public class TransactionParser {
+
+    private static final int    FIELD_COUNT   = 6;
+    private static final int    DATE_LENGTH   = 19; // dd/MM/yyyy HH:mm:ss
+    private static final int    MAX_AMOUNT_DIGITS = 15; // any 15 digit integer is exact in double
+    private static final int    MAX_EXACT_DIGITS  = 18; // any 18 digit integer fits into long
+    private static final long   DAY_MILLIS    = 86400000L;
+    private static final int    DAY_CACHE_SIZE = 64;  // power of 2
+    private static final long   TRANSITION_DAY = Long.MIN_VALUE;
+    private static final double[] POWERS_OF_TEN = new double[MAX_AMOUNT_DIGITS + 1];
+    private static final long[] LONG_POWERS_OF_TEN = new long[MAX_EXACT_DIGITS + 1];
+    private static final byte[] PAYMENT  = "PAYMENT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REVERSAL = "REVERSAL".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UNKNOWN  = "UNKNOWN".getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        POWERS_OF_TEN[0] = 1.0d;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0d;
+        }
+        LONG_POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < LONG_POWERS_OF_TEN.length; i++) {
+            LONG_POWERS_OF_TEN[i] = LONG_POWERS_OF_TEN[i - 1] * 10L;
+        }
+    }
+
+    private byte[]   m_buffer;
+    private int[]    m_fieldStart = new int[FIELD_COUNT];
+    private int[]    m_fieldEnd   = new int[FIELD_COUNT];
+    private int      m_fieldCount;
+    private long     m_date;
+    private long     m_amountMinorUnits;
+    private TransactionRecord.TransactionType m_type;
+    private byte[]   m_lineBuffer = new byte[256];
+
+    // per-day timezone offset cache (direct mapped by epoch day)
+    private Calendar m_calendar;
+    private long[]   m_cachedDays    = new long[DAY_CACHE_SIZE];
+    private long[]   m_cachedOffsets = new long[DAY_CACHE_SIZE];
+
+    public TransactionParser() {
+        synchronized (DATE_FORMAT) {
+            m_calendar = (Calendar) DATE_FORMAT.getCalendar().clone();
+        }
+        Arrays.fill(m_cachedDays, Long.MIN_VALUE);
+    }
+
+    /**
+     * Parse the line held in the String (used by TransactionRecord.of()).
+     * @param csvLine
+     * @return true if the line is a transaction, false for header line or line with too few fields
+     * @throws IllegalArgumentException if transaction type is not valid
+     */
+    public boolean parse(String csvLine) throws IllegalArgumentException {
+        int length = csvLine.length();
+        if (length > m_lineBuffer.length) {
+            m_lineBuffer = new byte[Math.max(length, m_lineBuffer.length * 2)];
+        }
+        byte[] buffer = m_lineBuffer;
+        for (int i = 0; i < length; i++) {
+            char c = csvLine.charAt(i);
+            if (c >= 0x80) {
+                buffer = csvLine.getBytes(StandardCharsets.UTF_8); // not plain ASCII, let the JDK do the encoding
+                length = buffer.length;
+                break;
+            }
+            buffer[i] = (byte) c;
+        }
+        return parse(buffer, 0, length);
+    }
+
+    /**
+     * Parse the (UTF-8 encoded) line stored in buffer between from (inclusive) and to (exclusive).
+     * Line terminator must not be included.
+     * @param buffer
+     * @param from
+     * @param to
+     * @return true if the line is a transaction, false for header line or line with too few fields
+     * @throws IllegalArgumentException if transaction type is not valid
+     */
+    public boolean parse(byte[] buffer, int from, int to) throws IllegalArgumentException {
+        m_buffer = buffer;
+        if (!tokenize(buffer, from, to)) {
+            if (Metrics.enabled && to > from) {
+                Metrics.PARSE_FAILURES.increment();
+            }
+            return false;
+        }
+        if (equalsIgnoreCase(0, "id") || equalsIgnoreCase(1, "date")) {
+            return false;
+        }
+        m_date   = parseDate(m_fieldStart[1], m_fieldEnd[1]);
+        m_amountMinorUnits = parseMinorUnits(m_fieldStart[2], m_fieldEnd[2]);
+        m_type   = parseType(m_fieldStart[4], m_fieldEnd[4]);
+        return true;
+    }
+
+    /**
+     * Split the line to fields at commas, trimming the spaces around the commas.
+     * @return true if there are at least 5 fields (not counting the trailing empty ones)
+     */
+    private boolean tokenize(byte[] buffer, int from, int to) {
+        int tokenCount = 0;     // all tokens so far
+        int nonEmptyCount = 0;  // tokens up to and including the last non-empty one
+        int tokenStart = from;
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == ',') {
+                int tokenEnd = i;
+                while (tokenEnd > tokenStart && buffer[tokenEnd - 1] == ' ') {
+                    tokenEnd--;
+                }
+                nonEmptyCount = addToken(tokenCount++, tokenStart, tokenEnd, nonEmptyCount);
+                while (i + 1 < to && buffer[i + 1] == ' ') {
+                    i++;
+                }
+                tokenStart = i + 1;
+            }
+        }
+        if (tokenCount == 0) {
+            m_fieldCount = 1; // no delimiter, whole line is the only field
+            return false;
+        }
+        nonEmptyCount = addToken(tokenCount, tokenStart, to, nonEmptyCount);
+        m_fieldCount = nonEmptyCount;
+        return m_fieldCount >= 5;
+    }
+
+    private int addToken(int index, int start, int end, int nonEmptyCount) {
+        if (index < FIELD_COUNT) {
+            m_fieldStart[index] = start;
+            m_fieldEnd[index] = end;
+        }
+        return end > start ? index + 1 : nonEmptyCount;
+    }
+
+    private boolean equalsIgnoreCase(int field, String value) {
+        int start = m_fieldStart[field];
+        if (m_fieldEnd[field] - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            int c = m_buffer[start + i];
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            if (c != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse the timestamp, fixed layout dd/MM/yyyy HH:mm:ss is converted arithmetically, anything else
+     * is left to the (lenient) DATE_FORMAT.
+     * @return epoch milliseconds or Long.MIN_VALUE if the timestamp can't be parsed
+     */
+    private long parseDate(int start, int end) {
+        byte[] b = m_buffer;
+        if (end - start == DATE_LENGTH && b[start + 2] == '/' && b[start + 5] == '/' && b[start + 10] == ' '
+                && b[start + 13] == ':' && b[start + 16] == ':') {
+            int day    = digits(start, 2);
+            int month  = digits(start + 3, 2);
+            int year   = digits(start + 6, 4);
+            int hour   = digits(start + 11, 2);
+            int minute = digits(start + 14, 2);
+            int second = digits(start + 17, 2);
+            if (day > 0 && month > 0 && month <= 12 && year >= 1000 && day <= daysInMonth(year, month)
+                    && hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 60) {
+                long epochDay = epochDay(year, month, day);
+                long offset = dayOffset(epochDay, year, month, day);
+                if (offset != TRANSITION_DAY) {
+                    return epochDay * DAY_MILLIS + ((hour * 60 + minute) * 60 + second) * 1000L - offset;
+                }
+            }
+        }
+        try {
+            String text = new String(b, start, end - start, StandardCharsets.UTF_8);
+            synchronized (DATE_FORMAT) {
+                return DATE_FORMAT.parse(text).getTime();
+            }
+        } catch (Exception pex) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * @return value of the decimal digits or -1 if there is non-digit character
+     */
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = m_buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        }
+        return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+    }
+
+    /**
+     * Days since 1970-01-01 of the (proleptic Gregorian) date.
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Difference between the local time and UTC for the whole day (timezone & calendar offset), as computed by
+     * the DATE_FORMAT calendar. Days with DST transition return TRANSITION_DAY and are parsed by DATE_FORMAT.
+     */
+    private long dayOffset(long epochDay, int year, int month, int day) {
+        int slot = (int) epochDay & (DAY_CACHE_SIZE - 1);
+        if (m_cachedDays[slot] != epochDay) {
+            long dayStart = epochDay * DAY_MILLIS;
+            long startOffset = dayStart - calendarTime(year, month, day, 0, 0, 0);
+            long endOffset = dayStart + DAY_MILLIS - 1000L - calendarTime(year, month, day, 23, 59, 59);
+            m_cachedOffsets[slot] = startOffset == endOffset ? startOffset : TRANSITION_DAY;
+            m_cachedDays[slot] = epochDay;
+        }
+        return m_cachedOffsets[slot];
+    }
+
+    private long calendarTime(int year, int month, int day, int hour, int minute, int second) {
+        m_calendar.clear();
+        m_calendar.set(year, month - 1, day, hour, minute, second);
+        return m_calendar.getTimeInMillis();
+    }
+
+    /**
+     * Parse the amount as fixed-point number in minor units (see Amounts), more decimal places are rounded
+     * half away from zero. Other formats (exponent, too many digits, etc.) fall back to Double.parseDouble.
+     * @return amount in minor units, 0 if the amount can't be parsed
+     */
+    private long parseMinorUnits(int start, int end) {
+        byte[] b = m_buffer;
+        int i = start;
+        boolean negative = false;
+        if (i < end && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i++] == '-';
+        }
+        long unscaled = 0;
+        int digitCount = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            int digit = b[i] - '0';
+            if (digit >= 0 && digit <= 9) {
+                unscaled = unscaled * 10 + digit;
+                digitCount++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b[i] == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                break;
+            }
+        }
+        long multiplier = scale < Amounts.SCALE_DIGITS ? LONG_POWERS_OF_TEN[Amounts.SCALE_DIGITS - Math.max(scale, 0)] : 1L;
+        if (i == end && digitCount > 0 && digitCount <= MAX_EXACT_DIGITS && unscaled <= Long.MAX_VALUE / multiplier) {
+            long minorUnits;
+            if (scale <= Amounts.SCALE_DIGITS) {
+                minorUnits = unscaled * multiplier;
+            } else {
+                long divisor = LONG_POWERS_OF_TEN[scale - Amounts.SCALE_DIGITS];
+                minorUnits = unscaled / divisor;
+                if (unscaled % divisor >= divisor - unscaled % divisor) {
+                    minorUnits++;
+                }
+            }
+            return negative ? -minorUnits : minorUnits;
+        }
+        return Amounts.toMinorUnits(parseAmount(start, end));
+    }
+
+    /**
+     * Parse the amount as fixed-point number (unscaled digits and decimal scale), falling back to
+     * Double.parseDouble for other formats (exponent, too many digits, etc.).
+     * @return amount, 0.0 if the amount can't be parsed
+     */
+    private double parseAmount(int start, int end) {
+        byte[] b = m_buffer;
+        int i = start;
+        boolean negative = false;
+        if (i < end && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i++] == '-';
+        }
+        long unscaled = 0;
+        int digitCount = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            int digit = b[i] - '0';
+            if (digit >= 0 && digit <= 9) {
+                unscaled = unscaled * 10 + digit;
+                digitCount++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b[i] == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                break;
+            }
+        }
+        if (i == end && digitCount > 0 && digitCount <= MAX_AMOUNT_DIGITS) {
+            // both values are exact doubles, so the division is correctly rounded just like parseDouble
+            double value = scale > 0 ? unscaled / POWERS_OF_TEN[scale] : unscaled;
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(b, start, end - start, StandardCharsets.UTF_8));
+        } catch (Exception pex) {
+            return 0.0d; // amount remains at default value
+        }
+    }
+
+    private TransactionRecord.TransactionType parseType(int start, int end) {
+        if (matches(start, end, PAYMENT)) {
+            return TransactionRecord.TransactionType.PAYMENT;
+        } else if (matches(start, end, REVERSAL)) {
+            return TransactionRecord.TransactionType.REVERSAL;
+        } else if (matches(start, end, UNKNOWN)) {
+            return TransactionRecord.TransactionType.UNKNOWN;
+        }
+        try {
+            return TransactionRecord.TransactionType.valueOf(fieldString(start, end));
+        } catch (IllegalArgumentException e) {
+            if (Metrics.enabled) {
+                Metrics.PARSE_FAILURES.increment();
+            }
+            throw e;
+        }
+    }
+
+    private boolean matches(int start, int end, byte[] value) {
+        if (end - start != value.length) {
+            return false;
+        }
+        for (int i = 0; i < value.length; i++) {
+            if (m_buffer[start + i] != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String fieldString(int start, int end) {
+        return new String(m_buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /* parsed values of the last accepted line */
+
+    public String getId() {
+        return fieldString(m_fieldStart[0], m_fieldEnd[0]);
+    }
+
+    /**
+     * @return the transaction ID packed into long (without creating the String) or TransactionIds.NOT_PACKED
+     */
+    public long getPackedId() {
+        return TransactionIds.pack(m_buffer, m_fieldStart[0], m_fieldEnd[0]);
+    }
+
+    public long getDate() {
+        return m_date;
+    }
+
+    /**
+     * @return the amount as written (not rounded to minor units), parsed on request
+     */
+    public double getAmount() {
+        return parseAmount(m_fieldStart[2], m_fieldEnd[2]);
+    }
+
+    /**
+     * @return the amount in minor units (see Amounts)
+     */
+    public long getAmountMinorUnits() {
+        return m_amountMinorUnits;
+    }
+
+    public String getMerchant() {
+        return fieldString(m_fieldStart[3], m_fieldEnd[3]);
+    }
+
+    /**
+     * Dictionary code of the merchant, the merchant String is created only for a merchant not yet in the dictionary.
+     * @param dictionary
+     * @return
+     */
+    public int internMerchant(StringDictionary dictionary) {
+        return dictionary.intern(m_buffer, m_fieldStart[3], m_fieldEnd[3]);
+    }
+
+    public TransactionRecord.TransactionType getType() {
+        return m_type;
+    }
+
+    /**
+     * @return the related transaction ID or null if there is none
+     */
+    public String getRelatedTransaction() {
+        return m_fieldCount > 5 && m_fieldEnd[5] > m_fieldStart[5] ? fieldString(m_fieldStart[5], m_fieldEnd[5]) : null;
+    }
+
+    /**
+     * Create TransactionRecord from the last accepted line.
+     * @return
+     */
+    public TransactionRecord toRecord() {
+        TransactionRecord record = new TransactionRecord();
+        record.setId(getId());
+        record.setDate(m_date);
+        record.setAmount(getAmount());
+        record.setMerchant(getMerchant());
+        record.setType(m_type);
+        record.setRelatedTransaction(getRelatedTransaction());
+        return record;
+    }
+}
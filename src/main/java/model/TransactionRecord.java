@@ -21,6 +21,8 @@ public class TransactionRecord {
     private String          relatedTransaction;
     private boolean         reversed;
 
+    private static final ThreadLocal<TransactionParser> PARSER = ThreadLocal.withInitial(TransactionParser::new);
+
     /**
      * Use a static builder method rather then constructor that allows returning null value in case of input not accepted.
      * E.g. possible legal (expected) invalid input is the CSV header line or empty line.
@@ -31,30 +33,10 @@ public class TransactionRecord {
     public static TransactionRecord of(String csvLine)  throws IllegalArgumentException  {
         TransactionRecord record = null;
         if (csvLine != null) {
-            String[] tokens = csvLine.split(" *, *"); // trim the leading/trailing whitespaces around the commas
-            if (tokens.length >= 5) {
-                // it seems we have valid CSV input
-                if (!"id".equals(tokens[0].toLowerCase()) &&
-                        !"date".equals(tokens[1].toLowerCase())) {
-                    // and it is not a header line
-                    record = new TransactionRecord();
-                    record.setId(tokens[0]);
-                    try {
-                        record.setDate(DATE_FORMAT.parse(tokens[1]).getTime());
-                    } catch (Exception pex) {
-                        record.setDate(Long.MIN_VALUE);
-                    }
-                    try {
-                        record.setAmount(Double.parseDouble(tokens[2]));
-                    } catch (Exception pex) {
-                        // amout will remain at default 0.0d value
-                    }
-                    record.setMerchant(tokens[3]);
-                    record.setType(TransactionType.valueOf(tokens[4]));
-                    if (tokens.length > 5 && tokens[5].length() > 0) {
-                        record.setRelatedTransaction(tokens[5]);
-                    }
-                }
+            TransactionParser parser = PARSER.get();
+            if (parser.parse(csvLine)) {
+                // it is valid CSV input and it is not a header line
+                record = parser.toRecord();
             }
         }
         return record;
@@ -129,7 +111,7 @@ public class TransactionRecord {
     @Override
     public String toString() {
         String formattedDate = DATE_FORMAT.format(new Date(date));
-        String formattedAmount = String.format("%1$,.2f", amount);
+        String formattedAmount = Amounts.format(Amounts.toMinorUnits(amount));
         String corePart = String.format("ID: %s, Date: %s, Amount: %s, Merchant: %s, Type: %s",
                 id, formattedDate, formattedAmount, merchant, type.name());
         String relatedTransaction = this.relatedTransaction != null && this.relatedTransaction.length() > 0 ?
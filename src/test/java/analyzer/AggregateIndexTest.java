@@ -0,0 +1,47 @@
+package analyzer;
+
+import model.TransactionRecord;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class AggregateIndexTest {
+
+    @Test
+    public void sameAsScanWithIncrementalUpdates() {
+        Random random = new Random(3);
+        TransactionAnalyzer indexed = new TransactionAnalyzer(new AveragingFunction());
+        TransactionAnalyzer scanned = new TransactionAnalyzer(new AveragingFunction());
+        scanned.setRollupsEnabled(false);
+        int rows = 5000;
+        for (int i = 0; i < rows; i++) {
+            if (i == rows / 2) {
+                indexed.buildAggregateIndex(); // the rest is added incrementally, including reversals of earlier rows
+            }
+            TransactionRecord record = new TransactionRecord();
+            record.setId("T" + i);
+            record.setDate(i * 1000L);
+            record.setAmount(random.nextInt(100000) / 100.0d);
+            if (i > 0 && random.nextInt(8) == 0) {
+                record.setType(TransactionRecord.TransactionType.REVERSAL);
+                record.setRelatedTransaction("T" + random.nextInt(i));
+            } else {
+                record.setType(TransactionRecord.TransactionType.PAYMENT);
+            }
+            indexed.add(record);
+            scanned.add(record);
+        }
+        for (int i = 0; i < 500; i++) {
+            int from = random.nextInt(rows);
+            int to = from + random.nextInt(rows - from);
+            long dateFrom = from * 1000L;
+            long dateTo = to * 1000L;
+            assertEquals(scanned.analyze(dateFrom, dateTo, new AveragingFunction()),
+                    indexed.analyze(dateFrom, dateTo, new AveragingFunction()));
+            assertEquals(scanned.analyze(dateFrom, dateTo, new MinMaxFunction()),
+                    indexed.analyze(dateFrom, dateTo, new MinMaxFunction()));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package analyzer;
+
+import model.Amounts;
+import model.TransactionRecord;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AmountAccuracyTest {
+
+    /**
+     * Averages of a large synthetic data set (amounts of very different magnitudes) must be exactly the BigDecimal
+     * average rounded half up, also through the partial aggregation and the aggregate index.
+     */
+    @Test
+    public void averageSameAsBigDecimal() {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        Random random = new Random(17);
+        int rows = 3 * TransactionAnalyzer.BLOCK_SIZE + 12_345;
+        BigDecimal sum = BigDecimal.ZERO;
+        TransactionRecord record = new TransactionRecord();
+        record.setMerchant("M");
+        record.setType(TransactionRecord.TransactionType.PAYMENT);
+        for (int i = 0; i < rows; i++) {
+            long minorUnits = i % 1000 == 0 ? random.nextInt(Integer.MAX_VALUE) * 1000L : random.nextInt(10_000);
+            record.setId("T" + i);
+            record.setDate(i);
+            record.setAmount(BigDecimal.valueOf(minorUnits, 2).doubleValue());
+            analyzer.add(record);
+            sum = sum.add(BigDecimal.valueOf(minorUnits, 2));
+        }
+        String expected = String.format("%1$,.2f", sum.divide(BigDecimal.valueOf(rows), 2, RoundingMode.HALF_UP));
+        assertThat(analyzer.analyze(0, Long.MAX_VALUE).get(AveragingFunction.KEY_SET[1]), is(expected));
+        analyzer.buildAggregateIndex();
+        assertThat(analyzer.analyze(0, Long.MAX_VALUE).get(AveragingFunction.KEY_SET[1]), is(expected));
+    }
+
+    @Test
+    public void sumOverflowDetected() {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        TransactionRecord record = new TransactionRecord();
+        record.setType(TransactionRecord.TransactionType.PAYMENT);
+        record.setAmount(Amounts.toDouble(Long.MAX_VALUE / 2 + 1));
+        for (int i = 0; i < 3; i++) {
+            record.setId("T" + i);
+            analyzer.add(record);
+        }
+        try {
+            analyzer.analyze(0, Long.MAX_VALUE);
+            fail("overflow of the sum not detected");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+    }
+}
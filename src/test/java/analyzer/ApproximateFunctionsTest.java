@@ -0,0 +1,166 @@
+package analyzer;
+
+import app.SimpleTransactionAnalyzer;
+import model.TransactionDataSet;
+import model.TransactionRecord;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static app.SimpleTransactionAnalyzer.DATE_FORMAT;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ApproximateFunctionsTest {
+
+    @Test
+    public void quantilesWithinRelativeAccuracy() {
+        Random random = new Random(5);
+        double[] values = new double[200_000];
+        QuantileSketch sketch = new QuantileSketch(0.01d, QuantileSketch.DEFAULT_MAX_BUCKETS);
+        QuantileSketch[] parts = new QuantileSketch[4];
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = new QuantileSketch(0.01d, QuantileSketch.DEFAULT_MAX_BUCKETS);
+        }
+        for (int i = 0; i < values.length; i++) {
+            // log-normal amounts, from cents to millions
+            values[i] = Math.round(Math.exp(8 + 2.5 * random.nextGaussian()));
+            sketch.add(values[i]);
+            parts[i % parts.length].add(values[i]);
+        }
+        QuantileSketch merged = new QuantileSketch(0.01d, QuantileSketch.DEFAULT_MAX_BUCKETS);
+        for (QuantileSketch part : parts) {
+            merged.merge(part);
+        }
+        Arrays.sort(values);
+        assertThat(merged.getCount(), is((long) values.length));
+        for (double quantile : new double[] {0.0d, 0.01d, 0.25d, 0.5d, 0.9d, 0.95d, 0.99d, 0.999d, 1.0d}) {
+            double exact = values[(int) (quantile * (values.length - 1))];
+            assertEquals("q" + quantile, exact, sketch.getValueAtQuantile(quantile), exact * 0.01d);
+            assertEquals("merged q" + quantile, sketch.getValueAtQuantile(quantile), merged.getValueAtQuantile(quantile), 0.0d);
+        }
+        assertTrue(Double.isNaN(new QuantileSketch().getValueAtQuantile(0.5d)));
+        assertFalse(sketch.canMerge(new QuantileSketch(0.02d, QuantileSketch.DEFAULT_MAX_BUCKETS)));
+    }
+
+    @Test
+    public void distinctCountWithinStandardError() {
+        HyperLogLog sketch = new HyperLogLog();
+        HyperLogLog[] parts = {new HyperLogLog(), new HyperLogLog(), new HyperLogLog()};
+        int distinct = 100_000;
+        for (int i = 0; i < distinct * 3; i++) {
+            // every value three times
+            long hash = HyperLogLog.hash("M" + (i % distinct));
+            sketch.add(hash);
+            parts[i % parts.length].add(hash);
+        }
+        HyperLogLog merged = new HyperLogLog();
+        for (HyperLogLog part : parts) {
+            merged.merge(part);
+        }
+        assertEquals(distinct, sketch.getEstimate(), distinct * 0.03d);
+        assertThat(merged.getEstimate(), is(sketch.getEstimate()));
+
+        HyperLogLog small = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            small.add(HyperLogLog.hash("M" + (i % 10)));
+        }
+        assertThat(small.getEstimate(), is(10L));
+        assertThat(new HyperLogLog().getEstimate(), is(0L));
+    }
+
+    @Test
+    public void functionsOnTestFile() throws Exception {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new QuantileFunction());
+        SimpleTransactionAnalyzer.parseInput(new File("./Test3.csv"), analyzer);
+        long dateFrom = DATE_FORMAT.parse("20/08/2018 12:00:00").getTime();
+        long dateTo = DATE_FORMAT.parse("20/08/2018 13:59:59").getTime();
+
+        Map<String, Object> quantiles = analyzer.analyze(dateFrom, dateTo);
+        assertThat(quantiles.get(QuantileFunction.KEY_SET[0]), is(7L));
+        assertEquals(25.0d, Double.parseDouble((String) quantiles.get(QuantileFunction.KEY_SET[1])), 0.25d);
+        assertEquals(45.0d, Double.parseDouble((String) quantiles.get(QuantileFunction.KEY_SET[2])), 0.45d);
+
+        Map<String, Object> distinct = analyzer.analyze(dateFrom, dateTo, new DistinctMerchantFunction());
+        assertThat(distinct.get(DistinctMerchantFunction.KEY_SET[0]), is(7));
+        assertThat(distinct.get(DistinctMerchantFunction.KEY_SET[1]), is(2L));
+    }
+
+    @Test
+    public void parallelSameAsSequential() {
+        TransactionAnalyzer sequential = new TransactionAnalyzer(new QuantileFunction());
+        sequential.setParallelAnalysis(false);
+        TransactionAnalyzer parallel = new TransactionAnalyzer(new QuantileFunction());
+        Random random = new Random(7);
+        for (int i = 0; i < TransactionAnalyzer.BLOCK_SIZE * 5; i++) {
+            TransactionRecord record = new TransactionRecord();
+            record.setId("T" + i);
+            record.setDate(i * 1000L);
+            record.setMerchant("M" + random.nextInt(5000));
+            record.setAmount(random.nextInt(1000000) / 100.0d);
+            record.setType(TransactionRecord.TransactionType.PAYMENT);
+            sequential.add(record);
+            parallel.add(record);
+        }
+        long to = TransactionAnalyzer.BLOCK_SIZE * 4500L;
+        assertThat(parallel.analyze(500L, to), is(sequential.analyze(500L, to)));
+        assertThat(parallel.analyze(500L, to, new DistinctMerchantFunction(12)),
+                is(sequential.analyze(500L, to, new DistinctMerchantFunction(12))));
+    }
+
+    @Test
+    public void distinctWindowsOverGrowingDictionary() {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new DistinctMerchantFunction());
+        Random random = new Random(8);
+        DistinctMerchantFunction prototype = new DistinctMerchantFunction(10);
+        for (int part = 1; part <= 2; part++) {
+            // the second part adds new merchants, the hashes shared by the partials are extended
+            for (int i = (part - 1) * 50_000; i < part * 50_000; i++) {
+                TransactionRecord record = new TransactionRecord();
+                record.setId("T" + i);
+                record.setDate(i * 10L);
+                record.setMerchant("M" + random.nextInt(part * 50_000));
+                record.setAmount(1.0d);
+                record.setType(TransactionRecord.TransactionType.PAYMENT);
+                analyzer.add(record);
+            }
+            long last = (part * 50_000 - 1) * 10L;
+            List<WindowResult> series = new WindowAnalyzer(analyzer).analyze(0L, last, 60_000L, 1000L, prototype);
+            for (int w = 0; w < series.size(); w += 37) {
+                WindowResult window = series.get(w);
+                DistinctMerchantFunction records = new DistinctMerchantFunction(10);
+                TransactionDataSet dataSet = analyzer.getColumnarDataSet();
+                for (int row = 0; row < dataSet.size(); row++) {
+                    if (dataSet.getDate(row) >= window.getStart() && dataSet.getDate(row) < window.getEnd()) {
+                        records.accept(dataSet.getRecord(row));
+                    }
+                }
+                assertThat(window.getResult(), is(records.getResult()));
+            }
+        }
+    }
+
+    @Test
+    public void createWithParameter() {
+        assertThat(AnalyzerFunctions.create("quantile:0.005"), instanceOf(QuantileFunction.class));
+        assertThat(((QuantileFunction) AnalyzerFunctions.create("quantile:0.005")).getSketch().getRelativeAccuracy(), is(0.005d));
+        assertThat(((DistinctMerchantFunction) AnalyzerFunctions.create("distinct:12")).getSketch().getPrecision(), is(12));
+        assertThat(((DistinctMerchantFunction) AnalyzerFunctions.create("DISTINCT")).getSketch().getPrecision(),
+                is(HyperLogLog.DEFAULT_PRECISION));
+        assertFalse(new QuantileFunction(0.01d).canMerge(new QuantileFunction(0.02d)));
+        assertTrue(new QuantileFunction(0.01d).canMerge(new QuantileFunction(0.01d).newPartial()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidParameter() {
+        AnalyzerFunctions.create("quantile:x");
+    }
+}
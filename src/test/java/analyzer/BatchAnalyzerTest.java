@@ -0,0 +1,71 @@
+package analyzer;
+
+import app.SimpleTransactionAnalyzer;
+import model.TransactionRecord;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class BatchAnalyzerTest {
+
+    private static final String[] FUNCTIONS = {AnalyzerFunctions.AVERAGE, AnalyzerFunctions.MIN_MAX,
+            AnalyzerFunctions.MERCHANT};
+
+    @Test
+    public void sameAsSingleQueries() throws Exception {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        SimpleTransactionAnalyzer.parseInput(new File("./Test3.csv"), analyzer);
+        long start = 1534766400000L;
+        Random random = new Random(5);
+        for (int i = 0; i < 20_000; i++) {
+            TransactionRecord record = new TransactionRecord();
+            record.setId("B" + i);
+            record.setDate(start + i * 1000L);
+            record.setAmount(random.nextInt(10000) / 100.0d);
+            record.setMerchant("M" + random.nextInt(20));
+            boolean reversal = i > 0 && i % 17 == 0;
+            record.setType(reversal ? TransactionRecord.TransactionType.REVERSAL : TransactionRecord.TransactionType.PAYMENT);
+            record.setRelatedTransaction(reversal ? "B" + random.nextInt(i) : null);
+            analyzer.add(record);
+        }
+        List<RangeQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            long from = start + random.nextInt(25_000) * 1000L - 2_000_000L;
+            long to = from + random.nextInt(i % 10 == 0 ? 25_000 : 500) * 1000L;
+            queries.add(new RangeQuery(from, to, AnalyzerFunctions.create(FUNCTIONS[i % FUNCTIONS.length], 3)));
+        }
+        queries.add(new RangeQuery(0, Long.MAX_VALUE, new MinMaxFunction()));
+        queries.add(new RangeQuery(start + 5000L, start, new AveragingFunction()));   // reversed range
+
+        List<Map<String, Object>> results = new BatchAnalyzer(analyzer).analyze(queries);
+        assertThat(results.size(), is(queries.size()));
+        for (int i = 0; i < queries.size(); i++) {
+            RangeQuery query = queries.get(i);
+            AnalyzerFunction<TransactionRecord> single = AnalyzerFunctions.create(FUNCTIONS[i % FUNCTIONS.length], 3);
+            if (!single.getClass().equals(query.getFunction().getClass())) {
+                single = i == queries.size() - 1 ? new AveragingFunction() : new MinMaxFunction();
+            }
+            Map<String, Object> expected = analyzer.analyze(query.getFrom(), query.getTo(), single);
+            assertThat("query " + i, analyzer.interpretResult(results.get(i), query.getFunction()),
+                    is(analyzer.interpretResult(expected, single)));
+        }
+        assertTrue(results.get(queries.size() - 1).containsKey("ERROR"));
+    }
+
+    @Test
+    public void emptyDataSet() {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        List<Map<String, Object>> results = new BatchAnalyzer(analyzer)
+                .analyze(Arrays.asList(new RangeQuery(0, 1000, new AveragingFunction())));
+        assertTrue(results.get(0).containsKey("ERROR"));
+    }
+}
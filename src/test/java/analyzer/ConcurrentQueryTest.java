@@ -0,0 +1,111 @@
+package analyzer;
+
+import model.TransactionDataSet;
+import model.TransactionRecord;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentQueryTest {
+
+    private static final int ROWS = 300_000;
+
+    @Test
+    public void consistentSnapshotsWhileLoading() throws Exception {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        analyzer.setConcurrentQueries(true);
+        AtomicBoolean loaded = new AtomicBoolean(false);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < 4; t++) {
+                results.add(readers.submit(() -> {
+                    int queries = 0;
+                    while (!loaded.get()) {
+                        Map<String, Object> result = analyzer.analyze(0L, Long.MAX_VALUE, new SnapshotCheck());
+                        assertTrue(result.toString(), result.containsKey("rows") || result.containsKey("ERROR"));
+                        queries++;
+                    }
+                    return queries;
+                }));
+            }
+            // triples of a payment reversed two rows later, a payment never reversed and the reversal
+            for (int i = 0; i < ROWS; i++) {
+                TransactionRecord record = new TransactionRecord();
+                record.setId("T" + i);
+                record.setDate(i * 10L);
+                record.setMerchant("M" + i);
+                record.setAmount(i % 3 == 0 ? 1000.0d : 1.0d);
+                if (i % 3 == 2) {
+                    record.setType(TransactionRecord.TransactionType.REVERSAL);
+                    record.setRelatedTransaction("T" + (i - 2));
+                } else {
+                    record.setType(TransactionRecord.TransactionType.PAYMENT);
+                }
+                analyzer.add(record);
+            }
+        } finally {
+            loaded.set(true);
+            readers.shutdown();
+        }
+        for (Future<Integer> result : results) {
+            assertTrue(result.get() > 0);
+        }
+        Map<String, Object> result = analyzer.analyze(0L, Long.MAX_VALUE, new SnapshotCheck());
+        assertEquals(ROWS, result.get("rows"));
+        assertEquals(ROWS / 3, result.get("payments"));
+    }
+
+    /**
+     * Checks the rows of the snapshot against the generated pattern - the payment of row 3k is reversed if and only
+     * if its reversal (row 3k + 2) is in the snapshot, every merchant name can be read.
+     */
+    private static class SnapshotCheck implements AnalyzerFunction<TransactionRecord> {
+
+        private int m_rows;
+        private int m_payments;
+
+        @Override
+        public void accept(TransactionRecord transactionRecord) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void acceptRange(TransactionDataSet dataSet, int fromIndex, int toIndex) {
+            assertEquals(dataSet.size(), toIndex);
+            for (int row = fromIndex; row < toIndex; row++) {
+                assertEquals("M" + row, dataSet.getMerchant(row));
+                if (row % 3 == 0) {
+                    assertEquals("row " + row + " of " + toIndex, row + 2 < toIndex, dataSet.isReversed(row));
+                }
+                if (dataSet.isPayment(row) && !dataSet.isReversed(row)) {
+                    m_payments++;
+                }
+            }
+            m_rows += toIndex - fromIndex;
+        }
+
+        @Override
+        public Map<String, Object> getResult() {
+            Map<String, Object> result = new HashMap<>();
+            result.put("rows", m_rows);
+            result.put("payments", m_payments);
+            return result;
+        }
+
+        @Override
+        public String[] getKeySet() {
+            return new String[] {"rows", "payments"};
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package analyzer;
+
+import app.SimpleTransactionAnalyzer;
+import model.Amounts;
+import model.TransactionRecord;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static app.SimpleTransactionAnalyzer.DATE_FORMAT;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MerchantGroupFunctionTest {
+
+    @Test
+    public void groupByMerchant() throws Exception {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new MerchantGroupFunction());
+        SimpleTransactionAnalyzer.parseInput(new File("./Test3.csv"), analyzer);
+        long dateFrom = DATE_FORMAT.parse("20/08/2018 12:00:00").getTime();
+        long dateTo = DATE_FORMAT.parse("20/08/2018 13:59:59").getTime();
+        Map<String, Object> result = analyzer.analyze(dateFrom, dateTo);
+        assertThat(result.get(MerchantGroupFunction.KEY_SET[0]), is(2));
+        assertThat(result.get(MerchantGroupFunction.KEY_SET[1]), is(
+                "\n  MacLaren: Number of Transactions = 5, Average Transaction Value = 25.00, Minimal Amount = 5.00, Maximal Amount = 45.00"
+                + "\n  Kwik-E-Mart: Number of Transactions = 2, Average Transaction Value = 32.50, Minimal Amount = 5.00, Maximal Amount = 59.99"));
+
+        MerchantGroupFunction top = new MerchantGroupFunction(1);
+        analyzer.analyze(dateFrom, dateTo, top);
+        assertThat(top.getTopMerchants().length, is(1));
+        assertThat(top.getDictionary().get(top.getTopMerchants()[0]), is("MacLaren"));
+        assertThat(top.getSummary("Kwik-E-Mart").getCount(), is(2));
+        assertThat(top.getSummary("Moe's").getCount(), is(0));
+    }
+
+    @Test
+    public void manyMerchantsSameAsPerMerchantAnalysis() {
+        TransactionAnalyzer sequential = new TransactionAnalyzer(new MerchantGroupFunction());
+        sequential.setParallelAnalysis(false);
+        TransactionAnalyzer parallel = new TransactionAnalyzer(new MerchantGroupFunction());
+        int merchants = 100_000;
+        int rows = TransactionAnalyzer.BLOCK_SIZE * 5;
+        int[] counts = new int[merchants];
+        long[] sums = new long[merchants];
+        Random random = new Random(3);
+        for (int i = 0; i < rows; i++) {
+            TransactionRecord record = new TransactionRecord();
+            record.setId("T" + i);
+            record.setDate(i * 1000L);
+            int merchant = random.nextInt(merchants);
+            record.setMerchant("M" + merchant);
+            record.setAmount(random.nextInt(100000) / 100.0d);
+            record.setType(TransactionRecord.TransactionType.PAYMENT);
+            sequential.add(record);
+            parallel.add(record);
+            counts[merchant]++;
+            sums[merchant] += Amounts.toMinorUnits(record.getAmount());
+        }
+        MerchantGroupFunction all = new MerchantGroupFunction();
+        sequential.analyze(0L, Long.MAX_VALUE, all);
+        MerchantGroupFunction parallelAll = new MerchantGroupFunction();
+        parallel.analyze(0L, Long.MAX_VALUE, parallelAll);
+        assertThat(parallelAll.getResult(), is(all.getResult()));
+
+        int[] ranking = all.getTopMerchants();
+        MerchantGroupFunction top = new MerchantGroupFunction(10);
+        parallel.analyze(0L, Long.MAX_VALUE, top);
+        int[] topMerchants = top.getTopMerchants();
+        assertThat(topMerchants.length, is(10));
+        for (int i = 0; i < topMerchants.length; i++) {
+            assertThat(top.getDictionary().get(topMerchants[i]), is(all.getDictionary().get(ranking[i])));
+        }
+        for (int i = 1; i < ranking.length; i++) {
+            String merchant = all.getDictionary().get(ranking[i]);
+            String previous = all.getDictionary().get(ranking[i - 1]);
+            assertThat(all.getSummary(merchant).getSum() <= all.getSummary(previous).getSum(), is(true));
+        }
+        for (int merchant = 0; merchant < merchants; merchant += 997) {
+            PaymentSummary summary = all.getSummary("M" + merchant);
+            assertThat(summary.getCount(), is(counts[merchant]));
+            assertThat(summary.getSum(), is(sums[merchant]));
+        }
+    }
+
+    @Test
+    public void windowsAndBatchOverLargeDictionary() {
+        // 100k merchants, the panes and segments see a few of them each
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new MerchantGroupFunction());
+        analyzer.setParallelAnalysis(false);
+        Random random = new Random(5);
+        int rows = 200_000;
+        for (int i = 0; i < rows; i++) {
+            TransactionRecord record = new TransactionRecord();
+            record.setId("T" + i);
+            record.setDate(i * 10L);
+            record.setMerchant("M" + (i < 100_000 ? i : random.nextInt(100_000)));
+            record.setAmount(random.nextInt(100000) / 100.0d);
+            record.setType(TransactionRecord.TransactionType.PAYMENT);
+            analyzer.add(record);
+        }
+        long last = (rows - 1) * 10L;
+        List<WindowResult> series = new WindowAnalyzer(analyzer).analyze(0L, last, 60_000L, 1000L,
+                new MerchantGroupFunction(5));
+        assertThat(series.size(), is(2000));
+        for (WindowResult window : series) {
+            assertThat(window.getResult(), is(analyzer.analyze(window.getStart(), Math.min(last, window.getEnd() - 1),
+                    new MerchantGroupFunction(5))));
+        }
+
+        List<RangeQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long from = random.nextInt(rows) * 10L;
+            queries.add(new RangeQuery(from, from + random.nextInt(rows / 10) * 10L, new MerchantGroupFunction(5)));
+        }
+        List<Map<String, Object>> results = new BatchAnalyzer(analyzer).analyze(queries);
+        for (int i = 0; i < queries.size(); i++) {
+            RangeQuery query = queries.get(i);
+            assertThat(results.get(i), is(analyzer.analyze(query.getFrom(), query.getTo(),
+                    new MerchantGroupFunction(5))));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package analyzer;
+
+import model.TransactionRecord;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ResultCacheTest {
+
+    private static final long START = 1534766400000L;
+    private static final long HOUR = 3600_000L;
+
+    @Test
+    public void invalidatesAffectedRanges() {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        ResultCache cache = new ResultCache();
+        analyzer.setResultCache(cache);
+        Random random = new Random(9);
+        for (int i = 0; i < 3 * 3600; i++) {
+            analyzer.add(payment("P" + i, START + i * 1000L, random));
+        }
+        long[][] ranges = {{START, START + HOUR - 1}, {START + HOUR, START + 2 * HOUR - 1},
+                {START + 2 * HOUR, START + 3 * HOUR - 1}, {START, START + 3 * HOUR}};
+        String[] functions = {AnalyzerFunctions.AVERAGE, AnalyzerFunctions.MERCHANT, AnalyzerFunctions.QUANTILE};
+        for (int repeat = 0; repeat < 2; repeat++) {
+            assertResults(analyzer, ranges, functions);
+        }
+        assertThat(cache.getMisses(), is(12L));
+        assertThat(cache.getHits(), is(12L));
+        assertThat(cache.size(), is(12));
+        // hit does not share the cached map
+        analyzer.analyze(START, START + HOUR - 1, new AveragingFunction()).clear();
+        assertThat(analyzer.analyze(START, START + HOUR - 1, new AveragingFunction()).isEmpty(), is(false));
+
+        // reversal of a payment of the first hour, appended in the third hour
+        analyzer.add(reversal("R1", START + 2 * HOUR + 500, "P10"));
+        assertThat(cache.getInvalidations(), is(9L)); // first, third hour and all, 3 functions each
+        assertThat(cache.get(ranges[1][0], ranges[1][1], AnalyzerFunctions.AVERAGE) != null, is(true));
+        assertResults(analyzer, ranges, functions);
+
+        // reversal of a reversed payment changes nothing, the reversal row itself invalidates the third hour
+        analyzer.add(reversal("R2", START + 2 * HOUR + 600, "P10"));
+        assertThat(cache.get(ranges[0][0], ranges[0][1], AnalyzerFunctions.AVERAGE) != null, is(true));
+        assertThat(cache.get(ranges[2][0], ranges[2][1], AnalyzerFunctions.AVERAGE), nullValue());
+        assertResults(analyzer, ranges, functions);
+
+        // the analyzer's own function accumulates, it is not cached
+        long misses = cache.getMisses();
+        analyzer.analyze(START, START + HOUR);
+        assertThat(cache.getMisses(), is(misses));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        ResultCache cache = new ResultCache(4096);
+        analyzer.setResultCache(cache);
+        Random random = new Random(10);
+        for (int i = 0; i < 1000; i++) {
+            analyzer.add(payment("P" + i, START + i * 1000L, random));
+        }
+        for (int i = 0; i < 100; i++) {
+            analyzer.analyze(START, START + i * 1000L, new AveragingFunction());
+            analyzer.analyze(START, START, new AveragingFunction()); // most recently used
+            assertTrue(cache.getBytes() <= 4096);
+        }
+        assertTrue(cache.getEvictions() > 0);
+        assertTrue(cache.size() < 100);
+        assertThat(cache.get(START, START, AnalyzerFunctions.AVERAGE) != null, is(true));
+        assertThat(cache.get(START, START + 1000L, AnalyzerFunctions.AVERAGE), nullValue());
+    }
+
+    @Test
+    public void batchUsesCache() {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        analyzer.setResultCache(new ResultCache());
+        Random random = new Random(11);
+        for (int i = 0; i < 5000; i++) {
+            analyzer.add(payment("P" + i, START + i * 1000L, random));
+        }
+        List<RangeQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            long from = START + random.nextInt(5000) * 1000L;
+            queries.add(new RangeQuery(from, from + random.nextInt(1000) * 1000L, new MinMaxFunction()));
+        }
+        List<Map<String, Object>> first = new BatchAnalyzer(analyzer).analyze(queries);
+        long hits = analyzer.getResultCache().getHits();
+        Collections.reverse(queries);
+        List<RangeQuery> repeated = new ArrayList<>();
+        for (RangeQuery query : queries) {
+            repeated.add(new RangeQuery(query.getFrom(), query.getTo(), new MinMaxFunction()));
+        }
+        List<Map<String, Object>> second = new BatchAnalyzer(analyzer).analyze(repeated);
+        Collections.reverse(second);
+        assertThat(second, is(first));
+        assertThat(analyzer.getResultCache().getHits(), is(hits + 50));
+    }
+
+    private static void assertResults(TransactionAnalyzer analyzer, long[][] ranges, String[] functions) {
+        TransactionAnalyzer uncached = new TransactionAnalyzer(new AveragingFunction());
+        uncached.addAll(analyzer.getColumnarDataSet());
+        for (long[] range : ranges) {
+            for (String function : functions) {
+                assertThat(analyzer.analyze(range[0], range[1], AnalyzerFunctions.create(function, 3)),
+                        is(uncached.analyze(range[0], range[1], AnalyzerFunctions.create(function, 3))));
+            }
+        }
+    }
+
+    private static TransactionRecord payment(String id, long date, Random random) {
+        TransactionRecord record = new TransactionRecord();
+        record.setId(id);
+        record.setDate(date);
+        record.setAmount(random.nextInt(10000) / 100.0d);
+        record.setMerchant("M" + random.nextInt(20));
+        record.setType(TransactionRecord.TransactionType.PAYMENT);
+        return record;
+    }
+
+    private static TransactionRecord reversal(String id, long date, String related) {
+        TransactionRecord record = new TransactionRecord();
+        record.setId(id);
+        record.setDate(date);
+        record.setAmount(1.0d);
+        record.setMerchant("MacLaren");
+        record.setType(TransactionRecord.TransactionType.REVERSAL);
+        record.setRelatedTransaction(related);
+        return record;
+    }
+}
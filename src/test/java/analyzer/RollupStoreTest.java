@@ -0,0 +1,86 @@
+package analyzer;
+
+import model.TransactionRecord;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RollupStoreTest {
+
+    @Test
+    public void sameAsScanWithLateReversals() {
+        Random random = new Random(11);
+        TransactionAnalyzer rolledUp = new TransactionAnalyzer(new AveragingFunction());
+        TransactionAnalyzer scanned = new TransactionAnalyzer(new AveragingFunction());
+        scanned.setRollupsEnabled(false);
+        int rows = 20000;
+        long date = 1_500_000_000_000L;
+        for (int i = 0; i < rows; i++) {
+            // gaps from milliseconds to hours, several days in total
+            date += random.nextInt(4) == 0 ? random.nextInt(3 * 3600_000) : random.nextInt(20_000);
+            TransactionRecord record = new TransactionRecord();
+            record.setId("T" + i);
+            record.setDate(date);
+            record.setAmount(random.nextInt(100000) / 100.0d);
+            if (i > 0 && random.nextInt(8) == 0) {
+                record.setType(TransactionRecord.TransactionType.REVERSAL);
+                record.setRelatedTransaction("T" + random.nextInt(i));
+            } else {
+                record.setType(TransactionRecord.TransactionType.PAYMENT);
+            }
+            rolledUp.add(record);
+            scanned.add(record);
+        }
+        long first = rolledUp.getColumnarDataSet().getDate(0);
+        for (int i = 0; i < 500; i++) {
+            long dateFrom = first - 1000L + (long) (random.nextDouble() * (date - first));
+            long dateTo = dateFrom + (long) (random.nextDouble() * (date + 1000L - dateFrom));
+            assertEquals(scanned.analyze(dateFrom, dateTo, new AveragingFunction()),
+                    rolledUp.analyze(dateFrom, dateTo, new AveragingFunction()));
+            assertEquals(scanned.analyze(dateFrom, dateTo, new MinMaxFunction()),
+                    rolledUp.analyze(dateFrom, dateTo, new MinMaxFunction()));
+        }
+        assertEquals(scanned.analyze(Long.MIN_VALUE, Long.MAX_VALUE, new MinMaxFunction()),
+                rolledUp.analyze(Long.MIN_VALUE, Long.MAX_VALUE, new MinMaxFunction()));
+    }
+
+    @Test
+    public void monthFromBuckets() {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        long start = 1_530_403_200_000L; // 01/07/2018 00:00:00 UTC
+        int rows = 31 * 24 * 360; // every 10 seconds
+        for (int i = 0; i < rows; i++) {
+            TransactionRecord record = new TransactionRecord();
+            record.setId("T" + i);
+            record.setDate(start + i * 10_000L);
+            record.setAmount(i % 100);
+            record.setType(TransactionRecord.TransactionType.PAYMENT);
+            analyzer.add(record);
+        }
+        RollupStore rollups = new RollupStore(analyzer.getColumnarDataSet());
+        assertTrue(rollups.isValid());
+        assertEquals(31 + 31 * 24 + 31 * 24 * 60, rollups.getBucketCount());
+        PaymentSummary summary = rollups.query(start + 90_000L, start + 30 * RollupStore.DAY - 1);
+        assertEquals(30 * 24 * 360 - 9, summary.getCount());
+        assertEquals(0L, summary.getMin());
+        assertEquals(9900L, summary.getMax());
+    }
+
+    @Test
+    public void invalidWhenOutOfOrder() {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new MinMaxFunction());
+        for (long date : new long[] {3000L, 1000L, 2000L}) {
+            TransactionRecord record = new TransactionRecord();
+            record.setId("T" + date);
+            record.setDate(date);
+            record.setAmount(date / 100.0d);
+            record.setType(TransactionRecord.TransactionType.PAYMENT);
+            analyzer.add(record);
+        }
+        assertFalse(new RollupStore(analyzer.getColumnarDataSet()).isValid());
+    }
+}
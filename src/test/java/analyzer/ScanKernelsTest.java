@@ -0,0 +1,109 @@
+package analyzer;
+
+import model.Amounts;
+import model.TransactionDataSet;
+import model.TransactionRecord;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ScanKernelsTest {
+
+    @Test
+    public void sameAsBranchingScan() {
+        Random random = new Random(21);
+        TransactionDataSet dataSet = dataSet(random, 3 * ScanKernels.MASK_BLOCK + 77, 1L << 40);
+        int[][] ranges = {{0, dataSet.size()}, {5, 6}, {0, 0}, {ScanKernels.MASK_BLOCK - 1, 2 * ScanKernels.MASK_BLOCK + 1},
+                {100, 100 + ScanKernels.MASK_BLOCK}};
+        dataSet.publish();
+        TransactionDataSet snapshot = dataSet.snapshot();
+        // reversals after the snapshot
+        TransactionRecord reversal = new TransactionRecord();
+        reversal.setType(TransactionRecord.TransactionType.REVERSAL);
+        for (int row = 0, size = dataSet.size(); row < size; row += 5) {
+            dataSet.add(reversal);
+            dataSet.setReversed(row, true);
+        }
+        for (int[] range : ranges) {
+            assertSame(dataSet, range[0], range[1]);
+            assertSame(snapshot, range[0], range[1]); // mask computed from the columns
+        }
+        // amounts large enough to take the exact summation of the blocks
+        assertSame(dataSet(random, ScanKernels.MASK_BLOCK + 1, Long.MAX_VALUE / (2L * ScanKernels.MASK_BLOCK)),
+                0, ScanKernels.MASK_BLOCK + 1);
+    }
+
+    @Test
+    public void sumOverflowDetected() {
+        TransactionDataSet dataSet = new TransactionDataSet();
+        TransactionRecord record = new TransactionRecord();
+        record.setType(TransactionRecord.TransactionType.PAYMENT);
+        for (long amount : new long[] {Long.MAX_VALUE / 2, -1L, Long.MAX_VALUE / 2, 3L, -2L}) {
+            record.setAmount(Amounts.toDouble(amount));
+            dataSet.add(record);
+        }
+        try {
+            ScanKernels.summarize(dataSet, 0, dataSet.size(), true);
+            fail("overflow of the sum not detected");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+        // amounts summed exactly, the overflow is found in the third block
+        TransactionDataSet blocks = new TransactionDataSet();
+        record.setAmount(Amounts.toDouble(Long.MAX_VALUE / ScanKernels.MASK_BLOCK / 2));
+        for (int i = 0; i < 3 * ScanKernels.MASK_BLOCK; i++) {
+            blocks.add(record);
+        }
+        try {
+            ScanKernels.summarize(blocks, 0, blocks.size(), true);
+            fail("overflow of the sum not detected");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+    }
+
+    private static void assertSame(TransactionDataSet dataSet, int fromIndex, int toIndex) {
+        int count = 0;
+        long sum = 0L;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int row = fromIndex; row < toIndex; row++) {
+            if (dataSet.isPayment(row) && !dataSet.isReversed(row)) {
+                long amount = dataSet.getAmountMinorUnits(row);
+                count++;
+                sum += amount;
+                min = Math.min(min, amount);
+                max = Math.max(max, amount);
+            }
+        }
+        PaymentSummary withSum = ScanKernels.summarize(dataSet, fromIndex, toIndex, true);
+        PaymentSummary withMinMax = ScanKernels.summarize(dataSet, fromIndex, toIndex, false);
+        assertEquals(count, withSum.getCount());
+        assertEquals(sum, withSum.getSum());
+        assertEquals(count, withMinMax.getCount());
+        assertEquals(min, withMinMax.getMin());
+        assertEquals(max, withMinMax.getMax());
+    }
+
+    /**
+     * Payments, reversals and reversed payments with amounts (also negative) of the given magnitude.
+     */
+    private static TransactionDataSet dataSet(Random random, int rows, long magnitude) {
+        TransactionDataSet dataSet = new TransactionDataSet();
+        TransactionRecord record = new TransactionRecord();
+        for (int i = 0; i < rows; i++) {
+            record.setId("T" + i);
+            record.setAmount(Amounts.toDouble((long) ((random.nextDouble() * 2 - 1) * magnitude) / 100 * 100));
+            record.setType(random.nextInt(10) == 0 ? TransactionRecord.TransactionType.REVERSAL
+                    : TransactionRecord.TransactionType.PAYMENT);
+            int row = dataSet.add(record);
+            if (random.nextInt(7) == 0) {
+                dataSet.setReversed(row, true);
+            }
+        }
+        return dataSet;
+    }
+}
@@ -0,0 +1,89 @@
+package analyzer;
+
+import app.SimpleTransactionAnalyzer;
+import model.TransactionRecord;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SnapshotTest {
+
+    @Test
+    public void snapshotSameAsParsedInput() throws Exception {
+        TransactionAnalyzer parsed = new TransactionAnalyzer(new MinMaxFunction());
+        SimpleTransactionAnalyzer.parseInput(new File("./Test3.csv"), parsed);
+        Random random = new Random(13);
+        for (int i = 0; i < 100_000; i++) {
+            TransactionRecord record = new TransactionRecord();
+            record.setId(i % 1000 == 0 ? "LONG-ID-" + i : Integer.toString(i, 36));
+            record.setDate(1534766400000L + i * 10L);
+            record.setAmount(i % 5000 == 0 ? random.nextDouble() : random.nextInt(100000) / 100.0d);
+            record.setMerchant("M" + random.nextInt(500));
+            record.setType(i % 50 == 0 ? TransactionRecord.TransactionType.REVERSAL
+                    : TransactionRecord.TransactionType.PAYMENT);
+            record.setRelatedTransaction(i % 50 == 0 ? Integer.toString(random.nextInt(i + 1), 36) : null);
+            parsed.add(record);
+        }
+        File snapshot = File.createTempFile("transactions", ".snapshot");
+        snapshot.deleteOnExit();
+        parsed.writeSnapshot(snapshot);
+
+        TransactionAnalyzer loaded = new TransactionAnalyzer(new MinMaxFunction());
+        SimpleTransactionAnalyzer.parseInput(snapshot, loaded);
+        assertThat(loaded.getDataSet().size(), is(parsed.getDataSet().size()));
+        for (int row = 0; row < parsed.getDataSet().size(); row++) {
+            assertSameRecord(loaded.getDataSet().get(row), parsed.getDataSet().get(row));
+        }
+        assertThat(loaded.getTransacionIndex().keySet(), is(parsed.getTransacionIndex().keySet()));
+        for (String id : parsed.getTransacionIndex().keySet()) {
+            assertSameRecord(loaded.getTransacionIndex().get(id), parsed.getTransacionIndex().get(id));
+        }
+        assertThat(loaded.getColumnarDataSet().isTimeOrdered(), is(parsed.getColumnarDataSet().isTimeOrdered()));
+        assertThat(loaded.analyze(0L, Long.MAX_VALUE, new AveragingFunction()),
+                is(parsed.analyze(0L, Long.MAX_VALUE, new AveragingFunction())));
+
+        // loaded analyzer keeps resolving the reversals
+        TransactionRecord reversal = TransactionRecord.of("XREV, 20/08/2018 15:00:00, 5.00, MacLaren, REVERSAL, LONG-ID-5000");
+        loaded.add(reversal);
+        assertTrue(loaded.getTransacionIndex().get("LONG-ID-5000").isReversed());
+    }
+
+    private static void assertSameRecord(TransactionRecord actual, TransactionRecord expected) {
+        assertThat(actual.getId(), is(expected.getId()));
+        assertThat(actual.getDate(), is(expected.getDate()));
+        assertThat(actual.getAmount(), is(expected.getAmount()));
+        assertThat(actual.getMerchant(), is(expected.getMerchant()));
+        assertThat(actual.getType(), is(expected.getType()));
+        assertThat(actual.getRelatedTransaction(), is(expected.getRelatedTransaction()));
+        assertThat(actual.isReversed(), is(expected.isReversed()));
+    }
+
+    @Test
+    public void corruptedSnapshot() throws Exception {
+        TransactionAnalyzer parsed = new TransactionAnalyzer(new AveragingFunction());
+        SimpleTransactionAnalyzer.parseInput(new File("./Test3.csv"), parsed);
+        File snapshot = File.createTempFile("transactions", ".snapshot");
+        snapshot.deleteOnExit();
+        parsed.writeSnapshot(snapshot);
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.seek(100);
+            int value = file.read();
+            file.seek(100);
+            file.write(value ^ 1);
+        }
+        try {
+            new TransactionAnalyzer(new AveragingFunction()).loadSnapshot(snapshot);
+            fail("corrupted snapshot loaded");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("checksum"));
+        }
+    }
+}
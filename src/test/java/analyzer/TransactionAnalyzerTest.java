@@ -6,6 +6,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.util.Map;
+import java.util.Random;
 
 import static app.SimpleTransactionAnalyzer.DATE_FORMAT;
 import static org.hamcrest.CoreMatchers.is;
@@ -29,6 +30,19 @@ public class TransactionAnalyzerTest {
         transactionAnalyzer.add(TransactionRecord.of("AKNBVHMN, 20/08/2018 13:14:11, 10.95, Kwik-E-Mart, REVERSAL, XYZ1XYZ"));
         assertFalse(transactionAnalyzer.getDataSet().get(0).isReversed());
     }
+    @Test
+    public void reverseWithinHorizon() {
+        TransactionAnalyzer transactionAnalyzer = new TransactionAnalyzer(new AveragingFunction());
+        transactionAnalyzer.setReversalHorizon(3600_000L);
+        transactionAnalyzer.add(TransactionRecord.of("ABCDEF, 20/08/2018 10:46:17, 10.95, Kwik-E-Mart, PAYMENT,"));
+        transactionAnalyzer.add(TransactionRecord.of("GHIJKL, 20/08/2018 12:46:17, 10.95, Kwik-E-Mart, PAYMENT,"));
+        transactionAnalyzer.add(TransactionRecord.of("AKNBVHMN, 20/08/2018 13:14:11, 10.95, Kwik-E-Mart, REVERSAL, GHIJKL"));
+        transactionAnalyzer.add(TransactionRecord.of("AKNBVHMO, 20/08/2018 13:14:12, 10.95, Kwik-E-Mart, REVERSAL, ABCDEF"));
+        assertFalse(transactionAnalyzer.getDataSet().get(0).isReversed());
+        assertTrue(transactionAnalyzer.getDataSet().get(1).isReversed());
+        assertThat(transactionAnalyzer.getTransacionIndex().size(), is(3));
+    }
+
     @Test
     public void analyze() throws Exception {
         TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
@@ -93,4 +107,62 @@ public class TransactionAnalyzerTest {
         assertThat(result.get(AveragingFunction.KEY_SET[0]), is(8));
         assertThat(result.get(AveragingFunction.KEY_SET[1]), is("36.19"));
     }
+
+    @Test
+    public void analyzeDuplicateBoundaries() throws Exception {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new MinMaxFunction());
+        SimpleTransactionAnalyzer.parseInput(new File("./Test3.csv"), analyzer);
+        long dateFrom = DATE_FORMAT.parse("20/08/2018 12:50:02").getTime();
+        long dateTo = DATE_FORMAT.parse("20/08/2018 14:07:10").getTime();
+        Map<String,Object> result = analyzer.analyze(dateFrom, dateTo);
+        assertThat(result.get(MinMaxFunction.KEY_SET[0]), is("5.00"));
+        assertThat(result.get(MinMaxFunction.KEY_SET[1]), is("99.50"));
+        assertThat(result.get(MinMaxFunction.KEY_SET[2]), is(12));
+    }
+
+    @Test
+    public void analyzeNotOrderedDataSet() throws Exception {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        analyzer.add(TransactionRecord.of("WLMFRDGD, 20/08/2018 12:45:33, 10.00, Kwik-E-Mart, PAYMENT,"));
+        analyzer.add(TransactionRecord.of("YGXKOEIA, 20/08/2018 13:05:00, 20.00, Kwik-E-Mart, PAYMENT,"));
+        analyzer.add(TransactionRecord.of("LFVCTEYM, 20/08/2018 12:50:00, 40.00, MacLaren, PAYMENT,"));
+        analyzer.add(TransactionRecord.of("SUOVOISP, 20/08/2018 12:55:00, 80.00, MacLaren, PAYMENT,"));
+        long dateFrom = DATE_FORMAT.parse("20/08/2018 12:45:00").getTime();
+        long dateTo = DATE_FORMAT.parse("20/08/2018 13:00:00").getTime();
+        // linear scan semantics - the range ends at the first transaction outside of it
+        Map<String,Object> result = analyzer.analyze(dateFrom, dateTo);
+        assertThat(result.get(AveragingFunction.KEY_SET[0]), is(1));
+        assertThat(result.get(AveragingFunction.KEY_SET[1]), is("10.00"));
+    }
+
+    @Test
+    public void parallelSameAsSequential() {
+        TransactionAnalyzer sequentialAverage = new TransactionAnalyzer(new AveragingFunction());
+        TransactionAnalyzer parallelAverage = new TransactionAnalyzer(new AveragingFunction());
+        TransactionAnalyzer sequentialMinMax = new TransactionAnalyzer(new MinMaxFunction());
+        TransactionAnalyzer parallelMinMax = new TransactionAnalyzer(new MinMaxFunction());
+        AveragingFunction singlePass = new AveragingFunction();
+        sequentialAverage.setParallelAnalysis(false);
+        sequentialMinMax.setParallelAnalysis(false);
+        Random random = new Random(11);
+        int rows = TransactionAnalyzer.BLOCK_SIZE * 6 + 123;
+        for (int i = 0; i < rows; i++) {
+            TransactionRecord record = new TransactionRecord();
+            record.setId("T" + i);
+            record.setDate(i * 1000L);
+            record.setAmount(random.nextInt(1000000) / 100.0d);
+            record.setType(random.nextInt(20) == 0 ? TransactionRecord.TransactionType.REVERSAL
+                    : TransactionRecord.TransactionType.PAYMENT);
+            record.setRelatedTransaction("T" + random.nextInt(i + 1));
+            for (TransactionAnalyzer analyzer : new TransactionAnalyzer[] {
+                    sequentialAverage, parallelAverage, sequentialMinMax, parallelMinMax}) {
+                analyzer.add(record);
+            }
+        }
+        sequentialAverage.getDataSet().forEach(singlePass);
+        Map<String, Object> sequential = sequentialAverage.analyze(0, Long.MAX_VALUE);
+        assertThat(parallelAverage.analyze(0, Long.MAX_VALUE), is(sequential));
+        assertThat(sequential, is(singlePass.getResult()));
+        assertThat(parallelMinMax.analyze(1000000L, rows * 1000L - 5000L), is(sequentialMinMax.analyze(1000000L, rows * 1000L - 5000L)));
+    }
 }
@@ -0,0 +1,60 @@
+package analyzer;
+
+import model.TransactionIds;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TransactionIdIndexTest {
+
+    @Test
+    public void packedIds() {
+        for (String id : new String[] {"A", "WLMFRDGD", "12345678", "a b-c~"}) {
+            assertThat(TransactionIds.unpack(TransactionIds.pack(id)), is(id));
+        }
+        assertThat(TransactionIds.pack("WLMFRDGDX"), is(TransactionIds.NOT_PACKED));
+        assertThat(TransactionIds.pack(""), is(TransactionIds.NOT_PACKED));
+        assertThat(TransactionIds.pack("\u00e9t\u00e9"), is(TransactionIds.NOT_PACKED));
+        byte[] line = "x,YGXKOEIA,".getBytes();
+        assertThat(TransactionIds.pack(line, 2, 10), is(TransactionIds.pack("YGXKOEIA")));
+    }
+
+    @Test
+    public void sameAsHashMap() {
+        TransactionIdIndex index = new TransactionIdIndex();
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(5);
+        for (int row = 0; row < 200_000; row++) {
+            // short IDs collide often, long ones are not packed
+            String id = Integer.toString(random.nextInt(50_000), 36) + (random.nextInt(100) == 0 ? "-UNPACKED" : "");
+            if (random.nextInt(4) == 0) {
+                Integer mappedRow = expected.get(id);
+                int removedRow = mappedRow != null && random.nextBoolean() ? mappedRow : row;
+                index.remove(id, removedRow);
+                expected.remove(id, removedRow);
+            } else {
+                index.put(id, row);
+                expected.put(id, row);
+            }
+        }
+        assertThat(index.size(), is(expected.size()));
+        for (int i = 0; i < 50_000; i++) {
+            String id = Integer.toString(i, 36);
+            assertThat(index.get(id), is(expected.getOrDefault(id, -1)));
+            assertThat(index.get(id + "-UNPACKED"), is(expected.getOrDefault(id + "-UNPACKED", -1)));
+        }
+        Set<String> ids = new HashSet<>();
+        for (Iterator<String> iterator = index.ids(); iterator.hasNext(); ) {
+            ids.add(iterator.next());
+        }
+        assertThat(ids, is(expected.keySet()));
+    }
+}
@@ -0,0 +1,86 @@
+package analyzer;
+
+import app.SimpleTransactionAnalyzer;
+import model.TransactionRecord;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import static app.SimpleTransactionAnalyzer.DATE_FORMAT;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class WindowAnalyzerTest {
+
+    @Test
+    public void tumblingWindows() throws Exception {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        SimpleTransactionAnalyzer.parseInput(new File("./Test3.csv"), analyzer);
+        long dateFrom = DATE_FORMAT.parse("20/08/2018 12:00:00").getTime();
+        long dateTo = DATE_FORMAT.parse("20/08/2018 14:59:59").getTime();
+        List<WindowResult> series = new WindowAnalyzer(analyzer).analyze(dateFrom, dateTo, 3600_000L, 3600_000L,
+                new AveragingFunction());
+        assertThat(series.size(), is(3));
+        assertSameAsAnalyze(analyzer, series, dateTo, new AveragingFunction());
+        assertThat(series.get(1).getStart(), is(DATE_FORMAT.parse("20/08/2018 13:00:00").getTime()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void slidingWindowsSameAsAnalyze() {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new MinMaxFunction());
+        Random random = new Random(7);
+        long date = 1_534_766_400_000L;
+        for (int i = 0; i < 5000; i++) {
+            date += random.nextInt(3000);
+            analyzer.add(record("T" + i, date, random.nextInt(10000) / 100.0d, TransactionRecord.TransactionType.PAYMENT, null));
+            if (i > 10 && random.nextInt(20) == 0) {
+                analyzer.add(record("R" + i, date, 0.0d, TransactionRecord.TransactionType.REVERSAL,
+                        "T" + (i - random.nextInt(10))));
+            }
+        }
+        long dateFrom = 1_534_766_400_000L + 1234;
+        long dateTo = date - 5000;
+        long[][] windows = {{60_000L, 1_000L}, {300_000L, 60_000L}, {10_000L, 25_000L}, {7_000L, 7_000L}};
+        for (long[] window : windows) {
+            for (AnalyzerFunction<TransactionRecord> function : new AnalyzerFunction[] {new MinMaxFunction(), new AveragingFunction()}) {
+                List<WindowResult> series = new WindowAnalyzer(analyzer).analyze(dateFrom, dateTo, window[0], window[1],
+                        function);
+                assertThat(series.size(), is((int) ((dateTo - dateFrom) / window[1] + 1)));
+                assertSameAsAnalyze(analyzer, series, dateTo, function);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void functionWithoutPartials() {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        new WindowAnalyzer(analyzer).analyze(0L, 1000L, 10L, 10L, new AnalyzerFunction<TransactionRecord>() {
+            @Override
+            public void accept(TransactionRecord transactionRecord) {
+            }
+        });
+    }
+
+    private static TransactionRecord record(String id, long date, double amount, TransactionRecord.TransactionType type,
+                                            String relatedTransaction) {
+        TransactionRecord record = new TransactionRecord();
+        record.setId(id);
+        record.setDate(date);
+        record.setAmount(amount);
+        record.setMerchant("Kwik-E-Mart");
+        record.setType(type);
+        record.setRelatedTransaction(relatedTransaction);
+        return record;
+    }
+
+    private static void assertSameAsAnalyze(TransactionAnalyzer analyzer, List<WindowResult> series, long dateTo,
+                                            AnalyzerFunction<TransactionRecord> function) {
+        for (WindowResult window : series) {
+            assertThat(window.getResult(), is(analyzer.analyze(window.getStart(), Math.min(dateTo, window.getEnd() - 1),
+                    function.newPartial())));
+        }
+    }
+}
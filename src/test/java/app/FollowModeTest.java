@@ -0,0 +1,111 @@
+package app;
+
+import analyzer.AveragingFunction;
+import analyzer.TransactionAnalyzer;
+import ingest.FileTailer;
+import metrics.Metrics;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FollowModeTest {
+
+    @Test
+    public void followAppendedFile() throws Exception {
+        File file = File.createTempFile("follow", ".csv");
+        file.deleteOnExit();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FollowMode followMode = new FollowMode(new TransactionAnalyzer(new AveragingFunction()), AveragingFunction::new,
+                0L, Long.MAX_VALUE, 0, new PrintStream(output, true));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (FileTailer tailer = new FileTailer(file)) {
+            Future<?> following = executor.submit(() -> {
+                followMode.follow(tailer);
+                return null;
+            });
+            append(file, "ID, Date, Amount, Merchant, Type, Related Transaction\n"
+                    + "WLMFRDGD, 20/08/2018 12:45:33, 59.99, Kwik-E-Mart, PAYMENT,\n"
+                    + "YGXKOEIA, 20/08/2018 12:46:17, 10.");
+            awaitOutput(output, "Average Transaction Value = 59.99");
+            // the second line completed and reversed later
+            append(file, "95, Kwik-E-Mart, PAYMENT,\n");
+            awaitOutput(output, "Average Transaction Value = 35.47");
+            append(file, "AKNBVHMN, 20/08/2018 13:14:11, 10.95, Kwik-E-Mart, REVERSAL, YGXKOEIA\n");
+            awaitOutput(output, "total 3 rows");
+            followMode.stop();
+            following.get();
+        } finally {
+            executor.shutdown();
+        }
+        String text = new String(output.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(text, text.endsWith("Number of Transactions = 1\nAverage Transaction Value = 59.99\n"));
+        assertEquals(3, followMode.getEmitCount());
+    }
+
+    @Test
+    public void followStreamUntilEnd() throws Exception {
+        byte[] input = ("ID, Date, Amount, Merchant, Type, Related Transaction\n"
+                + "LFVCTEYM, 20/08/2018 12:50:02, 5.00, MacLaren, PAYMENT,\n"
+                + "LFVCTEYN, 20/08/2018 12:50:02, 15.00, MacLaren, PAYMENT,").getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FollowMode followMode = new FollowMode(new TransactionAnalyzer(new AveragingFunction()), AveragingFunction::new,
+                0L, Long.MAX_VALUE, 60000, new PrintStream(output, true));
+        followMode.follow(new FileTailer(new ByteArrayInputStream(input)));
+        String text = new String(output.toByteArray(), StandardCharsets.UTF_8);
+        // first line emitted immediately, the last (not terminated) one at the end of the stream
+        assertTrue(text, text.endsWith("Number of Transactions = 2\nAverage Transaction Value = 10.00\n"));
+        assertEquals(2, followMode.getEmitCount());
+    }
+
+    @Test
+    public void invalidLineSkipped() throws Exception {
+        byte[] input = ("ID, Date, Amount, Merchant, Type, Related Transaction\n"
+                + "LFVCTEYM, 20/08/2018 12:50:02, 5.00, MacLaren, PAYMENT,\n"
+                + "LFVCTEYO, 20/08/2018 12:50:03, 7.00, MacLaren, REFUND,\n"
+                + "LFVCTEYN, 20/08/2018 12:50:04, 15.00, MacLaren, PAYMENT,\n").getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FollowMode followMode = new FollowMode(new TransactionAnalyzer(new AveragingFunction()), AveragingFunction::new,
+                0L, Long.MAX_VALUE, 60000, new PrintStream(output, true));
+        Metrics.reset();
+        Metrics.enabled = true;
+        try {
+            followMode.follow(new FileTailer(new ByteArrayInputStream(input)));
+            assertEquals(1L, Metrics.PARSE_FAILURES.get());
+        } finally {
+            Metrics.enabled = false;
+            Metrics.reset();
+        }
+        String text = new String(output.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(text, text.contains(
+                "[WARN] - skipping invalid line: LFVCTEYO, 20/08/2018 12:50:03, 7.00, MacLaren, REFUND,"));
+        assertTrue(text, text.endsWith("Number of Transactions = 2\nAverage Transaction Value = 10.00\n"));
+    }
+
+    private static void append(File file, String text) throws IOException {
+        try (FileWriter writer = new FileWriter(file, true)) {
+            writer.write(text);
+        }
+    }
+
+    private static void awaitOutput(ByteArrayOutputStream output, String expected) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            if (new String(output.toByteArray(), StandardCharsets.UTF_8).contains(expected)) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Expected output not printed: " + expected);
+    }
+}
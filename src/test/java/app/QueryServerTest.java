@@ -0,0 +1,65 @@
+package app;
+
+import analyzer.AveragingFunction;
+import analyzer.TransactionAnalyzer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+public class QueryServerTest {
+
+    @Test
+    public void concurrentQueries() throws Exception {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        SimpleTransactionAnalyzer.parseInput(new File("./Test3.csv"), analyzer);
+        QueryServer server = new QueryServer(analyzer);
+        server.start(0, 4);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            String base = "http://localhost:" + server.getPort() + QueryServer.ANALYZE_PATH;
+            List<Future<String>> averages = new ArrayList<>();
+            List<Future<String>> minMaxes = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                averages.add(clients.submit(() -> get(base + "?from=20/08/2018+12:50:02&to=20/08/2018%2012:50:02", 200)));
+                minMaxes.add(clients.submit(() -> get(base + "?from=20/08/2018+12:00:00&to=20/08/2018+15:00:00&af=minmax", 200)));
+            }
+            for (Future<String> average : averages) {
+                assertEquals("Number of Transactions = 5\nAverage Transaction Value = 25.00\n", average.get());
+            }
+            for (Future<String> minMax : minMaxes) {
+                assertEquals("Minimal Amount = 5.00\nMaximal Amount = 99.50\nNumber of Transactions = 13\n", minMax.get());
+            }
+            get(base + "?from=20/08/2019+12:00:00&to=20/08/2018+13:00:00", 400);
+            get(base + "?from=yesterday", 400);
+        } finally {
+            clients.shutdown();
+            server.stop();
+        }
+    }
+
+    private static String get(String url, int expectedStatus) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        assertEquals(expectedStatus, connection.getResponseCode());
+        try (InputStream input = expectedStatus == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int count;
+            while ((count = input.read(buffer)) > 0) {
+                body.write(buffer, 0, count);
+            }
+            return body.toString("UTF-8");
+        }
+    }
+}
@@ -2,6 +2,7 @@ package app;
 
 import analyzer.AveragingFunction;
 import analyzer.TransactionAnalyzer;
+import ingest.InputMode;
 import model.TransactionRecord;
 import org.junit.Test;
 
@@ -31,4 +32,18 @@ public class SimpleTransactionAnalyzerTest {
             fail(e.getMessage());
         }
     }
+
+    @Test
+    public void mappedInputSameAsReader() throws IOException {
+        for (String fileName : new String[] {"./Test1.csv", "./Test2.csv", "./Test3.csv"}) {
+            TransactionAnalyzer mapped = new TransactionAnalyzer(new AveragingFunction());
+            SimpleTransactionAnalyzer.parseInput(new File(fileName), mapped, InputMode.MMAP, 1);
+            TransactionAnalyzer read = new TransactionAnalyzer(new AveragingFunction());
+            SimpleTransactionAnalyzer.parseInput(new File(fileName), read, InputMode.READER, 1);
+            assertEquals(read.getDataSet().size(), mapped.getDataSet().size());
+            for (int i = 0; i < read.getDataSet().size(); i++) {
+                assertEquals(read.getDataSet().get(i).toString(), mapped.getDataSet().get(i).toString());
+            }
+        }
+    }
 }
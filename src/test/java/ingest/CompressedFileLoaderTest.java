@@ -0,0 +1,149 @@
+package ingest;
+
+import analyzer.AveragingFunction;
+import analyzer.TransactionAnalyzer;
+import app.SimpleTransactionAnalyzer;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompressedFileLoaderTest {
+
+    @Test
+    public void sameAsPlainFile() throws IOException {
+        File plain = File.createTempFile("transactions", ".csv");
+        File gzip = File.createTempFile("transactions", ".csv.gz");
+        try {
+            // several decompressed blocks, "\r\n" and "\n" line terminators, a line longer than the block
+            Random random = new Random(3);
+            StringBuilder text = new StringBuilder("ID, Date, Amount, Merchant, Type, Related Transaction\r\n");
+            for (int i = 0; text.length() < 3 * CompressedFileLoader.BLOCK_SIZE; i++) {
+                String date = String.format("20/08/2018 %02d:%02d:%02d", i / 3600 % 24, (i / 60) % 60, i % 60);
+                if (i > 0 && random.nextInt(20) == 0) {
+                    text.append(String.format("R%07d, %s, 1.00, MacLaren, REVERSAL, T%07d", i, date, random.nextInt(i)));
+                } else {
+                    String merchant = i == 20000 ? new String(new char[CompressedFileLoader.BLOCK_SIZE]).replace('\0', 'M')
+                            : "M" + random.nextInt(20);
+                    text.append(String.format("T%07d, %s, %d.%02d, %s, PAYMENT,", i, date, random.nextInt(100),
+                            random.nextInt(100), merchant));
+                }
+                text.append(random.nextBoolean() ? "\n" : "\r\n");
+            }
+            byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+            Files.write(plain.toPath(), bytes);
+            // two concatenated gzip members
+            try (OutputStream output = new FileOutputStream(gzip)) {
+                for (int[] part : new int[][] {{0, bytes.length / 3}, {bytes.length / 3, bytes.length}}) {
+                    GZIPOutputStream member = new GZIPOutputStream(output);
+                    member.write(bytes, part[0], part[1] - part[0]);
+                    member.finish();
+                }
+            }
+            assertEquals(Compression.GZIP, Compression.of(gzip));
+            assertEquals(Compression.NONE, Compression.of(plain));
+
+            TransactionAnalyzer expected = new TransactionAnalyzer(new AveragingFunction());
+            SimpleTransactionAnalyzer.parseInput(plain, expected, InputMode.MMAP, 1);
+            for (int parallelism : new int[] {1, 4}) {
+                TransactionAnalyzer actual = new TransactionAnalyzer(new AveragingFunction());
+                SimpleTransactionAnalyzer.parseInput(gzip, actual, InputMode.MMAP, parallelism);
+                assertEquals(expected.getDataSet().size(), actual.getDataSet().size());
+                for (int i = 0; i < expected.getDataSet().size(); i++) {
+                    assertEquals(expected.getDataSet().get(i).toString(), actual.getDataSet().get(i).toString());
+                }
+                assertEquals(expected.analyze(0, Long.MAX_VALUE, new AveragingFunction()), actual.analyze(0, Long.MAX_VALUE));
+            }
+
+            // truncated file
+            Files.write(gzip.toPath(), Arrays.copyOf(Files.readAllBytes(gzip.toPath()), (int) gzip.length() / 2));
+            try {
+                new CompressedFileLoader(gzip, Compression.GZIP, 2).load(new TransactionAnalyzer(new AveragingFunction()));
+                fail("truncated gzip file loaded");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            plain.delete();
+            gzip.delete();
+        }
+    }
+
+    @Test
+    public void invalidLineNumber() throws IOException {
+        File plain = File.createTempFile("transactions", ".csv");
+        File gzip = File.createTempFile("transactions", ".csv.gz");
+        try {
+            // "\r\n" and "\n" line terminators, the first block ends between '\r' and '\n'
+            Random random = new Random(5);
+            StringBuilder text = new StringBuilder("ID, Date, Amount, Merchant, Type, Related Transaction\r\n");
+            int invalidLine = 0;
+            for (int i = 0; text.length() < 3 * CompressedFileLoader.BLOCK_SIZE; i++) {
+                String line = String.format("T%07d, 20/08/2018 12:00:00, 1.00, M, %s,", i,
+                        text.length() > 2 * CompressedFileLoader.BLOCK_SIZE && invalidLine == 0 ? "REFUND" : "PAYMENT");
+                int blockEnd = CompressedFileLoader.BLOCK_SIZE - text.length() - 1;
+                if (blockEnd > line.length() && blockEnd < line.length() + 100) {
+                    line = line.substring(0, 30) + new String(new char[blockEnd - line.length()]).replace('\0', 'M')
+                            + line.substring(30);
+                    text.append(line).append("\r\n");
+                    assertEquals('\r', text.charAt(CompressedFileLoader.BLOCK_SIZE - 1));
+                    continue;
+                }
+                if (line.contains("REFUND")) {
+                    invalidLine = i + 2;
+                }
+                text.append(line).append(random.nextBoolean() ? "\n" : "\r\n");
+            }
+            byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+            Files.write(plain.toPath(), bytes);
+            try (OutputStream output = new GZIPOutputStream(new FileOutputStream(gzip))) {
+                output.write(bytes);
+            }
+            for (File file : new File[] {plain, gzip}) {
+                for (InputMode inputMode : InputMode.values()) {
+                    for (int parallelism : new int[] {1, 4}) {
+                        try {
+                            SimpleTransactionAnalyzer.parseInput(file, new TransactionAnalyzer(new AveragingFunction()),
+                                    inputMode, parallelism);
+                            fail("invalid line loaded");
+                        } catch (InvalidLineException e) {
+                            assertEquals(file + " " + inputMode + " " + parallelism, invalidLine, e.getLineNumber());
+                            assertTrue(e.getMessage(), e.getMessage().contains(file.toString()));
+                        }
+                    }
+                }
+            }
+        } finally {
+            plain.delete();
+            gzip.delete();
+        }
+    }
+
+    @Test
+    public void invalidZstdFrame() throws IOException {
+        File zstd = File.createTempFile("transactions", ".csv.zst");
+        try {
+            Files.write(zstd.toPath(), new byte[] {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 1, 2, 3});
+            assertEquals(Compression.ZSTD, Compression.of(zstd));
+            try {
+                new CompressedFileLoader(zstd, Compression.ZSTD, 1).load(new TransactionAnalyzer(new AveragingFunction()));
+                fail("invalid zstd file loaded");
+            } catch (IOException e) {
+                // expected, also without zstd-jni on the class path
+            }
+        } finally {
+            zstd.delete();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package ingest;
+
+import analyzer.AveragingFunction;
+import analyzer.TransactionAnalyzer;
+import app.SimpleTransactionAnalyzer;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static app.SimpleTransactionAnalyzer.DATE_FORMAT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LazyFileLoaderTest {
+
+    private static final long HOUR = 3600_000L;
+
+    @Test
+    public void sameAsFullLoad() throws Exception {
+        File file = File.createTempFile("lazy", ".csv");
+        try {
+            List<String> lines = lines(new Random(7));
+            write(file, lines);
+            long first = DATE_FORMAT.parse("20/08/2018 00:00:00").getTime();
+            long[][] ranges = {
+                    {first + 2 * HOUR, first + 2 * HOUR + 60_000L},     // narrow
+                    {first + HOUR + 1234_000L, first + 4 * HOUR},
+                    {0L, Long.MAX_VALUE},                               // all
+                    {0L, first - 1},                                    // before the data
+                    {first + 7 * HOUR, first + 8 * HOUR},               // after the data
+                    {first + 3 * HOUR, first + 3 * HOUR},               // single second
+                    {first + 3 * HOUR, first + 2 * HOUR},               // invalid
+            };
+            for (long horizon : new long[] {0L, HOUR / 2}) {
+                TransactionAnalyzer expected = new TransactionAnalyzer(new AveragingFunction());
+                expected.setReversalHorizon(horizon);
+                SimpleTransactionAnalyzer.parseInput(file, expected, InputMode.READER, 1);
+                for (long[] range : ranges) {
+                    TransactionAnalyzer actual = new TransactionAnalyzer(new AveragingFunction());
+                    actual.setReversalHorizon(horizon);
+                    LazyFileLoader loader = new LazyFileLoader(file, range[0], range[1], 4, 1024);
+                    loader.load(actual);
+                    assertEquals(expected.analyze(range[0], range[1], new AveragingFunction()),
+                            actual.analyze(range[0], range[1]));
+                    assertTrue(actual.getColumnarDataSet().size() <= expected.getColumnarDataSet().size());
+                }
+            }
+
+            // the narrow window with horizon reads a fraction of the file
+            TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+            analyzer.setReversalHorizon(HOUR / 2);
+            LazyFileLoader loader = new LazyFileLoader(file, ranges[0][0], ranges[0][1], 4, 1024);
+            loader.load(analyzer);
+            assertTrue(loader.getBytesRead() < file.length() / 3);
+            assertTrue(analyzer.getColumnarDataSet().size() < lines.size() / 20);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void notTimeOrdered() throws Exception {
+        File file = File.createTempFile("lazy", ".csv");
+        try {
+            // the last 3 hours first
+            List<String> lines = lines(new Random(11));
+            Collections.rotate(lines, lines.size() / 2);
+            write(file, lines);
+            SparseOffsetIndex index = new SparseOffsetIndex(file);
+            index.offsetOf(DATE_FORMAT.parse("20/08/2018 01:00:00").getTime());
+            assertTrue(index.isTimeOrdered()); // the samples of the first half are in order
+            index.offsetOf(Long.MAX_VALUE);
+            assertFalse(index.isTimeOrdered());
+
+            long from = DATE_FORMAT.parse("20/08/2018 01:00:00").getTime();
+            long to = DATE_FORMAT.parse("20/08/2018 01:30:00").getTime();
+            TransactionAnalyzer expected = new TransactionAnalyzer(new AveragingFunction());
+            SimpleTransactionAnalyzer.parseInput(file, expected, InputMode.READER, 1);
+            TransactionAnalyzer actual = new TransactionAnalyzer(new AveragingFunction());
+            new LazyFileLoader(file, from, to, 2, 1024).load(actual);
+            assertEquals(expected.analyze(from, to, new AveragingFunction()), actual.analyze(from, to));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void firstLineReversal() throws Exception {
+        File file = File.createTempFile("lazy", ".csv");
+        try {
+            List<String> lines = lines(new Random(13));
+            lines.add(0, "R0000000, 20/08/2018 00:00:00, 1.00, MacLaren, REVERSAL, T0000001\n");
+            write(file, lines);
+            long first = DATE_FORMAT.parse("20/08/2018 00:00:00").getTime();
+            long[][] ranges = {
+                    {first + 2 * HOUR, first + 2 * HOUR + 60_000L},
+                    {first + 7 * HOUR, first + 8 * HOUR},               // after the data
+                    {first, first},                                     // the reversal only
+            };
+            TransactionAnalyzer expected = new TransactionAnalyzer(new AveragingFunction());
+            SimpleTransactionAnalyzer.parseInput(file, expected, InputMode.READER, 1);
+            for (long[] range : ranges) {
+                TransactionAnalyzer actual = new TransactionAnalyzer(new AveragingFunction());
+                new LazyFileLoader(file, range[0], range[1], 4, 1024).load(actual);
+                assertFalse(actual.getColumnarDataSet().isEmpty());
+                assertEquals(expected.analyze(range[0], range[1], new AveragingFunction()),
+                        actual.analyze(range[0], range[1]));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * 6 hours, one or two transactions per second, reversals of transactions up to an hour old.
+     */
+    private static List<String> lines(Random random) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 6 * 3600; i++) {
+            for (int j = random.nextInt(4) == 0 ? 2 : 1; j > 0; j--) {
+                String date = String.format("20/08/2018 %02d:%02d:%02d", i / 3600, (i / 60) % 60, i % 60);
+                if (j == 2 && random.nextInt(2) == 0) {
+                    lines.add(String.format("R%06d%d, %s, 1.00, MacLaren, REVERSAL, T%06d1%n",
+                            i, j, date, Math.max(0, i - random.nextInt(3600))));
+                } else {
+                    lines.add(String.format("T%06d%d, %s, %d.%02d, M%d, PAYMENT,%n",
+                            i, j, date, random.nextInt(100), random.nextInt(100), random.nextInt(20)));
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static void write(File file, List<String> lines) throws IOException {
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("ID, Date, Amount, Merchant, Type, Related Transaction\n");
+            for (String line : lines) {
+                writer.write(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ingest;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineSplitterTest {
+
+    private static final String[] INPUTS = new String[] {
+            "", "a", "a\n", "a\nb", "a\r\nb\r\n", "a\rb\r", "\n\n", "\r\n\r\n", "line one\r\rline three\n\r\n",
+            "ID, Date\nWLMFRDGD, 20/08/2018 12:45:33, 59.99, Kwik-E-Mart, PAYMENT,\r\nYGXKOEIA, 20/08/2018"
+    };
+
+    @Test
+    public void sameLinesAsBufferedReader() throws IOException {
+        for (String input : INPUTS) {
+            // tiny windows force carry over of the lines and of "\r\n" split across windows
+            for (int windowSize = 1; windowSize < 6; windowSize++) {
+                for (int feedSize = 1; feedSize < 8; feedSize++) {
+                    assertEquals(input, readerLines(input), splitterLines(input, windowSize, feedSize));
+                }
+            }
+        }
+    }
+
+    private static List<String> splitterLines(String input, int windowSize, int feedSize) {
+        List<String> lines = new ArrayList<>();
+        LineSplitter splitter = new LineSplitter(windowSize,
+                (buffer, from, to) -> lines.add(new String(buffer, from, to - from, StandardCharsets.UTF_8)));
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i += feedSize) {
+            splitter.feed(bytes, i, Math.min(bytes.length, i + feedSize));
+        }
+        splitter.finish();
+        return lines;
+    }
+
+    private static List<String> readerLines(String input) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new StringReader(input));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+}
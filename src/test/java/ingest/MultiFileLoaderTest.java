@@ -0,0 +1,109 @@
+package ingest;
+
+import analyzer.AveragingFunction;
+import analyzer.TransactionAnalyzer;
+import app.SimpleTransactionAnalyzer;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiFileLoaderTest {
+
+    private static final String HEADER = "ID, Date, Amount, Merchant, Type, Related Transaction\n";
+
+    @Test
+    public void sameAsSingleFile() throws IOException {
+        File directory = Files.createTempDirectory("multi").toFile();
+        try {
+            // 6 hours, one transaction per second, reversals of the earlier transactions of any hour
+            Random random = new Random(5);
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 6 * 3600; i++) {
+                if (i > 0 && random.nextInt(10) == 0) {
+                    lines.add(String.format("R%07d, 20/08/2018 %02d:%02d:%02d, 1.00, MacLaren, REVERSAL, T%07d%n",
+                            i, i / 3600, (i / 60) % 60, i % 60, random.nextInt(i)));
+                } else {
+                    lines.add(String.format("T%07d, 20/08/2018 %02d:%02d:%02d, %d.%02d, M%d, PAYMENT,%n",
+                            i, i / 3600, (i / 60) % 60, i % 60, random.nextInt(100), random.nextInt(100), random.nextInt(20)));
+                }
+            }
+            File single = new File(directory, "all.txt");
+            write(single, lines);
+            // hours 0, 1, 2, 5 as they are, hours 3 and 4 interleaved in two overlapping files
+            List<String> odd = new ArrayList<>();
+            List<String> even = new ArrayList<>();
+            for (int i = 3 * 3600; i < 5 * 3600; i++) {
+                (random.nextBoolean() ? odd : even).add(lines.get(i));
+            }
+            write(new File(directory, "hour-0.csv"), lines.subList(0, 3600));
+            write(new File(directory, "hour-5.csv"), lines.subList(5 * 3600, 6 * 3600));
+            write(new File(directory, "hour-1.csv"), lines.subList(3600, 2 * 3600));
+            write(new File(directory, "hour-3a.csv"), odd);
+            write(new File(directory, "hour-2.csv"), lines.subList(2 * 3600, 3 * 3600));
+            write(new File(directory, "hour-3b.csv"), even);
+            write(new File(directory, "empty.csv"), Collections.<String>emptyList());
+
+            TransactionAnalyzer expected = new TransactionAnalyzer(new AveragingFunction());
+            SimpleTransactionAnalyzer.parseInput(single, expected, InputMode.READER, 1);
+            List<File> files = InputFiles.expand(Arrays.asList(directory.getPath() + File.separator + "*.csv"));
+            assertEquals(7, files.size());
+            for (InputMode mode : InputMode.values()) {
+                TransactionAnalyzer actual = new TransactionAnalyzer(new AveragingFunction());
+                new MultiFileLoader(files, mode, 4, 1024).load(actual);
+                assertTrue(actual.getColumnarDataSet().isTimeOrdered());
+                assertEquals(expected.getDataSet().size(), actual.getDataSet().size());
+                for (int i = 0; i < expected.getDataSet().size(); i++) {
+                    assertEquals(expected.getDataSet().get(i).toString(), actual.getDataSet().get(i).toString());
+                }
+                assertEquals(expected.analyze(0, Long.MAX_VALUE, new AveragingFunction()), actual.analyze(0, Long.MAX_VALUE));
+            }
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void expandDirectoryAndGlob() throws IOException {
+        File directory = Files.createTempDirectory("multi").toFile();
+        try {
+            for (String name : new String[] {"b.csv", "a.csv", "c.txt", ".hidden.csv"}) {
+                write(new File(directory, name), Collections.<String>emptyList());
+            }
+            assertEquals(Arrays.asList(new File(directory, "a.csv"), new File(directory, "b.csv"), new File(directory, "c.txt")),
+                    InputFiles.expand(Arrays.asList(directory.getPath())));
+            assertEquals(Arrays.asList(new File(directory, "a.csv"), new File(directory, "b.csv")),
+                    InputFiles.expand(Arrays.asList(new File(directory, "*.csv").getPath())));
+            assertEquals(Arrays.asList(new File(directory, "x.csv")),
+                    InputFiles.expand(Arrays.asList(new File(directory, "x.csv").getPath())));
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private static void write(File file, List<String> lines) throws IOException {
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(HEADER);
+            for (String line : lines) {
+                writer.write(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ingest;
+
+import analyzer.AveragingFunction;
+import analyzer.TransactionAnalyzer;
+import app.SimpleTransactionAnalyzer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelFileLoaderTest {
+
+    @Test
+    public void sameAsSequentialLoad() throws IOException {
+        File file = File.createTempFile("parallel", ".csv");
+        try {
+            Random random = new Random(7);
+            try (Writer writer = new FileWriter(file)) {
+                writer.write("ID, Date, Amount, Merchant, Type, Related Transaction\r\n");
+                for (int i = 0; i < 2000; i++) {
+                    if (i > 0 && random.nextInt(10) == 0) {
+                        // reversal of earlier (possibly in other chunk), own or non-existent transaction
+                        int target = random.nextInt(10) == 0 ? 100000 + i : random.nextInt(i + 1);
+                        writer.write(String.format("R%07d, 20/08/2018 %02d:%02d:%02d, 1.00, MacLaren, REVERSAL, T%07d%s",
+                                i, i / 3600, (i / 60) % 60, i % 60, target, i % 2 == 0 ? "\n" : "\r\n"));
+                    } else {
+                        writer.write(String.format("T%07d, 20/08/2018 %02d:%02d:%02d, %d.%02d, M%d, PAYMENT,%s",
+                                i, i / 3600, (i / 60) % 60, i % 60, random.nextInt(100), random.nextInt(100),
+                                random.nextInt(20), i % 2 == 0 ? "\n" : "\r\n"));
+                    }
+                }
+            }
+            String[] expectedWarnings = new String[1];
+            TransactionAnalyzer expected = capture(analyzer -> SimpleTransactionAnalyzer.parseInput(file,
+                    analyzer, InputMode.READER, 1), expectedWarnings);
+            Map<String, Object> expectedResult = expected.analyze(0, Long.MAX_VALUE);
+            for (int parallelism : new int[] {2, 4, 7}) {
+                String[] warnings = new String[1];
+                TransactionAnalyzer actual = capture(analyzer -> new ParallelFileLoader(file, parallelism, 512).load(analyzer), warnings);
+                assertTrue(warnings[0].contains("[WARN]"));
+                assertEquals(expectedWarnings[0], warnings[0]);
+                assertEquals(expected.getDataSet().size(), actual.getDataSet().size());
+                for (int i = 0; i < expected.getDataSet().size(); i++) {
+                    assertEquals(expected.getDataSet().get(i).toString(), actual.getDataSet().get(i).toString());
+                }
+                assertEquals(expectedResult, actual.analyze(0, Long.MAX_VALUE));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void invalidLineKeepsPreviousRows() throws IOException {
+        File file = File.createTempFile("parallel", ".csv");
+        try {
+            try (Writer writer = new FileWriter(file)) {
+                for (int i = 0; i < 200; i++) {
+                    writer.write(String.format("T%07d, 20/08/2018 12:00:00, 1.00, M, %s,\n", i, i == 150 ? "REFUND" : "PAYMENT"));
+                }
+            }
+            TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+            try {
+                new ParallelFileLoader(file, 4, 256).load(analyzer);
+                fail();
+            } catch (InvalidLineException e) {
+                assertEquals(150, analyzer.getDataSet().size());
+                assertEquals(151, e.getLineNumber());
+                assertTrue(e.getMessage(), e.getMessage().startsWith("invalid line 151 of " + file + ", "));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private interface Load {
+        void load(TransactionAnalyzer analyzer) throws IOException;
+    }
+
+    private static TransactionAnalyzer capture(Load load, String[] output) throws IOException {
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        PrintStream original = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        try {
+            load.load(analyzer);
+        } finally {
+            System.setOut(original);
+        }
+        output[0] = bytes.toString();
+        return analyzer;
+    }
+}
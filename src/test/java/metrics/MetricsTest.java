@@ -0,0 +1,96 @@
+package metrics;
+
+import analyzer.AveragingFunction;
+import analyzer.TransactionAnalyzer;
+import app.SimpleTransactionAnalyzer;
+import model.TransactionRecord;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.StringReader;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+    @After
+    public void tearDown() {
+        Metrics.enabled = false;
+        Metrics.reset();
+    }
+
+    @Test
+    public void histogramQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram("test", "Test histogram.");
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        assertThat(histogram.getCount(), is(100_000L));
+        assertThat(histogram.getMax(), is(100_000L));
+        assertThat(histogram.getValueAtQuantile(0.0d), is(1L));
+        assertTrue(Math.abs(histogram.getValueAtQuantile(0.5d) - 50_000L) <= 50_000L / 32);
+        assertTrue(Math.abs(histogram.getValueAtQuantile(0.99d) - 99_000L) <= 99_000L / 32);
+        assertThat(histogram.getValueAtQuantile(1.0d), is(100_000L));
+        histogram.reset();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getValueAtQuantile(0.5d), is(0L));
+    }
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        Metrics.reset();
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        SimpleTransactionAnalyzer.parseInput(new File("./Test3.csv"), analyzer);
+        analyzer.analyze(0, Long.MAX_VALUE);
+        assertThat(Metrics.ROWS_LOADED.get(), is(0L));
+        assertThat(Metrics.ANALYZE_LATENCY.getCount(), is(0L));
+    }
+
+    @Test
+    public void loadAndAnalyze() throws Exception {
+        Metrics.reset();
+        Metrics.enabled = true;
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        File file = new File("./Test3.csv");
+        SimpleTransactionAnalyzer.parseInput(file, analyzer);
+        TransactionRecord reversal = new TransactionRecord();
+        reversal.setId("UNKNOWN1");
+        reversal.setType(TransactionRecord.TransactionType.REVERSAL);
+        reversal.setRelatedTransaction("NOTFOUND");
+        analyzer.add(reversal);
+        analyzer.analyze(0, Long.MAX_VALUE);
+
+        assertThat(Metrics.ROWS_LOADED.get(), is(15L));
+        assertThat(Metrics.BYTES_READ.get(), is(file.length()));
+        assertThat(Metrics.UNRESOLVED_REVERSALS.get(), is(1L));
+        assertThat(Metrics.ROWS_ANALYZED.get(), is(16L));
+        assertThat(Metrics.LOAD_LATENCY.getCount(), is(1L));
+        assertThat(Metrics.ANALYZE_LATENCY.getCount(), is(1L));
+        assertTrue(Metrics.getRowsPerSecond() > 0);
+
+        String json = MetricsExporter.toJson();
+        assertThat(json, containsString("\"rows_loaded\": 15,"));
+        assertThat(json, containsString("\"analyze_latency_nanoseconds\": {\"count\": 1,"));
+        String prometheus = MetricsExporter.toPrometheus();
+        assertThat(prometheus, containsString("# TYPE transaction_analyzer_rows_loaded_total counter\n"));
+        assertThat(prometheus, containsString("transaction_analyzer_rows_loaded_total 15\n"));
+        assertThat(prometheus, containsString("transaction_analyzer_load_latency_nanoseconds_count 1\n"));
+    }
+
+    @Test
+    public void parseFailures() throws Exception {
+        Metrics.reset();
+        Metrics.enabled = true;
+        TransactionAnalyzer analyzer = new TransactionAnalyzer(new AveragingFunction());
+        SimpleTransactionAnalyzer.parseInput(new StringReader("ID, Date, Amount, Merchant, Type\n"
+                + "\n"
+                + "A, 20/08/2018 12:45:33\n"
+                + "B, 20/08/2018 12:45:33, 59.99, Kwik-E-Mart, PAYMENT,\n"), analyzer);
+        assertThat(Metrics.PARSE_FAILURES.get(), is(1L));
+        assertThat(analyzer.getColumnarDataSet().size(), is(1));
+    }
+}
@@ -0,0 +1,50 @@
+package model;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AmountsTest {
+
+    @Test
+    public void formatSameAsStringFormat() {
+        Random random = new Random(11);
+        long[] values = {0L, 1L, -1L, 99L, 100L, 123456L, -123456789L, 100000000000L, Long.MAX_VALUE, Long.MIN_VALUE + 1};
+        for (long value : values) {
+            assertThat(Amounts.format(value), is(String.format("%1$,.2f", new BigDecimal(value).movePointLeft(2))));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong() >> random.nextInt(64);
+            assertThat(Amounts.format(value), is(String.format("%1$,.2f", new BigDecimal(value).movePointLeft(2))));
+        }
+    }
+
+    @Test
+    public void roundingHalfAwayFromZero() {
+        assertThat(Amounts.toMinorUnits(10.95d), is(1095L));
+        assertThat(Amounts.toMinorUnits(0.005d), is(1L));
+        assertThat(Amounts.toMinorUnits(-0.005d), is(-1L));
+        assertThat(Amounts.toMinorUnits(Double.NaN), is(0L));
+        assertThat(Amounts.divide(5L, 2L), is(3L));
+        assertThat(Amounts.divide(-5L, 2L), is(-3L));
+        assertThat(Amounts.divide(7L, 3L), is(2L));
+        assertThat(Amounts.divide(Long.MAX_VALUE, 1L), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void parsedMinorUnits() {
+        TransactionParser parser = new TransactionParser();
+        String[][] cases = {{"59.99", "5999"}, {"+7", "700"}, {".5", "50"}, {"5.", "500"}, {"-0.00", "0"},
+                {"0.125", "13"}, {"-0.125", "-13"}, {"0.1249999", "12"}, {"1e3", "100000"}, {"abc", "0"},
+                {"1234567890123456.78", "123456789012345678"}, {"0.1234567890123456789", "12"},
+                {"92233720368547758", "9223372036854775800"}, {"99999999999999999.9", "9223372036854775807"}};
+        for (String[] amount : cases) {
+            parser.parse("X1, 20/08/2018 12:45:33, " + amount[0] + ", M, PAYMENT,");
+            assertThat(amount[0], parser.getAmountMinorUnits(), is(Long.parseLong(amount[1])));
+        }
+    }
+}
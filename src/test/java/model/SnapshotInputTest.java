@@ -0,0 +1,70 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotInputTest {
+
+    @Test
+    public void valuesAcrossMappedWindows() throws IOException {
+        File file = File.createTempFile("values", ".snapshot");
+        file.deleteOnExit();
+        long[] longs = new long[1000];
+        int[] ints = new int[777];
+        byte[] bytes = new byte[333];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = i * 0x0102030405060708L;
+        }
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = -i * 31;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        try (SnapshotOutput output = new SnapshotOutput(file)) {
+            output.writeByte(7);
+            output.writeLongs(longs, longs.length);
+            output.writeString("Kwik-E-Mart");
+            output.writeInts(ints, ints.length);
+            output.writeString(null);
+            output.writeBytes(bytes, bytes.length);
+            output.writeDouble(10.95d);
+        }
+        assertTrue(SnapshotInput.isSnapshot(file));
+        // windows of 13 bytes - every array and most values cross the window boundary
+        try (SnapshotInput input = new SnapshotInput(file, 13)) {
+            assertThat(input.readByte(), is((byte) 7));
+            long[] readLongs = new long[longs.length];
+            input.readLongs(readLongs, readLongs.length);
+            assertThat(readLongs, is(longs));
+            assertThat(input.readString(), is("Kwik-E-Mart"));
+            int[] readInts = new int[ints.length];
+            input.readInts(readInts, readInts.length);
+            assertThat(readInts, is(ints));
+            assertThat(input.readString(), is((String) null));
+            byte[] readBytes = new byte[bytes.length];
+            input.readBytes(readBytes, readBytes.length);
+            assertThat(readBytes, is(bytes));
+            assertThat(input.readDouble(), is(10.95d));
+        }
+    }
+
+    @Test
+    public void csvIsNotSnapshot() throws IOException {
+        assertFalse(SnapshotInput.isSnapshot(new File("./Test1.csv")));
+        File file = File.createTempFile("short", ".csv");
+        file.deleteOnExit();
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("ID");
+        }
+        assertFalse(SnapshotInput.isSnapshot(file));
+    }
+}
@@ -0,0 +1,75 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionDataSetTest {
+    @Test
+    public void columnsRoundTrip() {
+        TransactionDataSet dataSet = new TransactionDataSet();
+        TransactionRecord payment = TransactionRecord.of("YGXKOEIA, 20/08/2018 12:46:17, 10.95, Kwik-E-Mart, PAYMENT,");
+        TransactionRecord reversal = TransactionRecord.of("AKNBVHMN, 20/08/2018 13:14:11, 10.95, Kwik-E-Mart, REVERSAL, YGXKOEIA");
+        assertEquals(0, dataSet.add(payment));
+        assertEquals(1, dataSet.add(reversal));
+        dataSet.setReversed(0, true);
+
+        TransactionRecord record = dataSet.getRecord(0);
+        assertEquals("YGXKOEIA", record.getId());
+        assertEquals(payment.getDate(), record.getDate());
+        assertEquals(10.95d, record.getAmount(), 0.0d);
+        assertEquals("Kwik-E-Mart", record.getMerchant());
+        assertEquals(TransactionRecord.TransactionType.PAYMENT, record.getType());
+        assertTrue(record.isReversed());
+        assertTrue(dataSet.isPayment(0));
+        assertEquals("YGXKOEIA", dataSet.asList().get(1).getRelatedTransaction());
+        assertFalse(dataSet.isReversed(1));
+    }
+
+    @Test
+    public void eligibleMask() {
+        TransactionDataSet dataSet = new TransactionDataSet();
+        dataSet.add(TransactionRecord.of("A, 20/08/2018 12:00:00, 1.00, Kwik-E-Mart, PAYMENT,"));
+        dataSet.add(TransactionRecord.of("B, 20/08/2018 12:00:01, 2.00, Kwik-E-Mart, PAYMENT,"));
+        dataSet.add(TransactionRecord.of("C, 20/08/2018 12:00:02, 1.00, Kwik-E-Mart, REVERSAL, A"));
+        dataSet.setReversed(0, true);
+        dataSet.publish();
+        TransactionDataSet snapshot = dataSet.snapshot();
+        dataSet.add(TransactionRecord.of("D, 20/08/2018 12:00:03, 2.00, Kwik-E-Mart, REVERSAL, B"));
+        dataSet.setReversed(1, true);
+
+        byte[] mask = new byte[3];
+        dataSet.eligibleMask(0, 3, mask);
+        assertArrayEquals(new byte[] {0, 0, 0}, mask);
+        // the reversal of B is not in the snapshot
+        snapshot.eligibleMask(0, 3, mask);
+        assertArrayEquals(new byte[] {0, -1, 0}, mask);
+        snapshot.eligibleMask(1, 2, mask);
+        assertEquals(-1, mask[0]);
+        // unreversed again
+        dataSet.setReversed(1, false);
+        dataSet.eligibleMask(1, 2, mask);
+        assertEquals(-1, mask[0]);
+    }
+
+    @Test
+    public void merchantDictionaryEncoding() {
+        TransactionDataSet dataSet = new TransactionDataSet();
+        for (int i = 0; i < 3000; i++) {
+            TransactionRecord record = new TransactionRecord();
+            record.setId(Integer.toString(i));
+            record.setDate(i);
+            record.setMerchant(i % 2 == 0 ? "Kwik-E-Mart" : "MacLaren");
+            dataSet.add(record);
+        }
+        assertEquals(3000, dataSet.size());
+        assertEquals(2, dataSet.getMerchantDictionary().size());
+        assertEquals(dataSet.getMerchantId(0), dataSet.getMerchantId(2998));
+        assertEquals("MacLaren", dataSet.getMerchant(2999));
+        assertTrue(dataSet.isTimeOrdered());
+        assertEquals(1500, dataSet.lowerBound(1500));
+    }
+}
@@ -0,0 +1,155 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TimeZone;
+
+import static app.SimpleTransactionAnalyzer.DATE_FORMAT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class TransactionParserTest {
+
+    private static final String[] LINES = new String[] {
+            "WLMFRDGD, 20/08/2018 12:45:33, 59.99, Kwik-E-Mart, PAYMENT,",
+            "AKNBVHMN, 20/08/2018 13:14:11, 10.95, Kwik-E-Mart, REVERSAL, YGXKOEIA",
+            "ID, Date, Amount, Merchant, Type, Related Transaction",
+            "id,x,1,m,PAYMENT",
+            "x, DATE, 1, m, PAYMENT",
+            "WLMFRDGD,20/08/2018 12:45:33,59.99,Kwik-E-Mart,PAYMENT",
+            "WLMFRDGD  ,   20/08/2018 12:45:33 ,59.99  ,  Kwik-E-Mart,PAYMENT,  ,  ,",
+            " WLMFRDGD, 20/08/2018 12:45:33, 59.99, Kwik-E-Mart , REVERSAL ,, XYZ",
+            ", 20/08/2018 12:45:33, 59.99, Kwik-E-Mart, PAYMENT",
+            "WLMFRDGD, 20/08/2018 12:45:33, 59.99, , PAYMENT",
+            "WLMFRDGD, 20/08/2018 12:45:33, 59.99, Kwik-E-Mart,",
+            "WLMFRDGD, 20/08/2018 12:45:33, 59.99",
+            "",
+            ",,,,,",
+            "WLMFRDGD, 1/8/2018 1:2:3, 59.99, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 31/02/2018 12:45:33, 59.99, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 20/08/2018 24:45:33, 59.99, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 20/08/2018 12:45:33xyz, 59.99, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 20-08-2018 12:45:33, 59.99, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 29/02/2016 00:00:00, -0.00, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 01/01/1970 00:00:00, +7, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 15/10/1582 00:00:00, .5, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 04/10/1582 23:59:59, 5., Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 20/08/2018 12:45:33, 1e3, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 20/08/2018 12:45:33, 12345678901234567.891, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 20/08/2018 12:45:33, 0.1234567890123456789, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 20/08/2018 12:45:33, 1.2.3, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 20/08/2018 12:45:33, abc, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 20/08/2018 12:45:33, NaN, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 20/08/2018 12:45:33, 59.99\t, Kwik-E-Mart, PAYMENT,",
+            "WLMFRDGD, 20/08/2018 12:45:33, 59.99, Caf\u00e9 \u00d1and\u00fa \u2615, PAYMENT,",
+            "WLMFRDGD, 20/08/2018 12:45:33, 59.99, Kwik-E-Mart, UNKNOWN,",
+    };
+
+    @Test
+    public void sameAsRegexSplit() {
+        for (String line : LINES) {
+            assertSame(line, legacyOf(line), TransactionRecord.of(line));
+        }
+    }
+
+    @Test
+    public void invalidTransactionType() {
+        for (String line : new String[] {"A, 20/08/2018 12:45:33, 1, M, payment", "A, 20/08/2018 12:45:33, 1, M, PAYMENT ,, "}) {
+            String legacyError = null;
+            String error = null;
+            try {
+                legacyOf(line);
+            } catch (IllegalArgumentException e) {
+                legacyError = e.getMessage();
+            }
+            try {
+                TransactionRecord.of(line);
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            }
+            assertEquals(line, legacyError, error);
+        }
+    }
+
+    @Test
+    public void randomDatesAcrossTimeZones() {
+        TimeZone original = DATE_FORMAT.getTimeZone();
+        Random random = new Random(42);
+        try {
+            for (String zone : new String[] {"UTC", "Europe/Prague", "America/New_York", "Australia/Lord_Howe"}) {
+                DATE_FORMAT.setTimeZone(TimeZone.getTimeZone(zone));
+                TransactionParser parser = new TransactionParser();
+                for (int i = 0; i < 5000; i++) {
+                    String line = String.format("ID%d, %02d/%02d/%04d %02d:%02d:%02d, %d.%02d, M, PAYMENT,", i,
+                            1 + random.nextInt(28), 1 + random.nextInt(12), 1960 + random.nextInt(80),
+                            random.nextInt(24), random.nextInt(60), random.nextInt(60),
+                            random.nextInt(100000), random.nextInt(100));
+                    assertSame(line, legacyOf(line), parser.parse(line) ? parser.toRecord() : null);
+                }
+            }
+        } finally {
+            DATE_FORMAT.setTimeZone(original);
+        }
+    }
+
+    @Test
+    public void parseFromBytes() {
+        TransactionParser parser = new TransactionParser();
+        byte[] bytes = "xxAKNBVHMN, 20/08/2018 13:14:11, 10.95, Kwik-E-Mart, REVERSAL, YGXKOEIAyy".getBytes();
+        StringDictionary dictionary = new StringDictionary();
+        assertFalse(parser.parse(bytes, 0, 2));
+        parser.parse(bytes, 2, bytes.length - 2);
+        assertEquals("AKNBVHMN", parser.getId());
+        assertEquals("YGXKOEIA", parser.getRelatedTransaction());
+        assertEquals(10.95d, parser.getAmount(), 0.0d);
+        assertEquals(0, parser.internMerchant(dictionary));
+        assertEquals(0, dictionary.intern("Kwik-E-Mart"));
+        assertEquals(1, dictionary.intern("MacLaren"));
+        assertEquals(0, parser.internMerchant(dictionary));
+    }
+
+    private static void assertSame(String line, TransactionRecord expected, TransactionRecord actual) {
+        if (expected == null) {
+            assertNull(line, actual);
+            return;
+        }
+        assertEquals(line, expected.getId(), actual.getId());
+        assertEquals(line, expected.getDate(), actual.getDate());
+        assertEquals(line, Double.doubleToLongBits(expected.getAmount()), Double.doubleToLongBits(actual.getAmount()));
+        assertEquals(line, expected.getMerchant(), actual.getMerchant());
+        assertEquals(line, expected.getType(), actual.getType());
+        assertEquals(line, expected.getRelatedTransaction(), actual.getRelatedTransaction());
+    }
+
+    /**
+     * The original regex split based implementation of TransactionRecord.of(), used as the reference.
+     */
+    private static TransactionRecord legacyOf(String csvLine) {
+        TransactionRecord record = null;
+        String[] tokens = csvLine.split(" *, *");
+        if (tokens.length >= 5) {
+            if (!"id".equals(tokens[0].toLowerCase()) && !"date".equals(tokens[1].toLowerCase())) {
+                record = new TransactionRecord();
+                record.setId(tokens[0]);
+                try {
+                    record.setDate(DATE_FORMAT.parse(tokens[1]).getTime());
+                } catch (Exception pex) {
+                    record.setDate(Long.MIN_VALUE);
+                }
+                try {
+                    record.setAmount(Double.parseDouble(tokens[2]));
+                } catch (Exception pex) {
+                    // amount remains at default value
+                }
+                record.setMerchant(tokens[3]);
+                record.setType(TransactionRecord.TransactionType.valueOf(tokens[4]));
+                if (tokens.length > 5 && tokens[5].length() > 0) {
+                    record.setRelatedTransaction(tokens[5]);
+                }
+            }
+        }
+        return record;
+    }
+}